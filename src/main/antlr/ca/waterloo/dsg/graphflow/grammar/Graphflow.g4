@@ -6,7 +6,8 @@ matchPattern : edge ( whitespace? COMMA whitespace? edge )* ;
 edge   : vertex whitespace? DASH label? GREATER_THAN vertex ;
 vertex : OPEN_ROUND_BRACKET whitespace? variable (type)? whitespace? CLOSE_ROUND_BRACKET ;
 type   : whitespace? COLON whitespace? variable ;
-label  : OPEN_SQUARE_BRACKET variable CLOSE_SQUARE_BRACKET DASH;
+label  : OPEN_SQUARE_BRACKET ( variable hops? | hops ) CLOSE_SQUARE_BRACKET DASH;
+hops   : STAR Digits ( DOT DOT Digits )? ;
 variable   : ( Digits | Characters | UNDERSCORE ) ( Digits | Characters | UNDERSCORE )* ;
 whitespace : ( SPACE | TAB | CARRIAGE_RETURN | LINE_FEED | FORM_FEED | Comment )+ ;
 
@@ -38,6 +39,8 @@ BACKWARD_SLASH : '\\' ;
 SEMICOLON: ';' ;
 COMMA : ',' ;
 COLON : ':' ;
+STAR : '*' ;
+DOT : '.' ;
 SINGLE_QUOTE : '\'' ;
 DOUBLE_QUOTE : '"'  ;
 OPEN_ROUND_BRACKET   : '(' ;
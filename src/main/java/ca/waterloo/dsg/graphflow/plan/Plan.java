@@ -76,6 +76,10 @@ public class Plan implements Serializable {
     @Getter
     @Setter
     Map<String/*qVertex*/, Double/*estimatedNumOutTuples*/> qVertexToNumOutTuples;
+    // the decomposition of a path query into jumps the plan was picked as, if any.
+    @Getter
+    @Setter
+    String decomposition;
 
     /**
      * Constructs a {@link Plan} object.
@@ -231,6 +235,9 @@ public class Plan implements Serializable {
             strJoiner.add(String.format("%d", numIntermediateTuples));
             strJoiner.add(String.format("%d", icost));
         }
+        if (null != decomposition) {
+            strJoiner.add("JUMP DECOMPOSITION " + decomposition);
+        }
         for (var operatorMetric : operatorMetrics) {
             strJoiner.add(String.format("%s", operatorMetric.a));     /* operator name */
             /*
@@ -298,7 +305,9 @@ public class Plan implements Serializable {
         for (var subplan : this.subplans) {
             subplans.add(subplan.copy(isThreadSafe));
         }
-        return new Plan(subplans);
+        var plan = new Plan(subplans);
+        plan.decomposition = decomposition;
+        return plan;
     }
 
     /**
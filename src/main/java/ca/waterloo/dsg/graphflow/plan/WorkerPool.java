@@ -0,0 +1,156 @@
+package ca.waterloo.dsg.graphflow.plan;
+
+import lombok.Getter;
+import lombok.var;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The threads shared by the query executions, see {@link Workers}, and the catalog executions,
+ * kept alive from one execution to the next instead of started for each one so their
+ * thread-local state, e.g. the output batches of the operators and the scratch neighbours of the
+ * updated adjacency lists, stays allocated. The tasks wait in a queue of at most
+ * {@link #QUEUE_CAPACITY} tasks, once full the threads submitting tasks run them. The pool is
+ * resized to {@link #POOL_SIZE} threads when it changes.
+ */
+public class WorkerPool implements Executor {
+
+    private static final Logger logger = LogManager.getLogger(WorkerPool.class);
+
+    public static int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+    public static int QUEUE_CAPACITY = 1024;
+    // times the tasks and logs the metrics of the pool after each execution.
+    public static boolean METRICS_ENABLED = false;
+
+    private static WorkerPool instance;
+
+    private final ThreadPoolExecutor executor;
+    @Getter private int numThreads;
+    // the pool of the jumps materializing the pairs of the paths, created on first use.
+    private ForkJoinPool forkJoinPool;
+
+    private final AtomicLong numTasksSubmitted = new AtomicLong();
+    private final AtomicLong numTasksStarted = new AtomicLong();
+    private final AtomicLong numTasksRunByCaller = new AtomicLong();
+    private final AtomicLong busyTimeInNanos = new AtomicLong();
+    private final AtomicInteger maxQueueSize = new AtomicInteger();
+
+    private WorkerPool(int numThreads, int queueCapacity) {
+        this.numThreads = numThreads;
+        var threadIdx = new AtomicInteger();
+        executor = new ThreadPoolExecutor(numThreads, numThreads, 0L /* keepAliveTime */,
+            TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                var thread = new Thread(runnable, "worker-" + threadIdx.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }, (task, rejectingExecutor) -> {
+                if (rejectingExecutor.isShutdown()) {
+                    throw new RejectedExecutionException("The worker pool is shut down.");
+                }
+                numTasksRunByCaller.incrementAndGet();
+                task.run();
+            });
+    }
+
+    /**
+     * @return The pool shared by the executions, resized to {@link #POOL_SIZE} threads first if
+     * it changed.
+     */
+    public static synchronized WorkerPool getInstance() {
+        if (POOL_SIZE < 1) {
+            throw new IllegalArgumentException("The worker pool size should be at least 1: " +
+                POOL_SIZE + ".");
+        }
+        if (null == instance) {
+            instance = new WorkerPool(POOL_SIZE, QUEUE_CAPACITY);
+        } else if (instance.numThreads != POOL_SIZE) {
+            instance.resize(POOL_SIZE);
+        }
+        return instance;
+    }
+
+    private void resize(int numThreads) {
+        if (numThreads > this.numThreads) {
+            executor.setMaximumPoolSize(numThreads);
+            executor.setCorePoolSize(numThreads);
+        } else {
+            executor.setCorePoolSize(numThreads);
+            executor.setMaximumPoolSize(numThreads);
+        }
+        this.numThreads = numThreads;
+        if (null != forkJoinPool) {
+            forkJoinPool.shutdown(); /* the running jumps finish. */
+            forkJoinPool = null;
+        }
+    }
+
+    /**
+     * @return The fork join pool of the jumps materializing the pairs of the paths, with as
+     * many threads as the pool.
+     */
+    public synchronized ForkJoinPool getForkJoinPool() {
+        if (null == forkJoinPool) {
+            forkJoinPool = new ForkJoinPool(numThreads);
+        }
+        return forkJoinPool;
+    }
+
+    /**
+     * Submits a task to the threads of the pool, the calling thread runs it if the queue is full.
+     *
+     * @param task is the task to run.
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (!METRICS_ENABLED) {
+            executor.execute(task);
+            return;
+        }
+        numTasksSubmitted.incrementAndGet();
+        executor.execute(() -> {
+            numTasksStarted.incrementAndGet();
+            var startTime = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                busyTimeInNanos.addAndGet(System.nanoTime() - startTime);
+            }
+        });
+        maxQueueSize.accumulateAndGet(executor.getQueue().size(), Math::max);
+    }
+
+    /**
+     * Runs the tasks on the threads of the pool and waits for them to be done.
+     *
+     * @param tasks are the tasks to run.
+     */
+    public void invokeAll(Runnable[] tasks) {
+        var tasksDone = new CompletableFuture<?>[tasks.length];
+        for (var i = 0; i < tasks.length; i++) {
+            tasksDone[i] = CompletableFuture.runAsync(tasks[i], this);
+        }
+        CompletableFuture.allOf(tasksDone).join();
+    }
+
+    /**
+     * Logs the metrics of the pool since it was started if they are enabled.
+     */
+    public void logMetrics() {
+        if (METRICS_ENABLED) {
+            logger.info(String.format("Worker pool: %d threads, %d tasks submitted, %d " +
+                "started, %d run by the callers, %.2f ms busy, max queue size %d.", numThreads,
+                numTasksSubmitted.get(), numTasksStarted.get(), numTasksRunByCaller.get(),
+                busyTimeInNanos.get() / 1_000_000.0, maxQueueSize.get()));
+        }
+    }
+}
@@ -1,36 +1,55 @@
 package ca.waterloo.dsg.graphflow.plan;
 
+import ca.waterloo.dsg.graphflow.plan.operator.Operator;
 import ca.waterloo.dsg.graphflow.plan.operator.Operator.LimitExceededException;
+import ca.waterloo.dsg.graphflow.plan.operator.SplitPool;
 import ca.waterloo.dsg.graphflow.plan.operator.hashjoin.Build;
 import ca.waterloo.dsg.graphflow.plan.operator.hashjoin.HashTable;
+import ca.waterloo.dsg.graphflow.plan.operator.hashjoin.Probe;
 import ca.waterloo.dsg.graphflow.plan.operator.jumpinglikejoin.JumpingLikeJoin;
+import ca.waterloo.dsg.graphflow.plan.operator.jumpinglikejoin.JumpingLikeJoinDistinct;
+import ca.waterloo.dsg.graphflow.plan.operator.jumpinglikejoin.JumpingLikeJoinExeBlocking;
 import ca.waterloo.dsg.graphflow.plan.operator.scan.ScanBlocking;
-import ca.waterloo.dsg.graphflow.plan.operator.scan.ScanBlocking.VertexIdxLimits;
+import ca.waterloo.dsg.graphflow.plan.operator.scan.ScanBlocking.Morsels;
 import ca.waterloo.dsg.graphflow.storage.Graph;
 import ca.waterloo.dsg.graphflow.storage.KeyStore;
 import ca.waterloo.dsg.graphflow.util.IOUtils;
 import ca.waterloo.dsg.graphflow.util.container.Triple;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.var;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Query plan workers execute a query plan in parallel given a number of threads.
+ * Query plan workers execute a query plan in parallel given a number of threads. Each thread
+ * executes a copy of the plan. The subplans are scheduled by their dependencies on the hash
+ * tables built by the other subplans: the subplans whose builds are done run at the same time on
+ * the threads, e.g. the independent build sides of a bushy plan, and a subplan probing hash tables
+ * starts as soon as the subplans building them are done. The tasks run on the threads of the
+ * {@link WorkerPool} shared by the executions.
  */
 public class Workers {
 
     protected static final Logger logger = LogManager.getLogger(Workers.class);
 
     private Plan[] queryPlans;
-    private Thread[][] workers;
+    // the task of each plan copy of each subplan.
+    private Runnable[][] workers;
+    // the subplans building the hash tables each subplan probes.
+    private int[][] subplanDependencies;
     private int numThreads = 1;
 
+    // the jump whose paths are materialized as vertex pairs instead of executing the plan.
+    @Setter
     private JumpingLikeJoin jumpingLikeJoin;
 
     @Getter
@@ -57,22 +76,33 @@ public class Workers {
             }
             this.numThreads = numThreads;
             var numSubplans = queryPlans[0].getSubplans().size();
-            workers = new Thread[numSubplans][numThreads];
+            workers = new Runnable[numSubplans][numThreads];
+            subplanDependencies = getSubplanDependencies(queryPlans[0].getSubplans());
+            var splitPools = new SplitPool[numSubplans];
+            for (var subplanId = 0; subplanId < numSubplans; subplanId++) {
+                splitPools[subplanId] = new SplitPool();
+            }
             for (var i = 0; i < queryPlans.length; i++) {
                 var subplans = queryPlans[i].getSubplans();
                 for (var subplanId = 0; subplanId < numSubplans; subplanId++) {
                     var operator = subplans.get(subplanId);
-                    Runnable runnable = () -> {
+                    var splitPool = splitPools[subplanId];
+                    var operators = getOperators(operator);
+                    for (var operatorIdx = 0; operatorIdx < operators.length; operatorIdx++) {
+                        operators[operatorIdx].setSplitPool(splitPool, operatorIdx);
+                    }
+                    workers[subplanId][i] = () -> {
                         try {
-                            operator.execute();
+                            splitPool.execute(operators);
                         } catch (LimitExceededException e) {
                         }
                     };
-                    workers[subplanId][i] = new Thread(runnable);
                 }
             }
             for (var i = 0; i < numSubplans; i++) {
-                var globalVertexIdxLimits = new VertexIdxLimits();
+                var morsels = new Morsels(numThreads);
+                var globalFromIdx = new AtomicInteger();
+                var globalBatchIdx = new AtomicInteger();
                 for (var plan : queryPlans) {
                     var lastOperator = plan.subplans.get(i);
                     var operator = lastOperator;
@@ -80,22 +110,62 @@ public class Workers {
                         operator = operator.getPrev();
                     }
                     if (operator instanceof ScanBlocking) {
-                        ((ScanBlocking) operator).setGlobalVerticesIdxLimits(globalVertexIdxLimits);
+                        ((ScanBlocking) operator).setMorsels(morsels);
+                    } else if (operator instanceof JumpingLikeJoinExeBlocking) {
+                        ((JumpingLikeJoinExeBlocking) operator).setGlobalFromIdx(globalFromIdx);
+                    } else if (operator instanceof JumpingLikeJoinDistinct) {
+                        ((JumpingLikeJoinDistinct) operator).setGlobalBatchIdx(globalBatchIdx);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the indices of the subplans building the hash tables probed by each subplan.
+     */
+    private static int[][] getSubplanDependencies(List<Operator> subplans) {
+        var buildIDToSubplanId = new HashMap<Integer, Integer>();
+        for (var subplanId = 0; subplanId < subplans.size(); subplanId++) {
+            if (subplans.get(subplanId) instanceof Build) {
+                buildIDToSubplanId.put(((Build) subplans.get(subplanId)).getID(), subplanId);
+            }
+        }
+        var subplanDependencies = new int[subplans.size()][];
+        for (var subplanId = 0; subplanId < subplans.size(); subplanId++) {
+            var dependencies = new ArrayList<Integer>();
+            for (var operator : getOperators(subplans.get(subplanId))) {
+                if (operator instanceof Probe) {
+                    var buildSubplanId = buildIDToSubplanId.get(((Probe) operator).getID());
+                    if (null != buildSubplanId && buildSubplanId != subplanId &&
+                            !dependencies.contains(buildSubplanId)) {
+                        dependencies.add(buildSubplanId);
                     }
                 }
             }
+            subplanDependencies[subplanId] = dependencies.stream().mapToInt(i -> i).toArray();
+        }
+        return subplanDependencies;
+    }
+
+    /**
+     * @return the operators of the subplan ending at the given operator, from the first one.
+     */
+    private static Operator[] getOperators(Operator lastOperator) {
+        var operators = new ArrayList<Operator>();
+        for (var operator = lastOperator; null != operator; operator = operator.getPrev()) {
+            operators.add(0, operator);
         }
+        return operators.toArray(new Operator[0]);
     }
 
-    public void init(Graph graph, KeyStore store, short label) {
-        // delete cycle
-        /*RemLoop remLoop = new RemLoop(queryPlans[queryPlans.length - 1].getLastOperator().getOutSubgraph());
-        queryPlans[queryPlans.length - 1].append(remLoop);*/
+    public void init(Graph graph, KeyStore store) {
         for (var queryPlan : queryPlans) {
             queryPlan.init(graph, store);
         }
-        // run jumping-like-wco plans directly，theb we no need to invoke scan operator
-        // jumpingLikeJoin = new JumpingLikeJoin(graph, label); // invoke jumping
+        if (null != jumpingLikeJoin) {
+            jumpingLikeJoin.setGraph(graph);
+        }
         var numBuildOperators = queryPlans[0].getSubplans().size() - 1;
         for (var buildIdx = 0; buildIdx < numBuildOperators; buildIdx++) {
             var ID = ((Build) queryPlans[0].getSubplans().get(buildIdx)).getID();
@@ -111,172 +181,53 @@ public class Workers {
     }
 
     public void execute() throws InterruptedException {
-        if (queryPlans.length == 1) {
-            if (jumpingLikeJoin == null) {
-                queryPlans[0].execute();
-                elapsedTime = queryPlans[0].getElapsedTime();
-            } else {
-                // var startTime = System.nanoTime();
-                // var edge3ByTable = jumpingLikeJoin.getEdge3ByFwdAdjList();
-                // var endTime = IOUtils.getElapsedTimeInMillis(startTime);
-                // elapsedTime = endTime;
-                // numOutTuples = edge3ByTable.size();
-
-                // // 6(4(2+1)+1)+1
-                // System.out.println("jump 6");
-                // var startTime = System.nanoTime();
-                // var edge2 = jumpingLikeJoin.getEdge2ByFwdAdjList();
-                // var edge4 = jumpingLikeJoin.intersect(edge2);
-                // var edge6 = jumpingLikeJoin.intersect(edge4);
-                // var endTime = IOUtils.getElapsedTimeInMillis(startTime);
-                // elapsedTime = endTime;
-                // numOutTuples = edge6.size();
-
-                // // 7(5(3+1)+1)+1
-                // System.out.println("jump 7");
-                // var startTime = System.nanoTime();
-                // var edge3 = jumpingLikeJoin.getEdge3ByFwdAdjList();
-                // var edge5 = jumpingLikeJoin.intersect(edge3);
-                // var edge7 = jumpingLikeJoin.intersect(edge5);
-                // var endTime = IOUtils.getElapsedTimeInMillis(startTime);
-                // elapsedTime = endTime;
-                // numOutTuples = edge7.size();
-
-                // // 8=3+4（2）/6(4(2+1)+1)+1
-                // System.out.println("jump 8");
-                // var startTime = System.nanoTime();
-                // var edge2 = jumpingLikeJoin.getEdge2ByFwdAdjList();
-                // var edge3 = jumpingLikeJoin.getEdge3ByFwdAdjList();
-                // var edge4 = jumpingLikeJoin.intersect(edge2);
-                // jumpingLikeJoin.buildSubTable(edge3);
-                // var edge8 = jumpingLikeJoin.intersect(edge4,edge3);
-                // var endTime = IOUtils.getElapsedTimeInMillis(startTime);
-                // elapsedTime = endTime;
-                // numOutTuples = edge8.size();
-                // // var edge2 = jumpingLikeJoin.getEdge2ByFwdAdjList();
-                // // var edge3 = jumpingLikeJoin.getEdge3ByFwdAdjList();
-                // // jumpingLikeJoin.buildSubTable(edge2);
-                // // var edge6 = jumpingLikeJoin.intersect(edge3,edge2);
-                // // var edge8 = jumpingLikeJoin.intersect(edge6);
-                // // var endTime = IOUtils.getElapsedTimeInMillis(startTime);
-                // // elapsedTime = endTime;
-                // // numOutTuples = edge8.size();
-                // // var edge2 = jumpingLikeJoin.getEdge2ByFwdAdjList();
-                // // var edge4 = jumpingLikeJoin.intersect(edge2);
-                // // var edge6 = jumpingLikeJoin.intersect(edge4);
-                // // var edge8 = jumpingLikeJoin.intersect(edge6);
-                // // var endTime = IOUtils.getElapsedTimeInMillis(startTime);
-                // // elapsedTime = endTime;
-                // // numOutTuples = edge8.size();
-
-                // 9=4+4（2），7（3+3）+1，7（5（3+1）+1）+1
-                // System.out.println("jump 9");
-                // var startTime = System.nanoTime();
-                // var edge2 = jumpingLikeJoin.getEdge2ByFwdAdjList();
-                // var edge4 = jumpingLikeJoin.intersect(edge2);
-                // jumpingLikeJoin.buildSubTable(edge4);
-                // var edge9 = jumpingLikeJoin.intersect(edge4,edge4);
-                // var endTime = IOUtils.getElapsedTimeInMillis(startTime);
-                // elapsedTime = endTime;
-                // numOutTuples = edge9.size();
-
-                // var edge3 = jumpingLikeJoin.getEdge3ByFwdAdjList();
-                // jumpingLikeJoin.buildSubTable(edge3);
-                // var edge7 = jumpingLikeJoin.intersect(edge3,edge3);
-                // var edge9 = jumpingLikeJoin.intersect(edge7);
-                // var endTime = IOUtils.getElapsedTimeInMillis(startTime);
-                // elapsedTime = endTime;
-                // numOutTuples = edge9.size();
-
-                // var edge3 = jumpingLikeJoin.getEdge3ByFwdAdjList();
-                // var edge5 = jumpingLikeJoin.intersect(edge3);
-                // var edge7 = jumpingLikeJoin.intersect(edge5);
-                // var edge9 = jumpingLikeJoin.intersect(edge7);
-                // var endTime = IOUtils.getElapsedTimeInMillis(startTime);
-                // elapsedTime = endTime;
-                // numOutTuples = edge9.size();
-
-                // // 10=4+5，8（6（4（2+1）+1）+1）+1
-                // System.out.println("jump 10");
-                // var startTime = System.nanoTime();
-                // // var edge2 = jumpingLikeJoin.getEdge2ByFwdAdjList();
-                // // var edge4 = jumpingLikeJoin.intersect(edge2);
-                // // jumpingLikeJoin.buildSubTable(edge2);
-                // // var edge5 = jumpingLikeJoin.intersect(edge2,edge2);
-                // // jumpingLikeJoin.buildSubTable(edge4);
-                // // var edge10 = jumpingLikeJoin.intersect(edge5,edge4);
-                // // var endTime = IOUtils.getElapsedTimeInMillis(startTime);
-                // // elapsedTime = endTime;
-                // // numOutTuples = edge10.size();
-
-                // var edge2 = jumpingLikeJoin.getEdge2ByFwdAdjList();
-                // var edge4 = jumpingLikeJoin.intersect(edge2);
-                // var edge6 = jumpingLikeJoin.intersect(edge4);
-                // var edge8 = jumpingLikeJoin.intersect(edge6);
-                // var edge10 = jumpingLikeJoin.intersect(edge8);
-                // var endTime = IOUtils.getElapsedTimeInMillis(startTime);
-                // elapsedTime = endTime;
-                // numOutTuples = edge10.size();
-
-                // // 11=9(7,5,3)+1
-                // System.out.println("jump 11");
-                // var startTime = System.nanoTime();
-                // var edge3 = jumpingLikeJoin.getEdge3ByFwdAdjList();
-                // // jumpingLikeJoin.buildSubTable(edge3);
-                // // var edge7 = jumpingLikeJoin.intersect(edge3,edge3);
-                // var edge5 = jumpingLikeJoin.intersect(edge3);
-                // var edge7 = jumpingLikeJoin.intersect(edge5);
-                // var edge9 = jumpingLikeJoin.intersect(edge7);
-                // var edge11 = jumpingLikeJoin.intersect(edge9);
-                // var endTime = IOUtils.getElapsedTimeInMillis(startTime);
-                // elapsedTime = endTime;
-                // numOutTuples = edge11.size();
-
-                // // 12=10（8，6，4，2）+1
-                // System.out.println("jump 12");
-                // var startTime = System.nanoTime();
-                // var edge2 = jumpingLikeJoin.getEdge2ByFwdAdjList();
-                // var edge4 = jumpingLikeJoin.intersect(edge2);
-                // var edge6 = jumpingLikeJoin.intersect(edge4);
-                // var edge8 = jumpingLikeJoin.intersect(edge6);
-                // var edge10 = jumpingLikeJoin.intersect(edge8);
-                // var edge12 = jumpingLikeJoin.intersect(edge10);
-                // var endTime = IOUtils.getElapsedTimeInMillis(startTime);
-                // elapsedTime = endTime;
-                // numOutTuples = edge12.size();
-
-
-                // 24=10+11
-                System.out.println("jump 24");
-                var startTime = System.nanoTime();
-                var edge2 = jumpingLikeJoin.getEdge2ByFwdAdjList();
-                var edge4 = jumpingLikeJoin.intersect(edge2);
-                var edge6 = jumpingLikeJoin.intersect(edge4);
-                var edge8 = jumpingLikeJoin.intersect(edge6);
-                var edge10 = jumpingLikeJoin.intersect(edge8);
-                var edge12 = jumpingLikeJoin.intersect(edge10);
-                var edge14 = jumpingLikeJoin.intersect(edge12);
-                var edge16 = jumpingLikeJoin.intersect(edge14);
-                var edge18 = jumpingLikeJoin.intersect(edge16);
-                var edge20 = jumpingLikeJoin.intersect(edge18);
-                var edge22 = jumpingLikeJoin.intersect(edge20);
-                var edge24 = jumpingLikeJoin.intersect(edge22);
-                var endTime = IOUtils.getElapsedTimeInMillis(startTime);
-                elapsedTime = endTime;
-                numOutTuples = edge24.size();
-            }
+        if (null != jumpingLikeJoin) {
+            var startTime = System.nanoTime();
+            jumpingLikeJoin.setPool(numThreads > 1 ?
+                WorkerPool.getInstance().getForkJoinPool() : null);
+            numOutTuples = jumpingLikeJoin.getPaths().getSize();
+            elapsedTime = IOUtils.getElapsedTimeInMillis(startTime);
+        } else if (queryPlans.length == 1) {
+            queryPlans[0].execute();
+            elapsedTime = queryPlans[0].getElapsedTime();
         } else {
             var beginTime = System.nanoTime();
-            for (var subplanWorkers : workers) {
-                for (int j = 0; j < queryPlans.length; j++) {
-                    subplanWorkers[j].start();
-                }
-                for (int j = 0; j < queryPlans.length; j++) {
-                    subplanWorkers[j].join();
-                }
+            var pool = WorkerPool.getInstance();
+            var subplansDone = new CompletableFuture<?>[workers.length];
+            for (var subplanId = 0; subplanId < workers.length; subplanId++) {
+                schedule(subplanId, subplansDone, pool);
             }
+            CompletableFuture.allOf(subplansDone).join();
             elapsedTime = IOUtils.getElapsedTimeInMillis(beginTime);
+            pool.logMetrics();
+        }
+    }
+
+    /**
+     * Schedules the tasks of the subplan, and same recursively of the subplans it depends on, to
+     * be submitted once the subplans it depends on are done.
+     *
+     * @return the future completed once the subplan is done.
+     */
+    private CompletableFuture<?> schedule(int subplanId, CompletableFuture<?>[] subplansDone,
+        WorkerPool pool) {
+        if (null == subplansDone[subplanId]) {
+            var dependencies = subplanDependencies[subplanId];
+            var dependenciesDone = new CompletableFuture<?>[dependencies.length];
+            for (var i = 0; i < dependencies.length; i++) {
+                dependenciesDone[i] = schedule(dependencies[i], subplansDone, pool);
+            }
+            var subplanWorkers = workers[subplanId];
+            subplansDone[subplanId] = CompletableFuture.allOf(dependenciesDone).thenCompose(
+                ignored -> {
+                    var workersDone = new CompletableFuture<?>[subplanWorkers.length];
+                    for (var i = 0; i < subplanWorkers.length; i++) {
+                        workersDone[i] = CompletableFuture.runAsync(subplanWorkers[i], pool);
+                    }
+                    return CompletableFuture.allOf(workersDone);
+                });
         }
+        return subplansDone[subplanId];
     }
 
     /**
@@ -284,14 +235,13 @@ public class Workers {
      */
     public String getOutputLog() {
         if (jumpingLikeJoin != null) {
-            var czyStr = new StringJoiner(",");
-            czyStr.add(String.format("%.4f", elapsedTime));
-            czyStr.add(String.format("%d", numOutTuples));
-            czyStr.add(String.format("%d", -1));
-            czyStr.add("Jumping Like Join");
-            return czyStr.toString() + '\n';
+            var strJoiner = new StringJoiner(",");
+            strJoiner.add(String.format("%.4f", elapsedTime));
+            strJoiner.add(String.format("%d", numOutTuples));
+            strJoiner.add(String.format("%d", -1));
+            strJoiner.add(jumpingLikeJoin.getName());
+            return strJoiner.toString() + "\n";
         }
-        // ------------------------------------------------------
         if (queryPlans.length == 1) {
             return queryPlans[0].getOutputLog();
         }
@@ -307,6 +257,9 @@ public class Workers {
         strJoiner.add(String.format("%d", numOutTuples));
         strJoiner.add(String.format("%d", numIntermediateTuples));
         strJoiner.add(String.format("%d", intersectionCost));
+        if (null != queryPlans[0].getDecomposition()) {
+            strJoiner.add("JUMP DECOMPOSITION " + queryPlans[0].getDecomposition());
+        }
         for (var operatorMetric : operatorMetrics) {
             strJoiner.add(String.format("%s", operatorMetric.a));     /* operator name */
             /*
@@ -27,6 +27,8 @@ public abstract class Operator implements Serializable {
     public class LimitExceededException extends Exception {}
 
     public static boolean CACHING_ENABLED = true;
+    // pushes the tuples to the next operators in batches, see TupleBatch, instead of one at a time.
+    public static boolean BATCHING_ENABLED = false;
 
     @Getter protected String name;
     @Getter protected Operator[] next;
@@ -43,6 +45,15 @@ public abstract class Operator implements Serializable {
     @Getter protected long numOutTuples = 0;
     @Getter protected long icost = 0;
 
+    // the tuples not pushed yet to the next operator, null unless batching.
+    protected TupleBatch outBatch;
+    // the tuple appended to the output batch, the next operators overwrite the probe tuple.
+    protected int[] batchTuple;
+    // the splits of the subplan copies and the index of the operator in the subplan, the pool is
+    // null unless multi-threaded.
+    protected SplitPool splitPool;
+    protected int splitOperatorIdx;
+
     // @Getter protected List<int[]>  intermedia;
 
     /**
@@ -114,6 +125,159 @@ public abstract class Operator implements Serializable {
      */
     public abstract void processNewTuple() throws LimitExceededException;
 
+    /**
+     * Process a new batch of tuples and push the produced tuples to the next operator. Unless
+     * overridden, the selected tuples of the batch are processed one at a time.
+     *
+     * @param batch is the batch of input tuples.
+     */
+    public void processNewBatch(TupleBatch batch) throws LimitExceededException {
+        processTuples(batch);
+    }
+
+    /**
+     * Processes the selected tuples of a batch one at a time.
+     *
+     * @param batch is the batch of input tuples.
+     */
+    protected void processTuples(TupleBatch batch) throws LimitExceededException {
+        var selection = batch.getSelection();
+        for (var i = 0; i < batch.getNumSelected(); i++) {
+            batch.copyRow(selection[i], probeTuple);
+            processNewTuple();
+        }
+    }
+
+    /**
+     * Allocates the output batch if batching is enabled. The operators of the multi-threaded
+     * subplan copies take the output batches of the threads executing them instead, see
+     * {@link #useThreadBatch()}.
+     */
+    protected void initOutBatch() {
+        if (BATCHING_ENABLED) {
+            if (null == splitPool) {
+                outBatch = new TupleBatch(outTupleLen);
+            }
+            batchTuple = new int[outTupleLen];
+        }
+    }
+
+    /**
+     * Takes the output batch kept by the calling thread for the index of the operator in the
+     * subplan if batching is enabled.
+     */
+    void useThreadBatch() {
+        if (null != batchTuple) {
+            outBatch = TupleBatch.getThreadBatch(splitOperatorIdx, outTupleLen);
+        }
+    }
+
+    /**
+     * Appends to the output batch the tuples extending the batch tuple by each of the given
+     * vertices, pushing the batch to the next operator each time it is full.
+     *
+     * @param outIdx is the index of the vertices in the output tuples.
+     * @param vertexIds are the vertices.
+     * @param startIdx is the index of the first vertex.
+     * @param endIdx is the index after the last vertex.
+     */
+    protected void appendToOutBatch(int outIdx, int[] vertexIds, int startIdx, int endIdx)
+        throws LimitExceededException {
+        while (startIdx < endIdx) {
+            startIdx += outBatch.append(batchTuple, outIdx, vertexIds, startIdx, endIdx);
+            if (outBatch.isFull()) {
+                pushOutBatch();
+            }
+        }
+    }
+
+    /**
+     * Appends the batch tuple to the output batch, pushing the batch to the next operator if it
+     * is full.
+     */
+    protected void appendToOutBatch() throws LimitExceededException {
+        outBatch.append(batchTuple);
+        if (outBatch.isFull()) {
+            pushOutBatch();
+        }
+    }
+
+    /**
+     * Pushes the selected tuples of the output batch to the next operator and clears it.
+     */
+    protected void pushOutBatch() throws LimitExceededException {
+        selectOutTuples();
+        numOutTuples += outBatch.getNumSelected();
+        if (outBatch.getNumSelected() > 0) {
+            next[0].processNewBatch(outBatch);
+        }
+        outBatch.clear();
+    }
+
+    /**
+     * Selects the tuples of the output batch to push, all of them unless overridden.
+     */
+    protected void selectOutTuples() {
+        outBatch.selectAll();
+    }
+
+    /**
+     * Pushes the tuples left in the output batch, if any, and same recursively for the next
+     * operators once the input tuples are all processed.
+     */
+    public void flush() throws LimitExceededException {
+        if (null != outBatch && outBatch.getSize() > 0) {
+            pushOutBatch();
+        }
+        if (null != next) {
+            for (var nextOperator : next) {
+                nextOperator.flush();
+            }
+        }
+    }
+
+    /**
+     * Sets the pool of the splits of large adjacency lists of the thread-safe copies of the
+     * subplan.
+     *
+     * @param splitPool is the pool of the splits.
+     * @param operatorIdx is the index of the operator in the subplan, from the first operator.
+     */
+    public void setSplitPool(SplitPool splitPool, int operatorIdx) {
+        this.splitPool = splitPool;
+        this.splitOperatorIdx = operatorIdx;
+    }
+
+    /**
+     * Splits the second half of the neighbours to extend the probe tuple by off to the split pool
+     * if it is set and a thread is idle.
+     *
+     * @param hop is the hop of the neighbours for the jumps, 0 otherwise.
+     * @param neighbourIds are the neighbours.
+     * @param startIdx is the index of the first neighbour.
+     * @param endIdx is the index after the last neighbour.
+     * @return the index after the last neighbour left to the operator.
+     */
+    protected int splitOff(int hop, int[] neighbourIds, int startIdx, int endIdx) {
+        if (null == splitPool || !splitPool.isSplitNeeded(endIdx - startIdx)) {
+            return endIdx;
+        }
+        var midIdx = startIdx + (endIdx - startIdx) / 2;
+        splitPool.add(splitOperatorIdx, probeTuple, hop, neighbourIds, midIdx, endIdx);
+        return midIdx;
+    }
+
+    /**
+     * Processes the neighbours split off by the same operator of another subplan copy and push
+     * the produced tuples to the next operator.
+     *
+     * @param split is the split of the neighbours.
+     */
+    public void processSplit(SplitPool.Split split) throws LimitExceededException {
+        throw new UnsupportedOperationException(this.getClass().getSimpleName() +
+            " does not support processSplit(Split).");
+    }
+
     /**
      * Executes the operator.
      */
@@ -0,0 +1,128 @@
+package ca.waterloo.dsg.graphflow.plan.operator;
+
+import ca.waterloo.dsg.graphflow.plan.operator.Operator.LimitExceededException;
+import lombok.var;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The splits of large adjacency lists shared by the thread-safe copies of a subplan. While a
+ * thread is idle, an operator extending a tuple by more than twice {@link #SPLIT_THRESHOLD}
+ * neighbours keeps the first half of the neighbours and splits the second half off with a copy
+ * of the tuple, see {@link Operator#splitOff(int, int[], int, int)}. The threads done with their
+ * own part of the subplan take the splits and process them with the same operator of their own
+ * copy, see {@link Operator#processSplit(Split)}, until no thread is busy, so the tuples of hubs
+ * do not keep a single thread busy while the others wait. The threads not started yet, e.g. when
+ * the subplans share the threads, are not waited for and process their splits themselves.
+ */
+public class SplitPool {
+
+    public static int SPLIT_THRESHOLD = 1024;
+    public static long IDLE_TIME_IN_NANOS = 10_000;
+
+    private final ConcurrentLinkedDeque<Split> splits = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger numSplits = new AtomicInteger();
+    private final AtomicInteger numIdleThreads = new AtomicInteger();
+    private final AtomicInteger numBusyThreads = new AtomicInteger();
+    private volatile boolean isStopped;
+
+    /**
+     * The neighbours split off by an operator.
+     */
+    public static class Split {
+
+        // the index of the operator in the subplan, from the first operator.
+        final int operatorIdx;
+        public final int[] tuple;
+        // the hop of the neighbours for the jumps, 0 otherwise.
+        public final int hop;
+        public final int[] neighbourIds;
+
+        Split(int operatorIdx, int[] tuple, int hop, int[] neighbourIds) {
+            this.operatorIdx = operatorIdx;
+            this.tuple = tuple;
+            this.hop = hop;
+            this.neighbourIds = neighbourIds;
+        }
+    }
+
+    /**
+     * @param numNeighbours is the number of neighbours to extend a tuple by.
+     * @return True if the neighbours are to be split, i.e. there are enough of them and more
+     * idle threads than splits left, false otherwise.
+     */
+    boolean isSplitNeeded(int numNeighbours) {
+        return numNeighbours > 2 * SPLIT_THRESHOLD && numIdleThreads.get() > numSplits.get();
+    }
+
+    /**
+     * Adds a split.
+     *
+     * @param operatorIdx is the index of the operator in the subplan, from the first operator.
+     * @param tuple is the tuple the neighbours extend, copied.
+     * @param hop is the hop of the neighbours for the jumps, 0 otherwise.
+     * @param neighbourIds are the neighbours to split off.
+     * @param startIdx is the index of the first neighbour to split off.
+     * @param endIdx is the index after the last neighbour to split off.
+     */
+    void add(int operatorIdx, int[] tuple, int hop, int[] neighbourIds, int startIdx,
+        int endIdx) {
+        numSplits.incrementAndGet();
+        splits.addLast(new Split(operatorIdx, Arrays.copyOf(tuple, tuple.length), hop,
+            Arrays.copyOfRange(neighbourIds, startIdx, endIdx)));
+    }
+
+    /**
+     * Executes the subplan copy of the thread and then processes the splits until no thread is
+     * busy. A thread adding a split is busy until it processes the splits itself so no split is
+     * left once the threads return. The operators take the output batches of the thread.
+     *
+     * @param operators are the operators of the subplan copy of the thread, from the first one.
+     */
+    public void execute(Operator[] operators) throws LimitExceededException {
+        for (var operator : operators) {
+            operator.useThreadBatch();
+        }
+        numBusyThreads.incrementAndGet();
+        try {
+            operators[operators.length - 1].execute();
+        } catch (LimitExceededException e) {
+            stop();
+            throw e;
+        }
+        numIdleThreads.incrementAndGet();
+        numBusyThreads.decrementAndGet();
+        try {
+            while (!isStopped) {
+                var split = splits.pollFirst();
+                if (null != split) {
+                    numSplits.decrementAndGet();
+                    numBusyThreads.incrementAndGet();
+                    numIdleThreads.decrementAndGet();
+                    operators[split.operatorIdx].processSplit(split);
+                    numIdleThreads.incrementAndGet();
+                    numBusyThreads.decrementAndGet();
+                } else if (0 == numBusyThreads.get()) {
+                    return;
+                } else {
+                    LockSupport.parkNanos(IDLE_TIME_IN_NANOS);
+                }
+            }
+        } catch (LimitExceededException e) {
+            stop();
+            throw e;
+        } finally {
+            numIdleThreads.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stops the threads processing the splits, e.g. once the LIMIT is reached.
+     */
+    public void stop() {
+        isStopped = true;
+    }
+}
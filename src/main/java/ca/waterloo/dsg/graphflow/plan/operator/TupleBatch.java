@@ -0,0 +1,170 @@
+package ca.waterloo.dsg.graphflow.plan.operator;
+
+import lombok.Getter;
+import lombok.var;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A fixed-size batch of tuples pushed between the operators when batching is enabled, see
+ * {@link Operator#BATCHING_ENABLED}. The tuples are kept by column so the tuples extending the
+ * same prefix are appended with array fills and copies. The selection vector holds the rows of
+ * the tuples to process, e.g. the rows whose last vertex has the type of its query vertex.
+ */
+public class TupleBatch {
+
+    public static int CAPACITY = 1024;
+
+    // the output batches of the operators executed by each thread, by index of the operator in
+    // the subplan, reused from one subplan to the next.
+    private static final ThreadLocal<List<TupleBatch>> threadBatches = ThreadLocal.withInitial(
+        ArrayList::new);
+
+    @Getter private final int[][] columns;
+    @Getter private final int capacity;
+    @Getter private int size;
+    @Getter private final int[] selection;
+    @Getter private int numSelected;
+
+    /**
+     * Constructs a {@link TupleBatch} object holding up to {@link #CAPACITY} tuples.
+     *
+     * @param numColumns is the length of the tuples.
+     */
+    public TupleBatch(int numColumns) {
+        this(numColumns, CAPACITY);
+    }
+
+    /**
+     * Constructs a {@link TupleBatch} object.
+     *
+     * @param numColumns is the length of the tuples.
+     * @param capacity is the number of tuples held.
+     */
+    public TupleBatch(int numColumns, int capacity) {
+        this.columns = new int[numColumns][capacity];
+        this.capacity = capacity;
+        this.selection = new int[capacity];
+    }
+
+    /**
+     * Returns the empty output batch of the calling thread for the operator at the given index of
+     * a subplan, allocated if the thread has none of the right length yet.
+     *
+     * @param operatorIdx is the index of the operator in the subplan, from the first operator.
+     * @param numColumns is the length of the tuples.
+     * @return the batch.
+     */
+    static TupleBatch getThreadBatch(int operatorIdx, int numColumns) {
+        var batches = threadBatches.get();
+        while (batches.size() <= operatorIdx) {
+            batches.add(null);
+        }
+        var batch = batches.get(operatorIdx);
+        if (null == batch || batch.getNumColumns() != numColumns || batch.capacity != CAPACITY) {
+            batch = new TupleBatch(numColumns);
+            batches.set(operatorIdx, batch);
+        }
+        batch.clear();
+        return batch;
+    }
+
+    /**
+     * @return The length of the tuples.
+     */
+    public int getNumColumns() {
+        return columns.length;
+    }
+
+    /**
+     * @return True if no more tuples can be appended, false otherwise.
+     */
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Removes all the tuples.
+     */
+    public void clear() {
+        size = 0;
+        numSelected = 0;
+    }
+
+    /**
+     * Appends the tuples extending the given prefix by each of the given vertices, up to the
+     * capacity.
+     *
+     * @param tuple is the prefix, its values are repeated in the columns other than the column.
+     * @param column is the column of the vertices.
+     * @param vertexIds are the vertices.
+     * @param startIdx is the index of the first vertex.
+     * @param endIdx is the index after the last vertex.
+     * @return the number of tuples appended, fewer than the number of vertices if the batch got
+     * full.
+     */
+    public int append(int[] tuple, int column, int[] vertexIds, int startIdx, int endIdx) {
+        var numAppended = Math.min(endIdx - startIdx, capacity - size);
+        for (var i = 0; i < columns.length; i++) {
+            if (i != column) {
+                Arrays.fill(columns[i], size, size + numAppended, tuple[i]);
+            }
+        }
+        System.arraycopy(vertexIds, startIdx, columns[column], size, numAppended);
+        size += numAppended;
+        return numAppended;
+    }
+
+    /**
+     * Appends a tuple, the batch should not be full.
+     *
+     * @param tuple is the tuple, only its first values are appended if it is longer.
+     */
+    public void append(int[] tuple) {
+        for (var i = 0; i < columns.length; i++) {
+            columns[i][size] = tuple[i];
+        }
+        size++;
+    }
+
+    /**
+     * Copies a tuple of the batch.
+     *
+     * @param row is the row of the tuple.
+     * @param tuple is the tuple to copy the values to.
+     */
+    public void copyRow(int row, int[] tuple) {
+        for (var i = 0; i < columns.length; i++) {
+            tuple[i] = columns[i][row];
+        }
+    }
+
+    /**
+     * Selects all the tuples.
+     */
+    public void selectAll() {
+        for (var row = 0; row < size; row++) {
+            selection[row] = row;
+        }
+        numSelected = size;
+    }
+
+    /**
+     * Selects the tuples whose vertex in the column has the given type.
+     *
+     * @param column is the column of the vertices to check.
+     * @param vertexTypes are the types of the vertices by vertex ID.
+     * @param type is the type of the selected vertices.
+     */
+    public void select(int column, short[] vertexTypes, short type) {
+        var vertexIds = columns[column];
+        numSelected = 0;
+        for (var row = 0; row < size; row++) {
+            if (vertexTypes[vertexIds[row]] == type) {
+                selection[numSelected++] = row;
+            }
+        }
+    }
+}
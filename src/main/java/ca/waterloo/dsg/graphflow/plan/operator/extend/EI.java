@@ -5,8 +5,9 @@ import ca.waterloo.dsg.graphflow.plan.operator.Operator;
 import ca.waterloo.dsg.graphflow.query.QueryGraph;
 import ca.waterloo.dsg.graphflow.storage.Graph;
 import ca.waterloo.dsg.graphflow.storage.Graph.Direction;
+import ca.waterloo.dsg.graphflow.storage.HubBitmaps;
 import ca.waterloo.dsg.graphflow.storage.KeyStore;
-import ca.waterloo.dsg.graphflow.storage.SortedAdjList;
+import ca.waterloo.dsg.graphflow.storage.CSRAdjLists;
 import ca.waterloo.dsg.graphflow.util.collection.MapUtils;
 import lombok.Getter;
 import lombok.Setter;
@@ -45,8 +46,8 @@ public abstract class EI extends Operator {
     protected int[] vertexIdxToCache;
     protected short[] labelsOrToTypes;
     protected short[] labelsOrToTypesToCache;
-    protected transient SortedAdjList[][] adjLists;
-    transient protected SortedAdjList[][] adjListsToCache;
+    protected transient CSRAdjLists[] adjLists;
+    transient protected CSRAdjLists[] adjListsToCache;
 
     @Getter protected CachingType cachingType = CachingType.NONE;
     private boolean isIntersectionCached = false;
@@ -60,16 +61,64 @@ public abstract class EI extends Operator {
     public static class Neighbours {
         public int[] Ids;
         public int startIdx, endIdx;
+        // owned storage adjacency lists that are not stored as plain arrays are decoded into.
+        public int[] buffer;
+        // owned storage updates are merged into when the IDs are already in the buffer.
+        public int[] otherBuffer;
+        // scratch space of the bitmap intersection kernel.
+        public long[] bitmap;
+        // the bitmap of the adjacency list when it is the list of a hub, hubIdx is -1 otherwise.
+        public HubBitmaps hubBitmaps;
+        public int hubIdx = -1;
 
-        Neighbours() {}
+        public Neighbours() {}
 
-        Neighbours(int capacity) {
+        public Neighbours(int capacity) {
             Ids = new int[capacity];
         }
 
+        /**
+         * @param capacity is the number of neighbour IDs the buffer should hold.
+         * @return the buffer with at least the given capacity.
+         */
+        public int[] getBuffer(int capacity) {
+            if (null == buffer || buffer.length < capacity) {
+                buffer = new int[Math.max(capacity, null == buffer ? 0 : 2 * buffer.length)];
+            }
+            return buffer;
+        }
+
+        /**
+         * @param capacity is the number of neighbour IDs the buffer should hold.
+         * @return the buffer or the other buffer, whichever does not hold the IDs, with at least
+         * the given capacity.
+         */
+        public int[] getOtherBuffer(int capacity) {
+            if (Ids != buffer) {
+                return getBuffer(capacity);
+            }
+            if (null == otherBuffer || otherBuffer.length < capacity) {
+                otherBuffer = new int[Math.max(capacity, null == otherBuffer ? 0 :
+                    2 * otherBuffer.length)];
+            }
+            return otherBuffer;
+        }
+
+        /**
+         * @param numWords is the number of 64 bit words the bitmap should hold.
+         * @return the bitmap with at least the given number of words.
+         */
+        public long[] getBitmap(int numWords) {
+            if (null == bitmap || bitmap.length < numWords) {
+                bitmap = new long[Math.max(numWords, null == bitmap ? 0 : 2 * bitmap.length)];
+            }
+            return bitmap;
+        }
+
         public void reset() {
             startIdx = 0;
             endIdx = 0;
+            hubIdx = -1;
         }
     }
 
@@ -123,6 +172,7 @@ public abstract class EI extends Operator {
         initCaching(this.prev.getLastRepeatedVertexIdx());
         initExtensions(graph);
         setALDsAndAdjLists(graph, this.prev.getLastRepeatedVertexIdx());
+        initOutBatch();
         for (var nextOperator : next) {
             nextOperator.init(probeTuple, graph, store);
         }
@@ -163,11 +213,11 @@ public abstract class EI extends Operator {
             ALDs.size();
         vertexIdxToCache = new int[numCachedALDs];
         labelsOrToTypesToCache = new short[numCachedALDs];
-        adjListsToCache = new SortedAdjList[numCachedALDs][];
+        adjListsToCache = new CSRAdjLists[numCachedALDs];
         if (cachingType == CachingType.PARTIAL_CACHING) {
             vertexIdx = new int[ALDs.size() - numCachedALDs];
             labelsOrToTypes = new short[ALDs.size() - numCachedALDs];
-            adjLists = new SortedAdjList[ALDs.size() - numCachedALDs][];
+            adjLists = new CSRAdjLists[ALDs.size() - numCachedALDs];
         }
         var idx = 0;
         var idxToCache = 0;
@@ -177,14 +227,12 @@ public abstract class EI extends Operator {
                 vertexIdxToCache[idxToCache] = ALD.getVertexIdx();
                 labelsOrToTypesToCache[idxToCache] = graph.isAdjListSortedByType() ?
                     toType : ALD.getLabel();
-                adjListsToCache[idxToCache++] = ALD.getDirection() == Direction.Fwd ?
-                    graph.getFwdAdjLists() : graph.getBwdAdjLists();
+                adjListsToCache[idxToCache++] = graph.getAdjLists(ALD.getDirection());
             } else if (cachingType == CachingType.PARTIAL_CACHING &&
                 ALD.getVertexIdx() > lastRepeatedVertexIdx) {
                 vertexIdx[idx] = ALD.getVertexIdx();
                 labelsOrToTypes[idx] = graph.isAdjListSortedByType() ? toType : ALD.getLabel();
-                adjLists[idx++] = ALD.getDirection() == Direction.Fwd ? graph.getFwdAdjLists() :
-                    graph.getBwdAdjLists();
+                adjLists[idx++] = graph.getAdjLists(ALD.getDirection());
             }
         }
     }
@@ -2,11 +2,13 @@ package ca.waterloo.dsg.graphflow.plan.operator.extend;
 
 import ca.waterloo.dsg.graphflow.plan.operator.AdjListDescriptor;
 import ca.waterloo.dsg.graphflow.plan.operator.Operator;
+import ca.waterloo.dsg.graphflow.plan.operator.SplitPool.Split;
+import ca.waterloo.dsg.graphflow.plan.operator.TupleBatch;
 import ca.waterloo.dsg.graphflow.query.QueryGraph;
 import ca.waterloo.dsg.graphflow.storage.Graph;
 import ca.waterloo.dsg.graphflow.storage.Graph.Direction;
 import ca.waterloo.dsg.graphflow.storage.KeyStore;
-import ca.waterloo.dsg.graphflow.storage.SortedAdjList;
+import ca.waterloo.dsg.graphflow.storage.CSRAdjLists;
 import lombok.var;
 
 import java.io.Serializable;
@@ -23,7 +25,7 @@ public class Extend extends EI implements Serializable {
     private int vertexIndex;
     private short labelOrToType;
     private Direction dir;
-    private SortedAdjList[] adjList;
+    private CSRAdjLists adjList;
 
     /**
      * @see EI#make(String, short, List, QueryGraph, QueryGraph, Map)
@@ -48,11 +50,12 @@ public class Extend extends EI implements Serializable {
         this.outNeighbours = new Neighbours();
         this.probeTuple = probeTuple;
         this.vertexTypes = graph.getVertexTypes();
-        this.adjList = dir == Direction.Fwd ? graph.getFwdAdjLists() : graph.getBwdAdjLists();
+        this.adjList = graph.getAdjLists(dir);
         if (graph.isAdjListSortedByType()) {
             labelOrToType = toType;
             toType = KeyStore.ANY;
         }
+        initOutBatch();
         for (var nextOperator : next) {
             nextOperator.init(probeTuple, graph, store);
         }
@@ -66,12 +69,27 @@ public class Extend extends EI implements Serializable {
     @Override
     @SuppressWarnings("fallthrough")
     public void processNewTuple() throws LimitExceededException {
-        adjList[probeTuple[vertexIndex]].setNeighbourIds(labelOrToType, outNeighbours);
+        adjList.setNeighbourIds(probeTuple[vertexIndex], labelOrToType, outNeighbours);
         icost += outNeighbours.endIdx - outNeighbours.startIdx;
-        for (var idx = outNeighbours.startIdx; idx < outNeighbours.endIdx; idx++) {
-            if (toType == KeyStore.ANY || toType == vertexTypes[outNeighbours.Ids[idx]]) {
+        extend(outNeighbours.Ids, outNeighbours.startIdx, outNeighbours.endIdx);
+    }
+
+    /**
+     * @see Operator#processSplit(Split)
+     */
+    @Override
+    public void processSplit(Split split) throws LimitExceededException {
+        System.arraycopy(split.tuple, 0, probeTuple, 0, split.tuple.length);
+        extend(split.neighbourIds, 0, split.neighbourIds.length);
+    }
+
+    private void extend(int[] neighbourIds, int startIdx, int endIdx)
+        throws LimitExceededException {
+        endIdx = splitOff(0 /* no hop */, neighbourIds, startIdx, endIdx);
+        for (var idx = startIdx; idx < endIdx; idx++) {
+            if (toType == KeyStore.ANY || toType == vertexTypes[neighbourIds[idx]]) {
                 numOutTuples++;
-                probeTuple[outIdx] = outNeighbours.Ids[idx];
+                probeTuple[outIdx] = neighbourIds[idx];
             //     // 此处将增加时间
             //    int[] tuple = new int[2];
             //    if(toQueryVertex.contentEquals("x")){
@@ -87,6 +105,33 @@ public class Extend extends EI implements Serializable {
         }
     }
 
+    /**
+     * @see Operator#processNewBatch(TupleBatch)
+     */
+    @Override
+    public void processNewBatch(TupleBatch batch) throws LimitExceededException {
+        var selection = batch.getSelection();
+        for (var i = 0; i < batch.getNumSelected(); i++) {
+            batch.copyRow(selection[i], batchTuple);
+            adjList.setNeighbourIds(batchTuple[vertexIndex], labelOrToType, outNeighbours);
+            icost += outNeighbours.endIdx - outNeighbours.startIdx;
+            appendToOutBatch(outIdx, outNeighbours.Ids, outNeighbours.startIdx,
+                outNeighbours.endIdx);
+        }
+    }
+
+    /**
+     * @see Operator#selectOutTuples()
+     */
+    @Override
+    protected void selectOutTuples() {
+        if (KeyStore.ANY != toType) {
+            outBatch.select(outIdx, vertexTypes, toType);
+        } else {
+            outBatch.selectAll();
+        }
+    }
+
     /**
      * @see Operator#isSameAs(Operator)
      */
@@ -2,6 +2,8 @@ package ca.waterloo.dsg.graphflow.plan.operator.extend;
 
 import ca.waterloo.dsg.graphflow.plan.operator.AdjListDescriptor;
 import ca.waterloo.dsg.graphflow.plan.operator.Operator;
+import ca.waterloo.dsg.graphflow.plan.operator.SplitPool.Split;
+import ca.waterloo.dsg.graphflow.plan.operator.TupleBatch;
 import ca.waterloo.dsg.graphflow.query.QueryGraph;
 import ca.waterloo.dsg.graphflow.storage.KeyStore;
 import lombok.var;
@@ -32,12 +34,57 @@ public class Intersect extends EI implements Serializable {
      */
     @Override
     public void processNewTuple() throws LimitExceededException {
+        setOutNeighbours();
+        extend(outNeighbours.Ids, outNeighbours.startIdx, outNeighbours.endIdx);
+    }
+
+    /**
+     * @see Operator#processSplit(Split)
+     */
+    @Override
+    public void processSplit(Split split) throws LimitExceededException {
+        System.arraycopy(split.tuple, 0, probeTuple, 0, split.tuple.length);
+        extend(split.neighbourIds, 0, split.neighbourIds.length);
+    }
+
+    private void extend(int[] neighbourIds, int startIdx, int endIdx)
+        throws LimitExceededException {
+        endIdx = splitOff(0 /* no hop */, neighbourIds, startIdx, endIdx);
+        // setAdjListSortOrder the initNeighbours ids in the output tuple.
+        numOutTuples += (endIdx - startIdx);
+        for (var idx = startIdx; idx < endIdx; idx++) {
+            probeTuple[outIdx] = neighbourIds[idx];
+            next[0].processNewTuple();
+        }
+    }
+
+    /**
+     * @see Operator#processNewBatch(TupleBatch)
+     */
+    @Override
+    public void processNewBatch(TupleBatch batch) throws LimitExceededException {
+        var selection = batch.getSelection();
+        for (var i = 0; i < batch.getNumSelected(); i++) {
+            // the probe tuple is intersected on so the cached intersection is checked against it.
+            batch.copyRow(selection[i], probeTuple);
+            batch.copyRow(selection[i], batchTuple);
+            setOutNeighbours();
+            appendToOutBatch(outIdx, outNeighbours.Ids, outNeighbours.startIdx,
+                outNeighbours.endIdx);
+        }
+    }
+
+    /**
+     * Sets outNeighbours to the intersection of the adjacency lists of the probe tuple vertices,
+     * unless it is cached.
+     */
+    private void setOutNeighbours() {
         Neighbours temp;
         if (cachingType == CachingType.NONE || !isIntersectionCached()) {
-            adjListsToCache[0][probeTuple[vertexIdxToCache[0]]].setNeighbourIds(
+            adjListsToCache[0].setNeighbourIds(probeTuple[vertexIdxToCache[0]],
                 labelsOrToTypesToCache[0], initNeighbours);
             icost += (initNeighbours.endIdx - initNeighbours.startIdx);
-            icost += adjListsToCache[1][probeTuple[vertexIdxToCache[1]]].intersect(
+            icost += adjListsToCache[1].intersect(probeTuple[vertexIdxToCache[1]],
                 labelsOrToTypesToCache[1], initNeighbours, cachedNeighbours);
             if (toType != KeyStore.ANY) {
                 var currEndIdx = 0;
@@ -52,7 +99,7 @@ public class Intersect extends EI implements Serializable {
                 temp = cachedNeighbours;
                 cachedNeighbours = tempNeighbours;
                 tempNeighbours = temp;
-                icost += adjListsToCache[i][probeTuple[vertexIdxToCache[i]]].intersect(
+                icost += adjListsToCache[i].intersect(probeTuple[vertexIdxToCache[i]],
                     labelsOrToTypesToCache[i], tempNeighbours, cachedNeighbours);
             }
         }
@@ -62,23 +109,17 @@ public class Intersect extends EI implements Serializable {
                 outNeighbours = cachedNeighbours;
                 break;
             case PARTIAL_CACHING:
-                icost += adjLists[0][probeTuple[vertexIdx[0]]].intersect(
+                icost += adjLists[0].intersect(probeTuple[vertexIdx[0]],
                     labelsOrToTypes[0], cachedNeighbours, outNeighbours);
                 for (int i = 1; i < adjLists.length; i++) {
                     temp = outNeighbours;
                     outNeighbours = tempNeighbours;
                     tempNeighbours = temp;
-                    icost += adjLists[i][probeTuple[vertexIdx[i]]].intersect(
+                    icost += adjLists[i].intersect(probeTuple[vertexIdx[i]],
                         labelsOrToTypes[i], tempNeighbours, outNeighbours);
                 }
                 break;
         }
-        // setAdjListSortOrder the initNeighbours ids in the output tuple.
-        numOutTuples += (outNeighbours.endIdx - outNeighbours.startIdx);
-        for (var idx = outNeighbours.startIdx; idx < outNeighbours.endIdx; idx++) {
-            probeTuple[outIdx] = outNeighbours.Ids[idx];
-            next[0].processNewTuple();
-        }
     }
 
     /**
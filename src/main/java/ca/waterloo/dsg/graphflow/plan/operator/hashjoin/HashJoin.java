@@ -54,6 +54,12 @@ public class HashJoin {
             }
             probeQVertexToIdxMap.put(mapping.get(joinQVertices.get(0)),
                 buildQVertexToIdxMap.size() - 1);
+            // the probe tuples are not laid out as the mapped build tuples, e.g. those of a jump
+            // over a path isomorphic to the build one, so they are probed as they are laid out.
+            if (!probeQVertexToIdxMap.equals(preProbe.getOutQVertexToIdxMap())) {
+                mapping = null;
+                probeQVertexToIdxMap = preProbe.getOutQVertexToIdxMap();
+            }
         } else {
             probeQVertexToIdxMap = preProbe.getOutQVertexToIdxMap();
         }
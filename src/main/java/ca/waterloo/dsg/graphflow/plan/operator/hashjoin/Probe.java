@@ -1,6 +1,7 @@
 package ca.waterloo.dsg.graphflow.plan.operator.hashjoin;
 
 import ca.waterloo.dsg.graphflow.plan.operator.Operator;
+import ca.waterloo.dsg.graphflow.plan.operator.TupleBatch;
 import ca.waterloo.dsg.graphflow.plan.operator.hashjoin.HashTable.BlockInfo;
 import ca.waterloo.dsg.graphflow.query.QueryGraph;
 import ca.waterloo.dsg.graphflow.storage.Graph;
@@ -62,6 +63,7 @@ public class Probe extends Operator implements Serializable {
         if (null == this.probeTuple) {
             this.probeTuple = probeTuple;
             this.blockInfo = new BlockInfo();
+            initOutBatch();
             for (var nextOperator : next) {
                 nextOperator.init(probeTuple, graph, store);
             }
@@ -99,6 +101,30 @@ public class Probe extends Operator implements Serializable {
         }
     }
 
+    /**
+     * @see Operator#processNewBatch(TupleBatch)
+     */
+    @Override
+    public void processNewBatch(TupleBatch batch) throws LimitExceededException {
+        var selection = batch.getSelection();
+        for (var i = 0; i < batch.getNumSelected(); i++) {
+            batch.copyRow(selection[i], batchTuple);
+            var hashVertex = batchTuple[probeHashIdx];
+            for (var hashTable : hashTables) {
+                var lastChunkIdx = hashTable.numChunks[hashVertex];
+                for (var chunkIdx = 0; chunkIdx < lastChunkIdx; chunkIdx++) {
+                    hashTable.getBlockAndOffsets(hashVertex, chunkIdx, blockInfo);
+                    for (var offset = blockInfo.startOffset; offset < blockInfo.endOffset;) {
+                        for (var k = 0; k < hashedTupleLen; k++) {
+                            batchTuple[probeTupleLen + k] = blockInfo.block[offset++];
+                        }
+                        appendToOutBatch();
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * @see Operator#isSameAs(Operator)
      */
@@ -1,6 +1,7 @@
 package ca.waterloo.dsg.graphflow.plan.operator.hashjoin;
 
 import ca.waterloo.dsg.graphflow.plan.operator.Operator;
+import ca.waterloo.dsg.graphflow.plan.operator.TupleBatch;
 import ca.waterloo.dsg.graphflow.query.QueryGraph;
 import lombok.var;
 
@@ -53,6 +54,14 @@ public class ProbeMultiVertices extends Probe implements Serializable {
         name = strBuilder.toString();
     }
 
+    /**
+     * @see Operator#processNewBatch(TupleBatch)
+     */
+    @Override
+    public void processNewBatch(TupleBatch batch) throws LimitExceededException {
+        processTuples(batch);
+    }
+
     /**
      * @see Operator#processNewTuple()
      */
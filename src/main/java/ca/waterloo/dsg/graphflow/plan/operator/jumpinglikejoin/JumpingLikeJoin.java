@@ -1,329 +1,624 @@
 package ca.waterloo.dsg.graphflow.plan.operator.jumpinglikejoin;
 
 import ca.waterloo.dsg.graphflow.plan.operator.Operator;
+import ca.waterloo.dsg.graphflow.plan.operator.SplitPool;
+import ca.waterloo.dsg.graphflow.plan.operator.SplitPool.Split;
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
 import ca.waterloo.dsg.graphflow.query.QueryGraph;
+import ca.waterloo.dsg.graphflow.storage.CSRAdjLists;
 import ca.waterloo.dsg.graphflow.storage.Graph;
+import ca.waterloo.dsg.graphflow.storage.Graph.Direction;
+import ca.waterloo.dsg.graphflow.storage.KHopRelationCache;
 import ca.waterloo.dsg.graphflow.storage.KeyStore;
-import ca.waterloo.dsg.graphflow.storage.SortedAdjList;
+import ca.waterloo.dsg.graphflow.util.collection.PairBuffer;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.var;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+/**
+ * Matches a path of query edges by jumping from its first query vertex over the adjacency lists,
+ * a depth first search of one adjacency list per hop, instead of extending the prefixes one query
+ * vertex at a time. Each hop has its own edge label, direction and query vertex type so paths of
+ * any length and edge directions are matched, and the paths of between a min number of hops and
+ * all the hops for the variable-length query edges, see {@link #setMinNumHops(int)}. Appended to
+ * a subplan, the jump starts from the vertex the subplan matched to the first query vertex of the
+ * path; {@link JumpingLikeJoinExe} starts a subplan. Multi-threaded, the second half of a large
+ * adjacency list of any hop is split off to the idle threads, see {@link SplitPool}.
+ *
+ * The (first, last) vertex pairs of the paths can also be materialized as a relation in a
+ * {@link PairBuffer}, see {@link #getPaths()}. Given a {@link ForkJoinPool}, the sources, vertices
+ * or pairs, are split into chunks of {@link #PARALLEL_GRAIN_SIZE} sources jumped from by the
+ * threads of the pool, each into a buffer of its own, which are concatenated in order at the end.
+ * The relations of the prefixes of the path with the same label, direction and to vertex type on
+ * every hop are reused from and added to the {@link KHopRelationCache} of the graph.
+ */
+public class JumpingLikeJoin extends Operator {
 
-public class JumpingLikeJoin extends Operator implements Runnable {
-    SortedAdjList[] fwdAdjList;
-    SortedAdjList[] bwdAdjList;
-    short label;
-    private int jumpIdx;
+    public static int PARALLEL_GRAIN_SIZE = 1024;
 
-    @Getter
-    List<int[]> edge3;
-    Map<Integer, int[]> edgeTable;
-    Map<Integer, List<Integer>> subTable; // record the vertex joined and the vertices followed the joined vertex
+    @Getter protected List<String> pathQVertices;
+    @Getter protected int numHops;
+    // the paths of fewer hops end at the last query vertex, see setMinNumHops(int).
+    @Getter protected int minNumHops;
+    // the edge label, direction and to query vertex type of each hop as in the query graph.
+    private short[] labels;
+    private Direction[] directions;
+    private short[] toTypes;
+    private short fromType;
+    // the index in the tuples of the first query vertex of the path and of the one of each hop.
+    protected int jumpIdx;
+    private int[] hopOutIdxs;
 
-    public JumpingLikeJoin(Graph graph, short label) {
-        this.label = label;
-        this.fwdAdjList = graph.getFwdAdjLists();
-        this.bwdAdjList = graph.getBwdAdjLists();
-        this.edgeTable = new HashMap<>();
-        this.subTable = new HashMap<>();
-        this.edge3 = null;
+    // the adjacency lists, label or to type and to type to filter by of each hop on the graph.
+    protected CSRAdjLists[] hopAdjLists;
+    protected short[] hopLabelsOrToTypes;
+    protected short[] hopToTypes;
+    // the label or to type of the adjacency list of each hop holding the ends of the paths of
+    // fewer hops, filtered by the type of the last query vertex instead of the type of the hop.
+    protected short[] hopEndLabelsOrToTypes;
+    protected short[] vertexTypes;
+    protected int numVertices;
+    protected int[] vertexIds;
+    protected int fromVertexStartIdx, fromVertexEndIdx;
+    // the cursors jumping from the tuples and materializing the pairs on the calling thread.
+    private HopCursors tupleCursors;
+    private HopCursors pairCursors;
+    private Neighbours pathEnds;
+    // the pool materializing the pairs of the paths in parallel, null to do so sequentially.
+    @Setter private ForkJoinPool pool;
 
-        initEdgeTable();
-    }
+    // the vertices the paths of the sub table end at indexed by the vertex they start from.
+    private PairBuffer.Index subTable;
+    private Graph graph;
 
-    public JumpingLikeJoin(QueryGraph outSubgraph, Graph graph) {
-        super(outSubgraph, null /* no inSubgraph */);
-        lastRepeatedVertexIdx = 0;
-        var queryEdge = outSubgraph.getEdges().get(0);
-        this.label = queryEdge.getLabel();
-        var fromQueryVertex = queryEdge.getFromVertex();
-        var toQueryVertex = queryEdge.getToVertex();
+    /**
+     * Constructs a {@link JumpingLikeJoin} operator.
+     *
+     * @param outSubgraph is the subgraph matched by the output tuples.
+     * @param inSubgraph is the subgraph matched by the input tuples, null if the jump starts a
+     * subplan.
+     * @param pathQVertices are the query vertices of the path in the jumping order.
+     * @param inQVertexToIdxMap is the query vertex to tuple index map of the input tuples, null if
+     * the jump starts a subplan.
+     */
+    public JumpingLikeJoin(QueryGraph outSubgraph, QueryGraph inSubgraph,
+        List<String> pathQVertices, Map<String, Integer> inQVertexToIdxMap) {
+        super(outSubgraph, inSubgraph);
+        if (pathQVertices.size() < 2) {
+            throw new IllegalArgumentException("A jump needs a path of at least one query edge.");
+        }
+        this.pathQVertices = pathQVertices;
+        this.numHops = pathQVertices.size() - 1;
+        this.minNumHops = numHops;
+        labels = new short[numHops];
+        directions = new Direction[numHops];
+        toTypes = new short[numHops];
+        var name = new StringBuilder("JumpLikeJoin (" + pathQVertices.get(0) + ")");
+        for (var hop = 0; hop < numHops; hop++) {
+            var fromQVertex = pathQVertices.get(hop);
+            var toQVertex = pathQVertices.get(hop + 1);
+            var queryEdge = outSubgraph.getEdge(fromQVertex, toQVertex);
+            if (null == queryEdge) {
+                throw new IllegalArgumentException("The query vertices " + fromQVertex + " and " +
+                    toQVertex + " of the path are not adjacent.");
+            }
+            var isFwd = queryEdge.getFromVertex().equals(fromQVertex);
+            labels[hop] = queryEdge.getLabel();
+            directions[hop] = isFwd ? Direction.Fwd : Direction.Bwd;
+            toTypes[hop] = isFwd ? queryEdge.getToType() : queryEdge.getFromType();
+            if (0 == hop) {
+                fromType = isFwd ? queryEdge.getFromType() : queryEdge.getToType();
+            }
+            name.append(isFwd ? "->(" : "<-(").append(toQVertex).append(")");
+        }
+        this.name = name.toString();
         outQVertexToIdxMap = new HashMap<>();
-        outQVertexToIdxMap.put(fromQueryVertex, 0);
-        outQVertexToIdxMap.put(toQueryVertex, 1);
-        fromQueryVertex = queryEdge.getFromVertex();
-        toQueryVertex = queryEdge.getToVertex();
-        name = "JumpLikeJoin (" + fromQueryVertex + ")->(" + toQueryVertex + ")";
-        for (int i = 1; i < outSubgraph.getEdges().size(); i++) {
-            queryEdge = outSubgraph.getEdges().get(i);
-            fromQueryVertex = queryEdge.getFromVertex();
-            toQueryVertex = queryEdge.getToVertex();
-            outQVertexToIdxMap.put(toQueryVertex, i + 1);
-            name = name + "->(" + toQueryVertex + ")";
+        if (null != inQVertexToIdxMap) {
+            outQVertexToIdxMap.putAll(inQVertexToIdxMap);
+        } else {
+            outQVertexToIdxMap.put(pathQVertices.get(0), 0);
         }
+        jumpIdx = outQVertexToIdxMap.get(pathQVertices.get(0));
+        hopOutIdxs = new int[numHops];
+        var outIdx = outQVertexToIdxMap.size();
+        for (var hop = 0; hop < numHops; hop++) {
+            hopOutIdxs[hop] = outIdx + hop;
+            outQVertexToIdxMap.put(pathQVertices.get(hop + 1), hopOutIdxs[hop]);
+        }
+        lastRepeatedVertexIdx = outTupleLen - 2;
+    }
 
-        this.fwdAdjList = graph.getFwdAdjLists();
-        this.bwdAdjList = graph.getBwdAdjLists();
-
+    /**
+     * Lays the output tuples out in the reverse order of the path, i.e. in the order of the query
+     * for a path jumped backward from the last query vertex of the query. Only a jump starting a
+     * subplan has no input tuple layout to keep.
+     */
+    protected void reverseOutTuples() {
+        for (var idx = 0; idx <= numHops; idx++) {
+            outQVertexToIdxMap.put(pathQVertices.get(idx), numHops - idx);
+        }
+        jumpIdx = numHops;
+        for (var hop = 0; hop < numHops; hop++) {
+            hopOutIdxs[hop] = numHops - 1 - hop;
+        }
     }
 
-    public JumpingLikeJoin(QueryGraph outSubgraph, QueryGraph inSubgraph, Graph graph, int jumpIdx) {
-        super(outSubgraph, inSubgraph);
-        var queryEdge = outSubgraph.getEdges().get(0);
-        this.label = queryEdge.getLabel();
-        var fromQueryVertex = queryEdge.getFromVertex();
-        var toQueryVertex = queryEdge.getToVertex();
-        outQVertexToIdxMap = new HashMap<>();
-        outQVertexToIdxMap.put(fromQueryVertex, 0);
-        outQVertexToIdxMap.put(toQueryVertex, 1);
-        fromQueryVertex = queryEdge.getFromVertex();
-        toQueryVertex = queryEdge.getToVertex();
-        name = "JumpLikeJoin (" + fromQueryVertex + ")->(" + toQueryVertex + ")";
-        for (int i = 1; i < outSubgraph.getEdges().size(); i++) {
-            queryEdge = outSubgraph.getEdges().get(i);
-            fromQueryVertex = queryEdge.getFromVertex();
-            toQueryVertex = queryEdge.getToVertex();
-            outQVertexToIdxMap.put(toQueryVertex, i + 1);
-            name = name + "->(" + toQueryVertex + ")";
+    /**
+     * Sets the number of hops of the shortest paths to match. The last vertex of a path of fewer
+     * hops than all the hops is matched to the last query vertex of the path, the query vertices
+     * of the hops left keep the vertices matched to them earlier.
+     *
+     * @param minNumHops is the number of hops of the shortest paths to match.
+     * @throws IllegalArgumentException if the number of hops is not in [1, numHops].
+     */
+    public void setMinNumHops(int minNumHops) {
+        if (minNumHops < 1 || minNumHops > numHops) {
+            throw new IllegalArgumentException("The min number of hops should be in [1, " +
+                numHops + "].");
+        }
+        if (minNumHops < numHops) {
+            name = name.replaceFirst("JumpLikeJoin", "JumpLikeJoin " + minNumHops + ".." +
+                numHops);
         }
-        this.jumpIdx = jumpIdx;
-        this.fwdAdjList = graph.getFwdAdjLists();
-        this.bwdAdjList = graph.getBwdAdjLists();
+        this.minNumHops = minNumHops;
     }
 
-    void initEdgeTable() {
-        for (int i = 0; i < fwdAdjList.length; i++) {
-            if (fwdAdjList[i].getNeighbourIds().length != 0) {
-                int startIdx = fwdAdjList[i].getLabelOrTypeOffsets()[label];
-                int endIdx = fwdAdjList[i].getLabelOrTypeOffsets()[label + 1];
-                int[] neighboursInLabel = new int[endIdx - startIdx];
-                for (int j = startIdx, k = 0; j < endIdx; j++, k++)
-                    neighboursInLabel[k] = fwdAdjList[i].getNeighbourId(j);
+    /**
+     * @see Operator#init(int[], Graph, KeyStore)
+     */
+    @Override
+    public void init(int[] probeTuple, Graph graph, KeyStore store) {
+        this.probeTuple = probeTuple;
+        setGraph(graph);
+        for (var nextOperator : next) {
+            nextOperator.init(probeTuple, graph, store);
+        }
+    }
 
-                edgeTable.put(i, neighboursInLabel);
+    /**
+     * Sets the adjacency lists to jump over, which {@link #getPaths()} needs without a tuple to
+     * process.
+     *
+     * @param graph is the input data graph.
+     */
+    public void setGraph(Graph graph) {
+        this.graph = graph;
+        vertexIds = graph.getVertexIds();
+        vertexTypes = graph.getVertexTypes();
+        numVertices = graph.getHighestVertexId() + 1;
+        if (KeyStore.ANY != fromType) {
+            fromVertexStartIdx = graph.getVertexTypeOffsets()[fromType];
+            fromVertexEndIdx = graph.getVertexTypeOffsets()[fromType + 1];
+        } else {
+            fromVertexStartIdx = 0;
+            fromVertexEndIdx = graph.getHighestVertexId() + 1;
+        }
+        hopAdjLists = new CSRAdjLists[numHops];
+        hopLabelsOrToTypes = new short[numHops];
+        hopToTypes = new short[numHops];
+        hopEndLabelsOrToTypes = new short[numHops];
+        for (var hop = 0; hop < numHops; hop++) {
+            hopAdjLists[hop] = graph.getAdjLists(directions[hop]);
+            if (graph.isAdjListSortedByType()) {
+                hopLabelsOrToTypes[hop] = toTypes[hop];
+                hopToTypes[hop] = KeyStore.ANY;
+                hopEndLabelsOrToTypes[hop] = toTypes[numHops - 1];
+            } else {
+                hopLabelsOrToTypes[hop] = labels[hop];
+                hopToTypes[hop] = toTypes[hop];
+                hopEndLabelsOrToTypes[hop] = labels[hop];
             }
         }
+        tupleCursors = new HopCursors(numHops);
+        pairCursors = new HopCursors(numHops);
+        pathEnds = new Neighbours();
     }
 
-    public void buildSubTable(List<int[]> temps) {
-        subTable.clear();
-        for (int[] temp : temps) {
-            subTable.putIfAbsent(temp[0], new ArrayList<>());
-            subTable.get(temp[0]).add(temp[1]);
+    /**
+     * @see Operator#processNewTuple()
+     */
+    @Override
+    public void processNewTuple() throws LimitExceededException {
+        jump();
+    }
+
+    /**
+     * Matches the paths from the vertex of the tuple at the jump index and pushes a tuple per path.
+     */
+    void jump() throws LimitExceededException {
+        icost += setNeighbours(0, probeTuple[jumpIdx], tupleCursors);
+        pushPathEnds(0, probeTuple[jumpIdx]);
+        splitOff(0);
+        jump(0);
+    }
+
+    /**
+     * @see Operator#processSplit(Split)
+     */
+    @Override
+    public void processSplit(Split split) throws LimitExceededException {
+        System.arraycopy(split.tuple, 0, probeTuple, 0, split.tuple.length);
+        var neighbours = tupleCursors.neighbours[split.hop];
+        neighbours.Ids = split.neighbourIds;
+        neighbours.startIdx = 0;
+        neighbours.endIdx = split.neighbourIds.length;
+        tupleCursors.nextIdxs[split.hop] = 0;
+        jump(split.hop);
+    }
+
+    /**
+     * Matches the paths from the neighbours of the cursor of the start hop, the probe tuple
+     * holding the vertices of the hops before.
+     */
+    private void jump(int startHop) throws LimitExceededException {
+        var nextIdxs = tupleCursors.nextIdxs;
+        var lastHop = numHops - 1;
+        var hop = startHop;
+        while (hop >= startHop) {
+            var neighbours = tupleCursors.neighbours[hop];
+            if (nextIdxs[hop] == neighbours.endIdx) {
+                hop--;
+                continue;
+            }
+            var vertexId = neighbours.Ids[nextIdxs[hop]++];
+            if (KeyStore.ANY != hopToTypes[hop] && vertexTypes[vertexId] != hopToTypes[hop]) {
+                continue;
+            }
+            probeTuple[hopOutIdxs[hop]] = vertexId;
+            if (hop == lastHop) {
+                numOutTuples++;
+                next[0].processNewTuple();
+            } else {
+                icost += setNeighbours(++hop, vertexId, tupleCursors);
+                pushPathEnds(hop, vertexId);
+                splitOff(hop);
+            }
         }
     }
 
     /**
-     * Jumping like join 表和一边的表
-     *
-     * @param t 和一边连接的表
-     * @return 连接结果
+     * Pushes a tuple per path of hop + 1 hops ending at a neighbour of the vertex over the hop if
+     * the paths of hop + 1 hops are matched. The neighbours are checked against the type of the
+     * last query vertex only, they need not have the type of the query vertex of the hop.
      */
-    public List<int[]> intersect(List<int[]> t) {
-        List<int[]> res = new ArrayList<>();
-        // r[0] -> r[1] -> r1NeighborId -> destinationID
-        for (int[] r : t) {
-            int r1StartIdx = fwdAdjList[r[1]].getLabelOrTypeOffsets()[label];
-            int r1EndIdx = fwdAdjList[r[1]].getLabelOrTypeOffsets()[label + 1];
-            for (int i = r1StartIdx; i < r1EndIdx; i++) {
-                int r1NeighborId = fwdAdjList[r[1]].getNeighbourId(i);
-                int edge1StartIdx = fwdAdjList[r1NeighborId].getLabelOrTypeOffsets()[label];
-                int edg1EndIdx = fwdAdjList[r1NeighborId].getLabelOrTypeOffsets()[label + 1];
-                for (int j = edge1StartIdx; j < edg1EndIdx; j++) {
-                    int destinationID = fwdAdjList[r1NeighborId].getNeighbourId(j);
-                    int[] row = new int[2];
-                    row[0] = r[0];
-                    row[1] = destinationID;
-                    res.add(row);
-                }
+    private void pushPathEnds(int hop, int vertexId) throws LimitExceededException {
+        if (!isOptionalHop(hop)) {
+            return;
+        }
+        icost += setPathEnds(hop, vertexId, pathEnds);
+        var lastOutIdx = hopOutIdxs[numHops - 1];
+        for (var idx = pathEnds.startIdx; idx < pathEnds.endIdx; idx++) {
+            if (isPathEnd(pathEnds.Ids[idx])) {
+                probeTuple[lastOutIdx] = pathEnds.Ids[idx];
+                numOutTuples++;
+                next[0].processNewTuple();
             }
         }
-        return res;
     }
 
     /**
-     * Jumping like join two tables.
+     * @return true if the hop is not the last one and the paths of hop + 1 hops are matched,
+     * false otherwise.
+     */
+    protected boolean isOptionalHop(int hop) {
+        return hop + 1 >= minNumHops && hop < numHops - 1;
+    }
+
+    /**
+     * Sets the neighbours to the adjacency list of the vertex over the hop holding the vertices
+     * the paths of hop + 1 hops may end at, to be checked with {@link #isPathEnd(int)}.
      *
-     * @param t1 主表
-     * @param t2 被hash的表
-     * @return 连接后的结果
+     * @return the size of the adjacency list.
      */
+    protected int setPathEnds(int hop, int vertexId, Neighbours neighbours) {
+        hopAdjLists[hop].setNeighbourIds(vertexId, hopEndLabelsOrToTypes[hop], neighbours);
+        return neighbours.endIdx - neighbours.startIdx;
+    }
 
-    public List<int[]> intersectByFwdAdjList(List<int[]> t1, List<int[]> t2) {
-        List<int[]> res = new ArrayList<>();
-
-        for (int[] r : t1) {
-
-            int toVertexStartIdx = fwdAdjList[r[1]].getLabelOrTypeOffsets()[label];
-            int toVertexEndIdx = fwdAdjList[r[1]].getLabelOrTypeOffsets()[label + 1];
-            for (int i = toVertexStartIdx; i < toVertexEndIdx; i++) {
-                int neighborId = fwdAdjList[r[1]].getNeighbourId(i);
-                List<Integer> l = subTable.get(neighborId);
-                if (l != null) {
-                    for (Integer t2EndId : l) {
-                        int[] row = new int[2];
-                        row[0] = r[0];
-                        row[1] = t2EndId;
-                        res.add(row);
-                    }
-                }
+    private void splitOff(int hop) {
+        var neighbours = tupleCursors.neighbours[hop];
+        neighbours.endIdx = splitOff(hop, neighbours.Ids, neighbours.startIdx, neighbours.endIdx);
+    }
+
+    /**
+     * @return true if the vertex has the type of the last query vertex of the path, i.e. a path
+     * of fewer hops than all the hops can end at it, false otherwise.
+     */
+    protected boolean isPathEnd(int vertexId) {
+        var endType = toTypes[numHops - 1];
+        return KeyStore.ANY == endType || vertexTypes[vertexId] == endType;
+    }
+
+    /**
+     * Materializes the (first, last) vertex pairs of all the paths, one pair per path. The pairs
+     * of the first 2 or 3 hops, by the parity of the number of hops, are extended by 2 hops at a
+     * time, e.g. 7 hops are 3 + 2 + 2 hops. The pairs of the longest cached prefix of the path,
+     * if any, are extended instead.
+     *
+     * @return the (first, last) vertex pairs of the paths.
+     */
+    public PairBuffer getPaths() {
+        var cache = graph.getKHopRelationCache();
+        PairBuffer pairs = null;
+        var startHop = 0;
+        for (var endHop = numHops; endHop > 0; endHop--) {
+            var relation = getCachedPrefix(endHop);
+            if (null != relation) {
+                pairs = relation.toPairs();
+                startHop = endHop;
+                break;
+            }
+        }
+        var numHopsLeft = numHops - startHop;
+        var endHop = startHop + (numHopsLeft <= 3 ? numHopsLeft : 2 + numHopsLeft % 2);
+        while (startHop < numHops) {
+            pairs = null == pairs ? getPairs(0, endHop) : intersect(pairs, startHop, endHop);
+            if (null != cache && isUniform(endHop)) {
+                cache.put(fromType, labels[0], directions[0], toTypes[0], endHop, pairs,
+                    numVertices);
             }
+            startHop = endHop;
+            endHop += 2;
         }
-        return res;
+        return pairs;
     }
 
-    public List<int[]> intersect(List<int[]> t1, List<int[]> t2) {
-        List<int[]> res = new ArrayList<>();
-        for (int[] r : t1) {
-            for (var obj : edgeTable.getOrDefault(r[1], new int[0])) {
-                for (var end : subTable.getOrDefault(obj, new ArrayList<>())) {
-                    int[] row = new int[2];
-                    row[0] = r[0];
-                    row[1] = end;
-                    res.add(row);
-                }
-            }
+    /**
+     * @param endHop is the hop after the last hop of the prefix of the path.
+     * @return the cached relation of the prefix of the path as an {@link PairBuffer.Index} of
+     * the last vertices by first vertex, null if the hops of the prefix differ or it is not cached.
+     */
+    protected PairBuffer.Index getCachedPrefix(int endHop) {
+        var cache = graph.getKHopRelationCache();
+        if (null == cache || !isUniform(endHop)) {
+            return null;
         }
-        return res;
+        return cache.get(fromType, labels[0], directions[0], toTypes[0], endHop);
     }
 
-    public List<int[]> getEdge3ByEdgeTable() {
-        List<int[]> res = new ArrayList<>();
-        for (var key : edgeTable.keySet()) {
-            var objs = edgeTable.get(key);
-            for (var obj : objs) {
-                var edge = edgeTable.get(obj);
-                if (edge != null) {
-                    for (var edgeBegin : edge) {
-                        var ends = edgeTable.get(edgeBegin);
-                        if (ends != null) {
-                            for (var end : ends) {
-                                int[] tmpRes = new int[2];
-                                tmpRes[0] = key;
-                                tmpRes[1] = end;
-                                res.add(tmpRes);
-                            }
-                        }
-                    }
-                }
+    /**
+     * @return true if the first hops of the path, up to the given hop, have the label, direction
+     * and to vertex type of the first hop, false otherwise.
+     */
+    private boolean isUniform(int endHop) {
+        for (var hop = 1; hop < endHop; hop++) {
+            if (labels[hop] != labels[0] || directions[hop] != directions[0] ||
+                    toTypes[hop] != toTypes[0]) {
+                return false;
             }
         }
-        return res;
+        return true;
     }
 
-    public List<int[]> getEdge3ByFwdAdjList() {
-        List<int[]> res = new ArrayList<>();
-        // t1ID -表t1-> t1NeighborID -表edge-> edgeNeighborID -表t2-> t2NeighborID
-        for (int t1ID = 0; t1ID < fwdAdjList.length; t1ID++) {
-            int t1StartIdx = fwdAdjList[t1ID].getLabelOrTypeOffsets()[label];
-            int t1EndIdx = fwdAdjList[t1ID].getLabelOrTypeOffsets()[label + 1];
-            for (int i = t1StartIdx; i < t1EndIdx; i++) {
-                int t1NeighborID = fwdAdjList[t1ID].getNeighbourId(i);
-                int edgeStartIdx = fwdAdjList[t1NeighborID].getLabelOrTypeOffsets()[label];
-                int edgeEndIdx = fwdAdjList[t1NeighborID].getLabelOrTypeOffsets()[label + 1];
-                for (int j = edgeStartIdx; j < edgeEndIdx; j++) {
-                    int edgeNeighborID = fwdAdjList[t1NeighborID].getNeighbourId(j);
-                    int t2StartIdx = fwdAdjList[edgeNeighborID].getLabelOrTypeOffsets()[label];
-                    int t2EndIdx = fwdAdjList[edgeNeighborID].getLabelOrTypeOffsets()[label + 1];
-                    for (int k = t2StartIdx; k < t2EndIdx; k++) {
-                        int t2NeighborID = fwdAdjList[edgeNeighborID].getNeighbourId(k);
-                        int[] tmpRes = new int[2];
-                        tmpRes[0] = t1ID;
-                        tmpRes[1] = t2NeighborID;
-                        res.add(tmpRes);
-                    }
+    /**
+     * @param startHop is the first hop of the paths.
+     * @param endHop is the hop after the last hop of the paths.
+     * @return the (first, last) vertex pairs of the paths over the hops from the start hop, from
+     * every vertex of the type of the first query vertex if the start hop is 0.
+     */
+    public PairBuffer getPairs(int startHop, int endHop) {
+        if (0 == startHop) {
+            return jump(fromVertexEndIdx - fromVertexStartIdx, (startIdx, endIdx, pairs,
+                cursors) -> {
+                for (var idx = fromVertexStartIdx + startIdx; idx < fromVertexStartIdx + endIdx;
+                        idx++) {
+                    addPairs(vertexIds[idx], vertexIds[idx], startHop, endHop, pairs, cursors);
                 }
-            }
+            });
         }
-        return res;
+        return jump(numVertices, (startIdx, endIdx, pairs, cursors) -> {
+            for (var vertexId = startIdx; vertexId < endIdx; vertexId++) {
+                addPairs(vertexId, vertexId, startHop, endHop, pairs, cursors);
+            }
+        });
     }
 
-    public List<int[]> getEdge2ByFwdAdjList() {
-        List<int[]> res = new ArrayList<>();
-        // t1ID -表t1-> t1NeighborID -表edge-> edgeNeighborID -表t2-> t2NeighborID
-        for (int t1ID = 0; t1ID < fwdAdjList.length; t1ID++) {
-            int t1StartIdx = fwdAdjList[t1ID].getLabelOrTypeOffsets()[label];
-            int t1EndIdx = fwdAdjList[t1ID].getLabelOrTypeOffsets()[label + 1];
-            for (int i = t1StartIdx; i < t1EndIdx; i++) {
-                int t1NeighborID = fwdAdjList[t1ID].getNeighbourId(i);
-                int edgeStartIdx = fwdAdjList[t1NeighborID].getLabelOrTypeOffsets()[label];
-                int edgeEndIdx = fwdAdjList[t1NeighborID].getLabelOrTypeOffsets()[label + 1];
-//                for (int j = edgeStartIdx; j < edgeEndIdx; j++) {
-//                    int edgeNeighborID = fwdAdjList[t1NeighborID].getNeighbourId(j);
-//                    int t2StartIdx = fwdAdjList[edgeNeighborID].getLabelOrTypeOffsets()[label];
-//                    int t2EndIdx = fwdAdjList[edgeNeighborID].getLabelOrTypeOffsets()[label + 1];
-                    for (int k = edgeStartIdx; k < edgeEndIdx; k++) {
-                        int t2NeighborID = fwdAdjList[t1NeighborID].getNeighbourId(k);
-                        int[] tmpRes = new int[2];
-                        tmpRes[0] = t1ID;
-                        tmpRes[1] = t2NeighborID;
-                        res.add(tmpRes);
+    /**
+     * Extends the paths ending at the second vertex of each pair over the hops from the start hop.
+     *
+     * @param pairs are the (first, last) vertex pairs of the paths to extend.
+     * @param startHop is the first hop to extend the paths by.
+     * @param endHop is the hop after the last hop to extend the paths by.
+     * @return the (first, last) vertex pairs of the extended paths.
+     */
+    public PairBuffer intersect(PairBuffer pairs, int startHop, int endHop) {
+        return jump(pairs.getSize(), (startIdx, endIdx, extendedPairs, cursors) -> {
+            for (var idx = startIdx; idx < endIdx; idx++) {
+                addPairs(pairs.getFirst(idx), pairs.getSecond(idx), startHop, endHop,
+                    extendedPairs, cursors);
+            }
+        });
+    }
+
+    /**
+     * Indexes the last vertices of the given pairs by their first vertex to join them with
+     * {@link #intersect(PairBuffer, int)}.
+     *
+     * @param pairs are the (first, last) vertex pairs of the paths of the sub table.
+     */
+    public void buildSubTable(PairBuffer pairs) {
+        subTable = pairs.toIndex(numVertices);
+    }
+
+    /**
+     * Joins the paths of the given pairs, through the given hop, with the paths of the sub table.
+     *
+     * @param pairs are the (first, last) vertex pairs of the paths ending before the hop.
+     * @param hop is the hop joining the last vertex of the pairs with the first vertex of the
+     * paths of the sub table.
+     * @return the (first, last) vertex pairs of the joined paths.
+     */
+    public PairBuffer intersect(PairBuffer pairs, int hop) {
+        var ends = subTable.getValues();
+        return jump(pairs.getSize(), (startIdx, endIdx, joinedPairs, cursors) -> {
+            var neighbours = cursors.neighbours[hop];
+            for (var pairIdx = startIdx; pairIdx < endIdx; pairIdx++) {
+                hopAdjLists[hop].setNeighbourIds(pairs.getSecond(pairIdx),
+                    hopLabelsOrToTypes[hop], neighbours);
+                for (var idx = neighbours.startIdx; idx < neighbours.endIdx; idx++) {
+                    var neighbourId = neighbours.Ids[idx];
+                    if (KeyStore.ANY != hopToTypes[hop] &&
+                            vertexTypes[neighbourId] != hopToTypes[hop]) {
+                        continue;
                     }
-//                }
+                    joinedPairs.addAll(pairs.getFirst(pairIdx), ends, subTable.getStartIdx(
+                        neighbourId), subTable.getEndIdx(neighbourId));
+                }
             }
-        }
-        return res;
+        });
     }
 
-    @Override
-    public void run() {
-        edge3 = getEdge3ByFwdAdjList();
+    /**
+     * Jumps from the sources of the given chunk, adding the pairs to the given buffer.
+     */
+    @FunctionalInterface
+    private interface ChunkJump {
+        void jump(int startIdx, int endIdx, PairBuffer pairs, HopCursors cursors);
     }
 
-    public List<int[]> testEdge3toEdge6() {
-        List<int[]> res = new ArrayList<>();
-        var edge3 = getEdge3ByFwdAdjList();
-        buildSubTable(edge3);
-        for (var e : edge3) {
-            var l = subTable.getOrDefault(e[1], new ArrayList<>());
-            for (var i : l)
-                res.add(new int[]{e[0], i});
+    /**
+     * Jumps from the given number of sources on the calling thread without a pool and in chunks
+     * on the threads of the pool otherwise.
+     */
+    private PairBuffer jump(int numSources, ChunkJump chunkJump) {
+        var numChunks = (numSources + PARALLEL_GRAIN_SIZE - 1) / PARALLEL_GRAIN_SIZE;
+        if (null == pool || numChunks <= 1) {
+            var pairs = new PairBuffer();
+            chunkJump.jump(0, numSources, pairs, pairCursors);
+            return pairs;
+        }
+        var chunks = new PairBuffer[numChunks];
+        pool.invoke(new ChunksTask(chunkJump, numSources, chunks, 0, numChunks));
+        var numPairs = 0L;
+        for (var chunk : chunks) {
+            numPairs += chunk.getSize();
+        }
+        if (numPairs > PairBuffer.MAX_CAPACITY) {
+            throw new IllegalStateException("A pair buffer holds at most " +
+                PairBuffer.MAX_CAPACITY + " pairs.");
         }
-        return res;
+        var pairs = new PairBuffer((int) numPairs, PairBuffer.OFF_HEAP);
+        for (var i = 0; i < numChunks; i++) {
+            pairs.addAll(chunks[i]);
+            chunks[i] = null;
+        }
+        return pairs;
     }
 
-    @Override
-    public void init(int[] probeTuple, Graph graph, KeyStore store) {
-        this.probeTuple = probeTuple;
-        for (var nextOperator : next) {
-            nextOperator.init(probeTuple, graph, store);
+    /**
+     * Jumps from the chunks in [startChunk, endChunk), splitting them in halves the idle threads
+     * of the pool steal until a single chunk is left.
+     */
+    private class ChunksTask extends RecursiveAction {
+
+        private final ChunkJump chunkJump;
+        private final int numSources;
+        private final PairBuffer[] chunks;
+        private final int startChunk, endChunk;
+
+        ChunksTask(ChunkJump chunkJump, int numSources, PairBuffer[] chunks, int startChunk,
+            int endChunk) {
+            this.chunkJump = chunkJump;
+            this.numSources = numSources;
+            this.chunks = chunks;
+            this.startChunk = startChunk;
+            this.endChunk = endChunk;
         }
-    }
 
-    @Override
-    public void processNewTuple() throws LimitExceededException {
-        jumpByFwd();
-        // jumpByBwd();
+        @Override
+        protected void compute() {
+            if (1 == endChunk - startChunk) {
+                var startIdx = startChunk * PARALLEL_GRAIN_SIZE;
+                var endIdx = (int) Math.min((long) startIdx + PARALLEL_GRAIN_SIZE, numSources);
+                var pairs = new PairBuffer();
+                chunkJump.jump(startIdx, endIdx, pairs, new HopCursors(numHops));
+                chunks[startChunk] = pairs;
+                return;
+            }
+            var midChunk = (startChunk + endChunk) >>> 1;
+            invokeAll(new ChunksTask(chunkJump, numSources, chunks, startChunk, midChunk),
+                new ChunksTask(chunkJump, numSources, chunks, midChunk, endChunk));
+        }
     }
 
-    private void jumpByFwd() throws LimitExceededException {
-        var vertexIdx = probeTuple[jumpIdx];
-        int r1StartIdx = fwdAdjList[vertexIdx].getLabelOrTypeOffsets()[label];
-        int r1EndIdx = fwdAdjList[vertexIdx].getLabelOrTypeOffsets()[label + 1];
-        for (int i = r1StartIdx; i < r1EndIdx; i++) {
-            int r1NeighborId = fwdAdjList[vertexIdx].getNeighbourId(i);
-            probeTuple[jumpIdx + 1] = r1NeighborId;
-            int edge1StartIdx = fwdAdjList[r1NeighborId].getLabelOrTypeOffsets()[label];
-            int edg1EndIdx = fwdAdjList[r1NeighborId].getLabelOrTypeOffsets()[label + 1];
-            for (int j = edge1StartIdx; j < edg1EndIdx; j++) {
-                int destinationID = fwdAdjList[r1NeighborId].getNeighbourId(j);
-                probeTuple[jumpIdx + 2] = destinationID;
-                numOutTuples++;
-                next[0].processNewTuple();
+    /**
+     * The neighbours and the index of the next neighbour to jump to of each hop.
+     */
+    private static class HopCursors {
+
+        final Neighbours[] neighbours;
+        final int[] nextIdxs;
+
+        HopCursors(int numHops) {
+            neighbours = new Neighbours[numHops];
+            for (var hop = 0; hop < numHops; hop++) {
+                neighbours[hop] = new Neighbours();
             }
+            nextIdxs = new int[numHops];
         }
     }
 
-    private void jumpByBwd() throws LimitExceededException {
-        var vertexIdx = probeTuple[jumpIdx];
-        int r1StartIdx = bwdAdjList[vertexIdx].getLabelOrTypeOffsets()[label];
-        int r1EndIdx = bwdAdjList[vertexIdx].getLabelOrTypeOffsets()[label + 1];
-        for (int i = r1StartIdx; i < r1EndIdx; i++) {
-            int r1NeighborId = bwdAdjList[vertexIdx].getNeighbourId(i);
-            probeTuple[jumpIdx + 1] = r1NeighborId;
-            int edge1StartIdx = bwdAdjList[r1NeighborId].getLabelOrTypeOffsets()[label];
-            int edg1EndIdx = bwdAdjList[r1NeighborId].getLabelOrTypeOffsets()[label + 1];
-            for (int j = edge1StartIdx; j < edg1EndIdx; j++) {
-                int destinationID = bwdAdjList[r1NeighborId].getNeighbourId(j);
-                probeTuple[jumpIdx + 2] = destinationID;
-                numOutTuples++;
-                next[0].processNewTuple();
+    /**
+     * Adds a (first vertex, last vertex) pair per path from the vertex over the given hops.
+     */
+    private void addPairs(int firstVertexId, int vertexId, int startHop, int endHop,
+        PairBuffer pairs, HopCursors cursors) {
+        var nextIdxs = cursors.nextIdxs;
+        setNeighbours(startHop, vertexId, cursors);
+        var lastHop = endHop - 1;
+        var hop = startHop;
+        while (hop >= startHop) {
+            var neighbours = cursors.neighbours[hop];
+            if (nextIdxs[hop] == neighbours.endIdx) {
+                hop--;
+                continue;
+            }
+            if (hop == lastHop && KeyStore.ANY == hopToTypes[hop]) {
+                pairs.addAll(firstVertexId, neighbours.Ids, nextIdxs[hop], neighbours.endIdx);
+                nextIdxs[hop] = neighbours.endIdx;
+                continue;
+            }
+            var neighbourId = neighbours.Ids[nextIdxs[hop]++];
+            if (KeyStore.ANY != hopToTypes[hop] && vertexTypes[neighbourId] != hopToTypes[hop]) {
+                continue;
+            }
+            if (hop == lastHop) {
+                pairs.add(firstVertexId, neighbourId);
+            } else {
+                setNeighbours(++hop, neighbourId, cursors);
             }
         }
     }
+
+    /**
+     * Sets the cursor of the hop to the start of the adjacency list of the vertex.
+     *
+     * @return the size of the adjacency list.
+     */
+    private int setNeighbours(int hop, int vertexId, HopCursors cursors) {
+        var neighbours = cursors.neighbours[hop];
+        hopAdjLists[hop].setNeighbourIds(vertexId, hopLabelsOrToTypes[hop], neighbours);
+        cursors.nextIdxs[hop] = neighbours.startIdx;
+        return neighbours.endIdx - neighbours.startIdx;
+    }
+
+    /**
+     * @see Operator#copy(boolean)
+     */
+    @Override
+    public JumpingLikeJoin copy(boolean isThreadSafe) {
+        var prevCopy = prev.copy(isThreadSafe);
+        var jump = new JumpingLikeJoin(outSubgraph, inSubgraph, pathQVertices,
+            prevCopy.getOutQVertexToIdxMap());
+        jump.setMinNumHops(minNumHops);
+        jump.prev = prevCopy;
+        prevCopy.setNext(jump);
+        return jump;
+    }
 }
@@ -0,0 +1,162 @@
+package ca.waterloo.dsg.graphflow.plan.operator.jumpinglikejoin;
+
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
+import ca.waterloo.dsg.graphflow.query.QueryGraph;
+import ca.waterloo.dsg.graphflow.storage.Graph;
+import ca.waterloo.dsg.graphflow.storage.KeyStore;
+import ca.waterloo.dsg.graphflow.util.collection.PairBuffer;
+import lombok.var;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link JumpingLikeJoinExe} counting the paths instead of enumerating them, for plans only
+ * outputting the number of matches. The number of paths from each vertex over the hops left is
+ * computed a hop at a time from the last hop, as a sparse matrix-vector product of the adjacency
+ * lists of the hop and the counts of the next hop: the count of a vertex is the sum of the counts
+ * of its neighbours, plus the number of its neighbours the paths of fewer hops can end at, which
+ * need not have the type of the query vertex of the hop. Counting k hops takes O(k * |E|)
+ * whatever the number of paths. The counts over the longest prefix of the path cached in the
+ * {@link ca.waterloo.dsg.graphflow.storage.KHopRelationCache}, if any, are instead the sums of
+ * the counts of the last vertices of its pairs. The counter adds no relation to the cache as
+ * materializing one takes as long as enumerating its paths, which counting avoids.
+ */
+public class JumpingLikeJoinCounter extends JumpingLikeJoinExe {
+
+    // shared by the thread-safe copies so only the first one executed counts the paths.
+    private AtomicBoolean isCounted;
+
+    /**
+     * Constructs a {@link JumpingLikeJoinCounter} operator.
+     *
+     * @param outSubgraph is the subgraph of the path.
+     * @param pathQVertices are the query vertices of the path in the jumping order.
+     */
+    public JumpingLikeJoinCounter(QueryGraph outSubgraph, List<String> pathQVertices) {
+        super(outSubgraph, pathQVertices);
+        this.name = name.replaceFirst("JumpLikeJoin", "JumpLikeJoin COUNT");
+        isCounted = new AtomicBoolean();
+    }
+
+    /**
+     * @see ca.waterloo.dsg.graphflow.plan.operator.Operator#init(int[], Graph, KeyStore)
+     */
+    @Override
+    public void init(int[] probeTuple, Graph graph, KeyStore store) {
+        super.init(probeTuple, graph, store);
+        isCounted.set(false);
+    }
+
+    @Override
+    public void execute() {
+        if (!isCounted.compareAndSet(false, true)) {
+            return;
+        }
+        numOutTuples = countPaths();
+    }
+
+    /**
+     * @return the number of paths.
+     */
+    public long countPaths() {
+        var numPathsFromVertices = getNumPathsFromVertices();
+        var numPaths = 0L;
+        for (var idx = fromVertexStartIdx; idx < fromVertexEndIdx; idx++) {
+            numPaths += numPathsFromVertices[vertexIds[idx]];
+        }
+        return numPaths;
+    }
+
+    /**
+     * @return the number of paths from each vertex by vertex ID, 0 for the vertices not of the
+     * type of the first query vertex.
+     */
+    public long[] getNumPathsBySource() {
+        var numPathsFromVertices = getNumPathsFromVertices();
+        var numPathsBySource = new long[numVertices];
+        for (var idx = fromVertexStartIdx; idx < fromVertexEndIdx; idx++) {
+            numPathsBySource[vertexIds[idx]] = numPathsFromVertices[vertexIds[idx]];
+        }
+        return numPathsBySource;
+    }
+
+    /**
+     * @return the number of paths over all the hops from each vertex by vertex ID, ignoring the
+     * type of the first query vertex unless a prefix of the path is cached.
+     */
+    private long[] getNumPathsFromVertices() {
+        var counts = new long[numVertices];
+        var nextCounts = new long[numVertices];
+        Arrays.fill(nextCounts, 1L);
+        // the relations cached hold no paths of fewer hops, see isOptionalHop(int).
+        var prefixNumHops = minNumHops == numHops ? numHops : minNumHops - 1;
+        PairBuffer.Index prefix = null;
+        for (; prefixNumHops > 0 && null == prefix; prefixNumHops--) {
+            prefix = getCachedPrefix(prefixNumHops);
+        }
+        if (null != prefix) {
+            prefixNumHops++;
+        }
+        var neighbours = new Neighbours();
+        var pathEnds = new Neighbours();
+        for (var hop = numHops - 1; hop >= prefixNumHops; hop--) {
+            var adjLists = hopAdjLists[hop];
+            var labelOrToType = hopLabelsOrToTypes[hop];
+            var toType = hopToTypes[hop];
+            for (var vertexId = 0; vertexId < numVertices; vertexId++) {
+                adjLists.setNeighbourIds(vertexId, labelOrToType, neighbours);
+                icost += neighbours.endIdx - neighbours.startIdx;
+                var count = 0L;
+                for (var idx = neighbours.startIdx; idx < neighbours.endIdx; idx++) {
+                    var neighbourId = neighbours.Ids[idx];
+                    if (KeyStore.ANY == toType || vertexTypes[neighbourId] == toType) {
+                        count += nextCounts[neighbourId];
+                    }
+                }
+                if (isOptionalHop(hop)) {
+                    icost += setPathEnds(hop, vertexId, pathEnds);
+                    for (var idx = pathEnds.startIdx; idx < pathEnds.endIdx; idx++) {
+                        if (isPathEnd(pathEnds.Ids[idx])) {
+                            count++;
+                        }
+                    }
+                }
+                counts[vertexId] = count;
+            }
+            var temp = nextCounts;
+            nextCounts = counts;
+            counts = temp;
+        }
+        if (null != prefix) {
+            var ends = prefix.getValues();
+            icost += ends.length;
+            Arrays.fill(counts, 0L);
+            for (var idx = fromVertexStartIdx; idx < fromVertexEndIdx; idx++) {
+                var vertexId = vertexIds[idx];
+                var count = 0L;
+                for (var endIdx = prefix.getStartIdx(vertexId); endIdx < prefix.getEndIdx(
+                        vertexId); endIdx++) {
+                    count += nextCounts[ends[endIdx]];
+                }
+                counts[vertexId] = count;
+            }
+            nextCounts = counts;
+        }
+        return nextCounts;
+    }
+
+    /**
+     * @see ca.waterloo.dsg.graphflow.plan.operator.Operator#copy(boolean)
+     */
+    @Override
+    public JumpingLikeJoinCounter copy(boolean isThreadSafe) {
+        var counter = new JumpingLikeJoinCounter(outSubgraph, pathQVertices);
+        counter.setMinNumHops(minNumHops);
+        if (isThreadSafe) {
+            counter.isCounted = isCounted;
+        }
+        return counter;
+    }
+}
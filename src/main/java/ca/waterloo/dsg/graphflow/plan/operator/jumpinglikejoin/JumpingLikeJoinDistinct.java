@@ -0,0 +1,188 @@
+package ca.waterloo.dsg.graphflow.plan.operator.jumpinglikejoin;
+
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
+import ca.waterloo.dsg.graphflow.query.QueryGraph;
+import ca.waterloo.dsg.graphflow.storage.Graph;
+import ca.waterloo.dsg.graphflow.storage.KeyStore;
+import lombok.Setter;
+import lombok.var;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link JumpingLikeJoinExe} matching the distinct (first, last) vertex pairs of the paths
+ * instead of every path, i.e. the vertices reachable from each vertex over the hops. The paths
+ * of between the min number of hops and all the hops are matched so both exactly and at most k
+ * hops are supported.
+ *
+ * The sources are jumped from in batches of 64 by a multi-source breadth first search: the
+ * frontier of a hop holds a word per vertex with the bit of each source of the batch reaching
+ * the vertex set, so the duplicate paths to a vertex are merged at each hop. The vertices the
+ * paths of fewer hops end at, of the type of the last query vertex, are reached over the hops
+ * they end at. The output tuples only hold the first and last vertices of the paths.
+ */
+public class JumpingLikeJoinDistinct extends JumpingLikeJoinExe {
+
+    public static final int BATCH_SIZE = Long.SIZE;
+
+    // the index of the next batch to take, shared by the thread-safe copies.
+    @Setter private AtomicInteger globalBatchIdx;
+
+    private int lastIdx;
+    private long[] frontier;
+    private long[] nextFrontier;
+    private long[] reached;
+    private Neighbours neighbours;
+    private Neighbours pathEnds;
+
+    /**
+     * Constructs a {@link JumpingLikeJoinDistinct} operator.
+     *
+     * @param outSubgraph is the subgraph of the path.
+     * @param pathQVertices are the query vertices of the path in the jumping order.
+     * @param minNumHops is the number of hops of the shortest paths to match.
+     */
+    public JumpingLikeJoinDistinct(QueryGraph outSubgraph, List<String> pathQVertices,
+        int minNumHops) {
+        this(outSubgraph, pathQVertices, minNumHops, false /* forward */);
+    }
+
+    /**
+     * Constructs a {@link JumpingLikeJoinDistinct} operator.
+     *
+     * @param outSubgraph is the subgraph of the path.
+     * @param pathQVertices are the query vertices of the path in the order of the output tuples.
+     * @param minNumHops is the number of hops of the shortest paths to match.
+     * @param isBwd is true to jump backward from the last query vertex of the path, false to
+     * jump from the first one.
+     * @throws IllegalArgumentException if jumping backward the paths of fewer hops than all the
+     * hops, which skip the last hops of the path.
+     */
+    public JumpingLikeJoinDistinct(QueryGraph outSubgraph, List<String> pathQVertices,
+        int minNumHops, boolean isBwd) {
+        super(outSubgraph, pathQVertices, isBwd);
+        if (isBwd && minNumHops < numHops) {
+            throw new IllegalArgumentException("Only the paths of all the hops are matched " +
+                "backward.");
+        }
+        setMinNumHops(minNumHops);
+        this.name = name.replaceFirst("JumpLikeJoin", "JumpLikeJoin DISTINCT");
+        lastIdx = outQVertexToIdxMap.get(this.pathQVertices.get(numHops));
+    }
+
+    /**
+     * @see ca.waterloo.dsg.graphflow.plan.operator.Operator#init(int[], Graph, KeyStore)
+     */
+    @Override
+    public void init(int[] probeTuple, Graph graph, KeyStore store) {
+        super.init(probeTuple, graph, store);
+        frontier = new long[numVertices];
+        nextFrontier = new long[numVertices];
+        reached = minNumHops < numHops ? new long[numVertices] : null;
+        neighbours = new Neighbours();
+        pathEnds = new Neighbours();
+    }
+
+    @Override
+    public void execute() throws LimitExceededException {
+        var numSources = fromVertexEndIdx - fromVertexStartIdx;
+        var numBatches = (numSources + BATCH_SIZE - 1) / BATCH_SIZE;
+        if (null == globalBatchIdx) {
+            for (var batchIdx = 0; batchIdx < numBatches; batchIdx++) {
+                jump(batchIdx);
+            }
+            return;
+        }
+        var batchIdx = globalBatchIdx.getAndIncrement();
+        while (batchIdx < numBatches) {
+            jump(batchIdx);
+            batchIdx = globalBatchIdx.getAndIncrement();
+        }
+    }
+
+    private void jump(int batchIdx) throws LimitExceededException {
+        var startIdx = fromVertexStartIdx + batchIdx * BATCH_SIZE;
+        var numBatchSources = Math.min(BATCH_SIZE, fromVertexEndIdx - startIdx);
+        Arrays.fill(frontier, 0L);
+        if (null != reached) {
+            Arrays.fill(reached, 0L);
+        }
+        for (var i = 0; i < numBatchSources; i++) {
+            frontier[vertexIds[startIdx + i]] |= 1L << i;
+        }
+        for (var hop = 0; hop < numHops; hop++) {
+            if (!jumpFrontier(hop)) {
+                break;
+            }
+        }
+        if (null != reached) {
+            for (var vertexId = 0; vertexId < numVertices; vertexId++) {
+                reached[vertexId] |= frontier[vertexId];
+            }
+        }
+        var lastReached = null != reached ? reached : frontier;
+        for (var vertexId = 0; vertexId < numVertices; vertexId++) {
+            var sources = lastReached[vertexId];
+            while (0L != sources) {
+                probeTuple[jumpIdx] = vertexIds[startIdx +
+                    Long.numberOfTrailingZeros(sources)];
+                probeTuple[lastIdx] = vertexId;
+                numOutTuples++;
+                next[0].processNewTuple();
+                sources &= sources - 1;
+            }
+        }
+    }
+
+    /**
+     * Sets the frontier to the vertices reached from the frontier over the hop, and adds the
+     * vertices the paths of hop + 1 hops end at to the reached vertices if they are matched.
+     *
+     * @return true if a vertex is reached, false otherwise.
+     */
+    private boolean jumpFrontier(int hop) {
+        Arrays.fill(nextFrontier, 0L);
+        var adjLists = hopAdjLists[hop];
+        var labelOrToType = hopLabelsOrToTypes[hop];
+        var toType = hopToTypes[hop];
+        var isReached = false;
+        for (var vertexId = 0; vertexId < numVertices; vertexId++) {
+            var sources = frontier[vertexId];
+            if (0L == sources) {
+                continue;
+            }
+            adjLists.setNeighbourIds(vertexId, labelOrToType, neighbours);
+            icost += neighbours.endIdx - neighbours.startIdx;
+            for (var idx = neighbours.startIdx; idx < neighbours.endIdx; idx++) {
+                var neighbourId = neighbours.Ids[idx];
+                if (KeyStore.ANY == toType || vertexTypes[neighbourId] == toType) {
+                    nextFrontier[neighbourId] |= sources;
+                    isReached = true;
+                }
+            }
+            if (null != reached && isOptionalHop(hop)) {
+                icost += setPathEnds(hop, vertexId, pathEnds);
+                for (var idx = pathEnds.startIdx; idx < pathEnds.endIdx; idx++) {
+                    if (isPathEnd(pathEnds.Ids[idx])) {
+                        reached[pathEnds.Ids[idx]] |= sources;
+                    }
+                }
+            }
+        }
+        var temp = frontier;
+        frontier = nextFrontier;
+        nextFrontier = temp;
+        return isReached;
+    }
+
+    /**
+     * @see ca.waterloo.dsg.graphflow.plan.operator.Operator#copy(boolean)
+     */
+    @Override
+    public JumpingLikeJoinDistinct copy(boolean isThreadSafe) {
+        return new JumpingLikeJoinDistinct(outSubgraph, getOutPathQVertices(), minNumHops,
+            isBwd);
+    }
+}
@@ -1,77 +1,83 @@
 package ca.waterloo.dsg.graphflow.plan.operator.jumpinglikejoin;
 
 import ca.waterloo.dsg.graphflow.query.QueryGraph;
-import ca.waterloo.dsg.graphflow.storage.Graph;
+import lombok.Getter;
+import lombok.var;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link JumpingLikeJoin} starting a subplan: jumps from every vertex of the type of the first
+ * query vertex of the path, or backward from every vertex of the type of the last one, e.g. when
+ * the last query vertex is more selective or its adjacency lists are smaller. Jumping backward,
+ * the hops are followed in reverse order and the other way round but the output tuples keep the
+ * order of the path. The tuples hold the vertex of every hop, which the (first, last) vertex pairs
+ * of the {@link ca.waterloo.dsg.graphflow.storage.KHopRelationCache} lack, so the jump neither
+ * reads nor adds to the cache, only {@link #getPaths()} and {@link JumpingLikeJoinCounter} do.
+ */
 public class JumpingLikeJoinExe extends JumpingLikeJoin {
-    public JumpingLikeJoinExe(Graph graph, short label) {
-        super(graph, label);
-    }
 
-    public JumpingLikeJoinExe(QueryGraph outSubgraph, Graph graph) {
-        super(outSubgraph, graph);
+    @Getter protected boolean isBwd;
+
+    /**
+     * Constructs a {@link JumpingLikeJoinExe} operator.
+     *
+     * @param outSubgraph is the subgraph matched by the output tuples.
+     * @param pathQVertices are the query vertices of the path in the jumping order.
+     */
+    public JumpingLikeJoinExe(QueryGraph outSubgraph, List<String> pathQVertices) {
+        this(outSubgraph, pathQVertices, false /* forward */);
     }
 
-    public JumpingLikeJoinExe(QueryGraph outSubgraph, QueryGraph inSubgraph, Graph graph, int jumpIdx) {
-        super(outSubgraph, inSubgraph, graph, jumpIdx);
+    /**
+     * Constructs a {@link JumpingLikeJoinExe} operator.
+     *
+     * @param outSubgraph is the subgraph matched by the output tuples.
+     * @param pathQVertices are the query vertices of the path in the order of the output tuples.
+     * @param isBwd is true to jump backward from the last query vertex of the path, false to
+     * jump from the first one.
+     */
+    public JumpingLikeJoinExe(QueryGraph outSubgraph, List<String> pathQVertices, boolean isBwd) {
+        super(outSubgraph, null /* no inSubgraph */, isBwd ? reverse(pathQVertices) :
+            pathQVertices, null);
+        this.isBwd = isBwd;
+        if (isBwd) {
+            reverseOutTuples();
+        }
     }
 
     @Override
     public void execute() throws LimitExceededException {
-        jumpByFwd();
-        // jumpByBwd();
+        for (int fromIdx = fromVertexStartIdx; fromIdx < fromVertexEndIdx; fromIdx++) {
+            probeTuple[jumpIdx] = vertexIds[fromIdx];
+            jump();
+        }
     }
 
-    private void jumpByFwd() throws LimitExceededException {
-        for (int t1ID = 0; t1ID < fwdAdjList.length; t1ID++) {
-            probeTuple[0] = t1ID;
-            int t1StartIdx = fwdAdjList[t1ID].getLabelOrTypeOffsets()[label];
-            int t1EndIdx = fwdAdjList[t1ID].getLabelOrTypeOffsets()[label + 1];
-            for (int i = t1StartIdx; i < t1EndIdx; i++) {
-                int t1NeighborID = fwdAdjList[t1ID].getNeighbourId(i);
-                probeTuple[1] = t1NeighborID;
-                int edgeStartIdx = fwdAdjList[t1NeighborID].getLabelOrTypeOffsets()[label];
-                int edgeEndIdx = fwdAdjList[t1NeighborID].getLabelOrTypeOffsets()[label + 1];
-                for (int j = edgeStartIdx; j < edgeEndIdx; j++) {
-                    int edgeNeighborID = fwdAdjList[t1NeighborID].getNeighbourId(j);
-                    probeTuple[2] = edgeNeighborID;
-                    int t2StartIdx = fwdAdjList[edgeNeighborID].getLabelOrTypeOffsets()[label];
-                    int t2EndIdx = fwdAdjList[edgeNeighborID].getLabelOrTypeOffsets()[label + 1];
-                    for (int k = t2StartIdx; k < t2EndIdx; k++) {
-                        int t2NeighborID = fwdAdjList[edgeNeighborID].getNeighbourId(k);
-                        probeTuple[3] = t2NeighborID;
-                        numOutTuples++;
-                        next[0].processNewTuple();
-                    }
-                }
-            }
-        }
+    /**
+     * @return The query vertices of the path in the order of the output tuples.
+     */
+    public List<String> getOutPathQVertices() {
+        return isBwd ? reverse(pathQVertices) : pathQVertices;
     }
 
-    private void jumpByBwd() throws LimitExceededException {
-        for (int t1ID = 0; t1ID < bwdAdjList.length; t1ID++) {
-            probeTuple[0] = t1ID;
-            int t1StartIdx = bwdAdjList[t1ID].getLabelOrTypeOffsets()[label];
-            int t1EndIdx = bwdAdjList[t1ID].getLabelOrTypeOffsets()[label + 1];
-            for (int i = t1StartIdx; i < t1EndIdx; i++) {
-                int t1NeighborID = bwdAdjList[t1ID].getNeighbourId(i);
-                probeTuple[1] = t1NeighborID;
-                int edgeStartIdx = bwdAdjList[t1NeighborID].getLabelOrTypeOffsets()[label];
-                int edgeEndIdx = bwdAdjList[t1NeighborID].getLabelOrTypeOffsets()[label + 1];
-                for (int j = edgeStartIdx; j < edgeEndIdx; j++) {
-                    int edgeNeighborID = bwdAdjList[t1NeighborID].getNeighbourId(j);
-                    probeTuple[2] = edgeNeighborID;
-                    int t2StartIdx = bwdAdjList[edgeNeighborID].getLabelOrTypeOffsets()[label];
-                    int t2EndIdx = bwdAdjList[edgeNeighborID].getLabelOrTypeOffsets()[label + 1];
-                    for (int k = t2StartIdx; k < t2EndIdx; k++) {
-                        int t2NeighborID = bwdAdjList[edgeNeighborID].getNeighbourId(k);
-                        probeTuple[3] = t2NeighborID;
-                        numOutTuples++;
-                        next[0].processNewTuple();
-                    }
-                }
-            }
-        }
+    private static List<String> reverse(List<String> pathQVertices) {
+        var reversedPathQVertices = new ArrayList<String>(pathQVertices);
+        Collections.reverse(reversedPathQVertices);
+        return reversedPathQVertices;
     }
 
+    /**
+     * @see ca.waterloo.dsg.graphflow.plan.operator.Operator#copy(boolean)
+     */
+    @Override
+    public JumpingLikeJoinExe copy(boolean isThreadSafe) {
+        var jump = isThreadSafe ? new JumpingLikeJoinExeBlocking(outSubgraph,
+            getOutPathQVertices(), isBwd) : new JumpingLikeJoinExe(outSubgraph,
+            getOutPathQVertices(), isBwd);
+        jump.setMinNumHops(minNumHops);
+        return jump;
+    }
 }
@@ -0,0 +1,50 @@
+package ca.waterloo.dsg.graphflow.plan.operator.jumpinglikejoin;
+
+import ca.waterloo.dsg.graphflow.query.QueryGraph;
+import lombok.Setter;
+import lombok.var;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A multi-threaded implementation of the {@link JumpingLikeJoinExe} operator. The threads each
+ * jump with a copy of the plan from partitions of {@link #PARTITION_SIZE} vertices taken from a
+ * shared cursor until all the vertices are taken, so the threads done with light partitions take
+ * the partitions left instead of waiting for a thread jumping from hubs.
+ */
+public class JumpingLikeJoinExeBlocking extends JumpingLikeJoinExe {
+
+    public static int PARTITION_SIZE = 16;
+
+    // the index, from the first vertex to jump from, of the next partition to take.
+    @Setter private AtomicInteger globalFromIdx;
+
+    /**
+     * Constructs a {@link JumpingLikeJoinExeBlocking} operator.
+     *
+     * @param outSubgraph is the subgraph matched by the output tuples.
+     * @param pathQVertices are the query vertices of the path in the order of the output tuples.
+     * @param isBwd is true to jump backward from the last query vertex of the path, false to
+     * jump from the first one.
+     */
+    JumpingLikeJoinExeBlocking(QueryGraph outSubgraph, List<String> pathQVertices,
+        boolean isBwd) {
+        super(outSubgraph, pathQVertices, isBwd);
+    }
+
+    @Override
+    public void execute() throws LimitExceededException {
+        var numFromVertices = fromVertexEndIdx - fromVertexStartIdx;
+        var startIdx = globalFromIdx.getAndAdd(PARTITION_SIZE);
+        while (startIdx < numFromVertices) {
+            var endIdx = Math.min(startIdx + PARTITION_SIZE, numFromVertices);
+            for (var fromIdx = fromVertexStartIdx + startIdx; fromIdx < fromVertexStartIdx + endIdx;
+                    fromIdx++) {
+                probeTuple[jumpIdx] = vertexIds[fromIdx];
+                jump();
+            }
+            startIdx = globalFromIdx.getAndAdd(PARTITION_SIZE);
+        }
+    }
+}
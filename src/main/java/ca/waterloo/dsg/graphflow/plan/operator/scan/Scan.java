@@ -1,10 +1,11 @@
 package ca.waterloo.dsg.graphflow.plan.operator.scan;
 
 import ca.waterloo.dsg.graphflow.plan.operator.Operator;
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
 import ca.waterloo.dsg.graphflow.query.QueryGraph;
 import ca.waterloo.dsg.graphflow.storage.Graph;
 import ca.waterloo.dsg.graphflow.storage.KeyStore;
-import ca.waterloo.dsg.graphflow.storage.SortedAdjList;
+import ca.waterloo.dsg.graphflow.storage.CSRAdjLists;
 import ca.waterloo.dsg.graphflow.util.collection.MapUtils;
 import lombok.Getter;
 import lombok.var;
@@ -15,15 +16,17 @@ import java.util.Map;
 
 /**
  * Scans all edges in the forward adjacency list given an edge label, a source vertex type, and a
- * destination source type. Scanned edge are pushed to the next operators one at a time.
+ * destination source type. Scanned edge are pushed to the next operators one at a time or, if
+ * batching is enabled, in batches of the edges of consecutive source vertices.
  */
 public class Scan extends Operator implements Serializable {
 
     @Getter protected String fromQueryVertex, toQueryVertex;
     @Getter short fromType, toType, labelOrToType;
 
-    SortedAdjList[] fwdAdjList;
-    private int fromVertexStartIdx, fromVertexEndIdx;
+    CSRAdjLists fwdAdjList;
+    Neighbours toNeighbours;
+    int fromVertexStartIdx, fromVertexEndIdx;
     int[] vertexIds;
     short[] vertexTypes;
 
@@ -65,11 +68,13 @@ public class Scan extends Operator implements Serializable {
             this.fromVertexStartIdx = 0;
             this.fromVertexEndIdx = graph.getHighestVertexId() + 1;
         }
-        this.fwdAdjList = graph.getFwdAdjLists();
+        this.fwdAdjList = graph.getFwdCSRAdjLists();
+        this.toNeighbours = new Neighbours();
         if (graph.isAdjListSortedByType()) {
             labelOrToType = toType;
             toType = KeyStore.ANY;
         }
+        initOutBatch();
         for (var nextOperator : next) {
             nextOperator.init(probeTuple, graph, store);
         }
@@ -80,22 +85,49 @@ public class Scan extends Operator implements Serializable {
      */
     @Override
     public void execute() throws LimitExceededException {
-        int fromVertex, toVertexStartIdx, toVertexEndIdx;
+        int fromVertex;
         for (var fromIdx = fromVertexStartIdx; fromIdx < fromVertexEndIdx; fromIdx++) {
             fromVertex = vertexIds[fromIdx];
-            probeTuple[0] = fromVertex;
-            toVertexStartIdx = fwdAdjList[fromVertex].getLabelOrTypeOffsets()[labelOrToType];
-            toVertexEndIdx = fwdAdjList[fromVertex].getLabelOrTypeOffsets()[labelOrToType + 1];
-            for (var toIdx = toVertexStartIdx; toIdx < toVertexEndIdx; toIdx++) {
-                probeTuple[1] = fwdAdjList[fromVertex].getNeighbourId(toIdx);
-                if (toType == KeyStore.ANY || vertexTypes[probeTuple[1]] == toType) {
-                    numOutTuples++;
-                    next[0].processNewTuple();
-                }
+            fwdAdjList.setNeighbourIds(fromVertex, labelOrToType, toNeighbours);
+            produceEdges(fromVertex);
+        }
+        flush();
+    }
+
+    /**
+     * Pushes the edges from the given vertex to the neighbours set in toNeighbours to the next
+     * operator, appending them to the output batch if batching is enabled.
+     *
+     * @param fromVertex is the source vertex of the edges.
+     */
+    void produceEdges(int fromVertex) throws LimitExceededException {
+        if (null != outBatch) {
+            batchTuple[0] = fromVertex;
+            appendToOutBatch(1, toNeighbours.Ids, toNeighbours.startIdx, toNeighbours.endIdx);
+            return;
+        }
+        probeTuple[0] = fromVertex;
+        for (var toIdx = toNeighbours.startIdx; toIdx < toNeighbours.endIdx; toIdx++) {
+            probeTuple[1] = toNeighbours.Ids[toIdx];
+            if (toType == KeyStore.ANY || vertexTypes[probeTuple[1]] == toType) {
+                numOutTuples++;
+                next[0].processNewTuple();
             }
         }
     }
 
+    /**
+     * @see Operator#selectOutTuples()
+     */
+    @Override
+    protected void selectOutTuples() {
+        if (KeyStore.ANY != toType) {
+            outBatch.select(1, vertexTypes, toType);
+        } else {
+            outBatch.selectAll();
+        }
+    }
+
     /**
      * @see Operator#updateOperatorName(Map)
      */
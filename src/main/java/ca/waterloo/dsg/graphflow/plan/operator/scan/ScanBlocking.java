@@ -2,30 +2,68 @@ package ca.waterloo.dsg.graphflow.plan.operator.scan;
 
 import ca.waterloo.dsg.graphflow.plan.operator.Operator;
 import ca.waterloo.dsg.graphflow.query.QueryGraph;
+import ca.waterloo.dsg.graphflow.storage.CSRAdjLists;
 import ca.waterloo.dsg.graphflow.storage.Graph;
 import ca.waterloo.dsg.graphflow.storage.KeyStore;
 import lombok.Setter;
 import lombok.var;
 
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * A multi-threaded implementation of the {@link Scan} operator .
+ * A multi-threaded implementation of the {@link Scan} operator. The threads take morsels of
+ * edges from a shared cursor over the prefix sums of the numbers of edges of the vertices to scan
+ * from, without locking, so a morsel may split the adjacency list of a hub. Each thread sizes its
+ * morsels, starting from {@link #PARTITION_SIZE} edges, so that a morsel takes about
+ * {@link #MORSEL_TIME_IN_NANOS} to process including the work of the next operators, and shrinks
+ * them once few edges are left so the threads finish at about the same time.
  */
 public class ScanBlocking extends Scan {
 
     public static int PARTITION_SIZE = 100;
+    public static int MIN_PARTITION_SIZE = 16;
+    public static int MAX_PARTITION_SIZE = 1 << 16;
+    public static long MORSEL_TIME_IN_NANOS = 500_000;
 
-    private int currFromIdx, currToIdx;
-    private int fromIdxLimit, toIdxLimit;
-    private int highestFromIdx, highestToIdx;
+    @Setter private Morsels morsels;
+    private int morselSize;
 
-    @Setter private VertexIdxLimits globalVerticesIdxLimits;
+    /**
+     * The morsels of edges shared by the thread-safe copies of a {@link ScanBlocking} operator.
+     * Each vertex to scan from takes a position followed by a position per edge so the vertices
+     * are accounted for in the morsel sizes even without edges.
+     */
+    public static class Morsels {
+
+        private final int numThreads;
+        private final AtomicLong cursor = new AtomicLong();
+        // the position of each vertex to scan from, by index from the first vertex, followed by
+        // the number of positions.
+        private volatile long[] offsets;
+
+        /**
+         * Constructs a {@link Morsels} object.
+         *
+         * @param numThreads is the number of threads taking the morsels.
+         */
+        public Morsels(int numThreads) {
+            this.numThreads = numThreads;
+        }
 
-    public static class VertexIdxLimits {
-        int fromVariableIndexLimit;
-        int toVariableIndexLimit;
-        ReentrantLock lock = new ReentrantLock();
+        private synchronized void init(int[] vertexIds, int fromVertexStartIdx,
+            int fromVertexEndIdx, CSRAdjLists adjLists, short labelOrToType) {
+            if (null != offsets) {
+                return;
+            }
+            var fromVertexOffsets = new long[fromVertexEndIdx - fromVertexStartIdx + 1];
+            for (var idx = 0; idx < fromVertexOffsets.length - 1; idx++) {
+                var fromVertex = vertexIds[fromVertexStartIdx + idx];
+                fromVertexOffsets[idx + 1] = fromVertexOffsets[idx] + 1 +
+                    adjLists.getEndIdx(fromVertex, labelOrToType) -
+                    adjLists.getStartIdx(fromVertex, labelOrToType);
+            }
+            offsets = fromVertexOffsets;
+        }
     }
 
     /**
@@ -43,21 +81,8 @@ public class ScanBlocking extends Scan {
     @Override
     public void init(int[] probeTuple, Graph graph, KeyStore store) {
         super.init(probeTuple, graph, store);
-        if (KeyStore.ANY != fromType) {
-            currFromIdx = graph.getVertexTypeOffsets()[fromType];
-            highestFromIdx = graph.getVertexTypeOffsets()[fromType + 1];
-        } else {
-            currFromIdx = 0;
-            highestFromIdx = graph.getHighestVertexId() + 1;
-        }
-        currToIdx = fwdAdjList[vertexIds[currFromIdx]].getLabelOrTypeOffsets()[labelOrToType];
-        highestToIdx = fwdAdjList[vertexIds[highestFromIdx - 1]].getLabelOrTypeOffsets()[
-            labelOrToType + 1];
-        fromIdxLimit = currFromIdx;
-        toIdxLimit = currToIdx;
-        for (var nextOperator : next) {
-            nextOperator.init(probeTuple, graph, store);
-        }
+        morsels.init(vertexIds, fromVertexStartIdx, fromVertexEndIdx, fwdAdjList, labelOrToType);
+        morselSize = PARTITION_SIZE;
     }
 
     /**
@@ -65,78 +90,68 @@ public class ScanBlocking extends Scan {
      */
     @Override
     public void execute() throws LimitExceededException {
-        updateIndicesLimits();
-        while (currFromIdx < highestFromIdx - 1 ||
-                (currFromIdx == highestFromIdx - 1 && currToIdx < highestToIdx - 1)) {
-            if (currFromIdx == fromIdxLimit) {
-                produceNewEdges(currFromIdx, currToIdx, toIdxLimit);
-            } else if (currFromIdx < fromIdxLimit) {
-                var toVertexIdxLimit = fwdAdjList[currFromIdx].getLabelOrTypeOffsets()[
-                    labelOrToType + 1];
-                produceNewEdges(currFromIdx, currToIdx, toVertexIdxLimit);
-                produceNewEdges(/* startFromIdx: currFromIdx + 1, endFromIdx: fromIdxLimit */);
-                produceNewEdges(fromIdxLimit, fwdAdjList[fromIdxLimit].getLabelOrTypeOffsets()[
-                    labelOrToType], toIdxLimit);
-            }
-            updateIndicesLimits();
+        var numPositions = morsels.offsets[morsels.offsets.length - 1];
+        var startPos = morsels.cursor.getAndAdd(morselSize);
+        while (startPos < numPositions) {
+            var endPos = Math.min(startPos + morselSize, numPositions);
+            var startTime = System.nanoTime();
+            produceNewEdges(startPos, endPos);
+            updateMorselSize(endPos - startPos, System.nanoTime() - startTime, numPositions);
+            startPos = morsels.cursor.getAndAdd(morselSize);
         }
+        flush();
     }
 
-    private void produceNewEdges() throws LimitExceededException {
-        int toVertexIdxStart, toVertexIdxLimit;
-        for (var fromIdx = currFromIdx + 1; fromIdx < fromIdxLimit; fromIdx++) {
-            probeTuple[0] = vertexIds[fromIdx];
-            toVertexIdxStart = fwdAdjList[fromIdx].getLabelOrTypeOffsets()[labelOrToType];
-            toVertexIdxLimit = fwdAdjList[fromIdx].getLabelOrTypeOffsets()[labelOrToType + 1];
-            for (int toIdx = toVertexIdxStart; toIdx < toVertexIdxLimit; toIdx++) {
-                probeTuple[1] = fwdAdjList[fromIdx].getNeighbourId(toIdx);
-                if (toType == KeyStore.ANY || vertexTypes[probeTuple[1]] == toType) {
-                    numOutTuples++;
-                    next[0].processNewTuple();
+    private void produceNewEdges(long startPos, long endPos) throws LimitExceededException {
+        var offsets = morsels.offsets;
+        for (var idx = getFromVertexIdx(startPos); idx < offsets.length - 1 &&
+                offsets[idx] < endPos; idx++) {
+            var fromVertex = vertexIds[fromVertexStartIdx + idx];
+            if (fwdAdjList.hasUpdates(fromVertex, labelOrToType)) {
+                // the positions ignore the updates: the morsel holding the position of the vertex
+                // produces all its edges.
+                if (offsets[idx] < startPos) {
+                    continue;
                 }
+                fwdAdjList.setNeighbourIds(fromVertex, labelOrToType, toNeighbours);
+            } else {
+                var startIdx = fwdAdjList.getStartIdx(fromVertex, labelOrToType);
+                var firstEdgePos = offsets[idx] + 1;
+                fwdAdjList.setNeighbourIds(
+                    startIdx + (int) Math.max(0, startPos - firstEdgePos),
+                    startIdx + (int) (Math.min(offsets[idx + 1], endPos) - firstEdgePos),
+                    toNeighbours);
             }
+            produceEdges(fromVertex);
         }
     }
 
-    private void produceNewEdges(int fromIdx, int startToIdx, int endToIdx)
-        throws LimitExceededException {
-        for (var toIdx = startToIdx; toIdx < endToIdx; toIdx++) {
-            probeTuple[0] = vertexIds[fromIdx];
-            probeTuple[1] = fwdAdjList[fromIdx].getNeighbourId(toIdx);
-            numOutTuples++;
-            next[0].processNewTuple();
+    /**
+     * @return the index, from the first vertex to scan from, of the vertex holding the position.
+     */
+    private int getFromVertexIdx(long pos) {
+        var offsets = morsels.offsets;
+        var lowIdx = 0;
+        var highIdx = offsets.length - 2;
+        while (lowIdx < highIdx) {
+            var midIdx = (lowIdx + highIdx + 1) >>> 1;
+            if (offsets[midIdx] <= pos) {
+                lowIdx = midIdx;
+            } else {
+                highIdx = midIdx - 1;
+            }
         }
+        return lowIdx;
     }
 
-    private void updateIndicesLimits() {
-        globalVerticesIdxLimits.lock.lock();
-        try {
-            currFromIdx = globalVerticesIdxLimits.fromVariableIndexLimit;
-            currToIdx = globalVerticesIdxLimits.toVariableIndexLimit;
-            fromIdxLimit = currFromIdx;
-            toIdxLimit = currToIdx;
-            var numEdgesLeft = PARTITION_SIZE;
-            while (numEdgesLeft > 0 && (fromIdxLimit < highestFromIdx - 1 ||
-                (fromIdxLimit == highestFromIdx - 1 && toIdxLimit < highestToIdx - 1))) {
-                var toLimit = fwdAdjList[fromIdxLimit].getLabelOrTypeOffsets()[labelOrToType + 1];
-                if (toIdxLimit + numEdgesLeft <= toLimit - 1) {
-                    toIdxLimit += (numEdgesLeft - 1);
-                    numEdgesLeft = 0;
-                } else { // currToIdx + numEdgesLeft > toLimit
-                    numEdgesLeft -= (toLimit - 1 - toIdxLimit);
-                    toIdxLimit = toLimit;
-                    if (fromIdxLimit == highestFromIdx - 1) {
-                        break;
-                    }
-                    fromIdxLimit += 1;
-                    toIdxLimit = fwdAdjList[fromIdxLimit].
-                        getLabelOrTypeOffsets()[labelOrToType];
-                }
-            }
-            globalVerticesIdxLimits.fromVariableIndexLimit = fromIdxLimit;
-            globalVerticesIdxLimits.toVariableIndexLimit = toIdxLimit;
-        } finally {
-            globalVerticesIdxLimits.lock.unlock();
-        }
+    private void updateMorselSize(long numPositions, long elapsedTime, long numAllPositions) {
+        // scales the size to the time of the morsel processed, by at most a factor of 2.
+        var size = elapsedTime > 0 ? numPositions * MORSEL_TIME_IN_NANOS / elapsedTime :
+            2 * numPositions;
+        size = Math.max(numPositions / 2, Math.min(2 * numPositions, size));
+        // leaves a few morsels per thread once few edges are left.
+        var numPositionsLeft = numAllPositions - morsels.cursor.get();
+        size = Math.min(size, numPositionsLeft / (4L * morsels.numThreads));
+        morselSize = (int) Math.max(MIN_PARTITION_SIZE, Math.min(MAX_PARTITION_SIZE, size));
     }
 }
@@ -1,6 +1,7 @@
 package ca.waterloo.dsg.graphflow.plan.operator.sink;
 
 import ca.waterloo.dsg.graphflow.plan.operator.Operator;
+import ca.waterloo.dsg.graphflow.plan.operator.TupleBatch;
 import ca.waterloo.dsg.graphflow.query.QueryGraph;
 import ca.waterloo.dsg.graphflow.storage.Graph;
 import ca.waterloo.dsg.graphflow.storage.KeyStore;
@@ -57,6 +58,12 @@ public class Sink extends Operator {
     @Override
     public void processNewTuple() throws LimitExceededException {}
 
+    /**
+     * @see Operator#processNewBatch(TupleBatch)
+     */
+    @Override
+    public void processNewBatch(TupleBatch batch) throws LimitExceededException {}
+
     @Override
     public long getNumOutTuples() {
         if (null != previous) {
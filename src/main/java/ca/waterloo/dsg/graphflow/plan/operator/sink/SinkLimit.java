@@ -1,6 +1,7 @@
 package ca.waterloo.dsg.graphflow.plan.operator.sink;
 
 import ca.waterloo.dsg.graphflow.plan.operator.Operator;
+import ca.waterloo.dsg.graphflow.plan.operator.TupleBatch;
 import ca.waterloo.dsg.graphflow.query.QueryGraph;
 import ca.waterloo.dsg.graphflow.util.IOUtils;
 import lombok.Getter;
@@ -8,6 +9,8 @@ import lombok.Setter;
 
 /**
  * A sink operator stopping the query plan execution once a number of output tuples is reached.
+ * Receiving batches, the execution stops at the batch reaching the number of output tuples, the
+ * tuples past the limit are not counted.
  */
 public class SinkLimit extends Sink {
 
@@ -36,4 +39,20 @@ public class SinkLimit extends Sink {
             throw new LimitExceededException();
         }
     }
+
+    /**
+     * @see Operator#processNewBatch(TupleBatch)
+     */
+    @Override
+    public void processNewBatch(TupleBatch batch) throws LimitExceededException {
+        processNewTuple();
+    }
+
+    /**
+     * @see Sink#getNumOutTuples()
+     */
+    @Override
+    public long getNumOutTuples() {
+        return Math.min(super.getNumOutTuples(), outTuplesLimit);
+    }
 }
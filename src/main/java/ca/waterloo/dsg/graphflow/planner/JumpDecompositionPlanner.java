@@ -0,0 +1,337 @@
+package ca.waterloo.dsg.graphflow.planner;
+
+import ca.waterloo.dsg.graphflow.plan.Plan;
+import ca.waterloo.dsg.graphflow.plan.operator.AdjListDescriptor;
+import ca.waterloo.dsg.graphflow.plan.operator.hashjoin.HashJoin;
+import ca.waterloo.dsg.graphflow.plan.operator.jumpinglikejoin.JumpingLikeJoin;
+import ca.waterloo.dsg.graphflow.plan.operator.jumpinglikejoin.JumpingLikeJoinExe;
+import ca.waterloo.dsg.graphflow.planner.catalog.Catalog;
+import ca.waterloo.dsg.graphflow.query.QueryGraph;
+import ca.waterloo.dsg.graphflow.storage.Graph;
+import ca.waterloo.dsg.graphflow.storage.Graph.Direction;
+import ca.waterloo.dsg.graphflow.storage.KeyStore;
+import lombok.var;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the cheapest decomposition of a k-hop path query into jumps. The hops [i, j) of the path
+ * are either matched by a single jump from every vertex, i.e. chained single-hop jumps in one
+ * operator, by a decomposition of the hops [i, s) followed by a jump over the hops [s, j) or by
+ * hash joining the decompositions of the hops [i, m) and [m, j) on the m-th query vertex, which
+ * recursively covers doubling the number of hops of each side. The cheapest decomposition of
+ * each range of hops is found bottom-up so all the decompositions are considered in O(k^3).
+ *
+ * A single jump either starts from the vertices of the i-th query vertex or jumps backward from
+ * the vertices of the j-th one, e.g. when the last query vertex has a selective type, so hash
+ * joining a jump from the first query vertex and a backward jump from the last one meets in the
+ * middle: the meeting query vertex is the one splitting the path into the cheapest halves.
+ *
+ * The number of paths over the hops [i, j) is estimated as the number of edges of the i-th hop
+ * times the selectivity of extending a path by each following hop, sampled in the {@link Catalog}
+ * for a path of one edge or else the average degree of the vertices of the hop, at most their
+ * largest adjacency list in the direction of the hop, and the other way around from the j-th
+ * query vertex for the backward jumps. A jump costs the number of neighbours it scans and a hash
+ * join costs as much as in the {@link QueryPlanner} plus its number of output tuples. The output
+ * tuples of the backward jumps keep the order of the path.
+ */
+public class JumpDecompositionPlanner {
+
+    protected static final Logger logger = LogManager.getLogger(JumpDecompositionPlanner.class);
+
+    private QueryGraph queryGraph;
+    private List<String> path;
+    private int numHops;
+    private Catalog catalog;
+    private Graph graph;
+
+    // the estimated number of paths over the hops [i, j).
+    private double[][] numPaths;
+    // the estimated number of paths over the hops [i, j) jumped backward from the j-th vertex.
+    private double[][] numBwdPaths;
+    // the estimated number of neighbours of a path over the hop reached over the previous hop.
+    private double[] selectivities;
+    // the estimated number of neighbours of a path over the hop reached over the next hop.
+    private double[] bwdSelectivities;
+    private Map<Short, Integer> typeToNumVertices = new HashMap<>();
+    private int nextHashJoinID = 0;
+
+    /**
+     * A decomposition of the hops [startIdx, endIdx) of the path.
+     */
+    private static class Decomposition {
+
+        int startIdx, endIdx;
+        // the decompositions hash joined or the decomposition the last jump is appended to.
+        Decomposition build, probe, prefix;
+        // true if the jump starts from the end query vertex.
+        boolean isBwd;
+        double icost;
+
+        Decomposition(int startIdx, int endIdx, double icost) {
+            this.startIdx = startIdx;
+            this.endIdx = endIdx;
+            this.icost = icost;
+        }
+
+        int getJumpStartIdx() {
+            return null == prefix ? startIdx : prefix.endIdx;
+        }
+
+        @Override
+        public String toString() {
+            if (null != build) {
+                return "(" + build + " join " + probe + ")";
+            }
+            var jump = isBwd ? "jump " + endIdx + "-" + startIdx :
+                "jump " + getJumpStartIdx() + "-" + endIdx;
+            return null == prefix ? jump : "(" + prefix + " then " + jump + ")";
+        }
+    }
+
+    /**
+     * Constructs a {@link JumpDecompositionPlanner} object.
+     *
+     * @param queryGraph is the path query to plan.
+     * @param path are the query vertices of the path in the jumping order.
+     * @param catalog is the catalog holding the sampled selectivities.
+     * @param graph is the input data graph.
+     */
+    public JumpDecompositionPlanner(QueryGraph queryGraph, List<String> path, Catalog catalog,
+        Graph graph) {
+        this.queryGraph = queryGraph;
+        this.path = path;
+        this.numHops = path.size() - 1;
+        this.catalog = catalog;
+        this.graph = graph;
+    }
+
+    /**
+     * @return The {@link Plan} of the cheapest decomposition of the path into jumps.
+     */
+    public Plan plan() {
+        setNumPaths();
+        // the cheapest decomposition of the hops [i, j) and the cheapest one ending in a jump.
+        var best = new Decomposition[numHops + 1][numHops + 1];
+        var bestJumps = new Decomposition[numHops + 1][numHops + 1];
+        for (var numSegmentHops = 1; numSegmentHops <= numHops; numSegmentHops++) {
+            for (var startIdx = 0; startIdx + numSegmentHops <= numHops; startIdx++) {
+                var endIdx = startIdx + numSegmentHops;
+                var bestJump = new Decomposition(startIdx, endIdx, getJumpICost(startIdx,
+                    endIdx));
+                var bwdJumpICost = getBwdJumpICost(startIdx, endIdx);
+                if (bwdJumpICost < bestJump.icost) {
+                    bestJump = new Decomposition(startIdx, endIdx, bwdJumpICost);
+                    bestJump.isBwd = true;
+                }
+                var bestDecomposition = bestJump;
+                for (var midIdx = startIdx + 1; midIdx < endIdx; midIdx++) {
+                    var prefix = best[startIdx][midIdx];
+                    // appending a jump to a jump is the same as jumping over both.
+                    if (prefix != bestJumps[startIdx][midIdx] || prefix.isBwd) {
+                        var icost = prefix.icost + numPaths[startIdx][midIdx] +
+                            getAppendedJumpICost(midIdx, endIdx, numPaths[startIdx][midIdx]);
+                        if (icost < bestJump.icost) {
+                            bestJump = new Decomposition(startIdx, endIdx, icost);
+                            bestJump.prefix = prefix;
+                        }
+                    }
+                    var hashJoin = getHashJoin(best[startIdx][midIdx], best[midIdx][endIdx]);
+                    if (hashJoin.icost < bestDecomposition.icost) {
+                        bestDecomposition = hashJoin;
+                    }
+                }
+                bestJumps[startIdx][endIdx] = bestJump;
+                best[startIdx][endIdx] = bestJump.icost <= bestDecomposition.icost ? bestJump :
+                    bestDecomposition;
+            }
+        }
+        var decomposition = best[0][numHops];
+        logger.info("Jump decomposition: " + decomposition + String.format(
+            " (estimated i-cost %.0f).", decomposition.icost));
+        var plan = toPlan(decomposition);
+        plan.setEstimatedICost(decomposition.icost);
+        plan.setEstimatedNumOutTuples(numPaths[0][numHops]);
+        plan.setDecomposition(decomposition.toString());
+        return plan;
+    }
+
+    /**
+     * @return True if a jump over the path backward from every vertex of its last query vertex
+     * scans fewer neighbours than one from every vertex of its first query vertex.
+     */
+    public boolean isBwdJumpCheaper() {
+        setNumPaths();
+        return getBwdJumpICost(0, numHops) < getJumpICost(0, numHops);
+    }
+
+    /**
+     * @return The number of neighbours scanned by a jump over the hops [startIdx, endIdx) from
+     * every vertex.
+     */
+    private double getJumpICost(int startIdx, int endIdx) {
+        var icost = 0.0;
+        for (var idx = startIdx + 1; idx <= endIdx; idx++) {
+            icost += numPaths[startIdx][idx];
+        }
+        return icost;
+    }
+
+    /**
+     * @return The number of neighbours scanned by a jump backward over the hops [startIdx, endIdx)
+     * from every vertex.
+     */
+    private double getBwdJumpICost(int startIdx, int endIdx) {
+        var icost = 0.0;
+        for (var idx = startIdx; idx < endIdx; idx++) {
+            icost += numBwdPaths[idx][endIdx];
+        }
+        return icost;
+    }
+
+    /**
+     * @return The number of neighbours scanned by a jump over the hops [startIdx, endIdx) from
+     * the given number of paths reaching the start query vertex over the hop before it.
+     */
+    private double getAppendedJumpICost(int startIdx, int endIdx, double numInPaths) {
+        var icost = 0.0;
+        var numOutPaths = numInPaths;
+        for (var hop = startIdx; hop < endIdx; hop++) {
+            numOutPaths *= selectivities[hop];
+            icost += numOutPaths;
+        }
+        return icost;
+    }
+
+    private Decomposition getHashJoin(Decomposition left, Decomposition right) {
+        var leftNumOutPaths = numPaths[left.startIdx][left.endIdx];
+        var rightNumOutPaths = numPaths[right.startIdx][right.endIdx];
+        var isLeftBuild = leftNumOutPaths < rightNumOutPaths;
+        var build = isLeftBuild ? left : right;
+        var probe = isLeftBuild ? right : left;
+        var icost = left.icost + right.icost +
+            Catalog.SINGLE_VERTEX_WEIGHT_BUILD_COEF * numPaths[build.startIdx][build.endIdx] +
+            Catalog.SINGLE_VERTEX_WEIGHT_PROBE_COEF * numPaths[probe.startIdx][probe.endIdx] +
+            numPaths[left.startIdx][right.endIdx];
+        var hashJoin = new Decomposition(left.startIdx, right.endIdx, icost);
+        hashJoin.build = build;
+        hashJoin.probe = probe;
+        return hashJoin;
+    }
+
+    private Plan toPlan(Decomposition decomposition) {
+        if (null != decomposition.build) {
+            return HashJoin.make(getPathSubgraph(decomposition.startIdx, decomposition.endIdx),
+                toPlan(decomposition.build), toPlan(decomposition.probe), nextHashJoinID++);
+        }
+        var startIdx = decomposition.getJumpStartIdx();
+        var endIdx = decomposition.endIdx;
+        if (null == decomposition.prefix) {
+            return new Plan(new JumpingLikeJoinExe(getPathSubgraph(startIdx, endIdx),
+                path.subList(startIdx, endIdx + 1), decomposition.isBwd));
+        }
+        var plan = toPlan(decomposition.prefix);
+        var lastOperator = plan.getLastOperator();
+        var inSubgraph = lastOperator.getOutSubgraph();
+        var outSubgraph = inSubgraph.copy();
+        outSubgraph.addEdges(getPathSubgraph(startIdx, endIdx).getEdges());
+        plan.append(new JumpingLikeJoin(outSubgraph, inSubgraph,
+            path.subList(startIdx, endIdx + 1), lastOperator.getOutQVertexToIdxMap()));
+        return plan;
+    }
+
+    private QueryGraph getPathSubgraph(int startIdx, int endIdx) {
+        var subgraph = new QueryGraph();
+        for (var i = startIdx; i < endIdx; i++) {
+            subgraph.addEdge(queryGraph.getEdge(path.get(i), path.get(i + 1)));
+        }
+        return subgraph;
+    }
+
+    private void setNumPaths() {
+        selectivities = new double[numHops];
+        bwdSelectivities = new double[numHops];
+        for (var hop = 0; hop < numHops; hop++) {
+            selectivities[hop] = getSelectivity(hop, hop + 1, hop - 1);
+            bwdSelectivities[hop] = getSelectivity(hop + 1, hop, hop + 2);
+        }
+        numPaths = new double[numHops + 1][numHops + 1];
+        numBwdPaths = new double[numHops + 1][numHops + 1];
+        for (var startIdx = 0; startIdx < numHops; startIdx++) {
+            numPaths[startIdx][startIdx + 1] = getNumEdges(startIdx);
+            for (var endIdx = startIdx + 2; endIdx <= numHops; endIdx++) {
+                numPaths[startIdx][endIdx] = numPaths[startIdx][endIdx - 1] *
+                    selectivities[endIdx - 1];
+            }
+        }
+        for (var endIdx = numHops; endIdx > 0; endIdx--) {
+            numBwdPaths[endIdx - 1][endIdx] = getNumEdges(endIdx - 1);
+            for (var startIdx = endIdx - 2; startIdx >= 0; startIdx--) {
+                numBwdPaths[startIdx][endIdx] = numBwdPaths[startIdx + 1][endIdx] *
+                    bwdSelectivities[startIdx];
+            }
+        }
+    }
+
+    private double getNumEdges(int hop) {
+        var queryEdge = queryGraph.getEdge(path.get(hop), path.get(hop + 1));
+        return graph.getNumEdges(queryGraph.getVertexType(queryEdge.getFromVertex()),
+            queryGraph.getVertexType(queryEdge.getToVertex()), queryEdge.getLabel());
+    }
+
+    /**
+     * @return The estimated number of neighbours of the query vertex at fromIdx in the path over
+     * its edge to the one at toIdx, given the vertex was reached from the one at prevIdx.
+     */
+    private double getSelectivity(int fromIdx, int toIdx, int prevIdx) {
+        var fromQVertex = path.get(fromIdx);
+        var queryEdge = queryGraph.getEdge(fromQVertex, path.get(toIdx));
+        var direction = fromQVertex.equals(queryEdge.getFromVertex()) ? Direction.Fwd :
+            Direction.Bwd;
+        if (prevIdx >= 0 && prevIdx <= numHops && null != catalog) {
+            var inSubgraph = new QueryGraph();
+            inSubgraph.addEdge(queryGraph.getEdge(path.get(prevIdx), fromQVertex));
+            var ALDs = new ArrayList<AdjListDescriptor>();
+            ALDs.add(new AdjListDescriptor(fromQVertex, 1, direction, queryEdge.getLabel()));
+            var selectivity = catalog.getSelectivity(inSubgraph, ALDs,
+                queryGraph.getVertexType(path.get(toIdx)));
+            if (selectivity < Double.MAX_VALUE) {
+                return selectivity;
+            }
+        }
+        var numVertices = getNumVertices(fromIdx);
+        var selectivity = 0 == numVertices ? 0 : graph.getNumEdges(
+            queryGraph.getVertexType(queryEdge.getFromVertex()),
+            queryGraph.getVertexType(queryEdge.getToVertex()), queryEdge.getLabel()) /
+            (double) numVertices;
+        var labelOrToType = graph.isAdjListSortedByType() ?
+            queryGraph.getVertexType(path.get(toIdx)) : queryEdge.getLabel();
+        if (KeyStore.ANY == labelOrToType) {
+            return selectivity;
+        }
+        // no vertex has more neighbours in the direction of the hop than the largest list.
+        return Math.min(selectivity, graph.getLargestAdjListSize(labelOrToType, direction));
+    }
+
+    private int getNumVertices(int idx) {
+        var type = queryGraph.getVertexType(path.get(idx));
+        var vertexTypes = graph.getVertexTypes();
+        if (KeyStore.ANY == type) {
+            return vertexTypes.length;
+        }
+        return typeToNumVertices.computeIfAbsent(type, key -> {
+            var numVertices = 0;
+            for (var vertexType : vertexTypes) {
+                if (vertexType == key) {
+                    numVertices++;
+                }
+            }
+            return numVertices;
+        });
+    }
+}
@@ -7,13 +7,15 @@ import ca.waterloo.dsg.graphflow.plan.operator.Operator;
 import ca.waterloo.dsg.graphflow.plan.operator.extend.EI;
 import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.CachingType;
 import ca.waterloo.dsg.graphflow.plan.operator.hashjoin.HashJoin;
-import ca.waterloo.dsg.graphflow.plan.operator.jumpinglikejoin.JumpingLikeJoin;
+import ca.waterloo.dsg.graphflow.plan.operator.jumpinglikejoin.JumpingLikeJoinCounter;
+import ca.waterloo.dsg.graphflow.plan.operator.jumpinglikejoin.JumpingLikeJoinDistinct;
 import ca.waterloo.dsg.graphflow.plan.operator.jumpinglikejoin.JumpingLikeJoinExe;
 import ca.waterloo.dsg.graphflow.plan.operator.scan.Scan;
 import ca.waterloo.dsg.graphflow.plan.operator.sink.Sink.SinkType;
 import ca.waterloo.dsg.graphflow.planner.catalog.Catalog;
 import ca.waterloo.dsg.graphflow.query.QueryEdge;
 import ca.waterloo.dsg.graphflow.query.QueryGraph;
+import ca.waterloo.dsg.graphflow.query.QueryGraph.PathSemantics;
 import ca.waterloo.dsg.graphflow.storage.Graph;
 import ca.waterloo.dsg.graphflow.storage.Graph.Direction;
 import ca.waterloo.dsg.graphflow.util.collection.SetUtils;
@@ -47,6 +49,8 @@ public class QueryPlanner {
 
     private int nextHashJoinID = 0;
 
+    public static int MIN_JUMP_NUM_HOPS = 3;
+
     private Map<String /* encoding */,
             List<Pair<QueryGraph /*subgraph*/, Double /*selectivity*/>>> computedSelectivity;
 
@@ -375,146 +379,83 @@ public class QueryPlanner {
     }
 
 
+    /**
+     * Returns a plan jumping over the paths of a path query, whatever the names and edge
+     * directions of its query vertices. Without a limit only the number of paths is output so
+     * they are counted by a {@link JumpingLikeJoinCounter} without enumerating them. Otherwise,
+     * the cheapest decomposition of the path into jumps is picked by a
+     * {@link JumpDecompositionPlanner}. The queries which are not paths of at least
+     * {@link #MIN_JUMP_NUM_HOPS} query edges are planned by {@link #plan()}. The path queries
+     * matching the distinct first and last vertex pairs of their paths, as set by their
+     * {@link PathSemantics}, are matched by a {@link JumpingLikeJoinDistinct} whatever their size.
+     *
+     * @return The generated {@link Plan} to evaluate the input query graph.
+     */
     public Plan planWithJump() {
-        switch (numVertices) {
-            case 4:
-                return Jump3();
-            case 5:
-                return Jump4();
-            case 6:
-                return Jump5();
-            case 7:
-                return Jump6();
-            case 8:
-                return Jump7();
-            default:
-                return plan();
+        var path = queryGraph.getPathQVertices();
+        var pathSemantics = queryGraph.getPathSemantics();
+        if (null != path && PathSemantics.ALL_PATHS != pathSemantics) {
+            var numHops = path.size() - 1;
+            var minNumHops = PathSemantics.DISTINCT_ENDPOINTS == pathSemantics ?
+                numHops - queryGraph.getNumOptionalHops() : 1;
+            // only the paths of all the hops are matched backward from the last query vertex.
+            var isBwd = minNumHops == numHops && new JumpDecompositionPlanner(queryGraph, path,
+                catalog, graph).isBwdJumpCheaper();
+            var plan = new Plan(new JumpingLikeJoinDistinct(getPathSubgraph(path, 0, numHops),
+                path, minNumHops, isBwd));
+            setNextPointers(plan);
+            if (hasLimit) {
+                plan.setSinkType(SinkType.LIMIT);
+                plan.setOutTuplesLimit(queryGraph.getLimit());
+            }
+            return plan;
+        }
+        if (null != path && null != queryGraph.getRangeEdge()) {
+            return getRangePlan(path);
+        }
+        if (null == path || path.size() - 1 < MIN_JUMP_NUM_HOPS) {
+            return plan();
         }
+        if (!hasLimit) {
+            return new Plan(new JumpingLikeJoinCounter(getPathSubgraph(path, 0, path.size() - 1),
+                path));
+        }
+        var plan = new JumpDecompositionPlanner(queryGraph, path, catalog, graph).plan();
+        setNextPointers(plan);
+        plan.setSinkType(SinkType.LIMIT);
+        plan.setOutTuplesLimit(queryGraph.getLimit());
+        return plan;
     }
 
-
-	public Plan Jump3() {
-        System.out.println("jump");
-        
-        var outSubgraph = new QueryGraph();
-        outSubgraph.addEdge(queryGraph.getEdge("p1", "p2"));
-        outSubgraph.addEdge(queryGraph.getEdge("p2", "p3"));
-        outSubgraph.addEdge(queryGraph.getEdge("p3", "p4"));
-        var jumpingTo3 = new JumpingLikeJoinExe(outSubgraph, graph);
-        var plan = new Plan(jumpingTo3);
+    /**
+     * @return The plan of a path query with a variable-length query edge with a range of hops: a
+     * single jump, or a count of the paths without a limit, matching the paths of between the min
+     * and max number of hops of the query edge, which the decompositions do not support.
+     */
+    private Plan getRangePlan(List<String> path) {
+        var numHops = path.size() - 1;
+        var minNumHops = numHops - queryGraph.getNumOptionalHops();
+        if (!hasLimit) {
+            var counter = new JumpingLikeJoinCounter(getPathSubgraph(path, 0, numHops), path);
+            counter.setMinNumHops(minNumHops);
+            return new Plan(counter);
+        }
+        var jump = new JumpingLikeJoinExe(getPathSubgraph(path, 0, numHops), path);
+        jump.setMinNumHops(minNumHops);
+        var plan = new Plan(jump);
+        setNextPointers(plan);
+        plan.setSinkType(SinkType.LIMIT);
+        plan.setOutTuplesLimit(queryGraph.getLimit());
         return plan;
-	}
-
-    
-	public Plan Jump4() {
-        System.out.println("jump4");
-
-       var outSubgraph = new QueryGraph();
-       var queryEdge = queryGraph.getEdge("p1", "p2");
-       outSubgraph.addEdge(queryEdge);
-       var scan = new Scan(outSubgraph);
-       var numEdges = getNumEdges(queryEdge);
-       var plan = new Plan(scan, numEdges);
-       plan = getPlanWithNextExtend(plan, "p3").b;
-
-       var inSubgraph = new QueryGraph();
-       inSubgraph.addEdge(queryGraph.getEdge("p1", "p2"));
-       inSubgraph.addEdge(queryGraph.getEdge("p2", "p3"));
-
-       outSubgraph = new QueryGraph();
-       outSubgraph.addEdge(queryGraph.getEdge("p1", "p2"));
-       outSubgraph.addEdge(queryGraph.getEdge("p2", "p3"));
-       outSubgraph.addEdge(queryGraph.getEdge("p3", "p4"));
-       outSubgraph.addEdge(queryGraph.getEdge("p4", "p5"));
-       var jumpTo4 = new JumpingLikeJoin(outSubgraph, inSubgraph, graph, 2);
-       plan.append(jumpTo4);
+    }
 
-        return plan;
-	}
-	public Plan Jump5() {
-        System.out.println("jump5");
-        var outSubgraph = new QueryGraph();
-        outSubgraph.addEdge(queryGraph.getEdge("p1", "p2"));
-        outSubgraph.addEdge(queryGraph.getEdge("p2", "p3"));
-        var jumpingTo2 = new JumpingLikeJoinExe(outSubgraph, graph);
-        var plan = new Plan(jumpingTo2);
-        var inSubgraph = outSubgraph;
-        outSubgraph = new QueryGraph();
-        outSubgraph.addEdge(queryGraph.getEdge("p1", "p2"));
-        outSubgraph.addEdge(queryGraph.getEdge("p2", "p3"));
-        outSubgraph.addEdge(queryGraph.getEdge("p3", "p4"));
-        outSubgraph.addEdge(queryGraph.getEdge("p4", "p5"));
-        outSubgraph.addEdge(queryGraph.getEdge("p5", "p6"));
-        var jumpingTo5 = new JumpingLikeJoin(outSubgraph, inSubgraph, graph, 3);
-        plan.append(jumpingTo5);
-        
-        return plan;
-	}
-	public Plan Jump6() {
-        System.out.println("jump6");
-       var outSubgraph = new QueryGraph();
-       var queryEdge = queryGraph.getEdge("p1", "p2");
-       outSubgraph.addEdge(queryEdge);
-       queryEdge = queryGraph.getEdge("p2", "p3");
-       outSubgraph.addEdge(queryEdge);
-       queryEdge = queryGraph.getEdge("p3", "p4");
-       outSubgraph.addEdge(queryEdge);
-       var jumpingLikeJoin2Build = new JumpingLikeJoinExe(outSubgraph, graph);
-       List<Operator> preBuild = new ArrayList<>();
-       preBuild.add(jumpingLikeJoin2Build);
-
-       outSubgraph = new QueryGraph();
-       queryEdge = queryGraph.getEdge("p4", "p5");
-       outSubgraph.addEdge(queryEdge);
-       queryEdge = queryGraph.getEdge("p5", "p6");
-       outSubgraph.addEdge(queryEdge);
-       queryEdge = queryGraph.getEdge("p6", "p7");
-       outSubgraph.addEdge(queryEdge);
-       var jumpingLikeJoin2Probe = new JumpingLikeJoinExe(outSubgraph, graph);
-       List<Operator> preProbe = new ArrayList<>();
-       preProbe.add(jumpingLikeJoin2Probe);
-       return new Plan(HashJoin.make(queryGraph, preBuild, preProbe, 0));
-	}
-
-	public Plan Jump7() {
-        System.out.println("jump7");
-
-    // 7边 = 3边Jump、4边jump + HashJoin
-       var outSubgraph = new QueryGraph();
-       var queryEdge = queryGraph.getEdge("p1", "p2");
-       outSubgraph.addEdge(queryEdge);
-       queryEdge = queryGraph.getEdge("p2", "p3");
-       outSubgraph.addEdge(queryEdge);
-       queryEdge = queryGraph.getEdge("p3", "p4");
-       outSubgraph.addEdge(queryEdge);
-       var jumpTo3 = new JumpingLikeJoinExe(outSubgraph, graph);
-       List<Operator> preBuild = new ArrayList<>();
-       preBuild.add(jumpTo3);
-
-       outSubgraph = new QueryGraph();
-       queryEdge = queryGraph.getEdge("p4", "p5");
-       outSubgraph.addEdge(queryEdge);
-       var scan = new Scan(outSubgraph);
-       var numEdges = getNumEdges(queryEdge);
-       var plan = new Plan(scan, numEdges);
-       plan = getPlanWithNextExtend(plan, "p6").b;
-
-       var inSubgraph = new QueryGraph();
-       inSubgraph.addEdge(queryGraph.getEdge("p4", "p5"));
-       inSubgraph.addEdge(queryGraph.getEdge("p5", "p6"));
-
-       outSubgraph = new QueryGraph();
-       outSubgraph.addEdge(queryGraph.getEdge("p4", "p5"));
-       outSubgraph.addEdge(queryGraph.getEdge("p5", "p6"));
-       outSubgraph.addEdge(queryGraph.getEdge("p6", "p7"));
-       outSubgraph.addEdge(queryGraph.getEdge("p7", "p8"));
-       var jumpTo4 = new JumpingLikeJoin(outSubgraph, inSubgraph, graph, 2);
-       plan.append(jumpTo4);
-       List<Operator> preProbe = new ArrayList<>();
-       preProbe.add(jumpTo4);
-       return new Plan(HashJoin.make(queryGraph, preBuild, preProbe, 0));
-        
-	}
+    private QueryGraph getPathSubgraph(List<String> path, int startIdx, int endIdx) {
+        var subgraph = new QueryGraph();
+        for (var i = startIdx; i < endIdx; i++) {
+            subgraph.addEdge(queryGraph.getEdge(path.get(i), path.get(i + 1)));
+        }
+        return subgraph;
+    }
 
     public Plan getArticulationJoinPlan() {
         FindArticulation findArticulation = new FindArticulation();
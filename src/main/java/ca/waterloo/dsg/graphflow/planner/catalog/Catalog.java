@@ -1,6 +1,7 @@
 package ca.waterloo.dsg.graphflow.planner.catalog;
 
 import ca.waterloo.dsg.graphflow.plan.Plan;
+import ca.waterloo.dsg.graphflow.plan.WorkerPool;
 import ca.waterloo.dsg.graphflow.plan.operator.AdjListDescriptor;
 import ca.waterloo.dsg.graphflow.plan.operator.Operator;
 import ca.waterloo.dsg.graphflow.plan.operator.Operator.LimitExceededException;
@@ -12,6 +13,7 @@ import ca.waterloo.dsg.graphflow.query.QueryGraph;
 import ca.waterloo.dsg.graphflow.storage.Graph;
 import ca.waterloo.dsg.graphflow.storage.KeyStore;
 import ca.waterloo.dsg.graphflow.util.IOUtils;
+import ca.waterloo.dsg.graphflow.util.Lazy;
 import lombok.Setter;
 import lombok.var;
 import org.apache.logging.log4j.LogManager;
@@ -44,6 +46,9 @@ public class Catalog {
     private List<QueryGraph> inSubgraphs;
     private Map<Integer/*inSubgraph idx*/, Map<String/*ALD (toType?)*/,Double>> sampledIcost;
     private Map<Integer/*inSubgraph idx*/, Map<String/*ALDs & toType*/,Double>> sampledSelectivity;
+    // Load the sampled maps on first access when the catalog is deserialized.
+    private Lazy<Map<Integer, Map<String, Double>>> sampledIcostLoader;
+    private Lazy<Map<Integer, Map<String, Double>>> sampledSelectivityLoader;
     @Setter private boolean isAdjListSortedByType;
     @Setter private int numSampledEdges;
     @Setter private int maxInputNumVertices;
@@ -72,6 +77,35 @@ public class Catalog {
         this.inSubgraphs = inSubgraphs;
     }
 
+    /**
+     * Constructs a {@link Catalog} object whose sampled i-costs and selectivities are loaded on
+     * first access.
+     *
+     * @param icostLoader loads the intersection costs sampled.
+     * @param cardinalityLoader loads the sampledSelectivity sampled.
+     * @param inSubgraphs are the set of input subgraphs sampled.
+     */
+    public Catalog(Lazy<Map<Integer, Map<String, Double>>> icostLoader,
+        Lazy<Map<Integer, Map<String, Double>>> cardinalityLoader, List<QueryGraph> inSubgraphs) {
+        this.sampledIcostLoader = icostLoader;
+        this.sampledSelectivityLoader = cardinalityLoader;
+        this.inSubgraphs = inSubgraphs;
+    }
+
+    private Map<Integer, Map<String, Double>> getSampledIcost() {
+        if (null == sampledIcost && null != sampledIcostLoader) {
+            sampledIcost = sampledIcostLoader.get();
+        }
+        return sampledIcost;
+    }
+
+    private Map<Integer, Map<String, Double>> getSampledSelectivity() {
+        if (null == sampledSelectivity && null != sampledSelectivityLoader) {
+            sampledSelectivity = sampledSelectivityLoader.get();
+        }
+        return sampledSelectivity;
+    }
+
     /**
      * Returns the i-cost of a particular extension from an input {@link QueryGraph}.
      *
@@ -108,10 +142,10 @@ public class Catalog {
                         var ALDasStr = "(" + newVertexMapping.get(ALD.getFromQueryVertex()) + ") " +
                             ALD.getDirection().name() + "[" + ALD.getLabel() + "]";
                         if (isAdjListSortedByType) {
-                            sampledIcost = this.sampledSelectivity.get(i).get(ALDasStr + "~" +
+                            sampledIcost = getSampledSelectivity().get(i).get(ALDasStr + "~" +
                                 toType);
                         } else {
-                            sampledIcost = this.sampledIcost.get(i).get(ALDasStr);
+                            sampledIcost = getSampledIcost().get(i).get(ALDasStr);
                         }
                         if (newNumEdgesMatched > numEdgesMatched || minICost > sampledIcost) {
                             minICost = sampledIcost;
@@ -154,7 +188,7 @@ public class Catalog {
                     if (newNumALDsMatched == 0 || newNumALDsMatched < numALDsMatched) {
                         continue;
                     }
-                    var sampledSelectivity = this.sampledSelectivity.get(i).get(getALDsAsStr(ALDs,
+                    var sampledSelectivity = getSampledSelectivity().get(i).get(getALDsAsStr(ALDs,
                         vertexMapping, toType));
                     if (newNumALDsMatched > numALDsMatched ||
                             sampledSelectivity < approxSelectivity) {
@@ -263,6 +297,7 @@ public class Catalog {
             addICostAndSelectivity(graph, queryPlanArr);
         }
         elapsedTime = IOUtils.getElapsedTimeInMillis(startTime);
+        WorkerPool.getInstance().logMetrics();
         log(filename, numThreads, graph, store.getNextTypeKey(), store.getNextLabelKey());
     }
 
@@ -273,21 +308,16 @@ public class Catalog {
         }
     }
 
-    private void execute(Plan[] queryPlanArr) throws InterruptedException {
+    private void execute(Plan[] queryPlanArr) {
         if (queryPlanArr.length > 1) {
-            var threads = new Thread[queryPlanArr.length];
-            for (var i = 0; i < threads.length; i++) {
+            var tasks = new Runnable[queryPlanArr.length];
+            for (var i = 0; i < tasks.length; i++) {
                 var sink = queryPlanArr[i].getSink();
-                threads[i] = new Thread(() -> {
+                tasks[i] = () -> {
                     try { sink.execute(); } catch (LimitExceededException e) {/* nada. */}
-                });
-            }
-            for (var thread : threads) {
-                thread.start();
-            }
-            for (var thread : threads) {
-                thread.join();
+                };
             }
+            WorkerPool.getInstance().invokeAll(tasks);
         } else {
             var sink = queryPlanArr[0].getSink();
             try { sink.execute(); } catch (LimitExceededException e) {/* nada. */}
@@ -3,6 +3,7 @@ package ca.waterloo.dsg.graphflow.planner.catalog;
 import ca.waterloo.dsg.graphflow.query.QueryGraph;
 import ca.waterloo.dsg.graphflow.storage.Graph;
 import ca.waterloo.dsg.graphflow.util.IOUtils;
+import ca.waterloo.dsg.graphflow.util.Lazy;
 import lombok.var;
 
 import java.io.IOException;
@@ -15,7 +16,8 @@ import java.util.Map;
 public class CatalogFactory {
 
     /**
-     * Constructs a {@link Catalog} object from binary serialized data.
+     * Constructs a {@link Catalog} object from binary serialized data. The sampled i-costs and
+     * selectivities, the bulk of the data, are deserialized on first access.
      *
      * @param directory is the directory to deserialize binary data from.
      * @return the constructed {@link Catalog} object.
@@ -25,10 +27,12 @@ public class CatalogFactory {
     @SuppressWarnings("unchecked") // casting.
     public Catalog make(String directory) throws IOException, ClassNotFoundException {
         var numSampledEdges = (int) IOUtils.deserializeObj(directory + "numSampledEdges");
-        var icost = (Map<Integer, Map<String, Double>>) IOUtils.deserializeObj(
-            directory + "icost_" + numSampledEdges);
-        var cardinality = (Map<Integer, Map<String, Double>>) IOUtils.deserializeObj(
-            directory + "selectivity_" + numSampledEdges);
+        var icost = new Lazy<Map<Integer, Map<String, Double>>>("the sampled i-costs", () ->
+            (Map<Integer, Map<String, Double>>) IOUtils.deserializeObj(directory + "icost_" +
+                numSampledEdges));
+        var cardinality = new Lazy<Map<Integer, Map<String, Double>>>("the sampled " +
+            "selectivities", () -> (Map<Integer, Map<String, Double>>) IOUtils.deserializeObj(
+                directory + "selectivity_" + numSampledEdges));
         var inSubgraphs = (List<QueryGraph>) IOUtils.deserializeObj(directory + "inSubgraphs");
         var catalog = new Catalog(icost, cardinality, inSubgraphs);
         catalog.setAdjListSortedByType((boolean) IOUtils.deserializeObj(directory +
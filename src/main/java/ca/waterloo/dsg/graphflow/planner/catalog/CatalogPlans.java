@@ -3,6 +3,7 @@ package ca.waterloo.dsg.graphflow.planner.catalog;
 import ca.waterloo.dsg.graphflow.plan.Plan;
 import ca.waterloo.dsg.graphflow.plan.operator.AdjListDescriptor;
 import ca.waterloo.dsg.graphflow.plan.operator.Operator;
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
 import ca.waterloo.dsg.graphflow.plan.operator.scan.ScanSampling;
 import ca.waterloo.dsg.graphflow.planner.catalog.operator.IntersectCatalog;
 import ca.waterloo.dsg.graphflow.planner.catalog.operator.Noop;
@@ -196,7 +197,7 @@ public class CatalogPlans {
     }
 
     private List<ScanSampling> generateAllScans(Graph graph) {
-        var fwdAdjLists = graph.getFwdAdjLists();
+        var fwdAdjLists = graph.getFwdCSRAdjLists();
         var vertexTypes = graph.getVertexTypes();
         var numVertices = graph.getHighestVertexId() + 1;
         var keyToEdgesMap = new HashMap<Long/*edge key*/, int[]/*edges*/ >();
@@ -211,25 +212,26 @@ public class CatalogPlans {
                 }
             }
         }
+        var neighbours = new Neighbours();
         for (var fromVertex = 0; fromVertex < numVertices; fromVertex++) {
             var fromType = vertexTypes[fromVertex];
-            var offsets = fwdAdjLists[fromVertex].getLabelOrTypeOffsets();
-            var neighbours = fwdAdjLists[fromVertex].getNeighbourIds();
-            for (short labelOrType = 0; labelOrType < offsets.length - 1; labelOrType++) {
-                for (var toIdx = offsets[labelOrType]; toIdx < offsets[labelOrType + 1]; toIdx++) {
+            for (short labelOrType = 0; labelOrType < fwdAdjLists.getNumLabelsOrTypes();
+                 labelOrType++) {
+                fwdAdjLists.setNeighbourIds(fromVertex, labelOrType, neighbours);
+                for (var toIdx = neighbours.startIdx; toIdx < neighbours.endIdx; toIdx++) {
                     short toType, label;
                     if (isAdjListSortedByType) {
                         toType = labelOrType;
                         label = 0;
                     } else {
-                        toType = vertexTypes[toIdx];
+                        toType = vertexTypes[neighbours.Ids[toIdx]];
                         label = labelOrType;
                     }
                     var edgeKey = Graph.getEdgeKey(fromType, toType, label);
                     var currIdx = keyToCurrIdx.get(edgeKey);
                     keyToCurrIdx.put(edgeKey, currIdx + 2);
                     keyToEdgesMap.get(edgeKey)[currIdx] = fromVertex;
-                    keyToEdgesMap.get(edgeKey)[currIdx + 1] = neighbours[toIdx];
+                    keyToEdgesMap.get(edgeKey)[currIdx + 1] = neighbours.Ids[toIdx];
                 }
             }
         }
@@ -257,12 +259,16 @@ public class CatalogPlans {
     }
 
     private List<ScanSampling> generateAllScansForLargeGraph(Graph graph) {
-        var fwdAdjLists = graph.getFwdAdjLists();
+        var fwdAdjLists = graph.getFwdCSRAdjLists();
         var numVertices = graph.getHighestVertexId() + 1;
         var edges = new ArrayList<int[]>();
+        var neighbours = new Neighbours();
         for (var fromVertex = 0; fromVertex < numVertices; fromVertex++) {
-            for (var toVertex : fwdAdjLists[fromVertex].getNeighbourIds()) {
-                edges.add(new int[] { fromVertex, toVertex });
+            fwdAdjLists.setNeighbourIds(fwdAdjLists.getStartIdx(fromVertex, (short) 0),
+                fwdAdjLists.getEndIdx(fromVertex, (short) (fwdAdjLists.getNumLabelsOrTypes() - 1)),
+                neighbours);
+            for (var toIdx = neighbours.startIdx; toIdx < neighbours.endIdx; toIdx++) {
+                edges.add(new int[] { fromVertex, neighbours.Ids[toIdx] });
             }
         }
         var outSubgraph = new QueryGraph();
@@ -38,17 +38,17 @@ public class IntersectCatalog extends Intersect implements Serializable {
     public void processNewTuple() throws LimitExceededException {
         if (1 == ALDs.size()) {
         // intersect the adjacency lists and setAdjListSortOrder the output vertex values.
-        adjListsToCache[0][probeTuple[vertexIdxToCache[0]]].setNeighbourIds(
+        adjListsToCache[0].setNeighbourIds(probeTuple[vertexIdxToCache[0]],
             labelsOrToTypesToCache[0], outNeighbours);
         icost += outNeighbours.endIdx - outNeighbours.startIdx;
         } else {
         // intersect the adjacency lists and setAdjListSortOrder the output vertex values.
         Neighbours temp;
         if (cachingType == CachingType.NONE || !isIntersectionCached()) {
-            adjListsToCache[0][probeTuple[vertexIdxToCache[0]]].setNeighbourIds(
+            adjListsToCache[0].setNeighbourIds(probeTuple[vertexIdxToCache[0]],
                 labelsOrToTypesToCache[0], initNeighbours);
             lastIcost = initNeighbours.endIdx - initNeighbours.startIdx;
-            lastIcost += adjListsToCache[1][probeTuple[vertexIdxToCache[1]]].intersect(
+            lastIcost += adjListsToCache[1].intersect(probeTuple[vertexIdxToCache[1]],
                 labelsOrToTypesToCache[1], initNeighbours, cachedNeighbours);
             if (toType != KeyStore.ANY) {
                 var currEndIdx = 0;
@@ -63,7 +63,7 @@ public class IntersectCatalog extends Intersect implements Serializable {
                 temp = cachedNeighbours;
                 cachedNeighbours = tempNeighbours;
                 tempNeighbours = temp;
-                lastIcost += adjListsToCache[i][probeTuple[vertexIdxToCache[i]]].intersect(
+                lastIcost += adjListsToCache[i].intersect(probeTuple[vertexIdxToCache[i]],
                     labelsOrToTypesToCache[i], tempNeighbours, cachedNeighbours);
             }
         }
@@ -74,13 +74,13 @@ public class IntersectCatalog extends Intersect implements Serializable {
                 outNeighbours = cachedNeighbours;
                 break;
             case PARTIAL_CACHING:
-                icost += adjLists[0][probeTuple[vertexIdx[0]]].intersect(
+                icost += adjLists[0].intersect(probeTuple[vertexIdx[0]],
                     labelsOrToTypes[0], cachedNeighbours, outNeighbours);
                 for (int i = 1; i < adjLists.length; i++) {
                     temp = outNeighbours;
                     outNeighbours = tempNeighbours;
                     tempNeighbours = temp;
-                    icost += adjLists[i][probeTuple[vertexIdx[i]]].intersect(
+                    icost += adjLists[i].intersect(probeTuple[vertexIdx[i]],
                         labelsOrToTypes[i], tempNeighbours, outNeighbours);
                 }
                 break;
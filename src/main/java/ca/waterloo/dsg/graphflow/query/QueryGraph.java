@@ -9,6 +9,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -24,6 +25,9 @@ import java.util.StringJoiner;
  */
 public class QueryGraph implements Serializable {
 
+    // Kept fixed as the serialized catalogs hold query graphs.
+    private static final long serialVersionUID = -3749070222635371331L;
+
     // Represents a map from a from to a to query vertex & the query edge between them.
     private Map<String, Map<String, QueryEdge>> vertexToEdgesMap = new HashMap<>();
     @Getter private Map<String, Short> vertexToTypeMap = new HashMap<>();
@@ -34,6 +38,31 @@ public class QueryGraph implements Serializable {
     private IsomorphismIterator it = null;
     private String encoding;
     @Getter @Setter private int limit;
+    // null in the query graphs deserialized from the catalogs, i.e. all the paths.
+    @Setter private PathSemantics pathSemantics = PathSemantics.ALL_PATHS;
+    // the variable-length query edge matching a range of hops, if any, lowered to a path of its
+    // max number of hops, and the number of hops of the path it can skip.
+    @Getter private QueryEdge rangeEdge;
+    @Getter private int numOptionalHops;
+
+    /**
+     * The paths a path query matches.
+     */
+    public enum PathSemantics {
+        // every path.
+        ALL_PATHS,
+        // the distinct (first, last) vertex pairs of the paths.
+        DISTINCT_ENDPOINTS,
+        // the distinct (first, last) vertex pairs of the paths of one hop up to all the hops.
+        DISTINCT_ENDPOINTS_UP_TO
+    }
+
+    /**
+     * @return The paths the query matches.
+     */
+    public PathSemantics getPathSemantics() {
+        return null == pathSemantics ? PathSemantics.ALL_PATHS : pathSemantics;
+    }
 
     public short getVertexType(String queryVertex) {
         return vertexToTypeMap.get(queryVertex) == null ? 0 : vertexToTypeMap.get(queryVertex);
@@ -97,6 +126,51 @@ public class QueryGraph implements Serializable {
         edges.add(qEdge);
     }
 
+    /**
+     * Adds a variable-length query edge, e.g. '(a)-[knows*3..6]->(b)', lowered to a path of its
+     * max number of query edges with the label of the query edge through the query vertices
+     * 'a.b.1', 'a.b.2', ..., typed as the query vertices without a type in the query, i.e. the
+     * same as spelling out the path. The paths of fewer hops than the max number of hops end at
+     * a vertex of the type of the to query vertex whatever the type of the query vertex of their
+     * last hop. They are only matched by the jumps, see {@link #getPathQVertices()}, so a query
+     * has at most one variable-length query edge with a range of hops.
+     *
+     * @param qEdge The variable-length relation to be added.
+     * @param minNumHops is the min number of hops of the paths matched.
+     * @param maxNumHops is the max number of hops of the paths matched.
+     * @throws IllegalArgumentException if the min number of hops is not in [1, maxNumHops] or the
+     * query graph already has a variable-length query edge with a range of hops.
+     */
+    public void addVariableLengthEdge(QueryEdge qEdge, int minNumHops, int maxNumHops) {
+        if (minNumHops < 1 || minNumHops > maxNumHops) {
+            throw new IllegalArgumentException("The min number of hops of a variable-length " +
+                "query edge should be in [1, max number of hops].");
+        }
+        if (minNumHops < maxNumHops) {
+            if (null != rangeEdge) {
+                throw new IllegalArgumentException("Only one variable-length query edge can " +
+                    "have a range of hops.");
+            }
+            rangeEdge = qEdge;
+            numOptionalHops = maxNumHops - minNumHops;
+        }
+        var fromQVertex = qEdge.getFromVertex();
+        for (var hop = 1; hop <= maxNumHops; hop++) {
+            var toQVertex = hop < maxNumHops ? qEdge.getFromVertex() + "." +
+                qEdge.getToVertex() + "." + hop : qEdge.getToVertex();
+            var queryEdge = new QueryEdge(fromQVertex, toQVertex);
+            queryEdge.setLabel(qEdge.getLabel());
+            if (1 == hop) {
+                queryEdge.setFromType(qEdge.getFromType());
+            }
+            if (hop == maxNumHops) {
+                queryEdge.setToType(qEdge.getToType());
+            }
+            addEdge(queryEdge);
+            fromQVertex = toQVertex;
+        }
+    }
+
     /**
      * Adds the new {@link QueryEdge} to the query vertex to query edges map.
      *
@@ -197,6 +271,68 @@ public class QueryGraph implements Serializable {
             vertexToEdgesMap.get(vertex1).containsKey(vertex2);
     }
 
+    /**
+     * Returns the query vertices in path order if the query graph is a simple path, i.e. it is
+     * connected, acyclic and each query vertex has at most two neighbours, whatever the names of
+     * the query vertices and the directions of the query edges. The path starts from the end whose
+     * query edges are followed forward the most, e.g. from 'a' for '(a)->(b), (b)->(c)', or else
+     * ends at the variable-length query edge with a range of hops so the paths of fewer hops
+     * only skip its last hops.
+     *
+     * @return The query vertices in path order, null if the query graph is not a path or its
+     * variable-length query edge with a range of hops is not at an end of the path.
+     */
+    public List<String> getPathQVertices() {
+        if (edges.isEmpty() || edges.size() != getNumVertices() - 1) {
+            return null;
+        }
+        String end = null;
+        for (var queryVertex : vertexToEdgesMap.keySet()) {
+            var numNeighbours = vertexToEdgesMap.get(queryVertex).size();
+            if (numNeighbours > 2) {
+                return null;
+            } else if (1 == numNeighbours && (null == end || end.compareTo(queryVertex) > 0)) {
+                end = queryVertex;
+            }
+        }
+        if (null == end) {
+            return null;
+        }
+        var path = new ArrayList<String>();
+        path.add(end);
+        var numFwdEdges = 0;
+        String prevQVertex = null;
+        var currQVertex = end;
+        while (path.size() < getNumVertices()) {
+            String nextQVertex = null;
+            for (var neighbour : vertexToEdgesMap.get(currQVertex).keySet()) {
+                if (!neighbour.equals(prevQVertex)) {
+                    nextQVertex = neighbour;
+                }
+            }
+            if (null == nextQVertex || path.contains(nextQVertex)) {
+                return null; /* the query graph is not connected or has a self-loop. */
+            }
+            if (getEdge(currQVertex, nextQVertex).getFromVertex().equals(currQVertex)) {
+                numFwdEdges++;
+            }
+            path.add(nextQVertex);
+            prevQVertex = currQVertex;
+            currQVertex = nextQVertex;
+        }
+        if (2 * numFwdEdges < edges.size()) {
+            Collections.reverse(path);
+        }
+        if (null != rangeEdge) {
+            var rangeQVertices = Arrays.asList(rangeEdge.getFromVertex(), rangeEdge.getToVertex());
+            if (!rangeQVertices.contains(path.get(path.size() - 1))) {
+                Collections.reverse(path);
+            }
+            return rangeQVertices.contains(path.get(path.size() - 1)) ? path : null;
+        }
+        return path;
+    }
+
     /**
      * Check if the {@link QueryGraph} is isomorphic to another given {@link QueryGraph}.
      *
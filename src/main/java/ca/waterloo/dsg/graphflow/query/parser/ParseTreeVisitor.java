@@ -64,10 +64,18 @@ public class ParseTreeVisitor extends GraphflowBaseVisitor<QueryGraph> {
         } else if (queryGraph.getVertexToTypeMap().containsKey(toQVertex)) {
             queryEdge.setToType(queryGraph.getVertexToTypeMap().get(toQVertex));
         }
-        if (null != ctx.label()) {
+        if (null != ctx.label() && null != ctx.label().variable()) {
             var label = ctx.label().variable().getText();
             queryEdge.setLabel(store.getLabelKeyAsShort(label));
         }
-        queryGraph.addEdge(queryEdge);
+        if (null != ctx.label() && null != ctx.label().hops()) {
+            var hops = ctx.label().hops();
+            var minNumHops = Integer.parseInt(hops.Digits(0).getText());
+            var maxNumHops = null != hops.Digits(1) ? Integer.parseInt(hops.Digits(1).getText()) :
+                minNumHops;
+            queryGraph.addVariableLengthEdge(queryEdge, minNumHops, maxNumHops);
+        } else {
+            queryGraph.addEdge(queryEdge);
+        }
     }
 }
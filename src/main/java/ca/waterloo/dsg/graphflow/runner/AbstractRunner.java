@@ -13,6 +13,10 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * The base class for shared functionality between Runner classes.
@@ -42,6 +46,55 @@ public abstract class AbstractRunner {
         return outputDirectory;
     }
 
+    /**
+     * Starts deserializing a component of the dataset, e.g. the graph or the catalog, on its own
+     * thread so the components load in parallel. The loading time is logged per component.
+     *
+     * @param component The name of the component logged with its loading time.
+     * @param loader Deserializes the component.
+     * @return The task to get the component from with {@link #getLoaded(FutureTask)}.
+     */
+    protected static <T> FutureTask<T> startLoading(String component, Callable<T> loader) {
+        var task = new FutureTask<T>(() -> {
+            var startTime = System.nanoTime();
+            var value = loader.call();
+            logger.info(component + " loading run time: " +
+                IOUtils.getElapsedTimeInMillis(startTime) + " (ms)");
+            return value;
+        });
+        var thread = new Thread(task, component + " loader");
+        thread.setDaemon(true);
+        thread.start();
+        return task;
+    }
+
+    /**
+     * @param task The task started by {@link #startLoading(String, Callable)}.
+     * @return The component once loaded.
+     * @throws IOException if the component cannot be read.
+     * @throws ClassNotFoundException if the object read from the input stream is not found.
+     */
+    protected static <T> T getLoaded(FutureTask<T> task) throws IOException,
+        ClassNotFoundException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while loading the dataset.");
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof ClassNotFoundException) {
+                throw (ClassNotFoundException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
     /**
      * @param args The supplied command-line arguments.
      * @param options The setAdjListSortOrder of {@link Options} to parse the args.
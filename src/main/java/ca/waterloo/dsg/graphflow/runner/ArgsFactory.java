@@ -21,6 +21,10 @@ public class ArgsFactory {
      *      VERTICES_FILE_SEPARATOR -n
      *      SERIALIZE_OUTPUT        -o
      *      UNDIRECTED              -u
+     *      NUM_THREADS             -t (same as 'Query Plan Executor')
+     *      ADJ_LISTS_FORMAT        -f
+     *      HUB_DEGREE_THRESHOLD    -b
+     *      VERTEX_ORDERING         -r
      */
     public static String INPUT_FILE_VERTICES = "v";
     public static String INPUT_FILE_EDGES = "e";
@@ -28,6 +32,9 @@ public class ArgsFactory {
     public static String VERTICES_FILE_SEPARATOR = "n";
     public static String SERIALIZE_OUTPUT = "o";
     public static String UNDIRECTED = "u";
+    public static String ADJ_LISTS_FORMAT = "f";
+    public static String HUB_DEGREE_THRESHOLD = "b";
+    public static String VERTEX_ORDERING = "r";
 
     public static Option getInputFileEdges() {
         var option = new Option(INPUT_FILE_EDGES, "input_file_edges", true /* hasArg */,
@@ -48,6 +55,25 @@ public class ArgsFactory {
             "The separator between columns in the input CSV file. The default is set to ','.");
     }
 
+    public static Option getAdjListsFormatOption() {
+        return new Option(ADJ_LISTS_FORMAT, "adj_lists_format", true /* hasArg */,
+            "The format to store the adjacency lists in: 'csr' or 'compressed'. The default is " +
+            "set to 'csr'.");
+    }
+
+    public static Option getHubDegreeThresholdOption() {
+        return new Option(HUB_DEGREE_THRESHOLD, "hub_degree_threshold", true /* hasArg */,
+            "Keep a bitmap of the adjacency lists with at least this many neighbours, 'auto' " +
+            "to choose the threshold from the degree distribution. No bitmaps are kept by " +
+            "default.");
+    }
+
+    public static Option getVertexOrderingOption() {
+        return new Option(VERTEX_ORDERING, "vertex_ordering", true /* hasArg */,
+            "The ordering to relabel the vertices with for locality: 'none', 'degree', 'rcm' or " +
+            "'gorder'. The default is set to 'none'.");
+    }
+
     public static Option getInputFileVertices() {
         return new Option(INPUT_FILE_VERTICES, "input_file_vertices", true /* hasArg */,
             "The absolute path to the vertices csv file.");
@@ -189,6 +215,8 @@ public class ArgsFactory {
      *      NUM_SAMPLED_EDGES      -n
      *      NUM_MAX_INPUT_VERTICES -v
      *      NUM_THREADS            -t (same as 'Query Plan Executor')
+     *      POOL_SIZE              -g (same as 'Optimizer Executor')
+     *      POOL_METRICS           -y (same as 'Optimizer Executor')
      */
     public static String NUM_SAMPLED_EDGES = "n";
     public static String NUM_MAX_INPUT_VERTICES = "v";
@@ -215,10 +243,87 @@ public class ArgsFactory {
      *      EXECUTE_PLAN             -e
      *      DISABLE_FLATTENING       -f (same as 'Query Plan Executor')
      *      ENABLE_ADAPTIVITY        -a (same as 'Query Plan Executor')
+     *      PLANNER                  -m
+     *      DISTINCT_ENDPOINTS       -d
+     *      PERSIST_K_HOP_RELATIONS  -w
+     *      BATCH_EXECUTION          -x
+     *      POOL_SIZE                -g
+     *      POOL_METRICS             -y
+     *      UPDATES_FILE             -u
      */
     public static String EXECUTE_PLAN = "e";
+    public static String PLANNER = "m";
+    public static String DISTINCT_ENDPOINTS = "d";
+    public static String PERSIST_K_HOP_RELATIONS = "w";
+    public static String BATCH_EXECUTION = "x";
+    public static String POOL_SIZE = "g";
+    public static String POOL_METRICS = "y";
+    public static String UPDATES_FILE = "u";
 
     public static Option getExecuteOption() {
         return new Option(EXECUTE_PLAN, "execute", false, "Execute the optimizer's picked plan.");
     }
+
+    public static Option getPlannerOption() {
+        return new Option(PLANNER, "planner", true /* hasArg */,
+            "The planner: 'jump' jumping over the paths of path queries, 'wco' for the " +
+            "worst-case optimal plans only, 'articulation' hash joining on an articulation " +
+            "query vertex or 'relational' counting the paths of path queries as vertex pairs. " +
+            "The default is set to 'jump'.");
+    }
+
+    public static Option getDistinctEndpointsOption() {
+        return new Option(DISTINCT_ENDPOINTS, "distinct_endpoints", true /* hasArg */,
+            "Match the distinct first and last vertex pairs of the paths of a path query instead " +
+            "of every path: 'exact' for the paths of all the query edges or 'up_to' for the " +
+            "paths of one up to all the query edges. Only supported by the 'jump' planner.");
+    }
+
+    public static Option getPersistKHopRelationsOption() {
+        return new Option(PERSIST_K_HOP_RELATIONS, "persist_k_hop_relations", false /* hasArg */,
+            "Write the k-hop relations materialized by the 'relational' planner next to the " +
+            "serialized graph so the later runs reuse them.");
+    }
+
+    public static Option getBatchExecutionOption() {
+        return new Option(BATCH_EXECUTION, "batch", false /* hasArg */,
+            "Push the tuples between the operators in batches of column vectors instead of one " +
+            "at a time.");
+    }
+
+    public static Option getPoolSizeOption() {
+        return new Option(POOL_SIZE, "pool_size", true /* hasArg */,
+            "The number of threads of the worker pool shared by the executions. The default is " +
+            "set to the number of threads.");
+    }
+
+    public static Option getPoolMetricsOption() {
+        return new Option(POOL_METRICS, "pool_metrics", false /* hasArg */,
+            "Log the tasks, busy time and queue size of the worker pool.");
+    }
+
+    public static Option getUpdatesFileOption() {
+        return new Option(UPDATES_FILE, "updates_file", true /* hasArg */,
+            "The absolute path to a csv file of edges to insert, as '+,from,to,label' lines, " +
+            "and to delete, as '-,from,to,label' lines, before planning the query.");
+    }
+
+    /*
+     * Intersect Benchmark:
+     * ~~~~~~~~~~~~~~~~~~~~
+     *      LARGE_LIST_SIZE -l
+     *      NUM_RUNS        -r
+     */
+    public static String LARGE_LIST_SIZE = "l";
+    public static String NUM_RUNS = "r";
+
+    public static Option getLargeListSizeOption() {
+        return new Option(LARGE_LIST_SIZE, "large_list_size", true,
+            "The size of the large list the small lists are intersected with.");
+    }
+
+    public static Option getNumRunsOption() {
+        return new Option(NUM_RUNS, "number_runs", true,
+            "The number of timed runs of each kernel, the fastest run is reported.");
+    }
 }
@@ -0,0 +1,140 @@
+package ca.waterloo.dsg.graphflow.runner.benchmark;
+
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
+import ca.waterloo.dsg.graphflow.runner.AbstractRunner;
+import ca.waterloo.dsg.graphflow.runner.ArgsFactory;
+import ca.waterloo.dsg.graphflow.storage.SortedAdjList;
+import lombok.var;
+import org.apache.commons.cli.Options;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Times the intersection kernels of {@link SortedAdjList} on a large sorted list and small lists
+ * of increasing sizes, over a dense and a sparse range of IDs, and logs the time of each kernel
+ * and of the adaptive intersection. The crossover points are where the fastest kernel changes.
+ */
+public class IntersectBenchmark extends AbstractRunner {
+
+    private static final Logger logger = LogManager.getLogger(IntersectBenchmark.class);
+
+    private static final int DEF_LARGE_LIST_SIZE = 1 << 20;
+    private static final int DEF_NUM_RUNS = 5;
+    private static final long MIN_RUN_TIME = 20_000_000; /* ns */
+    private static final String[] KERNELS = { "merge", "gallop", "bitmap", "adaptive" };
+
+    private static long checksum = 0;
+
+    public static void main(String[] args) {
+        // If the user asks for help, enforce it over the required options.
+        if (isAskingHelp(args, getCommandLineOptions())) {
+            return;
+        }
+
+        var cmdLine = parseCmdLine(args, getCommandLineOptions());
+        if (null == cmdLine) {
+            logger.info("could not parse all the program arguments.");
+            return;
+        }
+        var largeListSize = cmdLine.hasOption(ArgsFactory.LARGE_LIST_SIZE) ?
+            Integer.parseInt(cmdLine.getOptionValue(ArgsFactory.LARGE_LIST_SIZE)) :
+            DEF_LARGE_LIST_SIZE;
+        var numRuns = cmdLine.hasOption(ArgsFactory.NUM_RUNS) ?
+            Integer.parseInt(cmdLine.getOptionValue(ArgsFactory.NUM_RUNS)) : DEF_NUM_RUNS;
+
+        var random = new Random(0 /* seed */);
+        for (var spanRatio : new int[] { 2 /* dense */, 64 /* sparse */ }) {
+            logger.info(String.format("Large list of %d IDs out of %d:", largeListSize,
+                (long) spanRatio * largeListSize));
+            logger.info(String.format("%10s %10s %10s %10s %10s   %s", "small size", KERNELS[0],
+                KERNELS[1], KERNELS[2], KERNELS[3], "(ns per intersection)"));
+            var largeIds = makeSortedIds(random, largeListSize, spanRatio * largeListSize);
+            for (var smallListSize = 1; smallListSize <= largeListSize; smallListSize <<= 2) {
+                var smallIds = makeSortedIds(random, smallListSize, spanRatio * largeListSize);
+                var times = new double[KERNELS.length];
+                for (var kernel = 0; kernel < KERNELS.length; kernel++) {
+                    // the first run warms up the kernel.
+                    time(kernel, smallIds, largeIds);
+                    times[kernel] = Double.MAX_VALUE;
+                    for (var run = 0; run < numRuns; run++) {
+                        times[kernel] = Math.min(times[kernel], time(kernel, smallIds, largeIds));
+                    }
+                }
+                logger.info(String.format("%10d %10.0f %10.0f %10.0f %10.0f", smallListSize,
+                    times[0], times[1], times[2], times[3]));
+            }
+        }
+        logger.info("checksum: " + checksum);
+    }
+
+    /**
+     * @return the average time in ns of an intersection over a run of at least
+     * {@link #MIN_RUN_TIME} ns.
+     */
+    private static double time(int kernel, int[] smallIds, int[] largeIds) {
+        var someNeighbours = new Neighbours();
+        someNeighbours.Ids = smallIds;
+        someNeighbours.endIdx = smallIds.length;
+        var neighbours = new Neighbours(smallIds.length);
+        var numIntersections = 0L;
+        var startTime = System.nanoTime();
+        var elapsedTime = 0L;
+        while (elapsedTime < MIN_RUN_TIME) {
+            intersect(kernel, smallIds, largeIds, someNeighbours, neighbours);
+            numIntersections++;
+            elapsedTime = System.nanoTime() - startTime;
+        }
+        return (double) elapsedTime / numIntersections;
+    }
+
+    private static void intersect(int kernel, int[] smallIds, int[] largeIds,
+        Neighbours someNeighbours, Neighbours neighbours) {
+        neighbours.reset();
+        switch (kernel) {
+            case 0:
+                SortedAdjList.merge(smallIds, 0, smallIds.length, largeIds, 0,
+                    largeIds.length, neighbours);
+                break;
+            case 1:
+                SortedAdjList.gallop(smallIds, 0, smallIds.length, largeIds, 0,
+                    largeIds.length, neighbours);
+                break;
+            case 2:
+                SortedAdjList.probeBitmap(smallIds, 0, smallIds.length, largeIds, 0,
+                    largeIds.length, neighbours);
+                break;
+            default:
+                SortedAdjList.intersect(someNeighbours, neighbours, largeIds, 0,
+                    largeIds.length);
+        }
+        checksum += neighbours.endIdx;
+    }
+
+    private static int[] makeSortedIds(Random random, int numIds, int span) {
+        var ids = new int[numIds];
+        for (var i = 0; i < numIds; i++) {
+            ids[i] = random.nextInt(span);
+        }
+        Arrays.sort(ids);
+        var numDistinctIds = 0;
+        for (var i = 0; i < numIds; i++) {
+            if (0 == i || ids[i] != ids[i - 1]) {
+                ids[numDistinctIds++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, numDistinctIds);
+    }
+
+    /**
+     * @return The {@link Options} required by the {@link IntersectBenchmark}.
+     */
+    private static Options getCommandLineOptions() {
+        var options = new Options();                            // ArgsFactory.
+        options.addOption(ArgsFactory.getLargeListSizeOption()); // LARGE_LIST_SIZE -l
+        options.addOption(ArgsFactory.getNumRunsOption());       // NUM_RUNS        -r
+        return options;
+    }
+}
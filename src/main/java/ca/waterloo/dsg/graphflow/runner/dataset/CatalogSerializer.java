@@ -1,5 +1,6 @@
 package ca.waterloo.dsg.graphflow.runner.dataset;
 
+import ca.waterloo.dsg.graphflow.plan.WorkerPool;
 import ca.waterloo.dsg.graphflow.planner.catalog.Catalog;
 import ca.waterloo.dsg.graphflow.planner.catalog.CatalogPlans;
 import ca.waterloo.dsg.graphflow.runner.AbstractRunner;
@@ -45,14 +46,21 @@ public class CatalogSerializer extends AbstractRunner {
         // Run the plans and collect sampled estimates for i-cost and cardinality.
         var numThreads = cmdLine.hasOption(ArgsFactory.NUM_THREADS) ?
             Integer.valueOf(cmdLine.getOptionValue(ArgsFactory.NUM_THREADS)) : 1 /* default */;
+        WorkerPool.POOL_SIZE = cmdLine.hasOption(ArgsFactory.POOL_SIZE) ?
+            Integer.valueOf(cmdLine.getOptionValue(ArgsFactory.POOL_SIZE)) : numThreads;
+        WorkerPool.METRICS_ENABLED = cmdLine.hasOption(ArgsFactory.POOL_METRICS);
 
         // Load the data from the given binary directory.
         var inputDirectory = sanitizeDirStr(cmdLine.getOptionValue(ArgsFactory.INPUT_GRAPH_DIR));
         Graph graph;
         KeyStore store;
         try {
-            graph = new GraphFactory().make(inputDirectory);
-            store = new KeyStoreFactory().make(inputDirectory);
+            var graphTask = startLoading("Graph", () -> new GraphFactory().make(
+                inputDirectory));
+            var storeTask = startLoading("Key store", () -> new KeyStoreFactory().make(
+                inputDirectory));
+            graph = getLoaded(graphTask);
+            store = getLoaded(storeTask);
         } catch (IOException | ClassNotFoundException e) {
             logger.error("Error in deserialization: " + e.getMessage());
             return;
@@ -83,6 +91,8 @@ public class CatalogSerializer extends AbstractRunner {
         options.addOption(ArgsFactory.getNumberEdgesToSampleOption()); // NUM_SAMPLED_EDGES      -n
         options.addOption(ArgsFactory.getMaxInputNumVerticesOption()); // NUM_MAX_INPUT_VERTICES -v
         options.addOption(ArgsFactory.getNumberThreadsOption());       // NUM_THREADS            -t
+        options.addOption(ArgsFactory.getPoolSizeOption());            // POOL_SIZE              -g
+        options.addOption(ArgsFactory.getPoolMetricsOption());         // POOL_METRICS           -y
         return options;
     }
 }
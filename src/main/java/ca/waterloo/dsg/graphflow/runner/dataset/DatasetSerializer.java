@@ -5,6 +5,9 @@ import ca.waterloo.dsg.graphflow.runner.ArgsFactory;
 import ca.waterloo.dsg.graphflow.storage.Graph;
 import ca.waterloo.dsg.graphflow.storage.GraphFactory;
 import ca.waterloo.dsg.graphflow.storage.KeyStore;
+import ca.waterloo.dsg.graphflow.storage.VertexReordering;
+import ca.waterloo.dsg.graphflow.storage.VertexReordering.Ordering;
+import ca.waterloo.dsg.graphflow.util.IOUtils;
 import lombok.var;
 import org.apache.commons.cli.Options;
 import org.apache.logging.log4j.LogManager;
@@ -31,6 +34,11 @@ public class DatasetSerializer extends AbstractRunner {
             return;
         }
 
+        if (cmdLine.hasOption(ArgsFactory.NUM_THREADS)) {
+            GraphFactory.NUM_LOADING_THREADS = Integer.parseInt(cmdLine.getOptionValue(
+                ArgsFactory.NUM_THREADS));
+        }
+
         Graph graph;
         var store = new KeyStore();
         try {
@@ -57,6 +65,46 @@ public class DatasetSerializer extends AbstractRunner {
         }
 
         graph.setUndirected(cmdLine.hasOption(ArgsFactory.UNDIRECTED));
+        if (cmdLine.hasOption(ArgsFactory.VERTEX_ORDERING)) {
+            Ordering ordering;
+            try {
+                ordering = Ordering.valueOf(cmdLine.getOptionValue(ArgsFactory.VERTEX_ORDERING).
+                    toUpperCase());
+            } catch (IllegalArgumentException e) {
+                logger.info("The vertex ordering should be 'none', 'degree', 'rcm' or 'gorder'.");
+                return;
+            }
+            if (Ordering.NONE != ordering) {
+                var logGapBefore = VertexReordering.getAverageLogGap(graph.getFwdCSRAdjLists());
+                var startTime = System.nanoTime();
+                graph.relabelVertices(VertexReordering.getNewToOldIds(graph, ordering));
+                logger.info(String.format("Relabelled the vertices by %s order in %.2f ms, the " +
+                    "average log2 gap between forward neighbour IDs went from %.3f to %.3f.",
+                    ordering.name().toLowerCase(), IOUtils.getElapsedTimeInMillis(startTime),
+                    logGapBefore, VertexReordering.getAverageLogGap(graph.getFwdCSRAdjLists())));
+            }
+        }
+        if (cmdLine.hasOption(ArgsFactory.ADJ_LISTS_FORMAT)) {
+            var adjListsFormat = cmdLine.getOptionValue(ArgsFactory.ADJ_LISTS_FORMAT);
+            if (adjListsFormat.equals("compressed")) {
+                graph.compressAdjLists();
+            } else if (!adjListsFormat.equals("csr")) {
+                logger.info("The adjacency lists format should be 'csr' or 'compressed'.");
+                return;
+            }
+        }
+        if (cmdLine.hasOption(ArgsFactory.HUB_DEGREE_THRESHOLD)) {
+            var hubDegreeThreshold = cmdLine.getOptionValue(ArgsFactory.HUB_DEGREE_THRESHOLD);
+            if (hubDegreeThreshold.equals("auto")) {
+                if (Integer.MAX_VALUE == graph.getHubDegreeThreshold()) {
+                    logger.info("No adjacency lists are large enough to keep a bitmap of.");
+                } else {
+                    graph.buildHubBitmaps(graph.getHubDegreeThreshold());
+                }
+            } else {
+                graph.buildHubBitmaps(Integer.parseInt(hubDegreeThreshold));
+            }
+        }
 
         // Serialize the data and save the files in the given output directory.
         var outputDirectory = sanitizeDirStrAndMkdirIfNeeded(cmdLine.getOptionValue(
@@ -80,6 +128,10 @@ public class DatasetSerializer extends AbstractRunner {
         options.addOption(ArgsFactory.getInputFileVertices());     // INPUT_FILE_VERTICES     -v
         options.addOption(ArgsFactory.getVerticesFileSeparator()); // VERTICES_FILE_SEPARATOR -n
         options.addOption(ArgsFactory.getIsGraphUndirected());     // UNDIRECTED             -u
+        options.addOption(ArgsFactory.getNumberThreadsOption());   // NUM_THREADS             -t
+        options.addOption(ArgsFactory.getAdjListsFormatOption());  // ADJ_LISTS_FORMAT        -f
+        options.addOption(ArgsFactory.getHubDegreeThresholdOption()); // HUB_DEGREE_THRESHOLD -b
+        options.addOption(ArgsFactory.getVertexOrderingOption());  // VERTEX_ORDERING         -r
         return options;
     }
 }
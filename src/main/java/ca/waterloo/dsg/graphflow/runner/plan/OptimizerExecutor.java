@@ -1,11 +1,17 @@
 package ca.waterloo.dsg.graphflow.runner.plan;
 
+import ca.waterloo.dsg.graphflow.plan.Plan;
+import ca.waterloo.dsg.graphflow.plan.WorkerPool;
 import ca.waterloo.dsg.graphflow.plan.Workers;
+import ca.waterloo.dsg.graphflow.plan.operator.Operator;
+import ca.waterloo.dsg.graphflow.plan.operator.jumpinglikejoin.JumpingLikeJoin;
+import ca.waterloo.dsg.graphflow.plan.operator.jumpinglikejoin.JumpingLikeJoinExe;
 import ca.waterloo.dsg.graphflow.planner.QueryPlanner;
 import ca.waterloo.dsg.graphflow.planner.QueryPlannerBig;
 import ca.waterloo.dsg.graphflow.planner.catalog.Catalog;
 import ca.waterloo.dsg.graphflow.planner.catalog.CatalogFactory;
 import ca.waterloo.dsg.graphflow.query.QueryGraph;
+import ca.waterloo.dsg.graphflow.query.QueryGraph.PathSemantics;
 import ca.waterloo.dsg.graphflow.query.parser.QueryParser;
 import ca.waterloo.dsg.graphflow.runner.AbstractRunner;
 import ca.waterloo.dsg.graphflow.runner.ArgsFactory;
@@ -19,6 +25,8 @@ import org.apache.commons.cli.Options;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.BufferedReader;
+import java.io.FileReader;
 import java.io.IOException;
 
 /**
@@ -43,14 +51,29 @@ public class OptimizerExecutor extends AbstractRunner {
         Catalog catalog;
         KeyStore store;
         try {
-            graph = new GraphFactory().make(inputDirectory);
-            catalog = new CatalogFactory().make(inputDirectory);
-            store = new KeyStoreFactory().make(inputDirectory);
+            var graphTask = startLoading("Graph", () -> new GraphFactory().make(
+                inputDirectory));
+            var catalogTask = startLoading("Catalog", () -> new CatalogFactory().make(
+                inputDirectory));
+            var storeTask = startLoading("Key store", () -> new KeyStoreFactory().make(
+                inputDirectory));
+            graph = getLoaded(graphTask);
+            catalog = getLoaded(catalogTask);
+            store = getLoaded(storeTask);
         } catch (IOException | ClassNotFoundException e) {
             logger.error("Error in deserialization: " + e.getMessage());
             return;
         }
 
+        if (cmdLine.hasOption(ArgsFactory.UPDATES_FILE)) {
+            try {
+                applyUpdates(cmdLine.getOptionValue(ArgsFactory.UPDATES_FILE), graph, store);
+            } catch (IOException | IllegalArgumentException e) {
+                logger.error("Error in applying the updates: " + e.getMessage());
+                return;
+            }
+        }
+
         var queryGraph = QueryParser.parse(cmdLine.getOptionValue(ArgsFactory.QUERY), store);
         if (null == queryGraph) {
             logger.error("An error occurred parsing the query graph.");
@@ -66,18 +89,64 @@ public class OptimizerExecutor extends AbstractRunner {
         var elapsedTimeLoading = IOUtils.getElapsedTimeInMillis(startTimeLoading);
         logger.info("Dataset loading run time: " + elapsedTimeLoading + " (ms)");
 
+        if (null != queryGraph.getRangeEdge()) {
+            if (null == queryGraph.getPathQVertices()) {
+                logger.error("A variable-length query edge with a range of hops should be at " +
+                    "an end of a path query.");
+                return;
+            } else if (!"jump".equals(cmdLine.getOptionValue(ArgsFactory.PLANNER, "jump"))) {
+                logger.error("Only the 'jump' planner matches the ranges of hops.");
+                return;
+            }
+        }
+        if (cmdLine.hasOption(ArgsFactory.DISTINCT_ENDPOINTS)) {
+            var distinctEndpoints = cmdLine.getOptionValue(ArgsFactory.DISTINCT_ENDPOINTS);
+            if (null == queryGraph.getPathQVertices()) {
+                logger.error("Only the endpoints of path queries can be distinct.");
+                return;
+            } else if (!"jump".equals(cmdLine.getOptionValue(ArgsFactory.PLANNER, "jump"))) {
+                logger.error("Only the 'jump' planner matches distinct endpoints.");
+                return;
+            } else if ("exact".equals(distinctEndpoints)) {
+                queryGraph.setPathSemantics(PathSemantics.DISTINCT_ENDPOINTS);
+            } else if ("up_to".equals(distinctEndpoints)) {
+                queryGraph.setPathSemantics(PathSemantics.DISTINCT_ENDPOINTS_UP_TO);
+            } else {
+                logger.error("Unknown distinct endpoints: " + distinctEndpoints + ".");
+                return;
+            }
+        }
         var planner = queryGraph.getNumVertices() <= 8 ?
                 new QueryPlanner(queryGraph, catalog, graph) :
                 new QueryPlannerBig(queryGraph, catalog, graph);
         var beginTime = System.nanoTime();
-       
-    // here we comment the original plan generator and replace with our approach
-	// var queryPlan = planner.getArticulationJoinPlan(); 
-    // var queryPlan = planner.plan();  // baseline
-    var queryPlan = planner.planWithJump(); // our approach
-
-
-	var elapsedTime = IOUtils.getElapsedTimeInMillis(beginTime);
+        var plannerName = cmdLine.getOptionValue(ArgsFactory.PLANNER, "jump");
+        Plan queryPlan;
+        JumpingLikeJoin relationalJump = null;
+        switch (plannerName) {
+            case "jump":
+                queryPlan = planner.planWithJump();
+                break;
+            case "wco":
+                queryPlan = planner.plan();
+                break;
+            case "articulation":
+                queryPlan = planner.getArticulationJoinPlan();
+                break;
+            case "relational":
+                var path = queryGraph.getPathQVertices();
+                if (null == path) {
+                    logger.error("The relational planner only evaluates path queries.");
+                    return;
+                }
+                relationalJump = new JumpingLikeJoinExe(queryGraph, path);
+                queryPlan = new Plan(relationalJump);
+                break;
+            default:
+                logger.error("Unknown planner: " + plannerName + ".");
+                return;
+        }
+        var elapsedTime = IOUtils.getElapsedTimeInMillis(beginTime);
         if (!cmdLine.hasOption(ArgsFactory.OUTPUT_FILE)) {
             logger.info("Optimizer run time: " + elapsedTime + " (ms)");
         }
@@ -86,11 +155,19 @@ public class OptimizerExecutor extends AbstractRunner {
             // initialize and execute the query transform, get the output metrics and log it.
             var numThreads = !cmdLine.hasOption(ArgsFactory.NUM_THREADS) ? 1 : // single thread
                     Integer.parseInt(cmdLine.getOptionValue(ArgsFactory.NUM_THREADS));
+            Operator.BATCHING_ENABLED = cmdLine.hasOption(ArgsFactory.BATCH_EXECUTION);
+            WorkerPool.POOL_SIZE = !cmdLine.hasOption(ArgsFactory.POOL_SIZE) ? numThreads :
+                    Integer.parseInt(cmdLine.getOptionValue(ArgsFactory.POOL_SIZE));
+            WorkerPool.METRICS_ENABLED = cmdLine.hasOption(ArgsFactory.POOL_METRICS);
             var workers = new Workers(queryPlan, numThreads);
+            workers.setJumpingLikeJoin(relationalJump);
             logger.info("Plan initialization before exec run time: " + elapsedTime + " (ms)");
-            workers.init(graph, store, queryGraph.getEdges().get(0).getLabel());
+            workers.init(graph, store);
             elapsedTime = IOUtils.getElapsedTimeInMillis(beginTime);
             workers.execute();
+            if (cmdLine.hasOption(ArgsFactory.PERSIST_K_HOP_RELATIONS)) {
+                graph.serializeKHopRelations(inputDirectory);
+            }
             if (cmdLine.hasOption(ArgsFactory.OUTPUT_FILE)) {
                 IOUtils.log(cmdLine.getOptionValue(ArgsFactory.OUTPUT_FILE),
                         elapsedTime + "," + workers.getElapsedTime() + "\n");
@@ -112,6 +189,67 @@ public class OptimizerExecutor extends AbstractRunner {
         }
     }
 
+    /**
+     * Inserts and deletes the edges of the updates file, one '+,from,to,label' or
+     * '-,from,to,label' line per edge with the vertex IDs of the input files. The updates are
+     * merged on read and folded into the adjacency lists in the background.
+     *
+     * @param updatesFile is the absolute path to the updates file.
+     * @param graph is the graph to update.
+     * @param store is the key store of the edge labels.
+     * @throws IOException if the updates file cannot be read.
+     */
+    private static void applyUpdates(String updatesFile, Graph graph, KeyStore store)
+        throws IOException {
+        var beginTime = System.nanoTime();
+        // the vertex IDs of the input files are mapped to the relabelled ones, if any.
+        int[] originalToVertexIds = null;
+        if (null != graph.getOriginalVertexIds()) {
+            originalToVertexIds = new int[graph.getHighestVertexId() + 1];
+            for (var vertexId = 0; vertexId <= graph.getHighestVertexId(); vertexId++) {
+                originalToVertexIds[graph.getOriginalVertexId(vertexId)] = vertexId;
+            }
+        }
+        var numInserted = 0;
+        var numDeleted = 0;
+        var numIgnored = 0;
+        try (var reader = new BufferedReader(new FileReader(updatesFile))) {
+            String line;
+            while (null != (line = reader.readLine())) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                var row = line.split(",");
+                if (4 != row.length || (!"+".equals(row[0]) && !"-".equals(row[0]))) {
+                    throw new IllegalArgumentException("Malformed update: " + line);
+                }
+                var fromVertex = Integer.parseInt(row[1]);
+                var toVertex = Integer.parseInt(row[2]);
+                if (null != originalToVertexIds && fromVertex >= 0 && toVertex >= 0 &&
+                        fromVertex < originalToVertexIds.length &&
+                        toVertex < originalToVertexIds.length) {
+                    fromVertex = originalToVertexIds[fromVertex];
+                    toVertex = originalToVertexIds[toVertex];
+                }
+                var label = store.getLabelKeyAsShort(row[3]);
+                if ("+".equals(row[0])) {
+                    if (graph.insertEdge(fromVertex, toVertex, label)) {
+                        numInserted++;
+                    } else {
+                        numIgnored++;
+                    }
+                } else if (graph.deleteEdge(fromVertex, toVertex, label)) {
+                    numDeleted++;
+                } else {
+                    numIgnored++;
+                }
+            }
+        }
+        logger.info(String.format("Inserted %d and deleted %d edges, ignored %d updates, in " +
+            "%.2f (ms).", numInserted, numDeleted, numIgnored,
+            IOUtils.getElapsedTimeInMillis(beginTime)));
+    }
+
     /**
      * @return The {@link Options} required by the {@link OptimizerExecutor}.
      */
@@ -123,6 +261,13 @@ public class OptimizerExecutor extends AbstractRunner {
         options.addOption(ArgsFactory.getNumberThreadsOption());         // NUM_THREADS         -t
         options.addOption(ArgsFactory.getExecuteOption());               // EXECUTE_PLAN        -e
         options.addOption(ArgsFactory.getEnableAdaptivityOption());      // ENABLE_ADAPTIVITY   -a
+        options.addOption(ArgsFactory.getPlannerOption());               // PLANNER             -m
+        options.addOption(ArgsFactory.getDistinctEndpointsOption());     // DISTINCT_ENDPOINTS  -d
+        options.addOption(ArgsFactory.getPersistKHopRelationsOption());  // PERSIST_K_HOP_RELATIONS -w
+        options.addOption(ArgsFactory.getBatchExecutionOption());        // BATCH_EXECUTION     -x
+        options.addOption(ArgsFactory.getPoolSizeOption());              // POOL_SIZE           -g
+        options.addOption(ArgsFactory.getPoolMetricsOption());           // POOL_METRICS        -y
+        options.addOption(ArgsFactory.getUpdatesFileOption());           // UPDATES_FILE        -u
         return options;
     }
 }
@@ -0,0 +1,288 @@
+package ca.waterloo.dsg.graphflow.storage;
+
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.var;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The adjacency lists of all vertices in one direction stored in compressed-sparse-row form. The
+ * neighbour IDs of all vertices are stored in a single array and a single offsets array indexed by
+ * {@code vertexId * numLabelsOrTypes + labelOrType} gives the start of each vertex's list for a
+ * given edge label or toVertex type. Each list is sorted by neighbour ID.
+ *
+ * The adjacency lists of high-degree vertices can additionally be kept as {@link HubBitmaps}, in
+ * which case intersections with them probe or AND the bitmaps instead of the sorted lists.
+ */
+public class CSRAdjLists implements Serializable {
+
+    @Getter protected int numLabelsOrTypes;
+    @Getter protected int[] offsets;
+    @Getter protected int[] neighbourIds;
+    @Getter @Setter protected HubBitmaps hubBitmaps;
+
+    /**
+     * Constructs a {@link CSRAdjLists} object.
+     *
+     * @param numLabelsOrTypes is the number of edge labels or toVertex types per vertex.
+     * @param offsets are the offsets of length {@code numVertices * numLabelsOrTypes + 1}.
+     * @param neighbourIds are the neighbour IDs of all vertices.
+     */
+    public CSRAdjLists(int numLabelsOrTypes, int[] offsets, int[] neighbourIds) {
+        this.numLabelsOrTypes = numLabelsOrTypes;
+        this.offsets = offsets;
+        this.neighbourIds = neighbourIds;
+    }
+
+    /**
+     * Constructs a {@link CSRAdjLists} object from per vertex {@link SortedAdjList}s.
+     *
+     * @param adjLists are the per vertex sorted adjacency lists.
+     * @param numLabelsOrTypes is the number of edge labels or toVertex types per vertex.
+     * @return the constructed {@link CSRAdjLists} object.
+     */
+    public static CSRAdjLists make(SortedAdjList[] adjLists, int numLabelsOrTypes) {
+        var offsets = new int[adjLists.length * numLabelsOrTypes + 1];
+        var numEdges = 0;
+        for (var adjList : adjLists) {
+            numEdges += adjList.size();
+        }
+        var neighbourIds = new int[numEdges];
+        var idx = 0;
+        for (var vertexId = 0; vertexId < adjLists.length; vertexId++) {
+            var vertexOffsets = adjLists[vertexId].getLabelOrTypeOffsets();
+            for (var labelOrType = 0; labelOrType < numLabelsOrTypes; labelOrType++) {
+                offsets[vertexId * numLabelsOrTypes + labelOrType] = idx + vertexOffsets[
+                    labelOrType];
+            }
+            var vertexNeighbourIds = adjLists[vertexId].getNeighbourIds();
+            System.arraycopy(vertexNeighbourIds, 0, neighbourIds, idx, vertexNeighbourIds.length);
+            idx += vertexNeighbourIds.length;
+        }
+        offsets[offsets.length - 1] = idx;
+        return new CSRAdjLists(numLabelsOrTypes, offsets, neighbourIds);
+    }
+
+    /**
+     * @return the per vertex {@link SortedAdjList}s holding a copy of the adjacency lists.
+     */
+    public SortedAdjList[] toSortedAdjLists() {
+        var adjLists = new SortedAdjList[getNumVertices()];
+        for (var vertexId = 0; vertexId < adjLists.length; vertexId++) {
+            var vertexStartIdx = offsets[vertexId * numLabelsOrTypes];
+            var vertexOffsets = new int[numLabelsOrTypes + 1];
+            for (var labelOrType = 0; labelOrType <= numLabelsOrTypes; labelOrType++) {
+                vertexOffsets[labelOrType] = offsets[vertexId * numLabelsOrTypes + labelOrType] -
+                    vertexStartIdx;
+            }
+            adjLists[vertexId] = new SortedAdjList(vertexOffsets);
+            System.arraycopy(neighbourIds, vertexStartIdx, adjLists[vertexId].getNeighbourIds(), 0,
+                vertexOffsets[numLabelsOrTypes]);
+        }
+        return adjLists;
+    }
+
+    /**
+     * Constructs the adjacency lists of the relabelled vertices, where the neighbour IDs are
+     * relabelled and sorted again.
+     *
+     * @param newToOldIds is the permutation from the new vertex IDs to the current ones.
+     * @param oldToNewIds is the inverse permutation.
+     * @return the constructed {@link CSRAdjLists} object.
+     */
+    public CSRAdjLists relabel(int[] newToOldIds, int[] oldToNewIds) {
+        var newOffsets = new int[offsets.length];
+        var newNeighbourIds = new int[offsets[offsets.length - 1]];
+        var neighbours = new Neighbours();
+        var idx = 0;
+        for (var newVertexId = 0; newVertexId < newToOldIds.length; newVertexId++) {
+            var oldKey = newToOldIds[newVertexId] * numLabelsOrTypes;
+            for (var labelOrType = 0; labelOrType < numLabelsOrTypes; labelOrType++) {
+                newOffsets[newVertexId * numLabelsOrTypes + labelOrType] = idx;
+                setNeighbourIds(offsets[oldKey + labelOrType], offsets[oldKey + labelOrType + 1],
+                    neighbours);
+                var startIdx = idx;
+                for (var i = neighbours.startIdx; i < neighbours.endIdx; i++) {
+                    newNeighbourIds[idx++] = oldToNewIds[neighbours.Ids[i]];
+                }
+                Arrays.sort(newNeighbourIds, startIdx, idx);
+            }
+        }
+        newOffsets[newOffsets.length - 1] = idx;
+        return new CSRAdjLists(numLabelsOrTypes, newOffsets, newNeighbourIds);
+    }
+
+    /**
+     * @return the number of vertices the adjacency lists are stored for.
+     */
+    public int getNumVertices() {
+        return (offsets.length - 1) / numLabelsOrTypes;
+    }
+
+    /**
+     * @param vertexId is the ID of the vertex.
+     * @param labelOrType is the edge label or toVertex type.
+     * @return the index of the first neighbour of the vertex in the neighbour IDs array.
+     */
+    public int getStartIdx(int vertexId, short labelOrType) {
+        return offsets[vertexId * numLabelsOrTypes + labelOrType];
+    }
+
+    /**
+     * @param vertexId is the ID of the vertex.
+     * @param labelOrType is the edge label or toVertex type.
+     * @return the index after the last neighbour of the vertex in the neighbour IDs array.
+     */
+    public int getEndIdx(int vertexId, short labelOrType) {
+        return offsets[vertexId * numLabelsOrTypes + labelOrType + 1];
+    }
+
+    /**
+     * @param vertexId is the ID of the vertex.
+     * @param labelOrType is the edge label or toVertex type.
+     * @return True if the adjacency list has updates not stored at its indices, see
+     * {@link DeltaCSRAdjLists}, false otherwise.
+     */
+    public boolean hasUpdates(int vertexId, short labelOrType) {
+        return false;
+    }
+
+    /**
+     * @param idx is the index of the neighbour id to return.
+     * @return the neighbour ID at the given index.
+     */
+    public int getNeighbourId(int idx) {
+        return neighbourIds[idx];
+    }
+
+    /**
+     * Sets the given {@link Neighbours} to the slice of the neighbour IDs array holding the
+     * adjacency list of the vertex and to the list's bitmap if the vertex is a hub.
+     *
+     * @param vertexId is the ID of the vertex.
+     * @param labelOrType is the edge label or toVertex type.
+     * @param neighbours is the {@link Neighbours} object to set.
+     */
+    public void setNeighbourIds(int vertexId, short labelOrType, Neighbours neighbours) {
+        var key = vertexId * numLabelsOrTypes + labelOrType;
+        setNeighbourIds(offsets[key], offsets[key + 1], neighbours);
+        if (null != hubBitmaps) {
+            neighbours.hubBitmaps = hubBitmaps;
+            neighbours.hubIdx = hubBitmaps.getHubIdx(key);
+        }
+    }
+
+    /**
+     * Sets the given {@link Neighbours} to the neighbour IDs between the given indices, which may
+     * span the adjacency lists of several vertices.
+     *
+     * @param startIdx is the index of the first neighbour ID.
+     * @param endIdx is the index after the last neighbour ID.
+     * @param neighbours is the {@link Neighbours} object to set.
+     */
+    public void setNeighbourIds(int startIdx, int endIdx, Neighbours neighbours) {
+        neighbours.Ids = neighbourIds;
+        neighbours.startIdx = startIdx;
+        neighbours.endIdx = endIdx;
+        neighbours.hubIdx = -1;
+    }
+
+    /**
+     * Intersects the adjacency list of the vertex with the given neighbours. When both lists are
+     * lists of hubs their bitmaps are intersected, when only one of them is the other list's IDs
+     * probe its bitmap and otherwise the sorted lists are intersected.
+     *
+     * @param vertexId is the ID of the vertex.
+     * @param labelOrType is the edge label or toVertex type.
+     * @param someNeighbours are the neighbours to intersect with.
+     * @param neighbours are the neighbours to set to the intersection result.
+     * @return the i-cost of the intersection i.e. the size of the vertex's adjacency list.
+     */
+    public int intersect(int vertexId, short labelOrType, Neighbours someNeighbours,
+        Neighbours neighbours) {
+        var key = vertexId * numLabelsOrTypes + labelOrType;
+        if (null == hubBitmaps || !intersectHubs(key, someNeighbours, neighbours)) {
+            intersect(key, someNeighbours, neighbours);
+        }
+        return offsets[key + 1] - offsets[key];
+    }
+
+    /**
+     * Intersects the sorted adjacency list with the given key with the given neighbours.
+     *
+     * @param key is the key {@code vertexId * numLabelsOrTypes + labelOrType} of the list.
+     * @param someNeighbours are the neighbours to intersect with.
+     * @param neighbours are the neighbours to set to the intersection result.
+     */
+    protected void intersect(int key, Neighbours someNeighbours, Neighbours neighbours) {
+        SortedAdjList.intersect(someNeighbours, neighbours, neighbourIds, offsets[key],
+            offsets[key + 1]);
+    }
+
+    /**
+     * @return True if the intersection was done on the bitmap of one of the lists, false if
+     * neither list is the list of a hub.
+     */
+    private boolean intersectHubs(int key, Neighbours someNeighbours, Neighbours neighbours) {
+        var hubIdx = hubBitmaps.getHubIdx(key);
+        if (hubIdx >= 0 && someNeighbours.hubIdx >= 0) {
+            neighbours.reset();
+            hubBitmaps.intersect(hubIdx, someNeighbours.hubBitmaps, someNeighbours.hubIdx,
+                neighbours);
+        } else if (hubIdx >= 0) {
+            neighbours.reset();
+            hubBitmaps.probe(hubIdx, someNeighbours.Ids, someNeighbours.startIdx,
+                someNeighbours.endIdx, neighbours);
+        } else if (someNeighbours.hubIdx >= 0 && null != neighbourIds) {
+            neighbours.reset();
+            someNeighbours.hubBitmaps.probe(someNeighbours.hubIdx, neighbourIds, offsets[key],
+                offsets[key + 1], neighbours);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sorts each list of neighbour Ids of a particular vertex and label.
+     */
+    void sort() {
+        sort(0, offsets.length - 1);
+    }
+
+    /**
+     * Sorts the lists of neighbour Ids with keys {@code vertexId * numLabelsOrTypes + labelOrType}
+     * in the given range.
+     *
+     * @param startKey is the first key to sort the list of.
+     * @param endKey is the key after the last key to sort the list of.
+     */
+    void sort(int startKey, int endKey) {
+        for (var key = startKey; key < endKey; key++) {
+            if (offsets[key + 1] - offsets[key] > 1) {
+                Arrays.sort(neighbourIds, offsets[key], offsets[key + 1]);
+            }
+        }
+    }
+
+    /**
+     * @param vertexId is the ID of the vertex.
+     * @return the size of the adjacency list of the vertex across all labels or types.
+     */
+    public int size(int vertexId) {
+        return offsets[(vertexId + 1) * numLabelsOrTypes] - offsets[vertexId * numLabelsOrTypes];
+    }
+
+    /**
+     * @param vertexId is the ID of the vertex.
+     * @param labelOrType is the edge label or toVertex type.
+     * @return the size of the adjacency list.
+     */
+    public int size(int vertexId, short labelOrType) {
+        var key = vertexId * numLabelsOrTypes + labelOrType;
+        return offsets[key + 1] - offsets[key];
+    }
+}
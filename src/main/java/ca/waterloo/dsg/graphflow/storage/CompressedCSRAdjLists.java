@@ -0,0 +1,288 @@
+package ca.waterloo.dsg.graphflow.storage;
+
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
+import lombok.Getter;
+import lombok.var;
+
+import java.util.Arrays;
+
+/**
+ * {@link CSRAdjLists} with the neighbour IDs compressed. The neighbour IDs array is cut into blocks
+ * of {@link #BLOCK_SIZE} IDs. The first ID of each block is stored as is in a block header array
+ * and the following IDs as the zig-zag varint encoded delta to the previous ID. Deltas are
+ * zig-zag encoded as a block may span the adjacency lists of several vertices. The offsets array
+ * is kept uncompressed so list sizes and indices are the same as for {@link CSRAdjLists}.
+ *
+ * Intersections stream the adjacency list a block at a time and gallop over the block headers to
+ * skip the blocks whose next block starts at or before the next ID to match without decoding
+ * them. The other reads, through {@link #setNeighbourIds(int, int, Neighbours)}, decode the whole
+ * requested range into the buffer of the {@link Neighbours} at once: the scans and the jumps
+ * index into, split off and hand over the neighbours they read, which a cursor decoding one block
+ * at a time would not allow, and they visit every neighbour ID so decoding lazily would not
+ * decode fewer of them.
+ */
+public class CompressedCSRAdjLists extends CSRAdjLists {
+
+    public static final int BLOCK_SIZE = 128;
+
+    private static final int MAX_VARINT_SIZE = 5;
+
+    @Getter private int[] blockFirstIds;
+    @Getter private int[] blockOffsets; /* offset of each block's deltas in the data array. */
+    @Getter private byte[] data;
+
+    /**
+     * Constructs a {@link CompressedCSRAdjLists} object.
+     *
+     * @param numLabelsOrTypes is the number of edge labels or toVertex types per vertex.
+     * @param offsets are the offsets of length {@code numVertices * numLabelsOrTypes + 1}.
+     * @param blockFirstIds are the first neighbour ID of each block.
+     * @param blockOffsets are the offsets of length {@code numBlocks + 1} of the blocks in data.
+     * @param data are the encoded deltas of all blocks.
+     */
+    public CompressedCSRAdjLists(int numLabelsOrTypes, int[] offsets, int[] blockFirstIds,
+        int[] blockOffsets, byte[] data) {
+        super(numLabelsOrTypes, offsets, null /* neighbourIds */);
+        this.blockFirstIds = blockFirstIds;
+        this.blockOffsets = blockOffsets;
+        this.data = data;
+    }
+
+    /**
+     * Constructs a {@link CompressedCSRAdjLists} object by compressing the given adjacency lists.
+     *
+     * @param adjLists are the uncompressed adjacency lists.
+     * @return the constructed {@link CompressedCSRAdjLists} object.
+     */
+    public static CompressedCSRAdjLists make(CSRAdjLists adjLists) {
+        var neighbourIds = adjLists.getNeighbourIds();
+        var numBlocks = (neighbourIds.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        var blockFirstIds = new int[numBlocks];
+        var blockOffsets = new int[numBlocks + 1];
+        var data = new byte[Math.max(BLOCK_SIZE, neighbourIds.length + neighbourIds.length / 2)];
+        var position = 0;
+        for (var block = 0; block < numBlocks; block++) {
+            var idx = block * BLOCK_SIZE;
+            var endIdx = Math.min(idx + BLOCK_SIZE, neighbourIds.length);
+            blockFirstIds[block] = neighbourIds[idx];
+            blockOffsets[block] = position;
+            if ((long) position + (long) MAX_VARINT_SIZE * BLOCK_SIZE > data.length) {
+                var capacity = Math.min(2L * data.length + MAX_VARINT_SIZE * BLOCK_SIZE,
+                    Integer.MAX_VALUE - 8);
+                if (position + (long) MAX_VARINT_SIZE * BLOCK_SIZE > capacity) {
+                    throw new IllegalArgumentException("The compressed adjacency lists do not " +
+                        "fit a single array.");
+                }
+                data = Arrays.copyOf(data, (int) capacity);
+            }
+            for (idx++; idx < endIdx; idx++) {
+                position = writeDelta(data, position, neighbourIds[idx] - neighbourIds[idx - 1]);
+            }
+        }
+        blockOffsets[numBlocks] = position;
+        var compressedAdjLists = new CompressedCSRAdjLists(adjLists.getNumLabelsOrTypes(),
+            adjLists.getOffsets(), blockFirstIds, blockOffsets, Arrays.copyOf(data, position));
+        compressedAdjLists.setHubBitmaps(adjLists.getHubBitmaps());
+        return compressedAdjLists;
+    }
+
+    /**
+     * @return the uncompressed adjacency lists.
+     */
+    public CSRAdjLists decompress() {
+        var neighbourIds = new int[offsets[offsets.length - 1]];
+        decode(0, neighbourIds.length, neighbourIds);
+        var adjLists = new CSRAdjLists(numLabelsOrTypes, offsets, neighbourIds);
+        adjLists.setHubBitmaps(hubBitmaps);
+        return adjLists;
+    }
+
+    /**
+     * @see CSRAdjLists#toSortedAdjLists()
+     */
+    @Override
+    public SortedAdjList[] toSortedAdjLists() {
+        return decompress().toSortedAdjLists();
+    }
+
+    /**
+     * Decodes the block holding the neighbour ID. Prefer {@link #setNeighbourIds(int, int,
+     * Neighbours)} to read consecutive neighbour IDs.
+     *
+     * @see CSRAdjLists#getNeighbourId(int)
+     */
+    @Override
+    public int getNeighbourId(int idx) {
+        var block = idx / BLOCK_SIZE;
+        var position = blockOffsets[block];
+        var neighbourId = blockFirstIds[block];
+        for (var i = block * BLOCK_SIZE; i < idx; i++) {
+            var delta = readDelta(data, position);
+            position = (int) (delta >>> 32);
+            neighbourId += (int) delta;
+        }
+        return neighbourId;
+    }
+
+    /**
+     * Decodes the neighbour IDs into the buffer of the given {@link Neighbours}.
+     *
+     * @see CSRAdjLists#setNeighbourIds(int, int, Neighbours)
+     */
+    @Override
+    public void setNeighbourIds(int startIdx, int endIdx, Neighbours neighbours) {
+        neighbours.Ids = neighbours.getBuffer(endIdx - startIdx);
+        neighbours.startIdx = 0;
+        neighbours.endIdx = endIdx - startIdx;
+        neighbours.hubIdx = -1;
+        decode(startIdx, endIdx, neighbours.Ids);
+    }
+
+    private void decode(int startIdx, int endIdx, int[] neighbourIds) {
+        if (startIdx >= endIdx) {
+            return;
+        }
+        var block = startIdx / BLOCK_SIZE;
+        var position = blockOffsets[block];
+        var neighbourId = blockFirstIds[block];
+        var idx = block * BLOCK_SIZE;
+        var nextBlockStartIdx = idx + BLOCK_SIZE;
+        var outIdx = 0;
+        while (true) {
+            if (idx >= startIdx) {
+                neighbourIds[outIdx++] = neighbourId;
+            }
+            if (++idx == endIdx) {
+                return;
+            }
+            if (idx == nextBlockStartIdx) {
+                block++;
+                position = blockOffsets[block];
+                neighbourId = blockFirstIds[block];
+                nextBlockStartIdx += BLOCK_SIZE;
+            } else {
+                var delta = readDelta(data, position);
+                position = (int) (delta >>> 32);
+                neighbourId += (int) delta;
+            }
+        }
+    }
+
+    /**
+     * Intersects the adjacency list of the vertex with the given neighbours decoding one neighbour
+     * ID at a time and skipping the blocks that cannot hold any of the given neighbours.
+     *
+     * @see CSRAdjLists#intersect(int, Neighbours, Neighbours)
+     */
+    @Override
+    protected void intersect(int key, Neighbours someNeighbours, Neighbours neighbours) {
+        neighbours.reset();
+        var thisIdx = offsets[key];
+        var thisEndIdx = offsets[key + 1];
+        var someNeighbourIds = someNeighbours.Ids;
+        var someIdx = someNeighbours.startIdx;
+        var someEndIdx = someNeighbours.endIdx;
+        if (thisIdx == thisEndIdx || someIdx == someEndIdx) {
+            return;
+        }
+        var block = thisIdx / BLOCK_SIZE;
+        var position = blockOffsets[block];
+        var neighbourId = blockFirstIds[block];
+        for (var idx = block * BLOCK_SIZE; idx < thisIdx; idx++) {
+            var delta = readDelta(data, position);
+            position = (int) (delta >>> 32);
+            neighbourId += (int) delta;
+        }
+        var nextBlockStartIdx = (block + 1) * BLOCK_SIZE;
+        while (true) {
+            var someNeighbourId = someNeighbourIds[someIdx];
+            if (neighbourId > someNeighbourId) {
+                if (++someIdx == someEndIdx) {
+                    break;
+                }
+                continue;
+            }
+            if (neighbourId == someNeighbourId) {
+                neighbours.Ids[neighbours.endIdx++] = neighbourId;
+                if (++someIdx == someEndIdx) {
+                    break;
+                }
+            } else if (nextBlockStartIdx < thisEndIdx &&
+                       blockFirstIds[block + 1] <= someNeighbourId) {
+                // the rest of the block is smaller than the next block's first neighbour ID so
+                // gallop to the last block of the list starting at or before someNeighbourId.
+                var lastBlock = (thisEndIdx - 1) / BLOCK_SIZE;
+                var low = block + 1;
+                var step = 1;
+                var high = low + step;
+                while (high <= lastBlock && blockFirstIds[high] <= someNeighbourId) {
+                    low = high;
+                    step <<= 1;
+                    high = block + 1 + step;
+                }
+                if (high > lastBlock + 1) {
+                    high = lastBlock + 1;
+                }
+                while (low + 1 < high) {
+                    var mid = (low + high) >>> 1;
+                    if (blockFirstIds[mid] <= someNeighbourId) {
+                        low = mid;
+                    } else {
+                        high = mid;
+                    }
+                }
+                block = low;
+                thisIdx = block * BLOCK_SIZE;
+                position = blockOffsets[block];
+                neighbourId = blockFirstIds[block];
+                nextBlockStartIdx = thisIdx + BLOCK_SIZE;
+                continue;
+            }
+            if (++thisIdx == thisEndIdx) {
+                break;
+            }
+            if (thisIdx == nextBlockStartIdx) {
+                block++;
+                position = blockOffsets[block];
+                neighbourId = blockFirstIds[block];
+                nextBlockStartIdx += BLOCK_SIZE;
+            } else {
+                var delta = readDelta(data, position);
+                position = (int) (delta >>> 32);
+                neighbourId += (int) delta;
+            }
+        }
+    }
+
+    /**
+     * The neighbour IDs are compressed from sorted adjacency lists.
+     */
+    @Override
+    void sort(int startKey, int endKey) {}
+
+    private static int writeDelta(byte[] data, int position, int delta) {
+        var zigZag = (delta << 1) ^ (delta >> 31);
+        while ((zigZag & ~0x7F) != 0) {
+            data[position++] = (byte) ((zigZag & 0x7F) | 0x80);
+            zigZag >>>= 7;
+        }
+        data[position++] = (byte) zigZag;
+        return position;
+    }
+
+    /**
+     * @return the position after the delta in the higher 32 bits and the delta in the lower ones.
+     */
+    private static long readDelta(byte[] data, int position) {
+        var zigZag = 0;
+        var shift = 0;
+        byte b;
+        do {
+            b = data[position++];
+            zigZag |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        var delta = (zigZag >>> 1) ^ -(zigZag & 1);
+        return ((long) position << 32) | (delta & 0xFFFFFFFFL);
+    }
+}
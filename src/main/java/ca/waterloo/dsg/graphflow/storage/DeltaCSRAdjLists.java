@@ -0,0 +1,197 @@
+package ca.waterloo.dsg.graphflow.storage;
+
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
+import ca.waterloo.dsg.graphflow.storage.DeltaStore.KeyDelta;
+import ca.waterloo.dsg.graphflow.storage.DeltaStore.Layer;
+import lombok.Getter;
+import lombok.var;
+
+import java.util.Arrays;
+
+/**
+ * A view of base {@link CSRAdjLists} with the updates of a {@link DeltaStore} merged on read: the
+ * updates of the frozen layer being compacted, if any, are applied first and those of the active
+ * layer last. The adjacency lists without updates are read from the base lists as is, including
+ * their compressed form and hub bitmaps.
+ *
+ * Indices, as taken by {@link #setNeighbourIds(int, int, Neighbours)}, {@link #getStartIdx},
+ * {@link #getEndIdx} and {@link #getNeighbourId(int)}, are the indices in the base lists and
+ * ignore the updates; {@link #hasUpdates(int, short)} tells the lists to read by vertex instead.
+ */
+public class DeltaCSRAdjLists extends CSRAdjLists {
+
+    @Getter private CSRAdjLists base;
+    @Getter private Layer frozenLayer;
+    @Getter private Layer activeLayer;
+    // scratch neighbours of each thread the updated lists are merged into to intersect them.
+    private final ThreadLocal<Neighbours> mergedNeighbours = ThreadLocal.withInitial(
+        Neighbours::new);
+
+    /**
+     * Constructs a {@link DeltaCSRAdjLists} object.
+     *
+     * @param base are the base adjacency lists.
+     * @param frozenLayer are the updates being compacted, null if there are none.
+     * @param activeLayer are the updates being applied, null if there are none.
+     */
+    DeltaCSRAdjLists(CSRAdjLists base, Layer frozenLayer, Layer activeLayer) {
+        super(base.getNumLabelsOrTypes(), base.getOffsets(), base.getNeighbourIds());
+        this.base = base;
+        this.frozenLayer = frozenLayer;
+        this.activeLayer = activeLayer;
+    }
+
+    /**
+     * @see CSRAdjLists#hasUpdates(int, short)
+     */
+    @Override
+    public boolean hasUpdates(int vertexId, short labelOrType) {
+        var key = vertexId * numLabelsOrTypes + labelOrType;
+        return (null != frozenLayer && null != frozenLayer.get(key)) ||
+            (null != activeLayer && null != activeLayer.get(key));
+    }
+
+    /**
+     * @see CSRAdjLists#getNeighbourId(int)
+     */
+    @Override
+    public int getNeighbourId(int idx) {
+        return base.getNeighbourId(idx);
+    }
+
+    /**
+     * Sets the given {@link Neighbours} to the adjacency list of the vertex with the updates
+     * applied.
+     *
+     * @see CSRAdjLists#setNeighbourIds(int, short, Neighbours)
+     */
+    @Override
+    public void setNeighbourIds(int vertexId, short labelOrType, Neighbours neighbours) {
+        base.setNeighbourIds(vertexId, labelOrType, neighbours);
+        var key = vertexId * numLabelsOrTypes + labelOrType;
+        var frozenDelta = null == frozenLayer ? null : frozenLayer.get(key);
+        if (null != frozenDelta) {
+            DeltaStore.apply(frozenDelta, neighbours);
+        }
+        var activeDelta = null == activeLayer ? null : activeLayer.get(key);
+        if (null != activeDelta) {
+            DeltaStore.apply(activeDelta, neighbours);
+        }
+    }
+
+    /**
+     * @see CSRAdjLists#setNeighbourIds(int, int, Neighbours)
+     */
+    @Override
+    public void setNeighbourIds(int startIdx, int endIdx, Neighbours neighbours) {
+        base.setNeighbourIds(startIdx, endIdx, neighbours);
+    }
+
+    /**
+     * Intersects the base adjacency list of the vertex if it has no updates and its merged list
+     * otherwise.
+     *
+     * @see CSRAdjLists#intersect(int, short, Neighbours, Neighbours)
+     */
+    @Override
+    public int intersect(int vertexId, short labelOrType, Neighbours someNeighbours,
+        Neighbours neighbours) {
+        if (!hasUpdates(vertexId, labelOrType)) {
+            return base.intersect(vertexId, labelOrType, someNeighbours, neighbours);
+        }
+        var merged = mergedNeighbours.get();
+        setNeighbourIds(vertexId, labelOrType, merged);
+        SortedAdjList.intersect(someNeighbours, neighbours, merged.Ids, merged.startIdx,
+            merged.endIdx);
+        return merged.endIdx - merged.startIdx;
+    }
+
+    /**
+     * @see CSRAdjLists#size(int)
+     */
+    @Override
+    public int size(int vertexId) {
+        var size = 0;
+        for (short labelOrType = 0; labelOrType < numLabelsOrTypes; labelOrType++) {
+            size += size(vertexId, labelOrType);
+        }
+        return size;
+    }
+
+    /**
+     * @see CSRAdjLists#size(int, short)
+     */
+    @Override
+    public int size(int vertexId, short labelOrType) {
+        if (!hasUpdates(vertexId, labelOrType)) {
+            return base.size(vertexId, labelOrType);
+        }
+        var merged = mergedNeighbours.get();
+        setNeighbourIds(vertexId, labelOrType, merged);
+        return merged.endIdx - merged.startIdx;
+    }
+
+    /**
+     * @param vertexId is the ID of the vertex.
+     * @param labelOrType is the edge label or toVertex type.
+     * @param neighbourId is the ID of the neighbour to look up.
+     * @return True if the neighbour is in the adjacency list with the updates applied.
+     */
+    boolean contains(int vertexId, short labelOrType, int neighbourId) {
+        var key = vertexId * numLabelsOrTypes + labelOrType;
+        for (var layer : new Layer[] { activeLayer, frozenLayer }) {
+            var delta = null == layer ? null : layer.get(key);
+            if (null != delta && delta.isUpdated(neighbourId)) {
+                return Arrays.binarySearch(delta.insertedIds, neighbourId) >= 0;
+            }
+        }
+        var neighbours = mergedNeighbours.get();
+        base.setNeighbourIds(vertexId, labelOrType, neighbours);
+        return Arrays.binarySearch(neighbours.Ids, neighbours.startIdx, neighbours.endIdx,
+            neighbourId) >= 0;
+    }
+
+    /**
+     * @return plain {@link CSRAdjLists} holding the adjacency lists with the updates applied.
+     */
+    public CSRAdjLists merge() {
+        var numKeys = offsets.length - 1;
+        var neighbours = new Neighbours();
+        var newOffsets = new int[numKeys + 1];
+        for (var key = 0; key < numKeys; key++) {
+            var vertexId = key / numLabelsOrTypes;
+            var labelOrType = (short) (key % numLabelsOrTypes);
+            newOffsets[key + 1] = newOffsets[key] + size(vertexId, labelOrType);
+        }
+        var newNeighbourIds = new int[newOffsets[numKeys]];
+        for (var key = 0; key < numKeys; key++) {
+            setNeighbourIds(key / numLabelsOrTypes, (short) (key % numLabelsOrTypes),
+                neighbours);
+            System.arraycopy(neighbours.Ids, neighbours.startIdx, newNeighbourIds,
+                newOffsets[key], neighbours.endIdx - neighbours.startIdx);
+        }
+        return new CSRAdjLists(numLabelsOrTypes, newOffsets, newNeighbourIds);
+    }
+
+    /**
+     * @see CSRAdjLists#toSortedAdjLists()
+     */
+    @Override
+    public SortedAdjList[] toSortedAdjLists() {
+        return merge().toSortedAdjLists();
+    }
+
+    /**
+     * @see CSRAdjLists#relabel(int[], int[])
+     */
+    @Override
+    public CSRAdjLists relabel(int[] newToOldIds, int[] oldToNewIds) {
+        return merge().relabel(newToOldIds, oldToNewIds);
+    }
+
+    /**
+     * The updates are kept sorted.
+     */
+    @Override
+    void sort(int startKey, int endKey) {}
+}
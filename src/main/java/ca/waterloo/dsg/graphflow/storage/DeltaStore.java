@@ -0,0 +1,334 @@
+package ca.waterloo.dsg.graphflow.storage;
+
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
+import lombok.var;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The edges inserted into and deleted from a {@link Graph} since its adjacency lists were built.
+ * The updates are kept per adjacency list, i.e. per {@code vertexId * numLabelsOrTypes +
+ * labelOrType} key, as sorted arrays of inserted and deleted neighbour IDs in an active
+ * {@link Layer}. Readers see the updates through {@link DeltaCSRAdjLists} views merging them into
+ * the base adjacency lists on read.
+ *
+ * Once the active layer holds {@link #COMPACTION_THRESHOLD} updates it is frozen, a new active
+ * layer takes the following updates and a background thread folds the frozen layer into new base
+ * adjacency lists which then replace the base ones in the graph. The compactions, including the
+ * ones of {@link #compactNow()}, all run on that thread one at a time. The updates of a key are
+ * replaced rather than modified so readers never see a partially applied update. The views held
+ * by running queries share the active layer they started with, so the queries see the updates
+ * made after they started until that layer is frozen, but not the later updates nor the new base
+ * adjacency lists.
+ *
+ * A vertex has at most one edge of a given label to a neighbour: inserting an existing edge or
+ * deleting a missing one does nothing.
+ */
+public class DeltaStore {
+
+    private static final Logger logger = LogManager.getLogger(DeltaStore.class);
+
+    public static int COMPACTION_THRESHOLD = 1 << 16;
+
+    private final Graph graph;
+    private final int numKeys;
+    private Layer activeFwdLayer, activeBwdLayer;
+    private volatile DeltaCSRAdjLists fwdAdjLists, bwdAdjLists;
+    private final ExecutorService compactionExecutor;
+    private Future<?> compaction;
+
+    /**
+     * The updates of the adjacency lists of one direction.
+     */
+    static class Layer {
+
+        // the updates by key, replaced as a whole on each update.
+        private final ConcurrentHashMap<Integer, KeyDelta> keyToDelta = new ConcurrentHashMap<>();
+        // a bit per key set once the key has updates, to skip the map for the other keys.
+        private final AtomicLongArray isDirty;
+        private int numUpdates;
+
+        Layer(int numKeys) {
+            isDirty = new AtomicLongArray((numKeys + Long.SIZE - 1) / Long.SIZE);
+        }
+
+        /**
+         * @param key is the key of the adjacency list.
+         * @return the updates of the adjacency list, null if it has none.
+         */
+        KeyDelta get(int key) {
+            if (0 == (isDirty.get(key >>> 6) & (1L << key))) {
+                return null;
+            }
+            return keyToDelta.get(key);
+        }
+
+        private void put(int key, KeyDelta delta) {
+            keyToDelta.put(key, delta);
+            var word = isDirty.get(key >>> 6);
+            if (0 == (word & (1L << key))) {
+                isDirty.getAndAccumulate(key >>> 6, 1L << key, (a, b) -> a | b);
+            }
+            numUpdates++;
+        }
+    }
+
+    /**
+     * The sorted and disjoint neighbour IDs inserted into and deleted from an adjacency list.
+     */
+    static class KeyDelta {
+
+        final int[] insertedIds;
+        final int[] deletedIds;
+
+        KeyDelta(int[] insertedIds, int[] deletedIds) {
+            this.insertedIds = insertedIds;
+            this.deletedIds = deletedIds;
+        }
+
+        /**
+         * @return True if the neighbour ID was inserted or deleted, false otherwise.
+         */
+        boolean isUpdated(int neighbourId) {
+            return Arrays.binarySearch(insertedIds, neighbourId) >= 0 ||
+                Arrays.binarySearch(deletedIds, neighbourId) >= 0;
+        }
+
+        private static KeyDelta update(KeyDelta delta, int neighbourId, boolean isInsert) {
+            var insertedIds = null == delta ? new int[0] : delta.insertedIds;
+            var deletedIds = null == delta ? new int[0] : delta.deletedIds;
+            if (isInsert) {
+                return new KeyDelta(add(insertedIds, neighbourId), remove(deletedIds,
+                    neighbourId));
+            }
+            return new KeyDelta(remove(insertedIds, neighbourId), add(deletedIds, neighbourId));
+        }
+
+        private static int[] add(int[] ids, int id) {
+            var idx = Arrays.binarySearch(ids, id);
+            if (idx >= 0) {
+                return ids;
+            }
+            idx = -idx - 1;
+            var newIds = new int[ids.length + 1];
+            System.arraycopy(ids, 0, newIds, 0, idx);
+            newIds[idx] = id;
+            System.arraycopy(ids, idx, newIds, idx + 1, ids.length - idx);
+            return newIds;
+        }
+
+        private static int[] remove(int[] ids, int id) {
+            var idx = Arrays.binarySearch(ids, id);
+            if (idx < 0) {
+                return ids;
+            }
+            var newIds = new int[ids.length - 1];
+            System.arraycopy(ids, 0, newIds, 0, idx);
+            System.arraycopy(ids, idx + 1, newIds, idx, ids.length - idx - 1);
+            return newIds;
+        }
+    }
+
+    /**
+     * Constructs a {@link DeltaStore} object.
+     *
+     * @param graph is the graph the updates are applied to.
+     */
+    DeltaStore(Graph graph) {
+        this.graph = graph;
+        var baseFwdAdjLists = graph.getBaseAdjLists(Graph.Direction.Fwd);
+        numKeys = baseFwdAdjLists.getOffsets().length - 1;
+        activeFwdLayer = new Layer(numKeys);
+        activeBwdLayer = new Layer(numKeys);
+        fwdAdjLists = new DeltaCSRAdjLists(baseFwdAdjLists, null, activeFwdLayer);
+        bwdAdjLists = new DeltaCSRAdjLists(graph.getBaseAdjLists(Graph.Direction.Bwd), null,
+            activeBwdLayer);
+        compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "delta-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param direction is the direction of the adjacency lists.
+     * @return the adjacency lists with the updates merged on read.
+     */
+    DeltaCSRAdjLists getAdjLists(Graph.Direction direction) {
+        return Graph.Direction.Fwd == direction ? fwdAdjLists : bwdAdjLists;
+    }
+
+    /**
+     * @return True if edges were updated since the adjacency lists were last compacted.
+     */
+    synchronized boolean hasUpdates() {
+        return null != fwdAdjLists.getFrozenLayer() || activeFwdLayer.numUpdates > 0;
+    }
+
+    /**
+     * Inserts or deletes an edge.
+     *
+     * @param fromVertex is the ID of the from vertex.
+     * @param toVertex is the ID of the to vertex.
+     * @param fwdLabelOrType is the edge label or the to vertex type keying the forward list.
+     * @param bwdLabelOrType is the edge label or the from vertex type keying the backward list.
+     * @param isInsert is true to insert the edge and false to delete it.
+     * @return True if the graph changed, false if the edge already existed or did not exist.
+     */
+    synchronized boolean update(int fromVertex, int toVertex, short fwdLabelOrType,
+        short bwdLabelOrType, boolean isInsert) {
+        if (fwdAdjLists.contains(fromVertex, fwdLabelOrType, toVertex) == isInsert) {
+            return false;
+        }
+        var numLabelsOrTypes = fwdAdjLists.getNumLabelsOrTypes();
+        var fwdKey = fromVertex * numLabelsOrTypes + fwdLabelOrType;
+        activeFwdLayer.put(fwdKey, KeyDelta.update(activeFwdLayer.get(fwdKey), toVertex,
+            isInsert));
+        var bwdKey = toVertex * numLabelsOrTypes + bwdLabelOrType;
+        activeBwdLayer.put(bwdKey, KeyDelta.update(activeBwdLayer.get(bwdKey), fromVertex,
+            isInsert));
+        if (activeFwdLayer.numUpdates >= COMPACTION_THRESHOLD &&
+                (null == compaction || compaction.isDone())) {
+            compaction = compactionExecutor.submit(this::compact);
+        }
+        return true;
+    }
+
+    /**
+     * Folds all updates into new base adjacency lists on the compaction thread, after the running
+     * compaction if any, and waits for it.
+     */
+    void compactNow() {
+        Future<?> runningCompaction, compactionNow;
+        synchronized (this) {
+            runningCompaction = compaction;
+            compactionNow = compactionExecutor.submit(this::compact);
+            compaction = compactionNow;
+        }
+        if (null != runningCompaction) {
+            await(runningCompaction);
+        }
+        await(compactionNow);
+    }
+
+    private static void await(Future<?> compaction) {
+        try {
+            compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the compaction.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The compaction failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Stops the compaction thread. The updates should be folded by {@link #compactNow()} first.
+     */
+    void close() {
+        compactionExecutor.shutdown();
+    }
+
+    /**
+     * Freezes the active layers, folds them into new base adjacency lists and publishes them. Only
+     * runs on the compaction thread so the base adjacency lists frozen against are the last ones
+     * published.
+     */
+    private void compact() {
+        DeltaCSRAdjLists frozenFwdAdjLists, frozenBwdAdjLists;
+        synchronized (this) {
+            if (0 == activeFwdLayer.numUpdates) {
+                return;
+            }
+            frozenFwdAdjLists = new DeltaCSRAdjLists(fwdAdjLists.getBase(), activeFwdLayer, null);
+            frozenBwdAdjLists = new DeltaCSRAdjLists(bwdAdjLists.getBase(), activeBwdLayer, null);
+            activeFwdLayer = new Layer(numKeys);
+            activeBwdLayer = new Layer(numKeys);
+            fwdAdjLists = new DeltaCSRAdjLists(fwdAdjLists.getBase(), frozenFwdAdjLists.
+                getFrozenLayer(), activeFwdLayer);
+            bwdAdjLists = new DeltaCSRAdjLists(bwdAdjLists.getBase(), frozenBwdAdjLists.
+                getFrozenLayer(), activeBwdLayer);
+        }
+        var startTime = System.nanoTime();
+        var numUpdates = frozenFwdAdjLists.getFrozenLayer().numUpdates;
+        var newFwdBase = fold(frozenFwdAdjLists);
+        var newBwdBase = fold(frozenBwdAdjLists);
+        synchronized (this) {
+            fwdAdjLists = new DeltaCSRAdjLists(newFwdBase, null, activeFwdLayer);
+            bwdAdjLists = new DeltaCSRAdjLists(newBwdBase, null, activeBwdLayer);
+            graph.setBaseAdjLists(newFwdBase, newBwdBase);
+        }
+        logger.info(String.format("Compacted %d edge updates in %.2f ms.", numUpdates,
+            (System.nanoTime() - startTime) / 1000000.0));
+    }
+
+    /**
+     * @return new base adjacency lists in the format of the current ones with the updates folded.
+     */
+    private static CSRAdjLists fold(DeltaCSRAdjLists adjLists) {
+        var base = adjLists.getBase();
+        var folded = adjLists.merge();
+        var hubBitmaps = base.getHubBitmaps();
+        if (null != hubBitmaps) {
+            // rebuild the bitmaps for lists at least as large as the smallest hub list.
+            var degreeThreshold = Integer.MAX_VALUE;
+            var offsets = base.getOffsets();
+            for (var hubKey : hubBitmaps.getHubKeys()) {
+                degreeThreshold = Math.min(degreeThreshold, offsets[hubKey + 1] -
+                    offsets[hubKey]);
+            }
+            folded.setHubBitmaps(HubBitmaps.make(folded, degreeThreshold));
+        }
+        return base instanceof CompressedCSRAdjLists ? CompressedCSRAdjLists.make(folded) :
+            folded;
+    }
+
+    /**
+     * Sets the given {@link Neighbours} to the neighbour IDs in the given ones with the updates
+     * applied, in one of the buffers of the {@link Neighbours} other than its current IDs.
+     *
+     * @param delta are the updates of the adjacency list.
+     * @param neighbours are the neighbours to apply the updates to.
+     */
+    static void apply(KeyDelta delta, Neighbours neighbours) {
+        var ids = neighbours.Ids;
+        var idx = neighbours.startIdx;
+        var endIdx = neighbours.endIdx;
+        var insertedIds = delta.insertedIds;
+        var deletedIds = delta.deletedIds;
+        var outIds = neighbours.getOtherBuffer(endIdx - idx + insertedIds.length);
+        var outIdx = 0;
+        var insertedIdx = 0;
+        var deletedIdx = 0;
+        for (; idx < endIdx; idx++) {
+            var id = ids[idx];
+            while (insertedIdx < insertedIds.length && insertedIds[insertedIdx] < id) {
+                outIds[outIdx++] = insertedIds[insertedIdx++];
+            }
+            while (deletedIdx < deletedIds.length && deletedIds[deletedIdx] < id) {
+                deletedIdx++;
+            }
+            // the inserted IDs are output once, with the other inserted IDs.
+            if ((insertedIdx < insertedIds.length && insertedIds[insertedIdx] == id) ||
+                (deletedIdx < deletedIds.length && deletedIds[deletedIdx] == id)) {
+                continue;
+            }
+            outIds[outIdx++] = id;
+        }
+        while (insertedIdx < insertedIds.length) {
+            outIds[outIdx++] = insertedIds[insertedIdx++];
+        }
+        neighbours.Ids = outIds;
+        neighbours.startIdx = 0;
+        neighbours.endIdx = outIdx;
+        neighbours.hubIdx = -1;
+    }
+}
@@ -1,6 +1,7 @@
 package ca.waterloo.dsg.graphflow.storage;
 
-import ca.waterloo.dsg.graphflow.util.IOUtils;
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
+import ca.waterloo.dsg.graphflow.util.Lazy;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.var;
@@ -8,8 +9,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * The input graph data stored.
@@ -18,6 +18,11 @@ public class Graph {
 
     private static final Logger logger = LogManager.getLogger(Graph.class);
 
+    // The smallest adjacency list size bitmaps are built for when the threshold is chosen from the
+    // degree distribution and the largest fraction of the non-empty adjacency lists they cover.
+    public static int MIN_HUB_DEGREE = 1024;
+    public static double MAX_HUB_LISTS_FRACTION = 0.001;
+
     /**
      * Used to identify the edge direction in the graph representation.
      */
@@ -31,19 +36,39 @@ public class Graph {
     @Getter @Setter private short[] vertexTypes;
     @Getter @Setter private int[] vertexTypeOffsets;
     // Adjacency lists containing the neighbour vertex IDs sorted by ID.
-    @Getter @Setter private SortedAdjList[] fwdAdjLists;
-    @Getter @Setter private SortedAdjList[] bwdAdjLists;
+    @Setter private CSRAdjLists fwdCSRAdjLists;
+    @Setter private volatile CSRAdjLists bwdCSRAdjLists;
+    // Loads the backward adjacency lists on first access if they are not set.
+    @Setter private Lazy<CSRAdjLists> bwdCSRAdjListsLoader;
+    // The edges inserted and deleted since the adjacency lists were built, null if there are none.
+    private DeltaStore deltaStore;
+    // Per vertex adjacency lists materialized from the CSR adjacency lists on first access.
+    private SortedAdjList[] fwdAdjLists;
+    private SortedAdjList[] bwdAdjLists;
     // Graph metadata.
     @Getter @Setter private int highestVertexId = -1;
     @Getter @Setter private int numEdges;
-    @Setter private int[] labelOrToTypeToNumEdges;
-    @Setter private int[] labelOrTypeToLargestFwdAdjListSize;
-    @Setter private int[] labelOrTypeToLargestBwdAdjListSize;
-    @Getter @Setter private Map<Long, Integer> edgeKeyToNumEdgesMap;
-    @Getter @Setter private Map<Integer, Integer> labelAndToTypeToPercentageMap;
-    @Getter @Setter private Map<Integer, Integer> fromTypeAndLabelToPercentageMap;
+    @Getter @Setter private int[] labelOrToTypeToNumEdges;
+    @Getter @Setter private int[] labelOrTypeToLargestFwdAdjListSize;
+    @Getter @Setter private int[] labelOrTypeToLargestBwdAdjListSize;
+    // Number of edges by (fromType, label, toType) indexed by getEdgeIdx and summed over toTypes
+    // by (fromType, label) and over fromTypes by (label, toType) in row-major order.
+    @Getter private int numTypes;
+    @Getter private int numLabels;
+    @Getter private int[] edgeIdxToNumEdges;
+    private int[] fromTypeAndLabelToNumEdges;
+    private int[] labelAndToTypeToNumEdges;
     @Getter @Setter private boolean isUndirected;
     @Getter @Setter private boolean isAdjListSortedByType;
+    // Adjacency list size above which bitmaps pay off, chosen from the degree distribution.
+    @Getter private int hubDegreeThreshold = Integer.MAX_VALUE;
+    // The IDs of the vertices in the input files by vertex ID, null if the vertices were not
+    // relabelled.
+    @Getter @Setter private int[] originalVertexIds;
+    // The k-hop relations materialized by the jumps, read on first access if they were written
+    // next to the serialized graph.
+    private KHopRelationCache kHopRelationCache;
+    @Setter private Lazy<KHopRelationCache> kHopRelationCacheLoader;
 
     /**
      * Constructs a {@link Graph} object.
@@ -53,16 +78,306 @@ public class Graph {
     /**
      * Constructs a {@link Graph} object.
      *
-     * @param fwdAdjLists are the forward adjacency lists.
-     * @param bwdAdjLists are the backward adjacency lists.
+     * @param fwdCSRAdjLists are the forward adjacency lists.
+     * @param bwdCSRAdjLists are the backward adjacency lists.
      * @param highestVertexId is the highest vertex ID.
      */
-    public Graph(SortedAdjList[] fwdAdjLists, SortedAdjList[] bwdAdjLists, int highestVertexId) {
-        this.fwdAdjLists = fwdAdjLists;
-        this.bwdAdjLists = bwdAdjLists;
+    public Graph(CSRAdjLists fwdCSRAdjLists, CSRAdjLists bwdCSRAdjLists, int highestVertexId) {
+        this.fwdCSRAdjLists = fwdCSRAdjLists;
+        this.bwdCSRAdjLists = bwdCSRAdjLists;
         this.highestVertexId = highestVertexId;
     }
 
+    /**
+     * @param direction is the direction of extension as forward or backward.
+     * @return The adjacency lists in the given direction.
+     */
+    public CSRAdjLists getAdjLists(Direction direction) {
+        return Direction.Fwd == direction ? getFwdCSRAdjLists() : getBwdCSRAdjLists();
+    }
+
+    /**
+     * @return The forward adjacency lists with the inserted and deleted edges, if any, merged on
+     * read.
+     */
+    public CSRAdjLists getFwdCSRAdjLists() {
+        return null == deltaStore ? fwdCSRAdjLists : deltaStore.getAdjLists(Direction.Fwd);
+    }
+
+    /**
+     * @return The backward adjacency lists with the inserted and deleted edges, if any, merged on
+     * read.
+     */
+    public CSRAdjLists getBwdCSRAdjLists() {
+        return null == deltaStore ? loadBwdCSRAdjLists() : deltaStore.getAdjLists(Direction.Bwd);
+    }
+
+    /**
+     * @param direction is the direction of extension as forward or backward.
+     * @return The adjacency lists in the given direction without the inserted and deleted edges.
+     */
+    CSRAdjLists getBaseAdjLists(Direction direction) {
+        return Direction.Fwd == direction ? fwdCSRAdjLists : loadBwdCSRAdjLists();
+    }
+
+    /**
+     * @return The k-hop relations materialized by the jumps over the graph.
+     */
+    public synchronized KHopRelationCache getKHopRelationCache() {
+        if (null == kHopRelationCache) {
+            kHopRelationCache = null != kHopRelationCacheLoader ? kHopRelationCacheLoader.get() :
+                new KHopRelationCache();
+        }
+        return kHopRelationCache;
+    }
+
+    /**
+     * Writes the k-hop relations materialized by the jumps next to the serialized graph.
+     *
+     * @param directoryPath is the directory of the serialized graph.
+     * @throws IOException if stream to file cannot be written to or closed.
+     */
+    public void serializeKHopRelations(String directoryPath) throws IOException {
+        getKHopRelationCache().serialize(directoryPath, highestVertexId, numEdges);
+    }
+
+    /**
+     * Drops the k-hop relations, which are not read if they were not yet, once the edges change.
+     */
+    private synchronized void clearKHopRelations() {
+        kHopRelationCacheLoader = null;
+        if (null != kHopRelationCache) {
+            kHopRelationCache.clear();
+        }
+    }
+
+    private CSRAdjLists loadBwdCSRAdjLists() {
+        if (null == bwdCSRAdjLists && null != bwdCSRAdjListsLoader) {
+            bwdCSRAdjLists = bwdCSRAdjListsLoader.get();
+        }
+        return bwdCSRAdjLists;
+    }
+
+    /**
+     * Replaces the adjacency lists once the {@link DeltaStore} folded its updates into them.
+     *
+     * @param fwdCSRAdjLists are the new forward adjacency lists.
+     * @param bwdCSRAdjLists are the new backward adjacency lists.
+     */
+    void setBaseAdjLists(CSRAdjLists fwdCSRAdjLists, CSRAdjLists bwdCSRAdjLists) {
+        this.fwdCSRAdjLists = fwdCSRAdjLists;
+        this.bwdCSRAdjLists = bwdCSRAdjLists;
+    }
+
+    /**
+     * Inserts an edge. The edge is visible to the queries started after the insertion.
+     *
+     * @param fromVertex is the ID of the from vertex.
+     * @param toVertex is the ID of the to vertex.
+     * @param label is the edge label.
+     * @return True if the edge was inserted, false if it already existed.
+     */
+    public boolean insertEdge(int fromVertex, int toVertex, short label) {
+        return updateEdge(fromVertex, toVertex, label, true /* isInsert */);
+    }
+
+    /**
+     * Deletes an edge. The edge is not visible to the queries started after the deletion.
+     *
+     * @param fromVertex is the ID of the from vertex.
+     * @param toVertex is the ID of the to vertex.
+     * @param label is the edge label.
+     * @return True if the edge was deleted, false if it did not exist.
+     */
+    public boolean deleteEdge(int fromVertex, int toVertex, short label) {
+        return updateEdge(fromVertex, toVertex, label, false /* isInsert */);
+    }
+
+    private synchronized boolean updateEdge(int fromVertex, int toVertex, short label,
+        boolean isInsert) {
+        if (fromVertex < 0 || fromVertex > highestVertexId || toVertex < 0 ||
+                toVertex > highestVertexId) {
+            throw new IllegalArgumentException("The edge should be between existing vertices.");
+        }
+        if (label < 0 || label >= numLabels) {
+            throw new IllegalArgumentException("The edge label " + label + " does not exist.");
+        }
+        var fromType = vertexTypes[fromVertex];
+        var toType = vertexTypes[toVertex];
+        var fwdLabelOrType = isAdjListSortedByType ? toType : label;
+        var bwdLabelOrType = isAdjListSortedByType ? fromType : label;
+        if (null == deltaStore) {
+            deltaStore = new DeltaStore(this);
+        }
+        if (!deltaStore.update(fromVertex, toVertex, fwdLabelOrType, bwdLabelOrType,
+                isInsert)) {
+            return false;
+        }
+        var delta = isInsert ? 1 : -1;
+        numEdges += delta;
+        labelOrToTypeToNumEdges[fwdLabelOrType] += delta;
+        edgeIdxToNumEdges[getEdgeIdx(fromType, toType, label)] += delta;
+        fromTypeAndLabelToNumEdges[fromType * numLabels + label] += delta;
+        labelAndToTypeToNumEdges[label * numTypes + toType] += delta;
+        if (isInsert) {
+            // the largest sizes are upper bounds and are not lowered on deletions.
+            labelOrTypeToLargestFwdAdjListSize[fwdLabelOrType] = Math.max(
+                labelOrTypeToLargestFwdAdjListSize[fwdLabelOrType],
+                deltaStore.getAdjLists(Direction.Fwd).size(fromVertex, fwdLabelOrType));
+            labelOrTypeToLargestBwdAdjListSize[bwdLabelOrType] = Math.max(
+                labelOrTypeToLargestBwdAdjListSize[bwdLabelOrType],
+                deltaStore.getAdjLists(Direction.Bwd).size(toVertex, bwdLabelOrType));
+        }
+        fwdAdjLists = null;
+        bwdAdjLists = null;
+        clearKHopRelations();
+        return true;
+    }
+
+    /**
+     * Folds the inserted and deleted edges into the adjacency lists, waiting for a background
+     * compaction if one is running.
+     */
+    public void compactDeltas() {
+        if (null != deltaStore) {
+            deltaStore.compactNow();
+        }
+    }
+
+    /**
+     * Folds the inserted and deleted edges into the adjacency lists and drops the
+     * {@link DeltaStore} before the adjacency lists are rebuilt or written.
+     */
+    private synchronized void foldDeltas() {
+        if (null != deltaStore) {
+            deltaStore.compactNow();
+            deltaStore.close();
+            deltaStore = null;
+        }
+    }
+
+    /**
+     * @return The forward adjacency lists as one {@link SortedAdjList} per vertex. The lists are
+     * copied out of the CSR adjacency lists on first access.
+     */
+    public SortedAdjList[] getFwdAdjLists() {
+        if (null == fwdAdjLists) {
+            fwdAdjLists = getFwdCSRAdjLists().toSortedAdjLists();
+        }
+        return fwdAdjLists;
+    }
+
+    /**
+     * @return The backward adjacency lists as one {@link SortedAdjList} per vertex. The lists are
+     * copied out of the CSR adjacency lists on first access.
+     */
+    public SortedAdjList[] getBwdAdjLists() {
+        if (null == bwdAdjLists) {
+            bwdAdjLists = getBwdCSRAdjLists().toSortedAdjLists();
+        }
+        return bwdAdjLists;
+    }
+
+    /**
+     * Replaces the adjacency lists in both directions with {@link CompressedCSRAdjLists}.
+     */
+    public void compressAdjLists() {
+        foldDeltas();
+        loadBwdCSRAdjLists();
+        if (!(fwdCSRAdjLists instanceof CompressedCSRAdjLists)) {
+            fwdCSRAdjLists = CompressedCSRAdjLists.make(fwdCSRAdjLists);
+            bwdCSRAdjLists = CompressedCSRAdjLists.make(bwdCSRAdjLists);
+        }
+    }
+
+    /**
+     * Relabels the vertices, rebuilding the adjacency lists and the vertex IDs and types, and
+     * keeps the mapping to the vertex IDs in the input files. The edge counts and largest
+     * adjacency list sizes do not depend on the vertex IDs.
+     *
+     * @param newToOldIds is the permutation from the new vertex IDs to the current ones.
+     */
+    public void relabelVertices(int[] newToOldIds) {
+        foldDeltas();
+        loadBwdCSRAdjLists();
+        if (isAdjListCompressed() || hasHubBitmaps()) {
+            throw new IllegalArgumentException("The vertices should be relabelled before the " +
+                "adjacency lists are compressed or their bitmaps are built.");
+        }
+        var numVertices = highestVertexId + 1;
+        if (newToOldIds.length != numVertices) {
+            throw new IllegalArgumentException("The permutation has " + newToOldIds.length +
+                " vertices instead of " + numVertices + ".");
+        }
+        var oldToNewIds = new int[numVertices];
+        for (var newVertexId = 0; newVertexId < numVertices; newVertexId++) {
+            oldToNewIds[newToOldIds[newVertexId]] = newVertexId;
+        }
+        fwdCSRAdjLists = fwdCSRAdjLists.relabel(newToOldIds, oldToNewIds);
+        bwdCSRAdjLists = bwdCSRAdjLists.relabel(newToOldIds, oldToNewIds);
+        fwdAdjLists = null;
+        bwdAdjLists = null;
+        clearKHopRelations();
+        var newVertexTypes = new short[numVertices];
+        var newOriginalVertexIds = new int[numVertices];
+        for (var newVertexId = 0; newVertexId < numVertices; newVertexId++) {
+            var oldVertexId = newToOldIds[newVertexId];
+            newVertexTypes[newVertexId] = vertexTypes[oldVertexId];
+            newOriginalVertexIds[newVertexId] = null == originalVertexIds ? oldVertexId :
+                originalVertexIds[oldVertexId];
+        }
+        vertexTypes = newVertexTypes;
+        originalVertexIds = newOriginalVertexIds;
+        // the vertices of each type are scanned by ascending ID.
+        for (var i = 0; i < vertexIds.length; i++) {
+            vertexIds[i] = oldToNewIds[vertexIds[i]];
+        }
+        for (var type = 0; type < vertexTypeOffsets.length - 1; type++) {
+            Arrays.sort(vertexIds, vertexTypeOffsets[type], vertexTypeOffsets[type + 1]);
+        }
+    }
+
+    /**
+     * @param vertexId is the ID of the vertex.
+     * @return the ID of the vertex in the input files.
+     */
+    public int getOriginalVertexId(int vertexId) {
+        return null == originalVertexIds ? vertexId : originalVertexIds[vertexId];
+    }
+
+    /**
+     * @return True if the adjacency lists are compressed, false otherwise.
+     */
+    public boolean isAdjListCompressed() {
+        return fwdCSRAdjLists instanceof CompressedCSRAdjLists;
+    }
+
+    /**
+     * Builds the {@link HubBitmaps} of the adjacency lists in both directions with at least the
+     * given number of neighbours.
+     *
+     * @param degreeThreshold is the smallest size of an adjacency list to build a bitmap for.
+     */
+    public void buildHubBitmaps(int degreeThreshold) {
+        if (degreeThreshold < 1) {
+            throw new IllegalArgumentException("The hub degree threshold should be positive.");
+        }
+        foldDeltas();
+        loadBwdCSRAdjLists();
+        fwdCSRAdjLists.setHubBitmaps(HubBitmaps.make(fwdCSRAdjLists, degreeThreshold));
+        bwdCSRAdjLists.setHubBitmaps(HubBitmaps.make(bwdCSRAdjLists, degreeThreshold));
+        logger.info(String.format("Built the bitmaps of %d forward and %d backward adjacency " +
+            "lists with at least %d neighbours.", fwdCSRAdjLists.getHubBitmaps().getNumHubs(),
+            bwdCSRAdjLists.getHubBitmaps().getNumHubs(), degreeThreshold));
+    }
+
+    /**
+     * @return True if the adjacency lists of the hubs have bitmaps, false otherwise.
+     */
+    public boolean hasHubBitmaps() {
+        return null != fwdCSRAdjLists.getHubBitmaps();
+    }
+
     /**
      * @param fromType is the from query vertex type.
      * @param toType is the to query vertex type.
@@ -73,11 +388,51 @@ public class Graph {
         if (fromType == KeyStore.ANY && toType == KeyStore.ANY) {
             return labelOrToTypeToNumEdges[label];
         } else if (fromType != KeyStore.ANY && toType != KeyStore.ANY) {
-            return edgeKeyToNumEdgesMap.get(getEdgeKey(fromType, toType, label));
+            return edgeIdxToNumEdges[getEdgeIdx(fromType, toType, label)];
         } else if (fromType != KeyStore.ANY) {
-            return fromTypeAndLabelToPercentageMap.get(getEdgeKey(fromType, label));
+            return fromTypeAndLabelToNumEdges[fromType * numLabels + label];
+        }
+        return labelAndToTypeToNumEdges[label * numTypes + toType];
+    }
+
+    /**
+     * @param fromType is the from query vertex type.
+     * @param toType is the to query vertex type.
+     * @param label is the edge label.
+     * @return the index of the edge in the number of edges by (fromType, label, toType).
+     */
+    public int getEdgeIdx(short fromType, short toType, short label) {
+        return (fromType * numLabels + label) * numTypes + toType;
+    }
+
+    /**
+     * Sets the number of edges by (fromType, label, toType) and sums them by (fromType, label)
+     * and by (label, toType).
+     *
+     * @param numTypes is the number of vertex types.
+     * @param numLabels is the number of edge labels.
+     * @param edgeIdxToNumEdges is the number of edges indexed by {@link #getEdgeIdx}.
+     */
+    public void setEdgeCounts(int numTypes, int numLabels, int[] edgeIdxToNumEdges) {
+        if (edgeIdxToNumEdges.length != numTypes * numLabels * numTypes) {
+            throw new IllegalArgumentException("The edge counts should have numTypes * " +
+                "numLabels * numTypes entries.");
+        }
+        this.numTypes = numTypes;
+        this.numLabels = numLabels;
+        this.edgeIdxToNumEdges = edgeIdxToNumEdges;
+        fromTypeAndLabelToNumEdges = new int[numTypes * numLabels];
+        labelAndToTypeToNumEdges = new int[numLabels * numTypes];
+        for (var fromType = 0; fromType < numTypes; fromType++) {
+            for (var label = 0; label < numLabels; label++) {
+                for (var toType = 0; toType < numTypes; toType++) {
+                    var numEdges = edgeIdxToNumEdges[(fromType * numLabels + label) * numTypes +
+                        toType];
+                    fromTypeAndLabelToNumEdges[fromType * numLabels + label] += numEdges;
+                    labelAndToTypeToNumEdges[label * numTypes + toType] += numEdges;
+                }
+            }
         }
-        return labelAndToTypeToPercentageMap.get(getEdgeKey(label, toType));
     }
 
     /**
@@ -105,70 +460,80 @@ public class Graph {
         labelOrToTypeToNumEdges = new int[numLabelsOrToTypes];
         labelOrTypeToLargestFwdAdjListSize = new int[numLabelsOrToTypes];
         labelOrTypeToLargestBwdAdjListSize = new int[numLabelsOrToTypes];
+        // number of non-empty adjacency lists by the floor of the log2 of their size.
+        var adjListSizeHistogram = new long[Integer.SIZE];
         for (var vertexId = 0; vertexId <= highestVertexId; vertexId++) {
-            numEdges += fwdAdjLists[vertexId].size();
+            numEdges += fwdCSRAdjLists.size(vertexId);
             for (short labelOrToType = 0; labelOrToType < numLabelsOrToTypes; labelOrToType++) {
-                var adjListSize = fwdAdjLists[vertexId].size(labelOrToType);
+                var adjListSize = fwdCSRAdjLists.size(vertexId, labelOrToType);
+                adjListSizeHistogram[31 - Integer.numberOfLeadingZeros(adjListSize | 1)] +=
+                    adjListSize > 0 ? 1 : 0;
                 labelOrToTypeToNumEdges[labelOrToType] += adjListSize;
                 if (adjListSize > labelOrTypeToLargestFwdAdjListSize[labelOrToType]) {
                     labelOrTypeToLargestFwdAdjListSize[labelOrToType] = adjListSize;
                 }
             }
             for (short labelOrToType = 0; labelOrToType < numLabelsOrToTypes; labelOrToType++) {
-                var adjListSize = bwdAdjLists[vertexId].size(labelOrToType);
+                var adjListSize = bwdCSRAdjLists.size(vertexId, labelOrToType);
+                adjListSizeHistogram[31 - Integer.numberOfLeadingZeros(adjListSize | 1)] +=
+                    adjListSize > 0 ? 1 : 0;
                 if (adjListSize > labelOrTypeToLargestBwdAdjListSize[labelOrToType]) {
                     labelOrTypeToLargestBwdAdjListSize[labelOrToType] = adjListSize;
                 }
             }
         }
-        // Set the edge keys (fromType-label-toType), (fromType-label), and (label-toType) to
-        // the percentage of number of edges.
-        edgeKeyToNumEdgesMap = new HashMap<>();
-        labelAndToTypeToPercentageMap = new HashMap<>();
-        fromTypeAndLabelToPercentageMap = new HashMap<>();
+        setHubDegreeThreshold(adjListSizeHistogram);
+        // Count the edges by (fromType, label, toType).
+        var numTypes = store.getNextTypeKey();
+        var numLabels = store.getNextLabelKey();
+        var edgeIdxToNumEdges = new int[numTypes * numLabels * numTypes];
         var numVertices = highestVertexId + 1;
-        for (short fromType = 0; fromType < store.getNextTypeKey(); fromType++) {
-            for (short toType = 0; toType < store.getNextTypeKey(); toType++) {
-                for (short label = 0; label < store.getNextLabelKey(); label++) {
-                    var edge = getEdgeKey(fromType, toType, label);
-                    edgeKeyToNumEdgesMap.putIfAbsent(edge, 0);
-                    var labelAndToType = getEdgeKey(label, toType);
-                    labelAndToTypeToPercentageMap.putIfAbsent(labelAndToType, 0);
-                    var fromTypeAndLabel = getEdgeKey(fromType, label);
-                    fromTypeAndLabelToPercentageMap.putIfAbsent(fromTypeAndLabel, 0);
-                }
-            }
-        }
+        var neighbours = new Neighbours();
         for (var fromVertex = 0; fromVertex < numVertices; fromVertex++) {
             var fromType = vertexTypes[fromVertex];
-            var offsets = fwdAdjLists[fromVertex].getLabelOrTypeOffsets();
             if (isAdjListSortedByType) {
-                short label = 0;
-                for (short toType = 0; toType < offsets.length - 1; toType++) {
-                    var numEdges = offsets[toType + 1] - offsets[toType];
-                    addEdgeCount(fromType, toType, label, numEdges);
+                for (var toType = 0; toType < numLabelsOrToTypes; toType++) {
+                    edgeIdxToNumEdges[fromType * numTypes + toType] += fwdCSRAdjLists.size(
+                        fromVertex, (short) toType);
                 }
             } else {
-                var neighbours = fwdAdjLists[fromVertex].getNeighbourIds();
-                for (short label = 0; label < offsets.length - 1; label++) {
-                    for (var toIdx = offsets[label]; toIdx < offsets[label + 1]; toIdx++) {
-                        var toType = vertexTypes[neighbours[toIdx]];
-                        addEdgeCount(fromType, toType, label, 1);
+                for (short label = 0; label < numLabelsOrToTypes; label++) {
+                    fwdCSRAdjLists.setNeighbourIds(fromVertex, label, neighbours);
+                    var edgeIdx = (fromType * numLabels + label) * numTypes;
+                    for (var toIdx = neighbours.startIdx; toIdx < neighbours.endIdx; toIdx++) {
+                        edgeIdxToNumEdges[edgeIdx + vertexTypes[neighbours.Ids[toIdx]]]++;
                     }
                 }
             }
         }
+        setEdgeCounts(numTypes, numLabels, edgeIdxToNumEdges);
     }
 
-    private void addEdgeCount(short fromType, short toType, short label, int numEdges) {
-        var edge = getEdgeKey(fromType, toType, label);
-        edgeKeyToNumEdgesMap.put(edge, edgeKeyToNumEdgesMap.get(edge) + numEdges);
-        var labelAndToType = getEdgeKey(label, toType);
-        labelAndToTypeToPercentageMap.put(labelAndToType,
-            labelAndToTypeToPercentageMap.get(labelAndToType) + numEdges);
-        var fromTypeAndLabel = getEdgeKey(fromType, label);
-        fromTypeAndLabelToPercentageMap.put(fromTypeAndLabel,
-            fromTypeAndLabelToPercentageMap.get(fromTypeAndLabel) + numEdges);
+    /**
+     * Sets the hub degree threshold to the smallest power of two of at least
+     * {@link #MIN_HUB_DEGREE} such that the adjacency lists as large as it are at most
+     * {@link #MAX_HUB_LISTS_FRACTION} of the non-empty adjacency lists.
+     */
+    private void setHubDegreeThreshold(long[] adjListSizeHistogram) {
+        var numAdjLists = 0L;
+        for (var numAdjListsOfSize : adjListSizeHistogram) {
+            numAdjLists += numAdjListsOfSize;
+        }
+        var minBucket = 31 - Integer.numberOfLeadingZeros(Math.max(MIN_HUB_DEGREE, 1));
+        if (Integer.bitCount(MIN_HUB_DEGREE) > 1) {
+            minBucket++; /* round the minimum degree up to a power of two */
+        }
+        var numHubAdjLists = 0L;
+        hubDegreeThreshold = Integer.MAX_VALUE;
+        for (var bucket = adjListSizeHistogram.length - 1; bucket >= minBucket; bucket--) {
+            numHubAdjLists += adjListSizeHistogram[bucket];
+            if (numHubAdjLists > MAX_HUB_LISTS_FRACTION * numAdjLists) {
+                break;
+            }
+            if (adjListSizeHistogram[bucket] > 0) {
+                hubDegreeThreshold = 1 << bucket;
+            }
+        }
     }
 
     /**
@@ -184,40 +549,68 @@ public class Graph {
     }
 
     /**
-     * @param typeOrLabel is the from query vertex type.
-     * @param typeOrLabel2 is the to query vertex type.
-     * @return the edge key.
-     */
-    private int getEdgeKey(short typeOrLabel, short typeOrLabel2) {
-        return ((typeOrLabel  & 0x0000FFFF) << 16) |
-               ((typeOrLabel2 & 0xFFFF    )      ) ;
-    }
-
-    /**
-     * Serializes the graph by persisting different fields into different files.
+     * Serializes the graph into a single versioned binary file, see {@link GraphFile}.
      *
-     * @param directoryPath is the directory to which the graph's serialized objects are persisted.
+     * @param directoryPath is the directory to which the graph's binary file is persisted.
      * @throws IOException if stream to file cannot be written to or closed.
      */
     public void serialize(String directoryPath) throws IOException {
+        foldDeltas();
+        loadBwdCSRAdjLists();
         logger.info("Serializing the data graph.");
-        IOUtils.serializeObjs(directoryPath, new Object[] {
-            /* <filename , field to serialize> pair */
-            "vertexIds", vertexIds,
-            "vertexTypes", vertexTypes,
-            "vertexTypeOffsets", vertexTypeOffsets,
-            "highestVertexId", highestVertexId,
-            "fwdAdjLists", fwdAdjLists,
-            "bwdAdjLists", bwdAdjLists,
-            "numEdges", numEdges,
-            "isAdjListSortedByType", isAdjListSortedByType,
-            "labelOrToTypeToNumEdges", labelOrToTypeToNumEdges,
-            "labelOrTypeToLargestFwdAdjListSize", labelOrTypeToLargestFwdAdjListSize,
-            "labelOrTypeToLargestBwdAdjListSize", labelOrTypeToLargestBwdAdjListSize,
-            "edgeKeyToNumEdgesMap", edgeKeyToNumEdgesMap,
-            "labelAndToTypeToPercentageMap", labelAndToTypeToPercentageMap,
-            "fromTypeAndLabelToPercentageMap", fromTypeAndLabelToPercentageMap,
-            "isUndirected", isUndirected
-        });
+        var writer = new GraphFile.Writer();
+        writer.add(GraphFile.VERTEX_IDS, vertexIds);
+        writer.add(GraphFile.VERTEX_TYPES, vertexTypes);
+        writer.add(GraphFile.VERTEX_TYPE_OFFSETS, vertexTypeOffsets);
+        var isCompressed = isAdjListCompressed();
+        writer.add(GraphFile.FWD_OFFSETS, fwdCSRAdjLists.getOffsets());
+        if (isCompressed) {
+            var fwdCompressedAdjLists = (CompressedCSRAdjLists) fwdCSRAdjLists;
+            writer.add(GraphFile.FWD_BLOCK_FIRST_IDS, fwdCompressedAdjLists.getBlockFirstIds());
+            writer.add(GraphFile.FWD_BLOCK_OFFSETS, fwdCompressedAdjLists.getBlockOffsets());
+            writer.add(GraphFile.FWD_BLOCK_DATA, fwdCompressedAdjLists.getData());
+        } else {
+            writer.add(GraphFile.FWD_NEIGHBOUR_IDS, fwdCSRAdjLists.getNeighbourIds());
+        }
+        writer.add(GraphFile.BWD_OFFSETS, bwdCSRAdjLists.getOffsets());
+        if (isCompressed) {
+            var bwdCompressedAdjLists = (CompressedCSRAdjLists) bwdCSRAdjLists;
+            writer.add(GraphFile.BWD_BLOCK_FIRST_IDS, bwdCompressedAdjLists.getBlockFirstIds());
+            writer.add(GraphFile.BWD_BLOCK_OFFSETS, bwdCompressedAdjLists.getBlockOffsets());
+            writer.add(GraphFile.BWD_BLOCK_DATA, bwdCompressedAdjLists.getData());
+        } else {
+            writer.add(GraphFile.BWD_NEIGHBOUR_IDS, bwdCSRAdjLists.getNeighbourIds());
+        }
+        if (null != originalVertexIds) {
+            writer.add(GraphFile.ORIGINAL_VERTEX_IDS, originalVertexIds);
+        }
+        if (hasHubBitmaps()) {
+            addHubBitmapsSections(writer, GraphFile.FWD_HUB_KEYS, fwdCSRAdjLists.getHubBitmaps());
+            addHubBitmapsSections(writer, GraphFile.BWD_HUB_KEYS, bwdCSRAdjLists.getHubBitmaps());
+        }
+        writer.add(GraphFile.LABEL_OR_TO_TYPE_TO_NUM_EDGES, labelOrToTypeToNumEdges);
+        writer.add(GraphFile.LABEL_OR_TYPE_TO_LARGEST_FWD_ADJ_LIST_SIZE,
+            labelOrTypeToLargestFwdAdjListSize);
+        writer.add(GraphFile.LABEL_OR_TYPE_TO_LARGEST_BWD_ADJ_LIST_SIZE,
+            labelOrTypeToLargestBwdAdjListSize);
+        writer.add(GraphFile.NUM_TYPES_AND_LABELS, new int[] { numTypes, numLabels });
+        writer.add(GraphFile.EDGE_IDX_TO_NUM_EDGES, edgeIdxToNumEdges);
+        var flags = (isUndirected ? GraphFile.IS_UNDIRECTED : 0) |
+            (isAdjListSortedByType ? GraphFile.IS_ADJ_LIST_SORTED_BY_TYPE : 0) |
+            (isCompressed ? GraphFile.IS_ADJ_LIST_COMPRESSED : 0);
+        writer.write(directoryPath + GraphFile.FILE_NAME, flags, highestVertexId, numEdges,
+            fwdCSRAdjLists.getNumLabelsOrTypes());
+        serializeKHopRelations(directoryPath);
+    }
+
+    private static void addHubBitmapsSections(GraphFile.Writer writer, int hubKeysSectionId,
+        HubBitmaps hubBitmaps) {
+        writer.add(hubKeysSectionId, hubBitmaps.getHubKeys());
+        writer.add(hubKeysSectionId + 1, hubBitmaps.getContainerOffsets());
+        writer.add(hubKeysSectionId + 2, hubBitmaps.getContainerChunks());
+        writer.add(hubKeysSectionId + 3, hubBitmaps.getContainerSizes());
+        writer.add(hubKeysSectionId + 4, hubBitmaps.getContainerDataOffsets());
+        writer.add(hubKeysSectionId + 5, hubBitmaps.getWords());
+        writer.add(hubKeysSectionId + 6, hubBitmaps.getLows());
     }
 }
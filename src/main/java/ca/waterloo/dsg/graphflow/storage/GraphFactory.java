@@ -1,21 +1,42 @@
 package ca.waterloo.dsg.graphflow.storage;
 
+import ca.waterloo.dsg.graphflow.storage.Graph.Direction;
 import ca.waterloo.dsg.graphflow.util.IOUtils;
+import ca.waterloo.dsg.graphflow.util.Lazy;
 import lombok.var;
-import org.antlr.v4.runtime.misc.Pair;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Constructs a {@link Graph} object from CSV file and binary serialized data.
- * TODO: optimize the loading by reducing the I/O time.
+ * Constructs a {@link Graph} object from CSV file and binary serialized data. Serialized graphs are
+ * read by mapping their {@link GraphFile} into memory: the forward adjacency lists, the vertices
+ * and the statistics are read in parallel and the backward adjacency lists on first access, as
+ * only the queries with backward extensions need them.
  */
 public class GraphFactory {
 
+    public static int NUM_LOADING_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final int INITIAL_CHUNK_CAPACITY = 1 << 16;
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private static final int SORT_BLOCK_SIZE = 1 << 12;
+
     /**
      * Constructs a {@link Graph} object from binary serialized data.
      *
@@ -26,9 +47,21 @@ public class GraphFactory {
      */
     @SuppressWarnings("unchecked") // casting.
     public Graph make(String directory) throws IOException, ClassNotFoundException {
+        if (new File(directory + GraphFile.FILE_NAME).exists()) {
+            return makeFromGraphFile(directory);
+        }
+        // data serialized as one java object file per field by earlier versions.
         // load the initial fields to construct the graph.
-        var fwdAdjLists = (SortedAdjList[]) IOUtils.deserializeObj(directory + "fwdAdjLists");
-        var bwdAdjLists = (SortedAdjList[]) IOUtils.deserializeObj(directory + "bwdAdjLists");
+        CSRAdjLists fwdAdjLists, bwdAdjLists;
+        if (new File(directory + "fwdCSRAdjLists").exists()) {
+            fwdAdjLists = (CSRAdjLists) IOUtils.deserializeObj(directory + "fwdCSRAdjLists");
+            bwdAdjLists = (CSRAdjLists) IOUtils.deserializeObj(directory + "bwdCSRAdjLists");
+        } else { // data serialized with one SortedAdjList per vertex.
+            fwdAdjLists = makeCSRAdjLists((SortedAdjList[]) IOUtils.deserializeObj(
+                directory + "fwdAdjLists"));
+            bwdAdjLists = makeCSRAdjLists((SortedAdjList[]) IOUtils.deserializeObj(
+                directory + "bwdAdjLists"));
+        }
         var highestVertexId = (Integer) IOUtils.deserializeObj(directory + "highestVertexId");
         // create the graph object and setAdjListSortOrder its vertices and basic statistics.
         var graph = new Graph(fwdAdjLists, bwdAdjLists, highestVertexId);
@@ -42,18 +75,148 @@ public class GraphFactory {
             IOUtils.deserializeObj(directory + "labelOrTypeToLargestFwdAdjListSize"));
         graph.setLabelOrTypeToLargestBwdAdjListSize((int[])
             IOUtils.deserializeObj(directory + "labelOrTypeToLargestBwdAdjListSize"));
-        graph.setEdgeKeyToNumEdgesMap((Map<Long, Integer>)
-            IOUtils.deserializeObj(directory + "edgeKeyToNumEdgesMap"));
-        graph.setLabelAndToTypeToPercentageMap((Map<Integer, Integer>)
-            IOUtils.deserializeObj(directory + "labelAndToTypeToPercentageMap"));
-        graph.setFromTypeAndLabelToPercentageMap((Map<Integer, Integer>)
-            IOUtils.deserializeObj(directory + "fromTypeAndLabelToPercentageMap"));
+        var edgeKeyToNumEdgesMap = (Map<Long, Integer>) IOUtils.deserializeObj(directory +
+            "edgeKeyToNumEdgesMap");
+        var edgeKeys = new long[edgeKeyToNumEdgesMap.size()];
+        var edgeKeyNumEdges = new int[edgeKeyToNumEdgesMap.size()];
+        var idx = 0;
+        for (var edgeKey : edgeKeyToNumEdgesMap.keySet()) {
+            edgeKeys[idx] = edgeKey;
+            edgeKeyNumEdges[idx++] = edgeKeyToNumEdgesMap.get(edgeKey);
+        }
+        setEdgeCounts(graph, edgeKeys, edgeKeyNumEdges);
         graph.setAdjListSortedByType((boolean) IOUtils.deserializeObj(
             directory + "isAdjListSortedByType"));
         graph.setUndirected((boolean) IOUtils.deserializeObj(directory + "isUndirected"));
         return graph;
     }
 
+    private Graph makeFromGraphFile(String directory) throws IOException {
+        var file = directory + GraphFile.FILE_NAME;
+        try (var reader = new GraphFile.Reader(file)) {
+            var graph = new Graph();
+            graph.setHighestVertexId(reader.getHighestVertexId());
+            // the reader maps each section separately so the sections are read concurrently.
+            runInParallel(3, taskIdx -> {
+                switch (taskIdx) {
+                    case 0:
+                        graph.setFwdCSRAdjLists(readAdjLists(reader, Direction.Fwd));
+                        break;
+                    case 1:
+                        graph.setVertexIds(reader.readInts(GraphFile.VERTEX_IDS));
+                        graph.setVertexTypes(reader.readShorts(GraphFile.VERTEX_TYPES));
+                        graph.setVertexTypeOffsets(reader.readInts(GraphFile.VERTEX_TYPE_OFFSETS));
+                        if (reader.hasSection(GraphFile.ORIGINAL_VERTEX_IDS)) {
+                            graph.setOriginalVertexIds(reader.readInts(
+                                GraphFile.ORIGINAL_VERTEX_IDS));
+                        }
+                        break;
+                    default:
+                        readStatistics(reader, graph);
+                }
+            });
+            graph.setBwdCSRAdjListsLoader(new Lazy<>("the backward adjacency lists", () -> {
+                try (var bwdReader = new GraphFile.Reader(file)) {
+                    return readAdjLists(bwdReader, Direction.Bwd);
+                }
+            }));
+            graph.setAdjListSortedByType(reader.isSet(GraphFile.IS_ADJ_LIST_SORTED_BY_TYPE));
+            graph.setUndirected(reader.isSet(GraphFile.IS_UNDIRECTED));
+            graph.setKHopRelationCacheLoader(new Lazy<>("the k-hop relations", () ->
+                KHopRelationCache.make(directory, graph.getHighestVertexId(),
+                    graph.getNumEdges())));
+            return graph;
+        }
+    }
+
+    /**
+     * Reads the adjacency lists of the given direction, with their hub bitmaps if any.
+     */
+    private static CSRAdjLists readAdjLists(GraphFile.Reader reader, Direction direction)
+        throws IOException {
+        var isFwd = Direction.Fwd == direction;
+        var numLabelsOrTypes = reader.getNumLabelsOrTypes();
+        var offsets = reader.readInts(isFwd ? GraphFile.FWD_OFFSETS : GraphFile.BWD_OFFSETS);
+        CSRAdjLists adjLists;
+        if (reader.isSet(GraphFile.IS_ADJ_LIST_COMPRESSED)) {
+            adjLists = new CompressedCSRAdjLists(numLabelsOrTypes, offsets,
+                reader.readInts(isFwd ? GraphFile.FWD_BLOCK_FIRST_IDS :
+                    GraphFile.BWD_BLOCK_FIRST_IDS),
+                reader.readInts(isFwd ? GraphFile.FWD_BLOCK_OFFSETS :
+                    GraphFile.BWD_BLOCK_OFFSETS),
+                reader.readBytes(isFwd ? GraphFile.FWD_BLOCK_DATA : GraphFile.BWD_BLOCK_DATA));
+        } else {
+            adjLists = new CSRAdjLists(numLabelsOrTypes, offsets, reader.readInts(isFwd ?
+                GraphFile.FWD_NEIGHBOUR_IDS : GraphFile.BWD_NEIGHBOUR_IDS));
+        }
+        var hubKeysSectionId = isFwd ? GraphFile.FWD_HUB_KEYS : GraphFile.BWD_HUB_KEYS;
+        if (reader.hasSection(hubKeysSectionId)) {
+            adjLists.setHubBitmaps(readHubBitmaps(reader, hubKeysSectionId,
+                offsets.length - 1));
+        }
+        return adjLists;
+    }
+
+    /**
+     * Reads the number of edges by label or type and by (fromType, label, toType) and the largest
+     * adjacency list sizes.
+     */
+    private static void readStatistics(GraphFile.Reader reader, Graph graph) throws IOException {
+        graph.setNumEdges(reader.getNumEdges());
+        graph.setLabelOrToTypeToNumEdges(reader.readInts(
+            GraphFile.LABEL_OR_TO_TYPE_TO_NUM_EDGES));
+        graph.setLabelOrTypeToLargestFwdAdjListSize(reader.readInts(
+            GraphFile.LABEL_OR_TYPE_TO_LARGEST_FWD_ADJ_LIST_SIZE));
+        graph.setLabelOrTypeToLargestBwdAdjListSize(reader.readInts(
+            GraphFile.LABEL_OR_TYPE_TO_LARGEST_BWD_ADJ_LIST_SIZE));
+        if (reader.hasSection(GraphFile.EDGE_IDX_TO_NUM_EDGES)) {
+            var numTypesAndLabels = reader.readInts(GraphFile.NUM_TYPES_AND_LABELS);
+            graph.setEdgeCounts(numTypesAndLabels[0], numTypesAndLabels[1],
+                reader.readInts(GraphFile.EDGE_IDX_TO_NUM_EDGES));
+        } else { // version 2 files store the edge counts as maps.
+            var edgeKeys = reader.readLongs(GraphFile.EDGE_KEYS);
+            var edgeKeyNumEdges = reader.readInts(GraphFile.EDGE_KEY_NUM_EDGES);
+            setEdgeCounts(graph, edgeKeys, edgeKeyNumEdges);
+        }
+    }
+
+    /**
+     * Sets the edge counts of the graph from the number of edges by edge key, see
+     * {@link Graph#getEdgeKey(short, short, short)}, as serialized by earlier versions.
+     */
+    private static void setEdgeCounts(Graph graph, long[] edgeKeys, int[] edgeKeyNumEdges) {
+        var numTypes = 0;
+        var numLabels = 0;
+        for (var edgeKey : edgeKeys) {
+            numTypes = Math.max(numTypes, (int) (edgeKey >>> 48) + 1);
+            numTypes = Math.max(numTypes, (int) (edgeKey & 0xFFFF) + 1);
+            numLabels = Math.max(numLabels, (int) ((edgeKey >>> 16) & 0xFFFF) + 1);
+        }
+        var edgeIdxToNumEdges = new int[numTypes * numLabels * numTypes];
+        for (var i = 0; i < edgeKeys.length; i++) {
+            var fromType = (int) (edgeKeys[i] >>> 48);
+            var label = (int) ((edgeKeys[i] >>> 16) & 0xFFFF);
+            var toType = (int) (edgeKeys[i] & 0xFFFF);
+            edgeIdxToNumEdges[(fromType * numLabels + label) * numTypes + toType] =
+                edgeKeyNumEdges[i];
+        }
+        graph.setEdgeCounts(numTypes, numLabels, edgeIdxToNumEdges);
+    }
+
+    private static HubBitmaps readHubBitmaps(GraphFile.Reader reader, int hubKeysSectionId,
+        int numKeys) throws IOException {
+        return new HubBitmaps(numKeys, reader.readInts(hubKeysSectionId),
+            reader.readInts(hubKeysSectionId + 1), reader.readInts(hubKeysSectionId + 2),
+            reader.readInts(hubKeysSectionId + 3), reader.readInts(hubKeysSectionId + 4),
+            reader.readLongs(hubKeysSectionId + 5), reader.readShorts(hubKeysSectionId + 6));
+    }
+
+    private CSRAdjLists makeCSRAdjLists(SortedAdjList[] adjLists) {
+        var numLabelsOrTypes = adjLists.length > 0 ?
+            adjLists[0].getLabelOrTypeOffsets().length - 1 : 1;
+        return CSRAdjLists.make(adjLists, numLabelsOrTypes);
+    }
+
     /**
      * Constructs a {@link Graph} object from the edges csv file.
      *
@@ -120,7 +283,21 @@ public class GraphFactory {
 
     private void loadEdges(String file, String separator, KeyStore store, Graph graph)
         throws IOException {
-        var highestVertexId = insertLabelsAndGetHighestVertexId(file, separator, store);
+        var chunks = parseEdges(file, separator);
+        // Labels are inserted chunk by chunk in the order they first appear in each chunk so the
+        // label keys are the same as when reading the file sequentially.
+        var highestVertexId = Integer.MIN_VALUE;
+        for (var chunk : chunks) {
+            chunk.labelKeys = new short[chunk.labels.size()];
+            for (var i = 0; i < chunk.labels.size(); i++) {
+                var label = new String(chunk.labels.get(i), StandardCharsets.UTF_8);
+                store.insertLabelKeyIfNeeded(label);
+                chunk.labelKeys[i] = store.getLabelKeyAsShort(label);
+            }
+            if (chunk.highestVertexId > highestVertexId) {
+                highestVertexId = chunk.highestVertexId;
+            }
+        }
         var sortByType = store.getNextLabelKey() == 1  /* key 0 only used -> single label.  */
                       && store.getNextTypeKey()   > 1; /* at least 2 vertex key types used. */
         if (-1 == graph.getHighestVertexId()) {
@@ -135,47 +312,17 @@ public class GraphFactory {
             // all vertices have type '0' so we insert it.
             store.insertTypeKeyIfNeeded("0");
         }
-
-        var adjListsMetadata = getAdjListMetadata(file, separator, store, sortByType, graph);
-        var numVertices = highestVertexId + 1;
-        var fwdAdjLists = new SortedAdjList[numVertices];
-        var bwdAdjLists = new SortedAdjList[numVertices];
-        var fwdAdjListCurrIdx = new HashMap<Integer, int[]>(numVertices);
-        var bwdAdjListCurrIdx = new HashMap<Integer, int[]>(numVertices);
-        var offsetSize = sortByType ? store.getNextTypeKey() : store.getNextLabelKey();
-        for (var vertexId = 0; vertexId < numVertices; vertexId++) {
-            fwdAdjLists[vertexId] = new SortedAdjList(adjListsMetadata.a.get(vertexId));
-            fwdAdjListCurrIdx.put(vertexId, new int[offsetSize]);
-            bwdAdjLists[vertexId] = new SortedAdjList(adjListsMetadata.b.get(vertexId));
-            bwdAdjListCurrIdx.put(vertexId, new int[offsetSize]);
-        }
-
-        var reader = new BufferedReader(new FileReader(file));
-        var line = reader.readLine();
-        while (null != line) {
-            var row = line.split(separator);
-            var fromVertex = Integer.parseInt(row[0]);
-            var toVertex = Integer.parseInt(row[1]);
-            var fromTypeOrLabel = sortByType ? graph.getVertexTypes()[fromVertex] :
-                store.getLabelKeyAsShort(row[2]);
-            var toTypeOrLabel = sortByType ? graph.getVertexTypes()[toVertex] :
-                store.getLabelKeyAsShort(row[2]);
-            var idx = fwdAdjListCurrIdx.get(fromVertex)[toTypeOrLabel];
-            var offset = adjListsMetadata.a.get(fromVertex)[toTypeOrLabel];
-            fwdAdjListCurrIdx.get(fromVertex)[toTypeOrLabel] += 1;
-            fwdAdjLists[fromVertex].setNeighbourId(toVertex, idx + offset);
-            idx = bwdAdjListCurrIdx.get(toVertex)[fromTypeOrLabel];
-            offset = adjListsMetadata.b.get(toVertex)[fromTypeOrLabel];
-            bwdAdjListCurrIdx.get(toVertex)[fromTypeOrLabel] += 1;
-            bwdAdjLists[toVertex].setNeighbourId(fromVertex, idx + offset);
-            line = reader.readLine();
-        }
-        for (var vertexId = 0; vertexId < numVertices; vertexId++) {
-            fwdAdjLists[vertexId].sort();
-            bwdAdjLists[vertexId].sort();
+        var numVertices = graph.getHighestVertexId() + 1;
+        var numLabelsOrTypes = sortByType ? store.getNextTypeKey() : store.getNextLabelKey();
+        if ((long) numVertices * numLabelsOrTypes >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The number of vertices times the number of " +
+                "labels or types does not fit the adjacency lists offsets.");
         }
-        graph.setFwdAdjLists(fwdAdjLists);
-        graph.setBwdAdjLists(bwdAdjLists);
+        var vertexTypes = sortByType ? graph.getVertexTypes() : null;
+        graph.setFwdCSRAdjLists(makeCSRAdjLists(chunks, true /* isFwd */, numVertices,
+            numLabelsOrTypes, vertexTypes));
+        graph.setBwdCSRAdjLists(makeCSRAdjLists(chunks, false /* isFwd */, numVertices,
+            numLabelsOrTypes, vertexTypes));
     }
 
     private int[] insertTypesAndGetOffsets(String file, String separator, KeyStore store)
@@ -204,66 +351,364 @@ public class GraphFactory {
         return offsets;
     }
 
-    private int insertLabelsAndGetHighestVertexId(String csvFile, String separator, KeyStore store)
-        throws IOException {
-        var reader = new BufferedReader(new FileReader(csvFile));
-        var line = reader.readLine();
-        var highestVertexId = Integer.MIN_VALUE;
-        while (null != line) {
-            var row = line.split(separator);
-            var fromVertex = Integer.parseInt(row[0]);
-            var toVertex = Integer.parseInt(row[1]);
-            store.insertLabelKeyIfNeeded(row[2]);
+    /**
+     * Splits the edges file into byte ranges, one per loading thread, and parses each range into
+     * an {@link EdgesChunk}. A range owns the lines that start inside it.
+     */
+    private EdgesChunk[] parseEdges(String file, String separator) throws IOException {
+        var fileSize = new File(file).length();
+        var numChunks = (int) Math.max(1, Math.min(NUM_LOADING_THREADS,
+            fileSize / MIN_CHUNK_SIZE));
+        var separatorBytes = separator.getBytes(StandardCharsets.UTF_8);
+        var chunks = new EdgesChunk[numChunks];
+        runInParallel(numChunks, chunkIdx -> {
+            var chunk = new EdgesChunk();
+            var startPosition = fileSize * chunkIdx / numChunks;
+            var endPosition = fileSize * (chunkIdx + 1) / numChunks;
+            try (var channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+                var reader = new LineReader(channel, startPosition == 0 ? 0 : startPosition - 1);
+                if (startPosition > 0) {
+                    reader.nextLine(); // the remainder of a line owned by the previous range.
+                }
+                while (reader.getPosition() < endPosition && reader.nextLine()) {
+                    parseEdge(reader, separatorBytes, chunk);
+                }
+            }
+            chunks[chunkIdx] = chunk;
+        });
+        return chunks;
+    }
+
+    private void parseEdge(LineReader reader, byte[] separator, EdgesChunk chunk) {
+        var bytes = reader.bytes;
+        var idx = reader.lineStart;
+        var end = reader.lineEnd;
+        if (idx == end) {
+            return; // empty line.
+        }
+        var fromVertex = 0;
+        var digitsStart = idx;
+        while (idx < end && bytes[idx] >= '0' && bytes[idx] <= '9') {
+            fromVertex = fromVertex * 10 + (bytes[idx++] - '0');
+        }
+        if (idx == digitsStart || !startsWith(bytes, idx, end, separator)) {
+            throw new IllegalArgumentException("Malformed edge: " + reader.getLineAsString());
+        }
+        idx += separator.length;
+        var toVertex = 0;
+        digitsStart = idx;
+        while (idx < end && bytes[idx] >= '0' && bytes[idx] <= '9') {
+            toVertex = toVertex * 10 + (bytes[idx++] - '0');
+        }
+        if (idx == digitsStart || !startsWith(bytes, idx, end, separator)) {
+            throw new IllegalArgumentException("Malformed edge: " + reader.getLineAsString());
+        }
+        idx += separator.length;
+        var labelEnd = idx;
+        while (labelEnd < end && !startsWith(bytes, labelEnd, end, separator)) {
+            labelEnd++;
+        }
+        chunk.add(fromVertex, toVertex, chunk.getLabelIdx(bytes, idx, labelEnd));
+    }
+
+    private static boolean startsWith(byte[] bytes, int idx, int end, byte[] prefix) {
+        if (idx + prefix.length > end) {
+            return false;
+        }
+        for (var i = 0; i < prefix.length; i++) {
+            if (bytes[idx + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds the adjacency lists of one direction from the parsed chunks. Each histogram thread
+     * counts the degrees of a contiguous run of chunks; the histograms are then turned into
+     * per thread write cursors so the threads scatter their edges without synchronization and each
+     * adjacency list receives its edges in file order before being sorted.
+     */
+    private CSRAdjLists makeCSRAdjLists(EdgesChunk[] chunks, boolean isFwd, int numVertices,
+        int numLabelsOrTypes, short[] vertexTypes) throws IOException {
+        var numKeys = numVertices * numLabelsOrTypes;
+        var numEdges = 0L;
+        for (var chunk : chunks) {
+            numEdges += chunk.numEdges;
+        }
+        if (numEdges >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The number of edges does not fit the adjacency " +
+                "lists.");
+        }
+        // A histogram per thread is used only while the histograms take less memory than the
+        // edges themselves.
+        var numHistograms = (int) Math.max(1, Math.min(chunks.length,
+            numEdges / Math.max(1, numKeys)));
+        var histograms = new int[numHistograms][];
+        runInParallel(numHistograms, histogramIdx -> {
+            var histogram = new int[numKeys];
+            for (var chunkIdx = histogramIdx * chunks.length / numHistograms;
+                 chunkIdx < (histogramIdx + 1) * chunks.length / numHistograms; chunkIdx++) {
+                var chunk = chunks[chunkIdx];
+                for (var i = 0; i < chunk.numEdges; i++) {
+                    histogram[chunk.getKey(i, isFwd, numLabelsOrTypes, vertexTypes)]++;
+                }
+            }
+            histograms[histogramIdx] = histogram;
+        });
+        // prefix sum the degrees over keys in ranges and turn the histograms into cursors.
+        var offsets = new int[numKeys + 1];
+        var numRanges = Math.max(1, Math.min(NUM_LOADING_THREADS, numKeys));
+        var rangeNumEdges = new int[numRanges + 1];
+        runInParallel(numRanges, rangeIdx -> {
+            var sum = 0;
+            for (var key = (int) ((long) numKeys * rangeIdx / numRanges);
+                 key < (int) ((long) numKeys * (rangeIdx + 1) / numRanges); key++) {
+                for (var histogram : histograms) {
+                    sum += histogram[key];
+                }
+            }
+            rangeNumEdges[rangeIdx + 1] = sum;
+        });
+        for (var i = 1; i <= numRanges; i++) {
+            rangeNumEdges[i] += rangeNumEdges[i - 1];
+        }
+        runInParallel(numRanges, rangeIdx -> {
+            var offset = rangeNumEdges[rangeIdx];
+            for (var key = (int) ((long) numKeys * rangeIdx / numRanges);
+                 key < (int) ((long) numKeys * (rangeIdx + 1) / numRanges); key++) {
+                offsets[key] = offset;
+                for (var histogram : histograms) {
+                    var degree = histogram[key];
+                    histogram[key] = offset;
+                    offset += degree;
+                }
+            }
+        });
+        offsets[numKeys] = (int) numEdges;
+        var neighbourIds = new int[(int) numEdges];
+        runInParallel(numHistograms, histogramIdx -> {
+            var cursors = histograms[histogramIdx];
+            for (var chunkIdx = histogramIdx * chunks.length / numHistograms;
+                 chunkIdx < (histogramIdx + 1) * chunks.length / numHistograms; chunkIdx++) {
+                var chunk = chunks[chunkIdx];
+                var neighbours = isFwd ? chunk.toVertices : chunk.fromVertices;
+                for (var i = 0; i < chunk.numEdges; i++) {
+                    neighbourIds[cursors[chunk.getKey(i, isFwd, numLabelsOrTypes,
+                        vertexTypes)]++] = neighbours[i];
+                }
+            }
+        });
+        var adjLists = new CSRAdjLists(numLabelsOrTypes, offsets, neighbourIds);
+        var nextKey = new AtomicInteger(0);
+        runInParallel(Math.max(1, Math.min(NUM_LOADING_THREADS, numKeys / SORT_BLOCK_SIZE)),
+            threadIdx -> {
+                int startKey;
+                while ((startKey = nextKey.getAndAdd(SORT_BLOCK_SIZE)) < numKeys) {
+                    adjLists.sort(startKey, Math.min(startKey + SORT_BLOCK_SIZE, numKeys));
+                }
+            });
+        return adjLists;
+    }
+
+    private interface ParallelTask {
+        void run(int taskIdx) throws IOException;
+    }
+
+    private static void runInParallel(int numTasks, ParallelTask task) throws IOException {
+        if (1 == numTasks) {
+            task.run(0);
+            return;
+        }
+        var threads = new Thread[numTasks];
+        var exceptions = new Throwable[numTasks];
+        for (var i = 0; i < numTasks; i++) {
+            var taskIdx = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    task.run(taskIdx);
+                } catch (Throwable e) {
+                    exceptions[taskIdx] = e;
+                }
+            });
+            threads[i].start();
+        }
+        for (var thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted while loading the graph.");
+            }
+        }
+        for (var exception : exceptions) {
+            if (exception instanceof IOException) {
+                throw (IOException) exception;
+            } else if (exception instanceof RuntimeException) {
+                throw (RuntimeException) exception;
+            } else if (exception instanceof Error) {
+                throw (Error) exception;
+            }
+        }
+    }
+
+    /**
+     * The edges parsed from one byte range of the edges file.
+     */
+    private static class EdgesChunk {
+
+        int numEdges;
+        int[] fromVertices = new int[INITIAL_CHUNK_CAPACITY];
+        int[] toVertices = new int[INITIAL_CHUNK_CAPACITY];
+        short[] labelIdxs = new short[INITIAL_CHUNK_CAPACITY];
+        int highestVertexId = Integer.MIN_VALUE;
+        // labels in the order they first appear in the chunk and their keys in the store.
+        List<byte[]> labels = new ArrayList<>();
+        short[] labelKeys;
+        // open addressing table from a label's bytes to (its index in labels + 1).
+        private int[] labelsTable = new int[16];
+
+        void add(int fromVertex, int toVertex, short labelIdx) {
+            if (numEdges == fromVertices.length) {
+                var capacity = fromVertices.length * 2;
+                fromVertices = Arrays.copyOf(fromVertices, capacity);
+                toVertices = Arrays.copyOf(toVertices, capacity);
+                labelIdxs = Arrays.copyOf(labelIdxs, capacity);
+            }
+            fromVertices[numEdges] = fromVertex;
+            toVertices[numEdges] = toVertex;
+            labelIdxs[numEdges++] = labelIdx;
             if (fromVertex > highestVertexId) {
                 highestVertexId = fromVertex;
             }
             if (toVertex > highestVertexId) {
                 highestVertexId = toVertex;
             }
-            line = reader.readLine();
         }
-        return highestVertexId;
-    }
 
-    private Pair<Map<Integer, int[]>, Map<Integer, int[]>> getAdjListMetadata(String file,
-        String separator, KeyStore store, boolean sortByType, Graph graph) throws IOException {
-        Map<Integer, int[]> fwdAdjListMetadata = new HashMap<>();
-        Map<Integer, int[]> bwdAdjListMetadata = new HashMap<>();
-        var nextLabelOrType = (sortByType ? store.getNextTypeKey() : store.getNextLabelKey());
-        for (int i = 0; i <= graph.getHighestVertexId(); i++) {
-            fwdAdjListMetadata.put(i, new int[nextLabelOrType + 1]);
-            bwdAdjListMetadata.put(i, new int[nextLabelOrType + 1]);
+        int getKey(int edgeIdx, boolean isFwd, int numLabelsOrTypes, short[] vertexTypes) {
+            var vertex = isFwd ? fromVertices[edgeIdx] : toVertices[edgeIdx];
+            if (null != vertexTypes) {
+                return vertex * numLabelsOrTypes + vertexTypes[isFwd ? toVertices[edgeIdx] :
+                    fromVertices[edgeIdx]];
+            }
+            return vertex * numLabelsOrTypes + labelKeys[labelIdxs[edgeIdx]];
         }
-        var reader = new BufferedReader(new FileReader(file));
-        var line = reader.readLine();
-        while (null != line) {
-            String[] row = line.split(separator);
-            var fromVertex = Integer.parseInt(row[0]);
-            var toVertex = Integer.parseInt(row[1]);
-            if (sortByType) {
-                var fromType = graph.getVertexTypes()[fromVertex];
-                var toType = graph.getVertexTypes()[toVertex];
-                fwdAdjListMetadata.get(fromVertex)[toType + 1] += 1;
-                bwdAdjListMetadata.get(toVertex)[fromType + 1] += 1;
-            } else {
-                var label = store.getLabelKeyAsShort(row[2]);
-                fwdAdjListMetadata.get(fromVertex)[label + 1] += 1;
-                bwdAdjListMetadata.get(toVertex)[label + 1] += 1;
+
+        short getLabelIdx(byte[] bytes, int start, int end) {
+            var hash = 1;
+            for (var i = start; i < end; i++) {
+                hash = 31 * hash + bytes[i];
             }
-            line = reader.readLine();
+            var mask = labelsTable.length - 1;
+            var slot = hash & mask;
+            while (labelsTable[slot] != 0) {
+                var label = labels.get(labelsTable[slot] - 1);
+                if (label.length == end - start && startsWith(bytes, start, end, label)) {
+                    return (short) (labelsTable[slot] - 1);
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (labels.size() == Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many edge labels.");
+            }
+            labels.add(Arrays.copyOfRange(bytes, start, end));
+            labelsTable[slot] = labels.size();
+            if (2 * labels.size() > labelsTable.length) {
+                rehashLabels();
+            }
+            return (short) (labels.size() - 1);
         }
-        for (var offsets : fwdAdjListMetadata.values()) {
-            for (var i = 1; i < offsets.length - 1; i++) {
-                offsets[nextLabelOrType] += offsets[i];
-                offsets[i] += offsets[i - 1];
+
+        private void rehashLabels() {
+            labelsTable = new int[labelsTable.length * 2];
+            var mask = labelsTable.length - 1;
+            for (var labelIdx = 0; labelIdx < labels.size(); labelIdx++) {
+                var hash = 1;
+                for (var b : labels.get(labelIdx)) {
+                    hash = 31 * hash + b;
+                }
+                var slot = hash & mask;
+                while (labelsTable[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                labelsTable[slot] = labelIdx + 1;
             }
         }
-        for (var offsets : bwdAdjListMetadata.values()) {
-            for (var i = 1; i < offsets.length - 1; i++) {
-                offsets[nextLabelOrType] += offsets[i];
-                offsets[i] += offsets[i - 1];
+    }
+
+    /**
+     * Reads the lines of a file from a given position into a reusable byte buffer.
+     */
+    private static class LineReader {
+
+        private FileChannel channel;
+        byte[] bytes = new byte[READ_BUFFER_SIZE];
+        int lineStart, lineEnd; /* the last line read excluding its line terminator. */
+        private long bufferPosition; /* the position of bytes[0] in the file. */
+        private int numBytes, nextIdx;
+        private boolean isEndOfFile;
+
+        LineReader(FileChannel channel, long position) {
+            this.channel = channel;
+            this.bufferPosition = position;
+        }
+
+        /**
+         * @return the position in the file of the next line to read.
+         */
+        long getPosition() {
+            return bufferPosition + nextIdx;
+        }
+
+        String getLineAsString() {
+            return new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return True if a line was read, false if the end of the file was reached.
+         */
+        boolean nextLine() throws IOException {
+            var idx = nextIdx;
+            while (true) {
+                while (idx < numBytes && bytes[idx] != '\n') {
+                    idx++;
+                }
+                if (idx < numBytes || isEndOfFile) {
+                    break;
+                }
+                idx -= nextIdx;
+                fill();
+            }
+            if (nextIdx == numBytes) {
+                return false;
+            }
+            lineStart = nextIdx;
+            lineEnd = idx;
+            nextIdx = idx < numBytes ? idx + 1 : idx;
+            if (lineEnd > lineStart && bytes[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            return true;
+        }
+
+        private void fill() throws IOException {
+            // move the bytes not read yet to the front and grow the buffer if a line does not fit.
+            var numBytesLeft = numBytes - nextIdx;
+            if (numBytesLeft == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            } else {
+                System.arraycopy(bytes, nextIdx, bytes, 0, numBytesLeft);
+            }
+            bufferPosition += nextIdx;
+            nextIdx = 0;
+            numBytes = numBytesLeft;
+            var numBytesRead = channel.read(ByteBuffer.wrap(bytes, numBytes,
+                bytes.length - numBytes), bufferPosition + numBytes);
+            if (numBytesRead < 0) {
+                isEndOfFile = true;
+            } else {
+                numBytes += numBytesRead;
             }
         }
-        return new Pair<>(fwdAdjListMetadata, bwdAdjListMetadata);
     }
 }
@@ -0,0 +1,369 @@
+package ca.waterloo.dsg.graphflow.storage;
+
+import lombok.Getter;
+import lombok.var;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The versioned binary file a {@link Graph} is serialized to. The file starts with a fixed size
+ * header followed by a table of sections and the sections themselves. Each section holds a single
+ * primitive array (e.g. the CSR offsets or neighbour IDs of one direction) stored little-endian and
+ * aligned to 8 bytes so it can be read by mapping the file into memory.
+ *
+ * Header: magic, version, flags, highestVertexId, numEdges, numLabelsOrTypes, numSections and a
+ * reserved int. Each section table entry: section ID, element size in bytes, byte offset of the
+ * section in the file, and the number of elements.
+ */
+class GraphFile {
+
+    static final String FILE_NAME = "graph.bin";
+    static final int MAGIC = 0x574C4647; /* the bytes "GFLW" read as a little-endian int */
+    static final int VERSION = 3;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int SECTION_ENTRY_SIZE = 24;
+    private static final int MAX_MAPPED_CHUNK_SIZE = 1 << 30;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    // Header flags.
+    static final int IS_UNDIRECTED = 1;
+    static final int IS_ADJ_LIST_SORTED_BY_TYPE = 1 << 1;
+    static final int IS_ADJ_LIST_COMPRESSED = 1 << 2; /* since version 2 */
+
+    // Section IDs. New sections get new IDs; readers skip the sections they do not know.
+    static final int VERTEX_IDS = 1;
+    static final int VERTEX_TYPES = 2;
+    static final int VERTEX_TYPE_OFFSETS = 3;
+    static final int FWD_OFFSETS = 4;
+    static final int FWD_NEIGHBOUR_IDS = 5;
+    static final int BWD_OFFSETS = 6;
+    static final int BWD_NEIGHBOUR_IDS = 7;
+    static final int LABEL_OR_TO_TYPE_TO_NUM_EDGES = 8;
+    static final int LABEL_OR_TYPE_TO_LARGEST_FWD_ADJ_LIST_SIZE = 9;
+    static final int LABEL_OR_TYPE_TO_LARGEST_BWD_ADJ_LIST_SIZE = 10;
+    // Edge count maps written up to version 2, replaced by the dense edge counts.
+    static final int EDGE_KEYS = 11;
+    static final int EDGE_KEY_NUM_EDGES = 12;
+    static final int LABEL_AND_TO_TYPE_KEYS = 13;
+    static final int LABEL_AND_TO_TYPE_NUM_EDGES = 14;
+    static final int FROM_TYPE_AND_LABEL_KEYS = 15;
+    static final int FROM_TYPE_AND_LABEL_NUM_EDGES = 16;
+    // Sections replacing the neighbour IDs sections of compressed adjacency lists.
+    static final int FWD_BLOCK_FIRST_IDS = 17;
+    static final int FWD_BLOCK_OFFSETS = 18;
+    static final int FWD_BLOCK_DATA = 19;
+    static final int BWD_BLOCK_FIRST_IDS = 20;
+    static final int BWD_BLOCK_OFFSETS = 21;
+    static final int BWD_BLOCK_DATA = 22;
+    // Optional sections of the hub bitmaps, the sections of a direction have consecutive IDs.
+    static final int FWD_HUB_KEYS = 23;
+    static final int FWD_HUB_CONTAINER_OFFSETS = 24;
+    static final int FWD_HUB_CONTAINER_CHUNKS = 25;
+    static final int FWD_HUB_CONTAINER_SIZES = 26;
+    static final int FWD_HUB_CONTAINER_DATA_OFFSETS = 27;
+    static final int FWD_HUB_WORDS = 28;
+    static final int FWD_HUB_LOWS = 29;
+    static final int BWD_HUB_KEYS = 30;
+    static final int BWD_HUB_CONTAINER_OFFSETS = 31;
+    static final int BWD_HUB_CONTAINER_CHUNKS = 32;
+    static final int BWD_HUB_CONTAINER_SIZES = 33;
+    static final int BWD_HUB_CONTAINER_DATA_OFFSETS = 34;
+    static final int BWD_HUB_WORDS = 35;
+    static final int BWD_HUB_LOWS = 36;
+    // Optional section of the IDs in the input files of relabelled vertices.
+    static final int ORIGINAL_VERTEX_IDS = 37;
+    // The number of edges by (fromType, label, toType), since version 3.
+    static final int NUM_TYPES_AND_LABELS = 38;
+    static final int EDGE_IDX_TO_NUM_EDGES = 39;
+
+    /**
+     * Writes the sections of a graph file.
+     */
+    static class Writer {
+
+        private List<Integer> sectionIds = new ArrayList<>();
+        private List<Object> sections = new ArrayList<>();
+
+        /**
+         * @param sectionId is the ID of the section.
+         * @param values is the int, short, long or byte array to write as the section.
+         */
+        void add(int sectionId, Object values) {
+            if (!(values instanceof int[] || values instanceof short[] ||
+                    values instanceof long[] || values instanceof byte[])) {
+                throw new IllegalArgumentException("Section " + sectionId + " is not an int, " +
+                    "short, long or byte array.");
+            }
+            sectionIds.add(sectionId);
+            sections.add(values);
+        }
+
+        /**
+         * @param file is the file to write the header and the sections to.
+         * @param flags are the header flags.
+         * @param highestVertexId is the highest vertex ID.
+         * @param numEdges is the number of edges.
+         * @param numLabelsOrTypes is the number of edge labels or toVertex types per vertex.
+         * @throws IOException if the file cannot be written to or closed.
+         */
+        void write(String file, int flags, int highestVertexId, int numEdges,
+            int numLabelsOrTypes) throws IOException {
+            try (var channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                var buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(
+                    ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(highestVertexId)
+                    .putInt(numEdges).putInt(numLabelsOrTypes).putInt(sections.size()).putInt(0);
+                var offset = align(HEADER_SIZE + (long) SECTION_ENTRY_SIZE * sections.size());
+                for (var i = 0; i < sections.size(); i++) {
+                    var elementSize = getElementSize(sections.get(i));
+                    var length = getLength(sections.get(i));
+                    flushIfFull(channel, buffer, SECTION_ENTRY_SIZE);
+                    buffer.putInt(sectionIds.get(i)).putInt(elementSize).putLong(offset)
+                        .putLong(length);
+                    offset = align(offset + (long) elementSize * length);
+                }
+                var position = (long) HEADER_SIZE + (long) SECTION_ENTRY_SIZE * sections.size();
+                for (var section : sections) {
+                    while (position % 8 != 0) {
+                        flushIfFull(channel, buffer, 1);
+                        buffer.put((byte) 0);
+                        position++;
+                    }
+                    if (section instanceof int[]) {
+                        for (var value : (int[]) section) {
+                            flushIfFull(channel, buffer, Integer.BYTES);
+                            buffer.putInt(value);
+                        }
+                    } else if (section instanceof short[]) {
+                        for (var value : (short[]) section) {
+                            flushIfFull(channel, buffer, Short.BYTES);
+                            buffer.putShort(value);
+                        }
+                    } else if (section instanceof long[]) {
+                        for (var value : (long[]) section) {
+                            flushIfFull(channel, buffer, Long.BYTES);
+                            buffer.putLong(value);
+                        }
+                    } else {
+                        var values = (byte[]) section;
+                        var idx = 0;
+                        while (idx < values.length) {
+                            flushIfFull(channel, buffer, 1);
+                            var length = Math.min(values.length - idx, buffer.remaining());
+                            buffer.put(values, idx, length);
+                            idx += length;
+                        }
+                    }
+                    position += (long) getElementSize(section) * getLength(section);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+
+        private void flushIfFull(FileChannel channel, ByteBuffer buffer, int numBytesToPut)
+            throws IOException {
+            if (buffer.remaining() < numBytesToPut) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+
+        private static int getElementSize(Object section) {
+            return section instanceof int[] ? Integer.BYTES :
+                section instanceof short[] ? Short.BYTES :
+                section instanceof long[] ? Long.BYTES : Byte.BYTES;
+        }
+
+        private static int getLength(Object section) {
+            return section instanceof int[] ? ((int[]) section).length :
+                section instanceof short[] ? ((short[]) section).length :
+                section instanceof long[] ? ((long[]) section).length : ((byte[]) section).length;
+        }
+
+        private static long align(long offset) {
+            return (offset + 7) & ~7L;
+        }
+    }
+
+    /**
+     * Reads the sections of a graph file by mapping them into memory.
+     */
+    static class Reader implements Closeable {
+
+        private FileChannel channel;
+        @Getter private int version;
+        @Getter private int flags;
+        @Getter private int highestVertexId;
+        @Getter private int numEdges;
+        @Getter private int numLabelsOrTypes;
+        // section ID -> {element size, byte offset, number of elements}.
+        private Map<Integer, long[]> sections = new HashMap<>();
+
+        /**
+         * Opens the file and reads its header and section table.
+         *
+         * @param file is the graph file to read.
+         * @throws IOException if the file cannot be read or is not a graph file.
+         */
+        Reader(String file) throws IOException {
+            channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+            var header = map(0, HEADER_SIZE);
+            if (MAGIC != header.getInt()) {
+                channel.close();
+                throw new IOException(file + " is not a graph file.");
+            }
+            version = header.getInt();
+            if (version > VERSION) {
+                channel.close();
+                throw new IOException(file + " has version " + version + " but only versions " +
+                    "up to " + VERSION + " can be read.");
+            }
+            flags = header.getInt();
+            highestVertexId = header.getInt();
+            numEdges = header.getInt();
+            numLabelsOrTypes = header.getInt();
+            var numSections = header.getInt();
+            var sectionTable = map(HEADER_SIZE, numSections * SECTION_ENTRY_SIZE);
+            for (var i = 0; i < numSections; i++) {
+                var sectionId = sectionTable.getInt();
+                var elementSize = sectionTable.getInt();
+                var offset = sectionTable.getLong();
+                var length = sectionTable.getLong();
+                sections.put(sectionId, new long[] { elementSize, offset, length });
+            }
+        }
+
+        /**
+         * @param flag is the header flag to check.
+         * @return True if the flag is set, false otherwise.
+         */
+        boolean isSet(int flag) {
+            return (flags & flag) != 0;
+        }
+
+        /**
+         * @param sectionId is the ID of the section.
+         * @return True if the file has the section, false otherwise.
+         */
+        boolean hasSection(int sectionId) {
+            return sections.containsKey(sectionId);
+        }
+
+        /**
+         * @param sectionId is the ID of an int section.
+         * @return the section copied out of the mapped file into an array.
+         * @throws IOException if the section is missing or cannot be mapped.
+         */
+        int[] readInts(int sectionId) throws IOException {
+            var section = getSection(sectionId, Integer.BYTES);
+            var values = new int[(int) section[2]];
+            var idx = 0;
+            while (idx < values.length) {
+                var length = Math.min(values.length - idx, MAX_MAPPED_CHUNK_SIZE / Integer.BYTES);
+                map(section[1] + (long) idx * Integer.BYTES, length * Integer.BYTES)
+                    .asIntBuffer().get(values, idx, length);
+                idx += length;
+            }
+            return values;
+        }
+
+        /**
+         * @param sectionId is the ID of a short section.
+         * @return the section copied out of the mapped file into an array.
+         * @throws IOException if the section is missing or cannot be mapped.
+         */
+        short[] readShorts(int sectionId) throws IOException {
+            var section = getSection(sectionId, Short.BYTES);
+            var values = new short[(int) section[2]];
+            var idx = 0;
+            while (idx < values.length) {
+                var length = Math.min(values.length - idx, MAX_MAPPED_CHUNK_SIZE / Short.BYTES);
+                map(section[1] + (long) idx * Short.BYTES, length * Short.BYTES)
+                    .asShortBuffer().get(values, idx, length);
+                idx += length;
+            }
+            return values;
+        }
+
+        /**
+         * @param sectionId is the ID of a long section.
+         * @return the section copied out of the mapped file into an array.
+         * @throws IOException if the section is missing or cannot be mapped.
+         */
+        long[] readLongs(int sectionId) throws IOException {
+            var section = getSection(sectionId, Long.BYTES);
+            var values = new long[(int) section[2]];
+            var idx = 0;
+            while (idx < values.length) {
+                var length = Math.min(values.length - idx, MAX_MAPPED_CHUNK_SIZE / Long.BYTES);
+                map(section[1] + (long) idx * Long.BYTES, length * Long.BYTES)
+                    .asLongBuffer().get(values, idx, length);
+                idx += length;
+            }
+            return values;
+        }
+
+        /**
+         * @param sectionId is the ID of a byte section.
+         * @return the section copied out of the mapped file into an array.
+         * @throws IOException if the section is missing or cannot be mapped.
+         */
+        byte[] readBytes(int sectionId) throws IOException {
+            var section = getSection(sectionId, Byte.BYTES);
+            var values = new byte[(int) section[2]];
+            var idx = 0;
+            while (idx < values.length) {
+                var length = Math.min(values.length - idx, MAX_MAPPED_CHUNK_SIZE);
+                map(section[1] + idx, length).get(values, idx, length);
+                idx += length;
+            }
+            return values;
+        }
+
+        private long[] getSection(int sectionId, int elementSize) throws IOException {
+            var section = sections.get(sectionId);
+            if (null == section) {
+                throw new IOException("The graph file has no section " + sectionId + ".");
+            }
+            if (section[0] != elementSize) {
+                throw new IOException("Section " + sectionId + " has elements of " + section[0] +
+                    " bytes instead of " + elementSize + ".");
+            }
+            return section;
+        }
+
+        private MappedByteBuffer map(long position, int size) throws IOException {
+            var buffer = channel.map(MapMode.READ_ONLY, position, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+
+        /**
+         * @see Closeable#close()
+         */
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package ca.waterloo.dsg.graphflow.storage;
+
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
+import lombok.Getter;
+import lombok.var;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Bitmaps of the adjacency lists of high-degree vertices, the hubs, in one direction. Each hub's
+ * neighbour IDs are split by their higher 16 bits into chunks in the style of roaring bitmaps and
+ * each chunk is stored in a container: a sorted array of the lower 16 bits of the IDs when the
+ * chunk has at most {@link #ARRAY_CONTAINER_MAX_SIZE} IDs, and a bitmap of 2^16 bits otherwise.
+ * A hub's bitmap thus takes at most 2 bytes per neighbour ID and membership tests take constant
+ * time in dense chunks.
+ */
+public class HubBitmaps implements Serializable {
+
+    static final int ARRAY_CONTAINER_MAX_SIZE = 4096;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int WORDS_PER_BITMAP = CHUNK_SIZE / Long.SIZE;
+
+    @Getter private int numKeys;
+    @Getter private int[] hubKeys; /* sorted keys vertexId * numLabelsOrTypes + labelOrType. */
+    @Getter private int[] containerOffsets; /* the containers of each hub, of length numHubs + 1. */
+    @Getter private int[] containerChunks; /* the higher 16 bits of the IDs of each container. */
+    @Getter private int[] containerSizes; /* the number of IDs of each container. */
+    @Getter private int[] containerDataOffsets; /* the offset in words or lows of each container. */
+    @Getter private long[] words;
+    @Getter private short[] lows;
+    // rank structure mapping the key of an adjacency list to its hub index.
+    private long[] isHub;
+    private int[] ranks;
+
+    /**
+     * Constructs a {@link HubBitmaps} object.
+     *
+     * @param numKeys is the number of adjacency lists, {@code numVertices * numLabelsOrTypes}.
+     * @param hubKeys are the sorted keys of the adjacency lists of the hubs.
+     * @param containerOffsets are the offsets of the containers of each hub.
+     * @param containerChunks are the higher 16 bits of the IDs of each container.
+     * @param containerSizes are the number of IDs of each container.
+     * @param containerDataOffsets are the offsets of each container in words or lows.
+     * @param words are the words of the bitmap containers.
+     * @param lows are the lower 16 bits of the IDs of the array containers.
+     */
+    public HubBitmaps(int numKeys, int[] hubKeys, int[] containerOffsets, int[] containerChunks,
+        int[] containerSizes, int[] containerDataOffsets, long[] words, short[] lows) {
+        this.numKeys = numKeys;
+        this.hubKeys = hubKeys;
+        this.containerOffsets = containerOffsets;
+        this.containerChunks = containerChunks;
+        this.containerSizes = containerSizes;
+        this.containerDataOffsets = containerDataOffsets;
+        this.words = words;
+        this.lows = lows;
+        isHub = new long[(numKeys + Long.SIZE - 1) / Long.SIZE];
+        for (var hubKey : hubKeys) {
+            isHub[hubKey >>> 6] |= 1L << hubKey;
+        }
+        ranks = new int[isHub.length];
+        for (var i = 1; i < isHub.length; i++) {
+            ranks[i] = ranks[i - 1] + Long.bitCount(isHub[i - 1]);
+        }
+    }
+
+    /**
+     * Builds the bitmaps of the adjacency lists with at least the given number of neighbours.
+     *
+     * @param adjLists are the adjacency lists.
+     * @param degreeThreshold is the smallest size of an adjacency list to build a bitmap for.
+     * @return the constructed {@link HubBitmaps} object.
+     */
+    public static HubBitmaps make(CSRAdjLists adjLists, int degreeThreshold) {
+        var offsets = adjLists.getOffsets();
+        var numKeys = offsets.length - 1;
+        var numHubs = 0;
+        for (var key = 0; key < numKeys; key++) {
+            if (offsets[key + 1] - offsets[key] >= degreeThreshold) {
+                numHubs++;
+            }
+        }
+        var hubKeys = new int[numHubs];
+        var containerOffsets = new int[numHubs + 1];
+        var containerChunks = new int[16];
+        var containerSizes = new int[16];
+        var containerDataOffsets = new int[16];
+        var words = new long[0];
+        var lows = new short[0];
+        var numContainers = 0;
+        var numWords = 0;
+        var numLows = 0;
+        var neighbours = new Neighbours();
+        var hubIdx = 0;
+        for (var key = 0; key < numKeys; key++) {
+            if (offsets[key + 1] - offsets[key] < degreeThreshold) {
+                continue;
+            }
+            hubKeys[hubIdx] = key;
+            adjLists.setNeighbourIds(offsets[key], offsets[key + 1], neighbours);
+            var idx = neighbours.startIdx;
+            while (idx < neighbours.endIdx) {
+                var chunk = neighbours.Ids[idx] >>> 16;
+                var chunkEndIdx = idx;
+                while (chunkEndIdx < neighbours.endIdx &&
+                       neighbours.Ids[chunkEndIdx] >>> 16 == chunk) {
+                    chunkEndIdx++;
+                }
+                if (numContainers == containerChunks.length) {
+                    containerChunks = Arrays.copyOf(containerChunks, 2 * numContainers);
+                    containerSizes = Arrays.copyOf(containerSizes, 2 * numContainers);
+                    containerDataOffsets = Arrays.copyOf(containerDataOffsets, 2 * numContainers);
+                }
+                var size = chunkEndIdx - idx;
+                containerChunks[numContainers] = chunk;
+                containerSizes[numContainers] = size;
+                if (size > ARRAY_CONTAINER_MAX_SIZE) {
+                    containerDataOffsets[numContainers] = numWords;
+                    if (numWords + WORDS_PER_BITMAP > words.length) {
+                        words = Arrays.copyOf(words, Math.max(2 * words.length,
+                            numWords + WORDS_PER_BITMAP));
+                    }
+                    for (; idx < chunkEndIdx; idx++) {
+                        var low = neighbours.Ids[idx] & 0xFFFF;
+                        words[numWords + (low >>> 6)] |= 1L << low;
+                    }
+                    numWords += WORDS_PER_BITMAP;
+                } else {
+                    containerDataOffsets[numContainers] = numLows;
+                    if (numLows + size > lows.length) {
+                        lows = Arrays.copyOf(lows, Math.max(2 * lows.length, numLows + size));
+                    }
+                    for (; idx < chunkEndIdx; idx++) {
+                        lows[numLows++] = (short) neighbours.Ids[idx];
+                    }
+                }
+                numContainers++;
+            }
+            containerOffsets[++hubIdx] = numContainers;
+        }
+        return new HubBitmaps(numKeys, hubKeys, containerOffsets,
+            Arrays.copyOf(containerChunks, numContainers),
+            Arrays.copyOf(containerSizes, numContainers),
+            Arrays.copyOf(containerDataOffsets, numContainers), Arrays.copyOf(words, numWords),
+            Arrays.copyOf(lows, numLows));
+    }
+
+    /**
+     * @return the number of hubs.
+     */
+    public int getNumHubs() {
+        return hubKeys.length;
+    }
+
+    /**
+     * @param key is the key {@code vertexId * numLabelsOrTypes + labelOrType} of an adjacency list.
+     * @return the index of the hub with the adjacency list, -1 if the list has no bitmap.
+     */
+    public int getHubIdx(int key) {
+        var word = isHub[key >>> 6];
+        var bit = 1L << key;
+        if ((word & bit) == 0) {
+            return -1;
+        }
+        return ranks[key >>> 6] + Long.bitCount(word & (bit - 1));
+    }
+
+    /**
+     * @param hubIdx is the index of the hub.
+     * @param id is the neighbour ID to look up.
+     * @return True if the neighbour ID is in the hub's adjacency list, false otherwise.
+     */
+    public boolean contains(int hubIdx, int id) {
+        var container = findContainer(hubIdx, id >>> 16);
+        return container >= 0 && containerContains(container, id & 0xFFFF);
+    }
+
+    /**
+     * Appends the given sorted IDs that are in the hub's adjacency list to the given neighbours.
+     *
+     * @param hubIdx is the index of the hub.
+     * @param ids are the sorted IDs to probe the hub's bitmap with.
+     * @param idx is the index of the first ID to probe.
+     * @param endIdx is the index after the last ID to probe.
+     * @param neighbours are the neighbours to append the IDs to.
+     */
+    public void probe(int hubIdx, int[] ids, int idx, int endIdx, Neighbours neighbours) {
+        var container = containerOffsets[hubIdx];
+        var endContainer = containerOffsets[hubIdx + 1];
+        var outIds = neighbours.Ids;
+        var outIdx = neighbours.endIdx;
+        while (idx < endIdx && container < endContainer) {
+            var chunk = ids[idx] >>> 16;
+            if (chunk < containerChunks[container]) {
+                idx++;
+            } else if (chunk > containerChunks[container]) {
+                container++;
+            } else {
+                var dataOffset = containerDataOffsets[container];
+                if (containerSizes[container] > ARRAY_CONTAINER_MAX_SIZE) {
+                    for (; idx < endIdx && ids[idx] >>> 16 == chunk; idx++) {
+                        var low = ids[idx] & 0xFFFF;
+                        if ((words[dataOffset + (low >>> 6)] & (1L << low)) != 0) {
+                            outIds[outIdx++] = ids[idx];
+                        }
+                    }
+                } else {
+                    var lowIdx = dataOffset;
+                    var lowEndIdx = dataOffset + containerSizes[container];
+                    while (idx < endIdx && ids[idx] >>> 16 == chunk && lowIdx < lowEndIdx) {
+                        var low = ids[idx] & 0xFFFF;
+                        var containerLow = lows[lowIdx] & 0xFFFF;
+                        if (low < containerLow) {
+                            idx++;
+                        } else if (low > containerLow) {
+                            lowIdx++;
+                        } else {
+                            outIds[outIdx++] = ids[idx++];
+                            lowIdx++;
+                        }
+                    }
+                    while (idx < endIdx && ids[idx] >>> 16 == chunk) {
+                        idx++;
+                    }
+                }
+                container++;
+            }
+        }
+        neighbours.endIdx = outIdx;
+    }
+
+    /**
+     * Appends the neighbour IDs in the adjacency lists of both hubs to the given neighbours in
+     * sorted order, intersecting the containers of the same chunks pairwise.
+     *
+     * @param hubIdx is the index of the hub.
+     * @param other are the bitmaps of the other hub.
+     * @param otherHubIdx is the index of the other hub.
+     * @param neighbours are the neighbours to append the IDs to.
+     */
+    public void intersect(int hubIdx, HubBitmaps other, int otherHubIdx, Neighbours neighbours) {
+        var container = containerOffsets[hubIdx];
+        var endContainer = containerOffsets[hubIdx + 1];
+        var otherContainer = other.containerOffsets[otherHubIdx];
+        var otherEndContainer = other.containerOffsets[otherHubIdx + 1];
+        while (container < endContainer && otherContainer < otherEndContainer) {
+            var chunk = containerChunks[container];
+            var otherChunk = other.containerChunks[otherContainer];
+            if (chunk < otherChunk) {
+                container++;
+            } else if (chunk > otherChunk) {
+                otherContainer++;
+            } else {
+                var isBitmap = containerSizes[container] > ARRAY_CONTAINER_MAX_SIZE;
+                var isOtherBitmap = other.containerSizes[otherContainer] > ARRAY_CONTAINER_MAX_SIZE;
+                if (isBitmap && isOtherBitmap) {
+                    intersectBitmaps(containerDataOffsets[container], other,
+                        other.containerDataOffsets[otherContainer], chunk, neighbours);
+                } else if (isBitmap) {
+                    other.probeArray(otherContainer, this, container, neighbours);
+                } else {
+                    probeArray(container, other, otherContainer, neighbours);
+                }
+                container++;
+                otherContainer++;
+            }
+        }
+    }
+
+    private void intersectBitmaps(int dataOffset, HubBitmaps other, int otherDataOffset,
+        int chunk, Neighbours neighbours) {
+        var outIds = neighbours.Ids;
+        var outIdx = neighbours.endIdx;
+        for (var i = 0; i < WORDS_PER_BITMAP; i++) {
+            var word = words[dataOffset + i] & other.words[otherDataOffset + i];
+            while (word != 0) {
+                outIds[outIdx++] = (chunk << 16) | (i << 6) | Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        neighbours.endIdx = outIdx;
+    }
+
+    /**
+     * Appends the IDs of an array container that are in the other hub's container of the same
+     * chunk, which is an array or a bitmap container.
+     */
+    private void probeArray(int container, HubBitmaps other, int otherContainer,
+        Neighbours neighbours) {
+        var chunk = containerChunks[container] << 16;
+        var lowIdx = containerDataOffsets[container];
+        var lowEndIdx = lowIdx + containerSizes[container];
+        var outIds = neighbours.Ids;
+        var outIdx = neighbours.endIdx;
+        if (other.containerSizes[otherContainer] > ARRAY_CONTAINER_MAX_SIZE) {
+            var otherDataOffset = other.containerDataOffsets[otherContainer];
+            for (; lowIdx < lowEndIdx; lowIdx++) {
+                var low = lows[lowIdx] & 0xFFFF;
+                if ((other.words[otherDataOffset + (low >>> 6)] & (1L << low)) != 0) {
+                    outIds[outIdx++] = chunk | low;
+                }
+            }
+        } else {
+            var otherLowIdx = other.containerDataOffsets[otherContainer];
+            var otherLowEndIdx = otherLowIdx + other.containerSizes[otherContainer];
+            while (lowIdx < lowEndIdx && otherLowIdx < otherLowEndIdx) {
+                var low = lows[lowIdx] & 0xFFFF;
+                var otherLow = other.lows[otherLowIdx] & 0xFFFF;
+                if (low < otherLow) {
+                    lowIdx++;
+                } else if (low > otherLow) {
+                    otherLowIdx++;
+                } else {
+                    outIds[outIdx++] = chunk | low;
+                    lowIdx++;
+                    otherLowIdx++;
+                }
+            }
+        }
+        neighbours.endIdx = outIdx;
+    }
+
+    private int findContainer(int hubIdx, int chunk) {
+        var low = containerOffsets[hubIdx];
+        var high = containerOffsets[hubIdx + 1] - 1;
+        while (low <= high) {
+            var mid = (low + high) >>> 1;
+            if (containerChunks[mid] < chunk) {
+                low = mid + 1;
+            } else if (containerChunks[mid] > chunk) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private boolean containerContains(int container, int low) {
+        var dataOffset = containerDataOffsets[container];
+        if (containerSizes[container] > ARRAY_CONTAINER_MAX_SIZE) {
+            return (words[dataOffset + (low >>> 6)] & (1L << low)) != 0;
+        }
+        var lowIdx = dataOffset;
+        var highIdx = dataOffset + containerSizes[container] - 1;
+        while (lowIdx <= highIdx) {
+            var mid = (lowIdx + highIdx) >>> 1;
+            var midLow = lows[mid] & 0xFFFF;
+            if (midLow < low) {
+                lowIdx = mid + 1;
+            } else if (midLow > low) {
+                highIdx = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,193 @@
+package ca.waterloo.dsg.graphflow.storage;
+
+import ca.waterloo.dsg.graphflow.storage.Graph.Direction;
+import ca.waterloo.dsg.graphflow.util.collection.PairBuffer;
+import lombok.var;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+
+/**
+ * The k-hop relations materialized by the jumps, i.e. the (first, last) vertex pairs of the paths
+ * of k edges with the same label, direction and to vertex type from every vertex of a type, kept
+ * in CSR form so the later jumps over the same hops reuse them. The relations are kept up to
+ * {@link #MAX_NUM_BYTES}, the least recently used ones are evicted first. The relations can be
+ * written next to the serialized graph, see {@link GraphFile}, with the highest vertex ID and
+ * number of edges of the graph so the relations of another graph are not read.
+ */
+public class KHopRelationCache {
+
+    private static final Logger logger = LogManager.getLogger(KHopRelationCache.class);
+
+    public static long MAX_NUM_BYTES = 1L << 28;
+
+    static final String FILE_NAME = "k_hop_relations.bin";
+    // the keys of the relations, followed by the offsets and the values of each relation.
+    private static final int KEYS = 1;
+
+    private final long maxNumBytes;
+    // in access order, the least recently used relation first.
+    private final LinkedHashMap<Long, PairBuffer.Index> relations =
+        new LinkedHashMap<>(16, 0.75f, true /* accessOrder */);
+    private long numBytes;
+
+    /**
+     * Constructs a {@link KHopRelationCache} object holding up to {@link #MAX_NUM_BYTES}.
+     */
+    public KHopRelationCache() {
+        this(MAX_NUM_BYTES);
+    }
+
+    /**
+     * Constructs a {@link KHopRelationCache} object.
+     *
+     * @param maxNumBytes is the number of bytes of the relations kept.
+     */
+    public KHopRelationCache(long maxNumBytes) {
+        this.maxNumBytes = maxNumBytes;
+    }
+
+    /**
+     * @param fromType is the type of the first vertices of the paths.
+     * @param label is the label of the edges of the paths.
+     * @param direction is the direction the edges of the paths are followed in.
+     * @param toType is the type of the other vertices of the paths.
+     * @param numHops is the number of edges of the paths.
+     * @return the relation as an {@link PairBuffer.Index} of the last vertices by first vertex,
+     * null if it is not cached.
+     */
+    public synchronized PairBuffer.Index get(short fromType, short label, Direction direction,
+        short toType, int numHops) {
+        return relations.get(getKey(fromType, label, direction, toType, numHops));
+    }
+
+    /**
+     * Caches a relation, evicting the least recently used ones to keep it, unless it is larger
+     * than the cache.
+     *
+     * @param fromType is the type of the first vertices of the paths.
+     * @param label is the label of the edges of the paths.
+     * @param direction is the direction the edges of the paths are followed in.
+     * @param toType is the type of the other vertices of the paths.
+     * @param numHops is the number of edges of the paths.
+     * @param pairs are the (first, last) vertex pairs of the paths.
+     * @param numVertices is the number of vertices, all the vertex IDs are in [0, numVertices).
+     */
+    public void put(short fromType, short label, Direction direction, short toType, int numHops,
+        PairBuffer pairs, int numVertices) {
+        var relationNumBytes = (long) Integer.BYTES * (numVertices + 1 + pairs.getSize());
+        if (relationNumBytes > maxNumBytes) {
+            return;
+        }
+        var relation = pairs.toIndex(numVertices);
+        synchronized (this) {
+            put(getKey(fromType, label, direction, toType, numHops), relation);
+        }
+    }
+
+    private void put(long key, PairBuffer.Index relation) {
+        var oldRelation = relations.remove(key);
+        if (null != oldRelation) {
+            numBytes -= oldRelation.getNumBytes();
+        }
+        var iterator = relations.values().iterator();
+        while (numBytes + relation.getNumBytes() > maxNumBytes && iterator.hasNext()) {
+            numBytes -= iterator.next().getNumBytes();
+            iterator.remove();
+        }
+        relations.put(key, relation);
+        numBytes += relation.getNumBytes();
+    }
+
+    /**
+     * Removes all the relations, e.g. once the edges they were materialized from changed.
+     */
+    public synchronized void clear() {
+        relations.clear();
+        numBytes = 0;
+    }
+
+    /**
+     * @return the number of bytes of the relations kept.
+     */
+    public synchronized long getNumBytes() {
+        return numBytes;
+    }
+
+    /**
+     * Writes the relations to the given directory, removing the file written earlier if there
+     * are none.
+     *
+     * @param directoryPath is the directory of the serialized graph.
+     * @param highestVertexId is the highest vertex ID of the graph.
+     * @param numEdges is the number of edges of the graph.
+     * @throws IOException if the file cannot be written to or closed.
+     */
+    synchronized void serialize(String directoryPath, int highestVertexId, int numEdges)
+        throws IOException {
+        if (relations.isEmpty()) {
+            Files.deleteIfExists(Paths.get(directoryPath + FILE_NAME));
+            return;
+        }
+        logger.info("Serializing " + relations.size() + " k-hop relations.");
+        var writer = new GraphFile.Writer();
+        var keys = new long[relations.size()];
+        var idx = 0;
+        for (var key : relations.keySet()) {
+            keys[idx++] = key;
+        }
+        writer.add(KEYS, keys);
+        // least recently used first so they are evicted first once read back.
+        for (var i = 0; i < keys.length; i++) {
+            var relation = relations.get(keys[i]);
+            writer.add(KEYS + 2 * i + 1, relation.getOffsets());
+            writer.add(KEYS + 2 * i + 2, relation.getValues());
+        }
+        writer.write(directoryPath + FILE_NAME, 0 /* flags */, highestVertexId, numEdges,
+            0 /* numLabelsOrTypes */);
+    }
+
+    /**
+     * Reads the relations written to the given directory, if any and if they were materialized
+     * from a graph with the given highest vertex ID and number of edges.
+     *
+     * @param directoryPath is the directory of the serialized graph.
+     * @param highestVertexId is the highest vertex ID of the graph.
+     * @param numEdges is the number of edges of the graph.
+     * @return the cache holding the relations read.
+     * @throws IOException if the file cannot be read.
+     */
+    static KHopRelationCache make(String directoryPath, int highestVertexId, int numEdges)
+        throws IOException {
+        var cache = new KHopRelationCache();
+        var file = directoryPath + FILE_NAME;
+        if (!new File(file).exists()) {
+            return cache;
+        }
+        try (var reader = new GraphFile.Reader(file)) {
+            if (reader.getHighestVertexId() != highestVertexId ||
+                    reader.getNumEdges() != numEdges) {
+                logger.info("Ignoring the k-hop relations of another graph in " + file + ".");
+                return cache;
+            }
+            var keys = reader.readLongs(KEYS);
+            for (var i = 0; i < keys.length; i++) {
+                cache.put(keys[i], new PairBuffer.Index(reader.readInts(KEYS + 2 * i + 1),
+                    reader.readInts(KEYS + 2 * i + 2)));
+            }
+        }
+        return cache;
+    }
+
+    private static long getKey(short fromType, short label, Direction direction, short toType,
+        int numHops) {
+        return ((long) (fromType & 0xFFFF) << 48) | ((long) (label & 0xFFFF) << 32) |
+            ((long) (toType & 0xFFFF) << 16) | ((long) direction.ordinal() << 15) |
+            (numHops & 0x7FFF);
+    }
+}
@@ -15,6 +15,16 @@ import java.util.Arrays;
  */
 public class SortedAdjList implements Serializable {
 
+    // Kept fixed so adjacency lists serialized by earlier versions still deserialize.
+    private static final long serialVersionUID = 4294153827469093642L;
+
+    // The ratio of the sizes of two lists from which the smaller list is galloped into the larger.
+    public static int GALLOPING_SIZE_RATIO = 32;
+    // The largest ratio of the IDs two lists overlap on to the number of IDs in both lists for
+    // which the lists are intersected with a bitmap, and the smallest number of IDs to do so.
+    public static int BITMAP_MAX_SPAN_RATIO = 32;
+    public static int BITMAP_MIN_NUM_IDS = 256;
+
     @Getter private int[] labelOrTypeOffsets;
     @Getter @Setter private int[] neighbourIds;
 
@@ -54,6 +64,7 @@ public class SortedAdjList implements Serializable {
         neighbours.Ids = neighbourIds;
         neighbours.startIdx = labelOrTypeOffsets[labelOrType];
         neighbours.endIdx = labelOrTypeOffsets[labelOrType + 1];
+        neighbours.hubIdx = -1;
     }
 
     /**
@@ -70,34 +81,187 @@ public class SortedAdjList implements Serializable {
         return labelOrTypeOffsets[labelOrType + 1] - labelOrTypeOffsets[labelOrType];
     }
 
-    private void intersect(Neighbours someNeighbours, Neighbours neighbours, int[] neighbourIds,
-        int thisIdx, int thisIdxEnd) {
+    /**
+     * Intersects the neighbour IDs between the given indices with the given neighbours using the
+     * kernel best suited to the sizes of the two lists: galloping when one list is
+     * {@link #GALLOPING_SIZE_RATIO} times larger than the other, a bitmap probe when both lists
+     * are dense over the range of IDs they overlap on, and a merge otherwise. The kernel does not
+     * change the i-cost, which the callers count as the size of the adjacency list.
+     *
+     * @param someNeighbours are the neighbours to intersect with.
+     * @param neighbours are the neighbours to set to the intersection result.
+     * @param neighbourIds are the neighbour IDs the adjacency list is stored in.
+     * @param thisIdx is the index of the first neighbour ID of the adjacency list.
+     * @param thisIdxEnd is the index after the last neighbour ID of the adjacency list.
+     */
+    public static void intersect(Neighbours someNeighbours, Neighbours neighbours,
+        int[] neighbourIds, int thisIdx, int thisIdxEnd) {
         neighbours.reset();
         var someNeighbourIds = someNeighbours.Ids;
         var someIdx = someNeighbours.startIdx;
         var someEndIdx = someNeighbours.endIdx;
-        while (thisIdx < thisIdxEnd && someIdx < someEndIdx) {
-            if (neighbourIds[thisIdx] < someNeighbourIds[someIdx]) {
-                thisIdx++;
-                while (thisIdx < thisIdxEnd &&
-                        neighbourIds[thisIdx] < someNeighbourIds[someIdx]) {
-                    thisIdx++;
+        long thisSize = thisIdxEnd - thisIdx;
+        long someSize = someEndIdx - someIdx;
+        if (0 == thisSize || 0 == someSize) {
+            return;
+        }
+        if (thisSize >= GALLOPING_SIZE_RATIO * someSize) {
+            gallop(someNeighbourIds, someIdx, someEndIdx, neighbourIds, thisIdx, thisIdxEnd,
+                neighbours);
+        } else if (someSize >= GALLOPING_SIZE_RATIO * thisSize) {
+            gallop(neighbourIds, thisIdx, thisIdxEnd, someNeighbourIds, someIdx, someEndIdx,
+                neighbours);
+        } else if (isDense(neighbourIds, thisIdx, thisIdxEnd, someNeighbourIds, someIdx,
+                someEndIdx)) {
+            probeBitmap(someNeighbourIds, someIdx, someEndIdx, neighbourIds, thisIdx, thisIdxEnd,
+                neighbours);
+        } else {
+            merge(someNeighbourIds, someIdx, someEndIdx, neighbourIds, thisIdx, thisIdxEnd,
+                neighbours);
+        }
+    }
+
+    /**
+     * @return True if the IDs both lists overlap on are at most {@link #BITMAP_MAX_SPAN_RATIO}
+     * times as many as the IDs in both lists, false otherwise.
+     */
+    private static boolean isDense(int[] ids, int idx, int endIdx, int[] otherIds, int otherIdx,
+        int otherEndIdx) {
+        var numIds = (endIdx - idx) + (otherEndIdx - otherIdx);
+        if (numIds < BITMAP_MIN_NUM_IDS) {
+            return false;
+        }
+        var lowestId = Math.max(ids[idx], otherIds[otherIdx]);
+        var highestId = Math.min(ids[endIdx - 1], otherIds[otherEndIdx - 1]);
+        return (long) highestId - lowestId < (long) BITMAP_MAX_SPAN_RATIO * numIds;
+    }
+
+    /**
+     * Intersects two sorted lists by advancing the index of the list with the smaller ID.
+     *
+     * @param ids are the IDs of the first list.
+     * @param idx is the index of the first ID of the first list.
+     * @param endIdx is the index after the last ID of the first list.
+     * @param otherIds are the IDs of the second list.
+     * @param otherIdx is the index of the first ID of the second list.
+     * @param otherEndIdx is the index after the last ID of the second list.
+     * @param neighbours are the neighbours to append the IDs in both lists to.
+     */
+    public static void merge(int[] ids, int idx, int endIdx, int[] otherIds, int otherIdx,
+        int otherEndIdx, Neighbours neighbours) {
+        while (otherIdx < otherEndIdx && idx < endIdx) {
+            if (otherIds[otherIdx] < ids[idx]) {
+                otherIdx++;
+                while (otherIdx < otherEndIdx && otherIds[otherIdx] < ids[idx]) {
+                    otherIdx++;
                 }
-            } else if (neighbourIds[thisIdx] > someNeighbourIds[someIdx]) {
-                someIdx++;
-                while (someIdx < someEndIdx &&
-                        neighbourIds[thisIdx] > someNeighbourIds[someIdx]) {
-                    someIdx++;
+            } else if (otherIds[otherIdx] > ids[idx]) {
+                idx++;
+                while (idx < endIdx && otherIds[otherIdx] > ids[idx]) {
+                    idx++;
                 }
             } else {
-                neighbours.Ids[neighbours.endIdx] = neighbourIds[thisIdx];
+                neighbours.Ids[neighbours.endIdx] = otherIds[otherIdx];
                 neighbours.endIdx++;
-                thisIdx++;
-                someIdx++;
+                otherIdx++;
+                idx++;
             }
         }
     }
 
+    /**
+     * Intersects a small sorted list with a large one by searching for each ID of the small list
+     * in the large list with an exponential search followed by a binary search, starting from
+     * where the previous ID was found.
+     *
+     * @param smallIds are the IDs of the small list.
+     * @param smallIdx is the index of the first ID of the small list.
+     * @param smallEndIdx is the index after the last ID of the small list.
+     * @param largeIds are the IDs of the large list.
+     * @param largeIdx is the index of the first ID of the large list.
+     * @param largeEndIdx is the index after the last ID of the large list.
+     * @param neighbours are the neighbours to append the IDs in both lists to.
+     */
+    public static void gallop(int[] smallIds, int smallIdx, int smallEndIdx, int[] largeIds,
+        int largeIdx, int largeEndIdx, Neighbours neighbours) {
+        for (; smallIdx < smallEndIdx && largeIdx < largeEndIdx; smallIdx++) {
+            var id = smallIds[smallIdx];
+            if (largeIds[largeIdx] < id) {
+                // find a range (low, high] of the large list holding the first ID >= id.
+                var low = largeIdx;
+                var step = 1;
+                var high = largeIdx + step;
+                while (high < largeEndIdx && largeIds[high] < id) {
+                    low = high;
+                    step <<= 1;
+                    high = largeIdx + step;
+                }
+                if (high > largeEndIdx) {
+                    high = largeEndIdx;
+                }
+                while (low + 1 < high) {
+                    var mid = (low + high) >>> 1;
+                    if (largeIds[mid] < id) {
+                        low = mid;
+                    } else {
+                        high = mid;
+                    }
+                }
+                largeIdx = high;
+                if (largeIdx == largeEndIdx) {
+                    return;
+                }
+            }
+            if (largeIds[largeIdx] == id) {
+                neighbours.Ids[neighbours.endIdx++] = id;
+                largeIdx++;
+            }
+        }
+    }
+
+    /**
+     * Intersects two sorted lists by setting the IDs of the first list in a bitmap over the IDs
+     * both lists overlap on and probing it with the IDs of the second list.
+     *
+     * @param ids are the IDs of the first list.
+     * @param idx is the index of the first ID of the first list.
+     * @param endIdx is the index after the last ID of the first list.
+     * @param otherIds are the IDs of the second list.
+     * @param otherIdx is the index of the first ID of the second list.
+     * @param otherEndIdx is the index after the last ID of the second list.
+     * @param neighbours are the neighbours to append the IDs in both lists to. Its bitmap is
+     * used as scratch space.
+     */
+    public static void probeBitmap(int[] ids, int idx, int endIdx, int[] otherIds, int otherIdx,
+        int otherEndIdx, Neighbours neighbours) {
+        if (idx == endIdx || otherIdx == otherEndIdx) {
+            return;
+        }
+        var lowestId = Math.max(ids[idx], otherIds[otherIdx]);
+        var highestId = Math.min(ids[endIdx - 1], otherIds[otherEndIdx - 1]);
+        if (lowestId > highestId) {
+            return;
+        }
+        var numWords = (int) (((long) highestId - lowestId) >>> 6) + 1;
+        var bitmap = neighbours.getBitmap(numWords);
+        Arrays.fill(bitmap, 0, numWords, 0L);
+        for (; idx < endIdx && ids[idx] <= highestId; idx++) {
+            var offset = ids[idx] - lowestId;
+            if (offset >= 0) {
+                bitmap[offset >>> 6] |= 1L << offset;
+            }
+        }
+        var outIds = neighbours.Ids;
+        var outIdx = neighbours.endIdx;
+        for (; otherIdx < otherEndIdx && otherIds[otherIdx] <= highestId; otherIdx++) {
+            var offset = otherIds[otherIdx] - lowestId;
+            if (offset >= 0 && (bitmap[offset >>> 6] & (1L << offset)) != 0) {
+                outIds[outIdx++] = otherIds[otherIdx];
+            }
+        }
+        neighbours.endIdx = outIdx;
+    }
+
     /**
      * Sorts each list of neighbour Ids of a particular label.
      */
@@ -119,6 +283,6 @@ public class SortedAdjList implements Serializable {
      * @return the size of the adjacency list.
      */
     public int size(short labelOrType) {
-        return labelOrTypeOffsets[labelOrType + 1] + labelOrTypeOffsets[labelOrType];
+        return labelOrTypeOffsets[labelOrType + 1] - labelOrTypeOffsets[labelOrType];
     }
 }
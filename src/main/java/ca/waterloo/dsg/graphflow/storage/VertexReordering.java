@@ -0,0 +1,315 @@
+package ca.waterloo.dsg.graphflow.storage;
+
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
+import lombok.var;
+
+import java.util.Arrays;
+
+/**
+ * Vertex orderings improving the locality of the adjacency lists. Each ordering returns the
+ * permutation {@code newToOldIds} with {@code newToOldIds[newId]} the ID of the vertex given the
+ * new ID, which {@link Graph#relabelVertices(int[])} applies to the graph.
+ *
+ * The orderings consider the edges in both directions and ignore the labels and vertex types:
+ * - DEGREE sorts the vertices by descending degree so the hubs, which most adjacency lists hold,
+ * share a few cache lines.
+ * - RCM is the reverse Cuthill-McKee ordering, a breadth first search from low-degree vertices
+ * visiting the neighbours by ascending degree, which places neighbours close to each other.
+ * - GORDER greedily places next the vertex sharing the most edges and common in-neighbours with
+ * the last {@link #GORDER_WINDOW_SIZE} placed vertices as in Wei et al. 'Speedup Graph Processing
+ * by Graph Ordering', SIGMOD 2016.
+ */
+public class VertexReordering {
+
+    /**
+     * The vertex orderings.
+     */
+    public enum Ordering {
+        NONE,
+        DEGREE,
+        RCM,
+        GORDER
+    }
+
+    public static int GORDER_WINDOW_SIZE = 5;
+
+    /**
+     * @param graph is the graph to order the vertices of.
+     * @param ordering is the vertex ordering.
+     * @return the permutation from the new vertex IDs to the current ones.
+     */
+    public static int[] getNewToOldIds(Graph graph, Ordering ordering) {
+        switch (ordering) {
+            case DEGREE:
+                return orderByDegree(graph);
+            case RCM:
+                return orderByRCM(graph);
+            case GORDER:
+                return orderByGorder(graph);
+            default:
+                var newToOldIds = new int[graph.getHighestVertexId() + 1];
+                for (var vertexId = 0; vertexId < newToOldIds.length; vertexId++) {
+                    newToOldIds[vertexId] = vertexId;
+                }
+                return newToOldIds;
+        }
+    }
+
+    /**
+     * Returns the average log2 of the gaps between consecutive neighbour IDs of the adjacency
+     * lists, the number of bits a gap encoding of the lists takes per neighbour ID. The lower it
+     * is the fewer cache lines the neighbours of a vertex span.
+     *
+     * @param adjLists are the adjacency lists.
+     * @return the average log2 gap between consecutive neighbour IDs.
+     */
+    public static double getAverageLogGap(CSRAdjLists adjLists) {
+        var offsets = adjLists.getOffsets();
+        var neighbours = new Neighbours();
+        var sumOfLogGaps = 0.0;
+        var numGaps = 0L;
+        for (var key = 0; key < offsets.length - 1; key++) {
+            adjLists.setNeighbourIds(offsets[key], offsets[key + 1], neighbours);
+            for (var idx = neighbours.startIdx + 1; idx < neighbours.endIdx; idx++) {
+                sumOfLogGaps += log2(neighbours.Ids[idx] - neighbours.Ids[idx - 1] + 1L);
+                numGaps++;
+            }
+        }
+        return 0 == numGaps ? 0.0 : sumOfLogGaps / numGaps;
+    }
+
+    private static double log2(long value) {
+        return Math.log(value) / Math.log(2);
+    }
+
+    private static int[] getDegrees(Graph graph) {
+        var degrees = new int[graph.getHighestVertexId() + 1];
+        for (var vertexId = 0; vertexId < degrees.length; vertexId++) {
+            degrees[vertexId] = graph.getFwdCSRAdjLists().size(vertexId) +
+                graph.getBwdCSRAdjLists().size(vertexId);
+        }
+        return degrees;
+    }
+
+    /**
+     * Sets the given {@link Neighbours} to the neighbours of the vertex across all labels or types.
+     */
+    private static void setNeighbourIds(CSRAdjLists adjLists, int vertexId,
+        Neighbours neighbours) {
+        var numLabelsOrTypes = adjLists.getNumLabelsOrTypes();
+        adjLists.setNeighbourIds(adjLists.getOffsets()[vertexId * numLabelsOrTypes],
+            adjLists.getOffsets()[(vertexId + 1) * numLabelsOrTypes], neighbours);
+    }
+
+    private static int[] orderByDegree(Graph graph) {
+        var degrees = getDegrees(graph);
+        var maxDegree = 0;
+        for (var degree : degrees) {
+            maxDegree = Math.max(maxDegree, degree);
+        }
+        // counting sort by descending degree keeping the current order of equal degree vertices.
+        var degreeOffsets = new int[maxDegree + 2];
+        for (var degree : degrees) {
+            degreeOffsets[maxDegree - degree + 1]++;
+        }
+        for (var i = 1; i < degreeOffsets.length; i++) {
+            degreeOffsets[i] += degreeOffsets[i - 1];
+        }
+        var newToOldIds = new int[degrees.length];
+        for (var vertexId = 0; vertexId < degrees.length; vertexId++) {
+            newToOldIds[degreeOffsets[maxDegree - degrees[vertexId]]++] = vertexId;
+        }
+        return newToOldIds;
+    }
+
+    private static int[] orderByRCM(Graph graph) {
+        var degrees = getDegrees(graph);
+        var numVertices = degrees.length;
+        // the start vertices of the breadth first searches by ascending degree.
+        var startVertices = orderByDegree(graph);
+        var isVisited = new boolean[numVertices];
+        var order = new int[numVertices];
+        var degreesAndIds = new long[0];
+        var neighbours = new Neighbours();
+        var numOrdered = 0;
+        for (var i = numVertices - 1; i >= 0; i--) {
+            var startVertex = startVertices[i];
+            if (isVisited[startVertex]) {
+                continue;
+            }
+            isVisited[startVertex] = true;
+            order[numOrdered++] = startVertex;
+            for (var head = numOrdered - 1; head < numOrdered; head++) {
+                var vertexId = order[head];
+                var numNewVertices = 0;
+                for (var adjLists : new CSRAdjLists[] {
+                        graph.getFwdCSRAdjLists(), graph.getBwdCSRAdjLists() }) {
+                    setNeighbourIds(adjLists, vertexId, neighbours);
+                    for (var idx = neighbours.startIdx; idx < neighbours.endIdx; idx++) {
+                        var neighbourId = neighbours.Ids[idx];
+                        if (!isVisited[neighbourId]) {
+                            isVisited[neighbourId] = true;
+                            if (numNewVertices == degreesAndIds.length) {
+                                degreesAndIds = Arrays.copyOf(degreesAndIds,
+                                    Math.max(16, 2 * numNewVertices));
+                            }
+                            degreesAndIds[numNewVertices++] =
+                                ((long) degrees[neighbourId] << 32) | neighbourId;
+                        }
+                    }
+                }
+                Arrays.sort(degreesAndIds, 0, numNewVertices);
+                for (var j = 0; j < numNewVertices; j++) {
+                    order[numOrdered++] = (int) degreesAndIds[j];
+                }
+            }
+        }
+        var newToOldIds = new int[numVertices];
+        for (var i = 0; i < numVertices; i++) {
+            newToOldIds[i] = order[numVertices - 1 - i];
+        }
+        return newToOldIds;
+    }
+
+    private static int[] orderByGorder(Graph graph) {
+        var degrees = getDegrees(graph);
+        var numVertices = degrees.length;
+        var newToOldIds = new int[numVertices];
+        if (0 == numVertices) {
+            return newToOldIds;
+        }
+        var queue = new BucketQueue(numVertices);
+        var isPlaced = new boolean[numVertices];
+        var firstVertex = 0;
+        for (var vertexId = 1; vertexId < numVertices; vertexId++) {
+            if (degrees[vertexId] > degrees[firstVertex]) {
+                firstVertex = vertexId;
+            }
+        }
+        // the common in-neighbours of hubs are not counted as a hub makes all its out-neighbours
+        // siblings of each other, the same as in the paper.
+        var maxSiblingsDegree = (int) Math.sqrt(numVertices);
+        var scratch = new Neighbours[] { new Neighbours(), new Neighbours(), new Neighbours() };
+        for (var position = 0; position < numVertices; position++) {
+            int vertexId;
+            if (0 == position) {
+                vertexId = firstVertex;
+                queue.remove(vertexId);
+            } else {
+                vertexId = queue.removeMax();
+            }
+            newToOldIds[position] = vertexId;
+            isPlaced[vertexId] = true;
+            updateScores(graph, vertexId, 1, queue, isPlaced, maxSiblingsDegree, scratch);
+            if (position >= GORDER_WINDOW_SIZE) {
+                updateScores(graph, newToOldIds[position - GORDER_WINDOW_SIZE], -1, queue,
+                    isPlaced, maxSiblingsDegree, scratch);
+            }
+        }
+        return newToOldIds;
+    }
+
+    /**
+     * Adds delta to the score of the vertices sharing an edge or an in-neighbour with the vertex
+     * entering, delta 1, or leaving, delta -1, the window.
+     */
+    private static void updateScores(Graph graph, int vertexId, int delta, BucketQueue queue,
+        boolean[] isPlaced, int maxSiblingsDegree, Neighbours[] scratch) {
+        var fwdAdjLists = graph.getFwdCSRAdjLists();
+        var outNeighbours = scratch[0];
+        var inNeighbours = scratch[1];
+        var siblings = scratch[2];
+        setNeighbourIds(fwdAdjLists, vertexId, outNeighbours);
+        for (var idx = outNeighbours.startIdx; idx < outNeighbours.endIdx; idx++) {
+            if (!isPlaced[outNeighbours.Ids[idx]]) {
+                queue.add(outNeighbours.Ids[idx], delta);
+            }
+        }
+        setNeighbourIds(graph.getBwdCSRAdjLists(), vertexId, inNeighbours);
+        for (var idx = inNeighbours.startIdx; idx < inNeighbours.endIdx; idx++) {
+            var inNeighbourId = inNeighbours.Ids[idx];
+            if (!isPlaced[inNeighbourId]) {
+                queue.add(inNeighbourId, delta);
+            }
+            if (fwdAdjLists.size(inNeighbourId) > maxSiblingsDegree) {
+                continue;
+            }
+            setNeighbourIds(fwdAdjLists, inNeighbourId, siblings);
+            for (var siblingIdx = siblings.startIdx; siblingIdx < siblings.endIdx; siblingIdx++) {
+                if (!isPlaced[siblings.Ids[siblingIdx]]) {
+                    queue.add(siblings.Ids[siblingIdx], delta);
+                }
+            }
+        }
+    }
+
+    /**
+     * A max priority queue of vertices by their non-negative integer score, with constant time
+     * score updates, keeping a doubly linked list of the vertices of each score.
+     */
+    private static class BucketQueue {
+
+        private int[] scores;
+        private int[] prev;
+        private int[] next;
+        private int[] heads;
+        private int maxScore;
+
+        BucketQueue(int numVertices) {
+            scores = new int[numVertices];
+            prev = new int[numVertices];
+            next = new int[numVertices];
+            heads = new int[16];
+            Arrays.fill(heads, -1);
+            for (var vertexId = numVertices - 1; vertexId >= 0; vertexId--) {
+                link(vertexId);
+            }
+        }
+
+        void add(int vertexId, int delta) {
+            unlink(vertexId);
+            scores[vertexId] += delta;
+            if (scores[vertexId] >= heads.length) {
+                var numScores = heads.length;
+                heads = Arrays.copyOf(heads, 2 * numScores);
+                Arrays.fill(heads, numScores, heads.length, -1);
+            }
+            link(vertexId);
+            maxScore = Math.max(maxScore, scores[vertexId]);
+        }
+
+        void remove(int vertexId) {
+            unlink(vertexId);
+        }
+
+        int removeMax() {
+            while (-1 == heads[maxScore]) {
+                maxScore--;
+            }
+            var vertexId = heads[maxScore];
+            unlink(vertexId);
+            return vertexId;
+        }
+
+        private void link(int vertexId) {
+            var head = heads[scores[vertexId]];
+            prev[vertexId] = -1;
+            next[vertexId] = head;
+            if (-1 != head) {
+                prev[head] = vertexId;
+            }
+            heads[scores[vertexId]] = vertexId;
+        }
+
+        private void unlink(int vertexId) {
+            if (-1 == prev[vertexId]) {
+                heads[scores[vertexId]] = next[vertexId];
+            } else {
+                next[prev[vertexId]] = next[vertexId];
+            }
+            if (-1 != next[vertexId]) {
+                prev[next[vertexId]] = prev[vertexId];
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ca.waterloo.dsg.graphflow.util;
+
+import lombok.var;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A value loaded on first access, e.g. a deserialized structure most queries do not need. The
+ * value is loaded once: threads accessing it while it loads wait for it.
+ *
+ * @param <T> is the type of the value.
+ */
+public class Lazy<T> {
+
+    private static final Logger logger = LogManager.getLogger(Lazy.class);
+
+    private final String name;
+    private final FutureTask<T> task;
+
+    /**
+     * Constructs a {@link Lazy} object.
+     *
+     * @param name is the name of the value logged with its loading time.
+     * @param loader loads the value.
+     */
+    public Lazy(String name, Callable<T> loader) {
+        this.name = name;
+        this.task = new FutureTask<>(() -> {
+            var startTime = System.nanoTime();
+            var value = loader.call();
+            logger.info(String.format("Loaded %s on first access in %.2f ms.", name,
+                IOUtils.getElapsedTimeInMillis(startTime)));
+            return value;
+        });
+    }
+
+    /**
+     * @return the value, loaded by the calling thread if it was not loaded yet.
+     * @throws UncheckedIOException if the value cannot be read.
+     */
+    public T get() {
+        task.run(); /* runs the loader the first time only. */
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading " + name + ".", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException("Error loading " + name + ": " +
+                    e.getCause().getMessage(), (IOException) e.getCause());
+            }
+            throw new IllegalStateException("Error loading " + name + ".", e.getCause());
+        }
+    }
+
+    /**
+     * @return True if the value was loaded, false otherwise.
+     */
+    public boolean isLoaded() {
+        return task.isDone();
+    }
+}
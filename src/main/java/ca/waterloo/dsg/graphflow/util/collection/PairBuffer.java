@@ -0,0 +1,279 @@
+package ca.waterloo.dsg.graphflow.util.collection;
+
+import lombok.Getter;
+import lombok.var;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A growable relation of (first, second) int pairs stored column by column, e.g. the vertex pairs
+ * of the paths matched by a jump, without an object per pair. The columns are kept on the heap or,
+ * if {@link #OFF_HEAP} is set, in direct buffers so large relations do not weigh on the garbage
+ * collector.
+ */
+public class PairBuffer {
+
+    public static boolean OFF_HEAP = false;
+    // the most pairs a direct buffer of 2^31 - 1 bytes holds per column.
+    public static final int MAX_CAPACITY = Integer.MAX_VALUE / Integer.BYTES;
+
+    /**
+     * A consumer of the pairs of a {@link PairBuffer}.
+     */
+    @FunctionalInterface
+    public interface PairConsumer {
+        void accept(int first, int second);
+    }
+
+    /**
+     * A CSR index of the second values of the pairs by their first value.
+     */
+    public static class Index {
+
+        @Getter private int[] offsets;
+        @Getter private int[] values;
+
+        /**
+         * Constructs an {@link Index} object.
+         *
+         * @param offsets are the start indices of the second values of each first value followed
+         * by the number of second values.
+         * @param values are the second values ordered by first value.
+         */
+        public Index(int[] offsets, int[] values) {
+            this.offsets = offsets;
+            this.values = values;
+        }
+
+        /**
+         * @param key is the first value of the pairs.
+         * @return the start index of the second values of the pairs with the first value.
+         */
+        public int getStartIdx(int key) {
+            return key < offsets.length - 1 ? offsets[key] : 0;
+        }
+
+        /**
+         * @param key is the first value of the pairs.
+         * @return the end index of the second values of the pairs with the first value.
+         */
+        public int getEndIdx(int key) {
+            return key < offsets.length - 1 ? offsets[key + 1] : 0;
+        }
+
+        /**
+         * @return the number of bytes of the offsets and the values.
+         */
+        public long getNumBytes() {
+            return (long) Integer.BYTES * (offsets.length + values.length);
+        }
+
+        /**
+         * @return the pairs ordered by first value, on or off the heap as set by
+         * {@link #OFF_HEAP}.
+         */
+        public PairBuffer toPairs() {
+            var pairs = new PairBuffer(values.length, OFF_HEAP);
+            for (var key = 0; key < offsets.length - 1; key++) {
+                if (offsets[key] < offsets[key + 1]) {
+                    pairs.addAll(key, values, offsets[key], offsets[key + 1]);
+                }
+            }
+            return pairs;
+        }
+    }
+
+    private final boolean isOffHeap;
+    private IntBuffer firsts;
+    private IntBuffer seconds;
+    @Getter private int size;
+
+    /**
+     * Constructs a {@link PairBuffer} object on or off the heap as set by {@link #OFF_HEAP}.
+     */
+    public PairBuffer() {
+        this(1024, OFF_HEAP);
+    }
+
+    /**
+     * Constructs a {@link PairBuffer} object.
+     *
+     * @param capacity is the number of pairs to allocate space for.
+     * @param isOffHeap is true to store the columns in direct buffers.
+     */
+    public PairBuffer(int capacity, boolean isOffHeap) {
+        this.isOffHeap = isOffHeap;
+        this.firsts = allocate(capacity);
+        this.seconds = allocate(capacity);
+    }
+
+    /**
+     * @param first is the first value of the pair.
+     * @param second is the second value of the pair.
+     */
+    public void add(int first, int second) {
+        ensureCapacity(size + 1);
+        firsts.put(size, first);
+        seconds.put(size++, second);
+    }
+
+    /**
+     * Adds a pair per second value in the given range, all with the same first value.
+     *
+     * @param first is the first value of the pairs.
+     * @param secondValues holds the second values of the pairs.
+     * @param startIdx is the index of the first second value to add.
+     * @param endIdx is the index after the last second value to add.
+     */
+    public void addAll(int first, int[] secondValues, int startIdx, int endIdx) {
+        var numPairs = endIdx - startIdx;
+        ensureCapacity(size + numPairs);
+        for (var i = 0; i < numPairs; i++) {
+            firsts.put(size + i, first);
+        }
+        var dst = seconds.duplicate();
+        dst.position(size);
+        dst.put(secondValues, startIdx, numPairs);
+        size += numPairs;
+    }
+
+    /**
+     * @param other are the pairs to add.
+     */
+    public void addAll(PairBuffer other) {
+        ensureCapacity(size + other.size);
+        copy(other.firsts, firsts, other.size, size);
+        copy(other.seconds, seconds, other.size, size);
+        size += other.size;
+    }
+
+    /**
+     * @param idx is the index of the pair.
+     * @return the first value of the pair.
+     */
+    public int getFirst(int idx) {
+        return firsts.get(idx);
+    }
+
+    /**
+     * @param idx is the index of the pair.
+     * @return the second value of the pair.
+     */
+    public int getSecond(int idx) {
+        return seconds.get(idx);
+    }
+
+    /**
+     * @param consumer is passed the pairs in order.
+     */
+    public void forEach(PairConsumer consumer) {
+        for (var idx = 0; idx < size; idx++) {
+            consumer.accept(firsts.get(idx), seconds.get(idx));
+        }
+    }
+
+    /**
+     * Removes all the pairs keeping the allocated space.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Sorts the pairs by their first value with a counting sort keeping the order of the pairs
+     * with equal first values.
+     *
+     * @param numKeys is the number of distinct values, all the values are in [0, numKeys).
+     */
+    public void sortByFirst(int numKeys) {
+        var sorted = sort(firsts, seconds, numKeys);
+        firsts = sorted[0];
+        seconds = sorted[1];
+    }
+
+    /**
+     * Sorts the pairs by their second value with a counting sort keeping the order of the pairs
+     * with equal second values.
+     *
+     * @param numKeys is the number of distinct values, all the values are in [0, numKeys).
+     */
+    public void sortBySecond(int numKeys) {
+        var sorted = sort(seconds, firsts, numKeys);
+        seconds = sorted[0];
+        firsts = sorted[1];
+    }
+
+    /**
+     * @param numKeys is the number of distinct first values, all in [0, numKeys).
+     * @return the {@link Index} of the second values of the pairs by their first value.
+     */
+    public Index toIndex(int numKeys) {
+        var offsets = getOffsets(firsts, numKeys);
+        var values = new int[size];
+        var nextIdxs = offsets.clone();
+        for (var idx = 0; idx < size; idx++) {
+            values[nextIdxs[firsts.get(idx)]++] = seconds.get(idx);
+        }
+        return new Index(offsets, values);
+    }
+
+    private IntBuffer[] sort(IntBuffer keys, IntBuffer values, int numKeys) {
+        var nextIdxs = getOffsets(keys, numKeys);
+        var sortedKeys = allocate(firsts.capacity());
+        var sortedValues = allocate(firsts.capacity());
+        for (var idx = 0; idx < size; idx++) {
+            var key = keys.get(idx);
+            var sortedIdx = nextIdxs[key]++;
+            sortedKeys.put(sortedIdx, key);
+            sortedValues.put(sortedIdx, values.get(idx));
+        }
+        return new IntBuffer[] { sortedKeys, sortedValues };
+    }
+
+    private int[] getOffsets(IntBuffer keys, int numKeys) {
+        var offsets = new int[numKeys + 1];
+        for (var idx = 0; idx < size; idx++) {
+            offsets[keys.get(idx) + 1]++;
+        }
+        for (var key = 0; key < numKeys; key++) {
+            offsets[key + 1] += offsets[key];
+        }
+        return offsets;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity < 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalStateException("A pair buffer holds at most " + MAX_CAPACITY +
+                " pairs.");
+        }
+        if (capacity <= firsts.capacity()) {
+            return;
+        }
+        var newCapacity = (int) Math.min(MAX_CAPACITY, Math.max(capacity,
+            2L * firsts.capacity()));
+        var newFirsts = allocate(newCapacity);
+        var newSeconds = allocate(newCapacity);
+        copy(firsts, newFirsts, size, 0);
+        copy(seconds, newSeconds, size, 0);
+        firsts = newFirsts;
+        seconds = newSeconds;
+    }
+
+    private IntBuffer allocate(int capacity) {
+        if (isOffHeap) {
+            return ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(
+                ByteOrder.nativeOrder()).asIntBuffer();
+        }
+        return IntBuffer.allocate(capacity);
+    }
+
+    private static void copy(IntBuffer from, IntBuffer to, int length, int toIdx) {
+        var src = from.duplicate();
+        src.position(0).limit(length);
+        var dst = to.duplicate();
+        dst.position(toIdx);
+        dst.put(src);
+    }
+}
@@ -0,0 +1,140 @@
+package ca.waterloo.dsg.graphflow.storage;
+
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
+import lombok.var;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the zig-zag varint encoded blocks of {@link CompressedCSRAdjLists} against the
+ * uncompressed {@link CSRAdjLists} they are made from.
+ */
+public class CompressedCSRAdjListsTest {
+
+    private static final int BLOCK_SIZE = CompressedCSRAdjLists.BLOCK_SIZE;
+
+    @Test
+    public void testListsOfOneBlockSize() {
+        assertDecodesAsUncompressed(makeAdjLists(BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1));
+    }
+
+    @Test
+    public void testListsSpanningBlocks() {
+        // the lists after the first one start in the middle of a block.
+        assertDecodesAsUncompressed(makeAdjLists(3, BLOCK_SIZE + 1, BLOCK_SIZE - 1, 0,
+            BLOCK_SIZE, 2 * BLOCK_SIZE + 5, 1));
+    }
+
+    @Test
+    public void testNegativeAndLargeDeltas() {
+        // the deltas between the lists are negative and the ones within them take 5 bytes.
+        var neighbourIds = new int[] {0, Integer.MAX_VALUE, 1, Integer.MAX_VALUE - 1,
+            Integer.MAX_VALUE, 5, 1 << 7, 1 << 14, 1 << 21, 1 << 28};
+        var offsets = new int[] {0, 2, 5, 10};
+        assertDecodesAsUncompressed(new CSRAdjLists(1, offsets, neighbourIds));
+    }
+
+    @Test
+    public void testEmptyAdjLists() {
+        var compressed = CompressedCSRAdjLists.make(new CSRAdjLists(1, new int[] {0, 0, 0},
+            new int[0]));
+        assertThat(compressed.getBlockFirstIds()).isEmpty();
+        assertThat(compressed.decompress().getNeighbourIds()).isEmpty();
+        var neighbours = new Neighbours();
+        compressed.setNeighbourIds(1, (short) 0, neighbours);
+        assertThat(neighbours.endIdx - neighbours.startIdx).isZero();
+    }
+
+    @Test
+    public void testMultipleLabels() {
+        var adjLists = makeAdjLists(BLOCK_SIZE, 0, 7, BLOCK_SIZE + 1, 2, BLOCK_SIZE - 1);
+        assertDecodesAsUncompressed(new CSRAdjLists(2, adjLists.getOffsets(),
+            adjLists.getNeighbourIds()));
+    }
+
+    private static void assertDecodesAsUncompressed(CSRAdjLists adjLists) {
+        var compressed = CompressedCSRAdjLists.make(adjLists);
+        var neighbourIds = adjLists.getNeighbourIds();
+        assertThat(compressed.decompress().getNeighbourIds()).containsExactly(neighbourIds);
+        for (var idx = 0; idx < neighbourIds.length; idx++) {
+            assertThat(compressed.getNeighbourId(idx)).as("ID at %d", idx).isEqualTo(
+                neighbourIds[idx]);
+        }
+        var numLabels = adjLists.getNumLabelsOrTypes();
+        var numVertices = (adjLists.getOffsets().length - 1) / numLabels;
+        var neighbours = new Neighbours();
+        var someNeighbours = new Neighbours();
+        var intersection = new Neighbours(neighbourIds.length);
+        for (var vertexId = 0; vertexId < numVertices; vertexId++) {
+            for (var label = (short) 0; label < numLabels; label++) {
+                var expected = toList(adjLists, vertexId, label);
+                compressed.setNeighbourIds(vertexId, label, neighbours);
+                assertThat(toList(neighbours)).as("list of %d", vertexId).
+                    containsExactlyElementsOf(expected);
+                assertThat(compressed.size(vertexId, label)).isEqualTo(expected.size());
+                // intersect with every other list, and with a sparse sample of this one so the
+                // blocks in between are skipped.
+                for (var otherVertexId = 0; otherVertexId < numVertices; otherVertexId++) {
+                    adjLists.setNeighbourIds(otherVertexId, label, someNeighbours);
+                    assertIntersects(compressed, vertexId, label, someNeighbours, intersection,
+                        expected);
+                }
+                var sample = new ArrayList<Integer>();
+                for (var i = 0; i < expected.size(); i += BLOCK_SIZE / 2 + 1) {
+                    sample.add(expected.get(i));
+                }
+                someNeighbours.Ids = sample.stream().mapToInt(Integer::intValue).toArray();
+                someNeighbours.startIdx = 0;
+                someNeighbours.endIdx = sample.size();
+                assertIntersects(compressed, vertexId, label, someNeighbours, intersection,
+                    expected);
+            }
+        }
+    }
+
+    private static void assertIntersects(CSRAdjLists compressed, int vertexId, short label,
+        Neighbours someNeighbours, Neighbours intersection, List<Integer> adjList) {
+        var expected = toList(someNeighbours);
+        expected.retainAll(adjList);
+        compressed.intersect(vertexId, label, someNeighbours, intersection);
+        assertThat(toList(intersection)).as("intersection of %d", vertexId).
+            containsExactlyElementsOf(expected);
+    }
+
+    /**
+     * @return adjacency lists of the given sizes, with one label, of random sorted IDs.
+     */
+    private static CSRAdjLists makeAdjLists(int... sizes) {
+        var random = new Random(sizes.length);
+        var offsets = new int[sizes.length + 1];
+        for (var i = 0; i < sizes.length; i++) {
+            offsets[i + 1] = offsets[i] + sizes[i];
+        }
+        var neighbourIds = new int[offsets[sizes.length]];
+        for (var i = 0; i < sizes.length; i++) {
+            var ids = random.ints(0, 4 * BLOCK_SIZE).distinct().limit(sizes[i]).sorted().
+                toArray();
+            System.arraycopy(ids, 0, neighbourIds, offsets[i], ids.length);
+        }
+        return new CSRAdjLists(1, offsets, neighbourIds);
+    }
+
+    private static List<Integer> toList(CSRAdjLists adjLists, int vertexId, short label) {
+        var neighbours = new Neighbours();
+        adjLists.setNeighbourIds(vertexId, label, neighbours);
+        return toList(neighbours);
+    }
+
+    private static List<Integer> toList(Neighbours neighbours) {
+        var ids = new ArrayList<Integer>();
+        for (var idx = neighbours.startIdx; idx < neighbours.endIdx; idx++) {
+            ids.add(neighbours.Ids[idx]);
+        }
+        return ids;
+    }
+}
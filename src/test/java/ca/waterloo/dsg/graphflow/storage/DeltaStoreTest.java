@@ -0,0 +1,235 @@
+package ca.waterloo.dsg.graphflow.storage;
+
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
+import lombok.var;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the edge updates of a {@link Graph} merged on read by the {@link DeltaStore} and folded
+ * by its compactions against reference adjacency sets, over each adjacency list format.
+ */
+public class DeltaStoreTest {
+
+    private static final short NUM_LABELS = 2;
+    // the vertex the edges of which make its adjacency lists span several compressed blocks.
+    private static final int HUB_VERTEX = 7;
+    private static final int HUB_DEGREE = 200;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private int compactionThreshold;
+    private int numVertices = 300;
+    private int numEdges = 3000;
+    // the reference adjacency sets by key {@code vertexId * NUM_LABELS + label}.
+    private List<TreeSet<Integer>> fwdAdjSets, bwdAdjSets;
+
+    @Before
+    public void setUp() {
+        compactionThreshold = DeltaStore.COMPACTION_THRESHOLD;
+    }
+
+    @After
+    public void tearDown() {
+        DeltaStore.COMPACTION_THRESHOLD = compactionThreshold;
+    }
+
+    @Test
+    public void testInsertDeleteAndReinsertOnCSRAdjLists() throws IOException {
+        testInsertDeleteAndReinsert(makeGraph());
+    }
+
+    @Test
+    public void testInsertDeleteAndReinsertOnCompressedAdjLists() throws IOException {
+        var graph = makeGraph();
+        graph.compressAdjLists();
+        testInsertDeleteAndReinsert(graph);
+        assertThat(graph.isAdjListCompressed()).isTrue();
+    }
+
+    @Test
+    public void testInsertDeleteAndReinsertOnHubBitmaps() throws IOException {
+        var graph = makeGraph();
+        graph.buildHubBitmaps(HUB_DEGREE / 2);
+        assertThat(graph.getFwdCSRAdjLists().getHubBitmaps().getNumHubs()).isPositive();
+        testInsertDeleteAndReinsert(graph);
+        assertThat(graph.hasHubBitmaps()).isTrue();
+    }
+
+    @Test
+    public void testUpdatesRacingCompactions() throws Exception {
+        // the lists are folded slowly enough for the updates to trigger compactions meanwhile.
+        numVertices = 20000;
+        numEdges = 200000;
+        DeltaStore.COMPACTION_THRESHOLD = 20;
+        var graph = makeGraph();
+        var isDone = new AtomicBoolean();
+        var failure = new AtomicReference<Throwable>();
+        var compactor = new Thread(() -> {
+            try {
+                while (!isDone.get()) {
+                    graph.compactDeltas();
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        compactor.start();
+        var random = new Random(0);
+        try {
+            for (var i = 0; i < 20000; i++) {
+                update(graph, random);
+            }
+        } finally {
+            isDone.set(true);
+            compactor.join();
+        }
+        assertThat(failure.get()).isNull();
+        assertMatchesAdjSets(graph);
+        graph.compactDeltas();
+        assertMatchesAdjSets(graph);
+    }
+
+    private void testInsertDeleteAndReinsert(Graph graph) {
+        DeltaStore.COMPACTION_THRESHOLD = 300;
+        var random = new Random(numEdges);
+        for (var i = 0; i < 2000; i++) {
+            update(graph, random);
+        }
+        assertMatchesAdjSets(graph);
+        // delete then re-insert the whole adjacency lists of the hub.
+        var hubEdges = new ArrayList<>(fwdAdjSets.get(HUB_VERTEX * NUM_LABELS));
+        for (var toVertex : hubEdges) {
+            assertThat(graph.deleteEdge(HUB_VERTEX, toVertex, (short) 0)).isTrue();
+            assertThat(graph.deleteEdge(HUB_VERTEX, toVertex, (short) 0)).isFalse();
+        }
+        assertThat(graph.getFwdCSRAdjLists().size(HUB_VERTEX, (short) 0)).isZero();
+        for (var toVertex : hubEdges) {
+            assertThat(graph.insertEdge(HUB_VERTEX, toVertex, (short) 0)).isTrue();
+            assertThat(graph.insertEdge(HUB_VERTEX, toVertex, (short) 0)).isFalse();
+        }
+        assertMatchesAdjSets(graph);
+        graph.compactDeltas();
+        assertMatchesAdjSets(graph);
+        for (var i = 0; i < 500; i++) {
+            update(graph, random);
+        }
+        assertMatchesAdjSets(graph);
+        var numEdgesLeft = 0;
+        for (var adjSet : fwdAdjSets) {
+            numEdgesLeft += adjSet.size();
+        }
+        assertThat(graph.getNumEdges()).isEqualTo(numEdgesLeft);
+    }
+
+    /**
+     * Inserts or deletes a random edge, half of the deletions deleting an existing edge.
+     */
+    private void update(Graph graph, Random random) {
+        var fromVertex = random.nextInt(numVertices);
+        var toVertex = random.nextInt(numVertices);
+        var label = (short) random.nextInt(NUM_LABELS);
+        var key = fromVertex * NUM_LABELS + label;
+        if (random.nextBoolean()) {
+            var isInserted = fwdAdjSets.get(key).add(toVertex);
+            bwdAdjSets.get(toVertex * NUM_LABELS + label).add(fromVertex);
+            assertThat(graph.insertEdge(fromVertex, toVertex, label)).isEqualTo(isInserted);
+        } else {
+            if (random.nextBoolean() && !fwdAdjSets.get(key).isEmpty()) {
+                toVertex = fwdAdjSets.get(key).first();
+            }
+            var isDeleted = fwdAdjSets.get(key).remove(toVertex);
+            bwdAdjSets.get(toVertex * NUM_LABELS + label).remove(fromVertex);
+            assertThat(graph.deleteEdge(fromVertex, toVertex, label)).isEqualTo(isDeleted);
+        }
+    }
+
+    private void assertMatchesAdjSets(Graph graph) {
+        assertMatchesAdjSets(graph.getFwdCSRAdjLists(), fwdAdjSets);
+        assertMatchesAdjSets(graph.getBwdCSRAdjLists(), bwdAdjSets);
+    }
+
+    private void assertMatchesAdjSets(CSRAdjLists adjLists, List<TreeSet<Integer>> adjSets) {
+        var neighbours = new Neighbours();
+        var otherNeighbours = new Neighbours();
+        var intersection = new Neighbours(numVertices);
+        for (var vertexId = 0; vertexId < numVertices; vertexId++) {
+            for (var label = (short) 0; label < NUM_LABELS; label++) {
+                var adjSet = adjSets.get(vertexId * NUM_LABELS + label);
+                adjLists.setNeighbourIds(vertexId, label, neighbours);
+                assertThat(toList(neighbours)).as("list of %d", vertexId).
+                    containsExactlyElementsOf(adjSet);
+                assertThat(adjLists.size(vertexId, label)).isEqualTo(adjSet.size());
+                // intersect with the hub's list so the bitmap kernels run too.
+                adjLists.setNeighbourIds(HUB_VERTEX, label, otherNeighbours);
+                var expected = new ArrayList<Integer>(adjSets.get(HUB_VERTEX * NUM_LABELS +
+                    label));
+                expected.retainAll(adjSet);
+                adjLists.intersect(vertexId, label, otherNeighbours, intersection);
+                assertThat(toList(intersection)).as("intersection of %d", vertexId).
+                    containsExactlyElementsOf(expected);
+            }
+        }
+    }
+
+    private static List<Integer> toList(Neighbours neighbours) {
+        var ids = new ArrayList<Integer>();
+        for (var idx = neighbours.startIdx; idx < neighbours.endIdx; idx++) {
+            ids.add(neighbours.Ids[idx]);
+        }
+        return ids;
+    }
+
+    /**
+     * @return a random graph with one hub which is also copied into the reference adjacency sets.
+     */
+    private Graph makeGraph() throws IOException {
+        fwdAdjSets = new ArrayList<>();
+        bwdAdjSets = new ArrayList<>();
+        for (var key = 0; key < numVertices * NUM_LABELS; key++) {
+            fwdAdjSets.add(new TreeSet<>());
+            bwdAdjSets.add(new TreeSet<>());
+        }
+        var random = new Random(0);
+        for (var i = 0; i < numEdges; i++) {
+            var fromVertex = i < HUB_DEGREE ? HUB_VERTEX : random.nextInt(numVertices);
+            var toVertex = random.nextInt(numVertices);
+            var label = i < HUB_DEGREE ? 0 : random.nextInt(NUM_LABELS);
+            fwdAdjSets.get(fromVertex * NUM_LABELS + label).add(toVertex);
+            bwdAdjSets.get(toVertex * NUM_LABELS + label).add(fromVertex);
+        }
+        var verticesFile = folder.newFile("vertices.csv");
+        try (var writer = new PrintWriter(verticesFile)) {
+            for (var vertexId = 0; vertexId < numVertices; vertexId++) {
+                writer.println(vertexId + ",v");
+            }
+        }
+        var edgesFile = folder.newFile("edges.csv");
+        try (var writer = new PrintWriter(edgesFile)) {
+            // the labels are keyed in the order they first appear.
+            for (var label = 0; label < NUM_LABELS; label++) {
+                for (var fromVertex = 0; fromVertex < numVertices; fromVertex++) {
+                    for (var toVertex : fwdAdjSets.get(fromVertex * NUM_LABELS + label)) {
+                        writer.println(fromVertex + "," + toVertex + ",l" + label);
+                    }
+                }
+            }
+        }
+        return new GraphFactory().make(verticesFile.getAbsolutePath(), ",",
+            edgesFile.getAbsolutePath(), ",", new KeyStore());
+    }
+}
@@ -0,0 +1,163 @@
+package ca.waterloo.dsg.graphflow.storage;
+
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
+import lombok.var;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the array and bitmap containers of {@link HubBitmaps} against the sorted adjacency lists
+ * they are built from.
+ */
+public class HubBitmapsTest {
+
+    private static final int DEGREE_THRESHOLD = 100;
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final Random random = new Random(0);
+    private CSRAdjLists adjLists;
+    private HubBitmaps hubBitmaps;
+
+    @Before
+    public void setUp() {
+        var arrayContainerMaxSize = HubBitmaps.ARRAY_CONTAINER_MAX_SIZE;
+        adjLists = makeAdjLists(new int[][] {
+            // a dense chunk stored as a bitmap.
+            makeSortedIds(0, 2 * arrayContainerMaxSize, CHUNK_SIZE),
+            // too small to be a hub.
+            makeSortedIds(0, DEGREE_THRESHOLD - 1, 4 * CHUNK_SIZE),
+            // sparse chunks stored as arrays, with a full array container.
+            concat(makeSortedIds(0, DEGREE_THRESHOLD, 3 * CHUNK_SIZE),
+                makeSortedIds(3 * CHUNK_SIZE, arrayContainerMaxSize, CHUNK_SIZE)),
+            // a bitmap chunk, an array chunk of close IDs and a chunk of one ID.
+            concat(makeSortedIds(CHUNK_SIZE, arrayContainerMaxSize + 1, CHUNK_SIZE),
+                makeSortedIds(2 * CHUNK_SIZE, DEGREE_THRESHOLD, 2 * DEGREE_THRESHOLD),
+                new int[] {5 * CHUNK_SIZE - 1}),
+            // bitmap chunks overlapping the chunks of the lists above.
+            makeSortedIds(0, 4 * CHUNK_SIZE / 3, 4 * CHUNK_SIZE),
+            new int[0]
+        });
+        hubBitmaps = HubBitmaps.make(adjLists, DEGREE_THRESHOLD);
+    }
+
+    @Test
+    public void testHubIdxs() {
+        assertThat(hubBitmaps.getNumHubs()).isEqualTo(4);
+        var hubIdx = 0;
+        for (var vertexId = 0; vertexId < adjLists.getNumVertices(); vertexId++) {
+            var isHub = adjLists.size(vertexId, (short) 0) >= DEGREE_THRESHOLD;
+            assertThat(hubBitmaps.getHubIdx(vertexId)).as("hub index of %d", vertexId).
+                isEqualTo(isHub ? hubIdx++ : -1);
+        }
+    }
+
+    @Test
+    public void testContains() {
+        for (var vertexId = 0; vertexId < adjLists.getNumVertices(); vertexId++) {
+            var hubIdx = hubBitmaps.getHubIdx(vertexId);
+            if (hubIdx < 0) {
+                continue;
+            }
+            var ids = getIds(vertexId);
+            var misreportedIds = new ArrayList<Integer>();
+            for (var id = 0; id < 5 * CHUNK_SIZE; id++) {
+                if (hubBitmaps.contains(hubIdx, id) != Arrays.binarySearch(ids, id) >= 0) {
+                    misreportedIds.add(id);
+                }
+            }
+            assertThat(misreportedIds).as("IDs misreported in %d", vertexId).isEmpty();
+        }
+    }
+
+    @Test
+    public void testProbe() {
+        for (var vertexId = 0; vertexId < adjLists.getNumVertices(); vertexId++) {
+            var hubIdx = hubBitmaps.getHubIdx(vertexId);
+            if (hubIdx < 0) {
+                continue;
+            }
+            var ids = getIds(vertexId);
+            for (var otherVertexId = 0; otherVertexId < adjLists.getNumVertices();
+                 otherVertexId++) {
+                var otherIds = getIds(otherVertexId);
+                var neighbours = new Neighbours(otherIds.length);
+                neighbours.reset();
+                hubBitmaps.probe(hubIdx, otherIds, 0, otherIds.length, neighbours);
+                assertThat(toArray(neighbours)).as("%d probed by %d", vertexId, otherVertexId).
+                    isEqualTo(naiveMerge(ids, otherIds));
+            }
+        }
+    }
+
+    @Test
+    public void testIntersect() {
+        for (var vertexId = 0; vertexId < adjLists.getNumVertices(); vertexId++) {
+            for (var otherVertexId = 0; otherVertexId < adjLists.getNumVertices();
+                 otherVertexId++) {
+                var expected = naiveMerge(getIds(vertexId), getIds(otherVertexId));
+                var hubIdx = hubBitmaps.getHubIdx(vertexId);
+                var otherHubIdx = hubBitmaps.getHubIdx(otherVertexId);
+                var neighbours = new Neighbours(CHUNK_SIZE * 5);
+                if (hubIdx >= 0 && otherHubIdx >= 0) {
+                    neighbours.reset();
+                    hubBitmaps.intersect(hubIdx, hubBitmaps, otherHubIdx, neighbours);
+                    assertThat(toArray(neighbours)).as("%d and %d", vertexId, otherVertexId).
+                        isEqualTo(expected);
+                }
+                // the adjacency lists pick the kernel by which lists are lists of hubs.
+                adjLists.setHubBitmaps(hubBitmaps);
+                var someNeighbours = new Neighbours();
+                adjLists.setNeighbourIds(otherVertexId, (short) 0, someNeighbours);
+                adjLists.intersect(vertexId, (short) 0, someNeighbours, neighbours);
+                assertThat(toArray(neighbours)).as("lists of %d and %d", vertexId,
+                    otherVertexId).isEqualTo(expected);
+                adjLists.setHubBitmaps(null);
+            }
+        }
+    }
+
+    private int[] getIds(int vertexId) {
+        var neighbours = new Neighbours();
+        adjLists.setNeighbourIds(vertexId, (short) 0, neighbours);
+        return toArray(neighbours);
+    }
+
+    private static int[] toArray(Neighbours neighbours) {
+        return Arrays.copyOfRange(neighbours.Ids, neighbours.startIdx, neighbours.endIdx);
+    }
+
+    private static int[] naiveMerge(int[] ids, int[] otherIds) {
+        return IntStream.of(ids).filter(id -> Arrays.binarySearch(otherIds, id) >= 0).toArray();
+    }
+
+    private int[] makeSortedIds(int firstId, int numIds, int span) {
+        return random.ints(firstId, firstId + span).distinct().limit(numIds).sorted().toArray();
+    }
+
+    private static int[] concat(int[]... ids) {
+        return Arrays.stream(ids).flatMapToInt(IntStream::of).toArray();
+    }
+
+    /**
+     * @return the adjacency lists with one label of the given sorted neighbour IDs by vertex.
+     */
+    private static CSRAdjLists makeAdjLists(int[][] adjLists) {
+        var offsets = new int[adjLists.length + 1];
+        for (var vertexId = 0; vertexId < adjLists.length; vertexId++) {
+            offsets[vertexId + 1] = offsets[vertexId] + adjLists[vertexId].length;
+        }
+        var neighbourIds = new int[offsets[adjLists.length]];
+        for (var vertexId = 0; vertexId < adjLists.length; vertexId++) {
+            System.arraycopy(adjLists[vertexId], 0, neighbourIds, offsets[vertexId],
+                adjLists[vertexId].length);
+        }
+        return new CSRAdjLists(1, offsets, neighbourIds);
+    }
+}
@@ -0,0 +1,139 @@
+package ca.waterloo.dsg.graphflow.storage;
+
+import ca.waterloo.dsg.graphflow.plan.operator.extend.EI.Neighbours;
+import lombok.var;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the intersection kernels of {@link SortedAdjList}, the ones timed by the intersect
+ * benchmark, against a naive merge over lists of various sizes and densities.
+ */
+public class SortedAdjListTest {
+
+    private static final int LARGE_LIST_SIZE = 4096;
+    // the ranges the IDs are drawn from as multiples of the large list size.
+    private static final int[] SPAN_RATIOS = { 1 /* every ID */, 2 /* dense */, 64 /* sparse */ };
+    // the IDs before and after the lists in their arrays which the kernels should skip.
+    private static final int PADDING = 3;
+
+    private final Random random = new Random(0);
+
+    @Test
+    public void testMerge() {
+        testKernel((small, large, neighbours) -> SortedAdjList.merge(small.Ids, small.startIdx,
+            small.endIdx, large.Ids, large.startIdx, large.endIdx, neighbours));
+        testKernel((small, large, neighbours) -> SortedAdjList.merge(large.Ids, large.startIdx,
+            large.endIdx, small.Ids, small.startIdx, small.endIdx, neighbours));
+    }
+
+    @Test
+    public void testGallop() {
+        testKernel((small, large, neighbours) -> SortedAdjList.gallop(small.Ids, small.startIdx,
+            small.endIdx, large.Ids, large.startIdx, large.endIdx, neighbours));
+    }
+
+    @Test
+    public void testProbeBitmap() {
+        testKernel((small, large, neighbours) -> SortedAdjList.probeBitmap(small.Ids,
+            small.startIdx, small.endIdx, large.Ids, large.startIdx, large.endIdx, neighbours));
+        testKernel((small, large, neighbours) -> SortedAdjList.probeBitmap(large.Ids,
+            large.startIdx, large.endIdx, small.Ids, small.startIdx, small.endIdx, neighbours));
+    }
+
+    @Test
+    public void testAdaptiveIntersect() {
+        testKernel((small, large, neighbours) -> SortedAdjList.intersect(small, neighbours,
+            large.Ids, large.startIdx, large.endIdx));
+        testKernel((small, large, neighbours) -> SortedAdjList.intersect(large, neighbours,
+            small.Ids, small.startIdx, small.endIdx));
+    }
+
+    @Test
+    public void testDisjointAndEmptyLists() {
+        var low = makeNeighbours(new int[] {1, 2, 3, 5, 8});
+        var high = makeNeighbours(new int[] {13, 21, 34});
+        var empty = makeNeighbours(new int[0]);
+        Kernel[] kernels = {
+            (some, other, out) -> SortedAdjList.merge(some.Ids, some.startIdx, some.endIdx,
+                other.Ids, other.startIdx, other.endIdx, out),
+            (some, other, out) -> SortedAdjList.gallop(some.Ids, some.startIdx, some.endIdx,
+                other.Ids, other.startIdx, other.endIdx, out),
+            (some, other, out) -> SortedAdjList.probeBitmap(some.Ids, some.startIdx,
+                some.endIdx, other.Ids, other.startIdx, other.endIdx, out),
+            (some, other, out) -> SortedAdjList.intersect(some, out, other.Ids, other.startIdx,
+                other.endIdx)
+        };
+        for (var kernel : kernels) {
+            for (var lists : new Neighbours[][] {{low, high}, {high, low}, {low, empty},
+                    {empty, low}, {empty, empty}}) {
+                var neighbours = new Neighbours(LARGE_LIST_SIZE);
+                neighbours.reset();
+                kernel.intersect(lists[0], lists[1], neighbours);
+                assertThat(neighbours.endIdx).isZero();
+            }
+        }
+    }
+
+    /**
+     * A kernel appending the intersection of a small and a large list to the neighbours.
+     */
+    private interface Kernel {
+        void intersect(Neighbours small, Neighbours large, Neighbours neighbours);
+    }
+
+    private void testKernel(Kernel kernel) {
+        for (var spanRatio : SPAN_RATIOS) {
+            var large = makeNeighbours(makeSortedIds(LARGE_LIST_SIZE, spanRatio));
+            for (var smallListSize = 1; smallListSize <= LARGE_LIST_SIZE; smallListSize <<= 1) {
+                var small = makeNeighbours(makeSortedIds(smallListSize, spanRatio));
+                var expected = naiveMerge(small, large);
+                var neighbours = new Neighbours(LARGE_LIST_SIZE);
+                neighbours.reset();
+                kernel.intersect(small, large, neighbours);
+                assertThat(Arrays.copyOfRange(neighbours.Ids, neighbours.startIdx,
+                    neighbours.endIdx)).as("%d IDs out of %d", smallListSize, spanRatio *
+                    LARGE_LIST_SIZE).containsExactly(expected);
+            }
+        }
+    }
+
+    private static int[] naiveMerge(Neighbours some, Neighbours other) {
+        var ids = new int[Math.min(some.endIdx - some.startIdx, other.endIdx - other.startIdx)];
+        var numIds = 0;
+        var otherIdx = other.startIdx;
+        for (var idx = some.startIdx; idx < some.endIdx; idx++) {
+            while (otherIdx < other.endIdx && other.Ids[otherIdx] < some.Ids[idx]) {
+                otherIdx++;
+            }
+            if (otherIdx < other.endIdx && other.Ids[otherIdx] == some.Ids[idx]) {
+                ids[numIds++] = some.Ids[idx];
+            }
+        }
+        return Arrays.copyOf(ids, numIds);
+    }
+
+    private int[] makeSortedIds(int numIds, int spanRatio) {
+        return random.ints(0, spanRatio * LARGE_LIST_SIZE).distinct().limit(numIds).sorted().
+            toArray();
+    }
+
+    /**
+     * @return neighbours holding the IDs between IDs out of their range, which the kernels
+     * should not read.
+     */
+    private static Neighbours makeNeighbours(int[] ids) {
+        var neighbours = new Neighbours(ids.length + 2 * PADDING);
+        Arrays.fill(neighbours.Ids, 0, PADDING, Integer.MIN_VALUE);
+        System.arraycopy(ids, 0, neighbours.Ids, PADDING, ids.length);
+        Arrays.fill(neighbours.Ids, PADDING + ids.length, neighbours.Ids.length,
+            Integer.MAX_VALUE);
+        neighbours.startIdx = PADDING;
+        neighbours.endIdx = PADDING + ids.length;
+        return neighbours;
+    }
+}
@@ -0,0 +1,148 @@
+package ca.waterloo.dsg.graphflow.util.collection;
+
+import lombok.var;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the sorts and the {@link PairBuffer.Index} of {@link PairBuffer}, on and off the heap,
+ * against a list of pairs and a map of the second values by first value.
+ */
+public class PairBufferTest {
+
+    private static final int NUM_KEYS = 1000;
+    private static final int NUM_PAIRS = 20000;
+
+    @Test
+    public void testAddOnHeap() {
+        testAdd(false /* isOffHeap */);
+    }
+
+    @Test
+    public void testAddOffHeap() {
+        testAdd(true /* isOffHeap */);
+    }
+
+    @Test
+    public void testSortOnHeap() {
+        testSort(false /* isOffHeap */);
+    }
+
+    @Test
+    public void testSortOffHeap() {
+        testSort(true /* isOffHeap */);
+    }
+
+    @Test
+    public void testIndexOnHeap() {
+        testIndex(false /* isOffHeap */);
+    }
+
+    @Test
+    public void testIndexOffHeap() {
+        testIndex(true /* isOffHeap */);
+    }
+
+    private void testAdd(boolean isOffHeap) {
+        var random = new Random(0);
+        // the buffers grow from a single pair.
+        var pairs = new PairBuffer(1, isOffHeap);
+        var expected = addRandomPairs(pairs, random);
+        assertMatches(pairs, expected);
+        var otherPairs = new PairBuffer(1, !isOffHeap);
+        expected.addAll(addRandomPairs(otherPairs, random));
+        pairs.addAll(otherPairs);
+        assertMatches(pairs, expected);
+        var forEachPairs = new PairBuffer(1, isOffHeap);
+        pairs.forEach(forEachPairs::add);
+        assertMatches(forEachPairs, expected);
+        pairs.clear();
+        assertThat(pairs.getSize()).isZero();
+        pairs.add(1, 2);
+        assertThat(pairs.getFirst(0)).isEqualTo(1);
+        assertThat(pairs.getSecond(0)).isEqualTo(2);
+    }
+
+    private void testSort(boolean isOffHeap) {
+        var random = new Random(1);
+        var pairs = new PairBuffer(16, isOffHeap);
+        var expected = addRandomPairs(pairs, random);
+        // the sorts are stable.
+        expected.sort(Comparator.comparingInt(pair -> pair[0]));
+        pairs.sortByFirst(NUM_KEYS);
+        assertMatches(pairs, expected);
+        expected.sort(Comparator.comparingInt(pair -> pair[1]));
+        pairs.sortBySecond(NUM_KEYS);
+        assertMatches(pairs, expected);
+    }
+
+    private void testIndex(boolean isOffHeap) {
+        var random = new Random(2);
+        var pairs = new PairBuffer(16, isOffHeap);
+        var pairsAdded = addRandomPairs(pairs, random);
+        var expected = new TreeMap<Integer, List<Integer>>();
+        for (var pair : pairsAdded) {
+            expected.computeIfAbsent(pair[0], key -> new ArrayList<>()).add(pair[1]);
+        }
+        var index = pairs.toIndex(NUM_KEYS);
+        assertThat(index.getValues()).hasSize(NUM_PAIRS);
+        for (var key = 0; key < NUM_KEYS + 10; key++) {
+            var values = new ArrayList<Integer>();
+            for (var idx = index.getStartIdx(key); idx < index.getEndIdx(key); idx++) {
+                values.add(index.getValues()[idx]);
+            }
+            // keys past the number of keys have no values.
+            assertThat(values).as("values of %d", key).containsExactlyElementsOf(
+                expected.getOrDefault(key, new ArrayList<>()));
+        }
+        var sortedPairs = new ArrayList<int[]>();
+        expected.forEach((key, values) -> values.forEach(value -> sortedPairs.add(
+            new int[] {key, value})));
+        assertMatches(index.toPairs(), sortedPairs);
+    }
+
+    /**
+     * Adds random pairs to the buffer one at a time and by runs with the same first value.
+     *
+     * @return the pairs added.
+     */
+    private static List<int[]> addRandomPairs(PairBuffer pairs, Random random) {
+        var pairsAdded = new ArrayList<int[]>();
+        while (pairsAdded.size() < NUM_PAIRS) {
+            var first = random.nextInt(NUM_KEYS);
+            if (random.nextBoolean()) {
+                var second = random.nextInt(NUM_KEYS);
+                pairs.add(first, second);
+                pairsAdded.add(new int[] {first, second});
+            } else {
+                var secondValues = random.ints(random.nextInt(8) + 2, 0, NUM_KEYS).toArray();
+                var startIdx = random.nextInt(2);
+                var endIdx = Math.min(secondValues.length, startIdx + NUM_PAIRS -
+                    pairsAdded.size());
+                pairs.addAll(first, secondValues, startIdx, endIdx);
+                for (var idx = startIdx; idx < endIdx; idx++) {
+                    pairsAdded.add(new int[] {first, secondValues[idx]});
+                }
+            }
+        }
+        return pairsAdded;
+    }
+
+    private static void assertMatches(PairBuffer pairs, List<int[]> expected) {
+        assertThat(pairs.getSize()).isEqualTo(expected.size());
+        for (var idx = 0; idx < expected.size(); idx++) {
+            if (pairs.getFirst(idx) != expected.get(idx)[0] ||
+                pairs.getSecond(idx) != expected.get(idx)[1]) {
+                assertThat(new int[] {pairs.getFirst(idx), pairs.getSecond(idx)}).
+                    as("pair %d", idx).containsExactly(expected.get(idx));
+            }
+        }
+    }
+}